@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorPreFlightException;
+import net.lbruun.dbleaderelect.internal.events.EventImpl;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.H2Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the delivery of an event to the application's listener: from
+ * the election thread handing the event to {@code LeaderElector.sendEvent}
+ * until the listener has been invoked on the notification thread. This
+ * is the hand-off between the two threads plus the bookkeeping done
+ * around the listener (dispatch lag metric and JFR event).
+ *
+ * <p>
+ * {@code sendEvent} is private, so it is invoked through a method handle.
+ * Each operation waits for the event to be delivered before the next one
+ * is sent, so the notification queue never builds up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    private static final MethodHandle SEND_EVENT = sendEventHandle();
+
+    private H2Database database;
+    private LeaderElector leaderElector;
+    private CountingListener listener;
+    private LeaderElectorListener.Event event;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setup() throws LeaderElectorPreFlightException {
+        database = new H2Database();
+        listener = new CountingListener();
+        event = new EventImpl(EventType.LEADERSHIP_CONFIRMED, Instant.now(), 
+                "BENCH", "bench", null, 1, null);
+        listener.expected = event;
+        leaderElector = new LeaderElector(LeaderElectorConfiguration.builder()
+                .withRoleId("BENCH")
+                .withCandidateId("bench")
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withCreateTable(true)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener(listener)
+                .build(), database.getDataSource());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        leaderElector.close();
+        database.close();
+    }
+
+    @Benchmark
+    public long sendEvent() throws Throwable {
+        long sequence = ++sent;
+        SEND_EVENT.invokeExact(leaderElector, event);
+        while (listener.delivered < sequence) {
+            // Spin until the notification thread has caught up
+        }
+        return sequence;
+    }
+
+    private static MethodHandle sendEventHandle() {
+        try {
+            Method method = LeaderElector.class.getDeclaredMethod("sendEvent", LeaderElectorListener.Event.class);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("LeaderElector.sendEvent(Event) not found", ex);
+        }
+    }
+
+    // Only counts the benchmark's own event, not those of the elections
+    // the LeaderElector runs in the background.
+    private static final class CountingListener implements LeaderElectorListener {
+
+        private volatile LeaderElectorListener.Event expected;
+        private volatile long delivered;
+
+        @Override
+        @SuppressWarnings("NonAtomicVolatileUpdate") // single writer: the notification thread
+        public void onLeaderElectionEvent(Event event, LeaderElector leaderElector) {
+            if (event == expected) {
+                delivered++;
+            }
+        }
+    }
+}
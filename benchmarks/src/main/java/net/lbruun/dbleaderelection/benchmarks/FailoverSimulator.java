@@ -0,0 +1,400 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionNonRecoverable;
+import net.lbruun.dbleaderelect.exception.LeaderElectorPreFlightException;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.CountingDataSource;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.H2Database;
+
+/**
+ * Measures how long failover actually takes for a given {@code intervalMs}
+ * and {@code assumeDeadMs}.
+ *
+ * <p>
+ * A number of candidates, each a {@link LeaderElector}, are started 
+ * in-process against one embedded H2 database. Once there is a leader, a
+ * fault is injected into it at a random point of its election interval:
+ * <ul>
+ *   <li>{@code KILL}: the leader disappears for good, as if the process
+ *       had crashed. It is replaced by a new candidate so that the number 
+ *       of candidates stays the same.</li>
+ *   <li>{@code PAUSE}: the leader is frozen for 
+ *       1.5 &times; {@code assumeDeadMs}, as in a long GC pause, and then
+ *       comes back. Every JDBC call it makes blocks until the pause ends,
+ *       so its election thread hangs in the middle of a cycle, possibly
+ *       while holding a lock on the election table, and carries on where
+ *       it left off afterwards. Unlike a killed leader it still counts 
+ *       while it believes it is leader.</li>
+ * </ul>
+ * Only the victim's JDBC calls are frozen, not the rest of its 
+ * {@code LeaderElector}. Its {@code isLeader()} keeps answering from its
+ * last belief and is sampled as usual. Its lease watchdog would keep 
+ * running too and revoke leadership in the middle of the pause, which a 
+ * frozen process could not do. The watchdog is therefore disabled in 
+ * {@code PAUSE} simulations, so the overlap is what a leader which is 
+ * frozen in its entirety could act on when it comes back.
+ * Every millisecond, {@code isLeader()} of each candidate is sampled. From
+ * that, every round yields:
+ * <ul>
+ *   <li>time to new leader: from the fault until another candidate 
+ *       believes it is leader.</li>
+ *   <li>leaderless gap: the time during which no candidate believes it is
+ *       leader.</li>
+ *   <li>overlap: the time during which two or more candidates believe they
+ *       are leader.</li>
+ * </ul>
+ * The simulation is run for every combination of the configured values
+ * and the result is one CSV line per combination, with percentiles over
+ * the rounds, and the number of statements executed against the database 
+ * per second (all candidates together).
+ *
+ * <p>
+ * Settings are system properties. Lists are comma-separated:
+ * <pre>
+ *   java -cp benchmarks.jar \
+ *       -Dbench.candidates=3,5 \
+ *       -Dbench.intervalMs=500,1000 \
+ *       -Dbench.assumeDeadMs=4000,6000 \
+ *       -Dbench.faults=KILL,PAUSE \
+ *       -Dbench.rounds=10 \
+ *       -Dbench.seed=42 \
+ *       -Dbench.out=failover.csv \
+ *       net.lbruun.dbleaderelection.benchmarks.FailoverSimulator
+ * </pre>
+ * Combinations where {@code assumeDeadMs} is too small for 
+ * {@code intervalMs} are skipped. Without {@code bench.out} the CSV goes to
+ * {@code stdout}; progress always goes to {@code stderr}.
+ */
+public class FailoverSimulator {
+
+    /**
+     * Fault injected into the leader.
+     */
+    public enum Fault {
+        KILL,
+        PAUSE
+    }
+
+    static final String CSV_HEADER = "fault,candidates,intervalMs,assumeDeadMs,rounds,timeouts,"
+            + "newLeaderP50Ms,newLeaderP90Ms,newLeaderP99Ms,newLeaderMaxMs,"
+            + "gapP50Ms,gapP90Ms,gapP99Ms,gapMaxMs,"
+            + "overlapP50Ms,overlapP90Ms,overlapP99Ms,overlapMaxMs,"
+            + "statementsPerSec";
+
+    private static final String ROLE_ID = "FAILOVER";
+    private static final long SAMPLE_INTERVAL_MS = 1;
+
+    private final Fault fault;
+    private final int candidates;
+    private final long intervalMs;
+    private final long assumeDeadMs;
+    private final Random random;
+
+    private final LongAdder statements = new LongAdder();
+    private final List<Node> nodes = new ArrayList<>();
+    private int nodesCreated;
+
+    FailoverSimulator(Fault fault, int candidates, long intervalMs, long assumeDeadMs, Random random) {
+        this.fault = fault;
+        this.candidates = candidates;
+        this.intervalMs = intervalMs;
+        this.assumeDeadMs = assumeDeadMs;
+        this.random = random;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long[] candidateCounts = longs("bench.candidates", "3");
+        long[] intervals = longs("bench.intervalMs", "500,1000");
+        long[] assumeDeads = longs("bench.assumeDeadMs", "4000,6000");
+        String[] faults = System.getProperty("bench.faults", "KILL,PAUSE").split(",");
+        int rounds = Integer.getInteger("bench.rounds", 5);
+        Random random = new Random(Long.getLong("bench.seed", 42L));
+        String out = System.getProperty("bench.out");
+
+        try (PrintStream csv = (out == null) ? new PrintStream(System.out, true) : new PrintStream(out)) {
+            csv.println(CSV_HEADER);
+            for (String faultName : faults) {
+                Fault fault = Fault.valueOf(faultName.trim().toUpperCase(Locale.ROOT));
+                for (long candidates : candidateCounts) {
+                    for (long intervalMs : intervals) {
+                        for (long assumeDeadMs : assumeDeads) {
+                            if (assumeDeadMs <= intervalMs + 3000) {
+                                System.err.println("Skipping intervalMs=" + intervalMs + ", assumeDeadMs=" 
+                                        + assumeDeadMs + ": assumeDeadMs must be more than intervalMs + 3000");
+                                continue;
+                            }
+                            System.err.println("Simulating " + fault + " with " + candidates + " candidates, intervalMs=" 
+                                    + intervalMs + ", assumeDeadMs=" + assumeDeadMs);
+                            FailoverSimulator simulator = new FailoverSimulator(
+                                    fault, (int) candidates, intervalMs, assumeDeadMs, random);
+                            csv.println(simulator.run(rounds).toCsv());
+                            csv.flush();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the simulation.
+     * @param rounds number of faults to inject
+     * @return result
+     */
+    Result run(int rounds) throws SQLException, LeaderElectorPreFlightException, InterruptedException {
+        Result result = new Result(this, rounds);
+        try (H2Database database = new H2Database()) {
+            database.getDataSource().setMaxConnections(candidates * 4);
+            long startNanos = System.nanoTime();
+            try {
+                for (int i = 0; i < candidates; i++) {
+                    nodes.add(startNode(database));
+                }
+                for (int round = 0; round < rounds; round++) {
+                    runRound(database, result);
+                }
+            } finally {
+                for (Node node : nodes) {
+                    node.elector.close();
+                }
+                nodes.clear();
+            }
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            result.statementsPerSecond = statements.sum() / seconds;
+        }
+        return result;
+    }
+
+    private void runRound(H2Database database, Result result) throws LeaderElectorPreFlightException, InterruptedException {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(10 * assumeDeadMs);
+        Node victim = awaitSingleLeader(timeoutNanos);
+        if (victim == null) {
+            result.timeouts++;
+            return;
+        }
+        // Strike at a random point of the victim's election interval
+        Thread.sleep((long) (random.nextDouble() * intervalMs));
+
+        if (fault == Fault.KILL) {
+            victim.dataSource.setAvailable(false);
+            victim.observed = false;
+        } else {
+            victim.dataSource.setPaused(true);
+        }
+        long faultNanos = System.nanoTime();
+        long restoreNanos = faultNanos + TimeUnit.MILLISECONDS.toNanos(assumeDeadMs * 3 / 2);
+        long deadlineNanos = faultNanos + timeoutNanos;
+
+        long newLeaderNanos = -1;
+        long gapNanos = 0;
+        long overlapNanos = 0;
+        long previousNanos = faultNanos;
+        while (true) {
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+            long now = System.nanoTime();
+            if (fault == Fault.PAUSE && victim.dataSource.isPaused() && now >= restoreNanos) {
+                victim.dataSource.setPaused(false);
+            }
+            int believers = 0;
+            boolean otherLeader = false;
+            for (Node node : nodes) {
+                if (node.observed && node.isLeader()) {
+                    believers++;
+                    otherLeader |= (node != victim);
+                }
+            }
+            if (believers == 0) {
+                gapNanos += now - previousNanos;
+            } else if (believers > 1) {
+                overlapNanos += now - previousNanos;
+            }
+            previousNanos = now;
+            if (otherLeader && newLeaderNanos < 0) {
+                newLeaderNanos = now - faultNanos;
+            }
+            boolean victimSettled = (fault == Fault.KILL)
+                    || (!victim.dataSource.isPaused() && !victim.isLeader());
+            if (newLeaderNanos >= 0 && victimSettled && believers == 1) {
+                break;
+            }
+            if (now > deadlineNanos) {
+                result.timeouts++;
+                break;
+            }
+        }
+        if (fault == Fault.KILL) {
+            nodes.remove(victim);
+            victim.elector.close();
+            nodes.add(startNode(database));
+        }
+        if (newLeaderNanos >= 0) {
+            result.add(newLeaderNanos, gapNanos, overlapNanos);
+        }
+    }
+
+    private Node awaitSingleLeader(long timeoutNanos) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeoutNanos;
+        while (System.nanoTime() < deadlineNanos) {
+            Node leader = null;
+            int believers = 0;
+            for (Node node : nodes) {
+                if (node.isLeader()) {
+                    leader = node;
+                    believers++;
+                }
+            }
+            if (believers == 1) {
+                return leader;
+            }
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+        }
+        return null;
+    }
+
+    private Node startNode(H2Database database) throws LeaderElectorPreFlightException {
+        String candidateId = "candidate-" + (++nodesCreated);
+        CountingDataSource dataSource = new CountingDataSource(database.getDataSource(), statements);
+        LeaderElectorConfiguration.Builder configuration = LeaderElectorConfiguration.builder()
+                .withRoleId(ROLE_ID)
+                .withCandidateId(candidateId)
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withCreateTable(true)
+                .withIntervalMs(intervalMs)
+                .withAssumeDeadMs(assumeDeadMs)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener((event, leaderElector) -> { });
+        if (fault == Fault.PAUSE) {
+            // A frozen process would not run its watchdog either
+            configuration.withWatchdogThresholdMs(0);
+        }
+        LeaderElector elector = new LeaderElector(configuration.build(), dataSource);
+        return new Node(elector, dataSource);
+    }
+
+    private static long[] longs(String property, String defaultValue) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(","))
+                .map(String::trim)
+                .mapToLong(Long::parseLong)
+                .toArray();
+    }
+
+    private static final class Node {
+
+        private final LeaderElector elector;
+        private final CountingDataSource dataSource;
+        private volatile boolean observed = true;
+
+        Node(LeaderElector elector, CountingDataSource dataSource) {
+            this.elector = elector;
+            this.dataSource = dataSource;
+        }
+
+        boolean isLeader() {
+            try {
+                return elector.isLeader();
+            } catch (LeaderElectorExceptionNonRecoverable ex) {
+                return false;  // closed
+            }
+        }
+    }
+
+    /**
+     * Outcome of the simulation of one combination of settings.
+     */
+    static final class Result {
+
+        private final FailoverSimulator simulator;
+        private final long[] newLeaderNanos;
+        private final long[] gapNanos;
+        private final long[] overlapNanos;
+        private int measured;
+        private int timeouts;
+        private double statementsPerSecond;
+
+        Result(FailoverSimulator simulator, int rounds) {
+            this.simulator = simulator;
+            this.newLeaderNanos = new long[rounds];
+            this.gapNanos = new long[rounds];
+            this.overlapNanos = new long[rounds];
+        }
+
+        void add(long newLeader, long gap, long overlap) {
+            newLeaderNanos[measured] = newLeader;
+            gapNanos[measured] = gap;
+            overlapNanos[measured] = overlap;
+            measured++;
+        }
+
+        int getMeasuredRounds() {
+            return measured;
+        }
+
+        int getTimeouts() {
+            return timeouts;
+        }
+
+        long getNewLeaderMillis(double percentile) {
+            return percentileMillis(newLeaderNanos, percentile);
+        }
+
+        long getOverlapMillis(double percentile) {
+            return percentileMillis(overlapNanos, percentile);
+        }
+
+        String toCsv() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(simulator.fault)
+                    .append(',').append(simulator.candidates)
+                    .append(',').append(simulator.intervalMs)
+                    .append(',').append(simulator.assumeDeadMs)
+                    .append(',').append(measured)
+                    .append(',').append(timeouts);
+            for (long[] values : new long[][]{newLeaderNanos, gapNanos, overlapNanos}) {
+                for (double percentile : new double[]{50, 90, 99, 100}) {
+                    sb.append(',').append(percentileMillis(values, percentile));
+                }
+            }
+            sb.append(',').append(String.format(Locale.ROOT, "%.1f", statementsPerSecond));
+            return sb.toString();
+        }
+
+        // Nearest-rank percentile, or -1 if nothing was measured
+        private long percentileMillis(long[] values, double percentile) {
+            if (measured == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(values, measured);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * measured);
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, rank - 1)]);
+        }
+    }
+}
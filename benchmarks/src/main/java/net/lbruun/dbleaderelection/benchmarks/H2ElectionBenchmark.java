@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.H2Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the steady-state election cycle against an embedded, 
+ * in-memory, H2 database. Same cycles as 
+ * {@link SteadyStateElectionBenchmark} but with a real JDBC driver, 
+ * real SQL parsing and real transactions. The difference between the
+ * two is what the database round trips cost, as opposed to the
+ * library's own overhead.
+ *
+ * <p>
+ * Both throughput and the latency distribution (percentiles) are 
+ * reported.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class H2ElectionBenchmark {
+
+    static final String ROLE_ID = "BENCH";
+
+    private H2Database database;
+    private SQLLeaderElect leader;
+    private SQLLeaderElect leaderLocked;
+    private SQLLeaderElect follower;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        database = new H2Database();
+        leader = new SQLLeaderElect(configuration("leader", ROLE_ID, true), database.getDataSource(), "h2");
+        follower = new SQLLeaderElect(configuration("follower", ROLE_ID, true), database.getDataSource(), "h2");
+        // On its own row, as it would otherwise compete with 'leader'
+        leaderLocked = new SQLLeaderElect(configuration("leader", ROLE_ID + "_LOCKED", false), database.getDataSource(), "h2");
+        leader.ensureTable();
+        leader.ensureRoleRow();
+        leaderLocked.ensureRoleRow();
+
+        assumeLeadership(leader);
+        assumeLeadership(leaderLocked);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        leader.close();
+        leaderLocked.close();
+        follower.close();
+        database.close();
+    }
+
+    @Benchmark
+    public EventType leaderRenew() {
+        return leader.runElection(false).getEventType();
+    }
+
+    @Benchmark
+    public EventType leaderRenewLocked() {
+        return leaderLocked.runElection(false).getEventType();
+    }
+
+    @Benchmark
+    public EventType followerNoop() {
+        return follower.runElection(false).getEventType();
+    }
+
+    private static void assumeLeadership(SQLLeaderElect leaderElect) {
+        ElectionCycle cycle = leaderElect.runElection(false);
+        if (cycle.getEventType() != EventType.LEADERSHIP_ASSUMED) {
+            throw new IllegalStateException("Expected leader to assume leadership, got " + cycle.getEventType());
+        }
+    }
+
+    private static LeaderElectorConfiguration configuration(String candidateId, String roleId, boolean renewalFastPath) {
+        return LeaderElectorConfiguration.builder()
+                .withRoleId(roleId)
+                .withCandidateId(candidateId)
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withCreateTable(true)
+                .withRenewalFastPath(renewalFastPath)
+                // The follower must never see the lease as expired, however
+                // long the benchmark runs.
+                .withIntervalMs(60_000)
+                .withAssumeDeadMs(3_600_000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener(new LeaderElectorListener.NoOpListener())
+                .build();
+    }
+}
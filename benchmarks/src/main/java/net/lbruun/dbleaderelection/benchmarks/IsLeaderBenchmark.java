@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionNonRecoverable;
+import net.lbruun.dbleaderelect.exception.LeaderElectorPreFlightException;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.H2Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link LeaderElector#isLeader()}, which applications may call
+ * on every request, from one thread and from as many threads as there are
+ * CPUs. Meanwhile the LeaderElector renews its lease every few 
+ * milliseconds, so that the readers race against the election thread
+ * updating the leadership state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsLeaderBenchmark {
+
+    private static final long INTERVAL_MS = 5;
+
+    private H2Database database;
+    private LeaderElector leaderElector;
+
+    @Setup(Level.Trial)
+    public void setup() throws LeaderElectorPreFlightException, LeaderElectorExceptionNonRecoverable, InterruptedException {
+        database = new H2Database();
+        leaderElector = new LeaderElector(LeaderElectorConfiguration.builder()
+                .withRoleId("BENCH")
+                .withCandidateId("bench")
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withCreateTable(true)
+                .withIntervalMs(INTERVAL_MS)
+                .withAssumeDeadMs(INTERVAL_MS + 10_000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener(new LeaderElectorListener.NoOpListener())
+                .build(), database.getDataSource());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!leaderElector.isLeader()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Did not become leader");
+            }
+            Thread.sleep(INTERVAL_MS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        leaderElector.close();
+        database.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean isLeader() throws LeaderElectorExceptionNonRecoverable {
+        return leaderElector.isLeader();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isLeaderContended() throws LeaderElectorExceptionNonRecoverable {
+        return leaderElector.isLeader();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.TableStorageProfile;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.DriverManagerDataSource;
+
+/**
+ * Measures the amount of write-ahead log (PostgreSQL) or redo (Oracle)
+ * generated per lease renewal, for each {@link TableStorageProfile}.
+ *
+ * <p>
+ * This is not a JMH benchmark: what is measured is bytes written by the
+ * database, not time. It needs a real database, ideally one which
+ * nothing else is writing to, as the log position is instance-wide:
+ * <pre>
+ *   java -cp benchmarks.jar \
+ *       -Dbench.jdbcUrl=jdbc:postgresql://localhost:5432/postgres \
+ *       -Dbench.user=postgres -Dbench.password=secret \
+ *       -Dbench.renewals=10000 \
+ *       net.lbruun.dbleaderelection.benchmarks.RenewalWalBenchmark
+ * </pre>
+ * On Oracle the user must be able to read {@code V$SYSSTAT}.
+ */
+public class RenewalWalBenchmark {
+
+    private static final String TABLE_NAME = "db_leader_elect_walbench";
+
+    public static void main(String[] args) throws SQLException {
+        String jdbcUrl = System.getProperty("bench.jdbcUrl");
+        if (jdbcUrl == null) {
+            System.err.println("System property bench.jdbcUrl is required");
+            System.exit(1);
+        }
+        int renewals = Integer.getInteger("bench.renewals", 10000);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                jdbcUrl,
+                System.getProperty("bench.user"),
+                System.getProperty("bench.password"));
+
+        DatabaseEngine databaseEngine;
+        try (Connection connection = dataSource.getConnection()) {
+            databaseEngine = DatabaseEngine.getDatabaseEngineFromConnection(connection);
+        }
+        if (databaseEngine != DatabaseEngine.POSTGRESQL && databaseEngine != DatabaseEngine.ORACLE) {
+            System.err.println("Log volume can only be measured on PostgreSQL and Oracle, not " + databaseEngine);
+            System.exit(1);
+        }
+
+        System.out.printf("%-16s %12s %16s%n", "Profile", "Renewals", "Log bytes/renewal");
+        for (TableStorageProfile profile : TableStorageProfile.values()) {
+            double bytesPerRenewal = measure(dataSource, databaseEngine, profile, renewals);
+            System.out.printf("%-16s %12d %16.1f%n", profile, renewals, bytesPerRenewal);
+        }
+    }
+
+    private static double measure(DriverManagerDataSource dataSource, DatabaseEngine databaseEngine,
+            TableStorageProfile profile, int renewals) throws SQLException {
+        LeaderElectorConfiguration configuration = LeaderElectorConfiguration.builder()
+                .withRoleId("WALBENCH")
+                .withDatabaseEngine(databaseEngine)
+                .withTableName(TABLE_NAME)
+                .withCreateTable(true)
+                .withTableStorageProfile(profile)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener(new LeaderElectorListener.NoOpListener())
+                .build();
+        SQLLeaderElect leader = new SQLLeaderElect(configuration, dataSource, TABLE_NAME);
+
+        try (Connection measureConnection = dataSource.getConnection()) {
+            try {
+                leader.ensureTable();
+                leader.ensureRoleRow();
+                ElectionCycle cycle = leader.runElection(false);
+                if (cycle.getEventType() != EventType.LEADERSHIP_ASSUMED) {
+                    throw new IllegalStateException("Expected to assume leadership, got " + cycle.getEventType());
+                }
+
+                // Warm-up: the first updates of a freshly created table are
+                // not representative (page initialization, first HOT chain).
+                renew(leader, Math.min(renewals, 1000));
+
+                long before = logPosition(measureConnection, databaseEngine);
+                renew(leader, renewals);
+                long after = logPosition(measureConnection, databaseEngine);
+                return (double) (after - before) / renewals;
+            } finally {
+                try (Statement stmt = measureConnection.createStatement()) {
+                    stmt.execute("DROP TABLE " + TABLE_NAME);
+                }
+            }
+        }
+    }
+
+    private static void renew(SQLLeaderElect leader, int renewals) {
+        for (int i = 0; i < renewals; i++) {
+            ElectionCycle cycle = leader.runElection(false);
+            if (cycle.getEventType() != EventType.LEADERSHIP_CONFIRMED) {
+                throw new IllegalStateException("Expected lease to be renewed, got " + cycle.getEventType());
+            }
+        }
+    }
+
+    private static long logPosition(Connection connection, DatabaseEngine databaseEngine) throws SQLException {
+        String sql = (databaseEngine == DatabaseEngine.POSTGRESQL)
+                ? "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint"
+                : "SELECT value FROM v$sysstat WHERE name = 'redo size'";
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
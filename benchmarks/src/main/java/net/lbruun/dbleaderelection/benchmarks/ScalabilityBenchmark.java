@@ -0,0 +1,478 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+import net.lbruun.dbleaderelect.exception.LeaderElectorPreFlightException;
+import net.lbruun.dbleaderelect.internal.sql.SQLCmds;
+import net.lbruun.dbleaderelect.internal.utils.SQLUtils;
+import net.lbruun.dbleaderelect.metrics.ElectionMetricsRecorder;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
+import net.lbruun.dbleaderelect.metrics.LatencyHistogram;
+import net.lbruun.dbleaderelect.metrics.LatencySnapshot;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.CountingDataSource;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.DriverManagerDataSource;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.H2Database;
+
+/**
+ * Measures how the one-elector-per-role model scales with the number of
+ * roles in the leader election table and the number of 
+ * {@link LeaderElector}s in one JVM.
+ *
+ * <p>
+ * For every combination of the configured values, the leader election 
+ * table is filled with {@code roles} rows and {@code electors} Leader 
+ * Electors are started in this JVM, each for its own role, sharing one 
+ * {@code DataSource}. After a warm-up, the Leader Electors run for a 
+ * while and the result is one CSV line with:
+ * <ul>
+ *   <li>startup: the time to construct all Leader Electors, and
+ *       percentiles of the time to construct one. Construction includes
+ *       the pre-flight checks against the database.</li>
+ *   <li>threads: live threads of the JVM with all Leader Electors 
+ *       running, and the number added per Leader Elector.</li>
+ *   <li>heap per elector: growth of the live heap, after full GCs, 
+ *       divided by the number of Leader Electors.</li>
+ *   <li>elections and statements per second, all Leader Electors 
+ *       together, and the number of failed elections.</li>
+ *   <li>percentiles of the election cycle, of obtaining a connection and
+ *       of the time spent in the database per cycle 
+ *       ({@code SELECT}, {@code UPDATE} and commit).</li>
+ *   <li>GC rate: collections and milliseconds of GC per second, and the
+ *       allocation rate of the JVM (when the JVM can report it).</li>
+ * </ul>
+ * Combinations with more Leader Electors than roles are skipped.
+ *
+ * <p>
+ * Settings are system properties. Lists are comma-separated:
+ * <pre>
+ *   java -cp benchmarks.jar \
+ *       -Dbench.roles=10,1000,100000 \
+ *       -Dbench.electors=1,100,10000 \
+ *       -Dbench.intervalMs=1000 \
+ *       -Dbench.assumeDeadMs=5000 \
+ *       -Dbench.warmupSec=5 \
+ *       -Dbench.durationSec=10 \
+ *       -Dbench.poolSize=20 \
+ *       -Dbench.out=scalability.csv \
+ *       net.lbruun.dbleaderelection.benchmarks.ScalabilityBenchmark
+ * </pre>
+ * By default, a new embedded H2 database is used for every combination,
+ * with a connection pool of {@code bench.poolSize} connections. With 
+ * {@code bench.url} (and optionally {@code bench.user} and 
+ * {@code bench.password}) any database can be used instead. The JDBC 
+ * driver must then be on the classpath, and the database engine is 
+ * detected from the connection. Connections are not pooled in that case,
+ * so opening a connection is part of every cycle; it is reported 
+ * separately. The table is created if needed and its rows for this 
+ * benchmark, those with a role id starting with {@code SCALE-}, are 
+ * replaced for every combination.
+ * 
+ * <p>
+ * Use a heap large enough for the largest combination, and preferably
+ * {@code -XX:+UseSerialGC} or similar for stable heap figures. Without 
+ * {@code bench.out} the CSV goes to {@code stdout}; progress always goes 
+ * to {@code stderr}.
+ */
+public class ScalabilityBenchmark {
+
+    static final String CSV_HEADER = "roles,electors,intervalMs,durationSec,"
+            + "startupTotalMs,startupP50Ms,startupP99Ms,startupMaxMs,"
+            + "threads,threadsPerElector,heapPerElectorKb,"
+            + "electionsPerSec,failedElections,statementsPerSec,"
+            + "cycleP50Ms,cycleP99Ms,cycleMaxMs,"
+            + "acquireP50Ms,acquireP99Ms,"
+            + "dbMeanMs,selectP99Ms,updateP99Ms,commitP99Ms,"
+            + "gcPerSec,gcMsPerSec,allocMbPerSec";
+
+    private static final String ROLE_PREFIX = "SCALE-";
+    private static final int INSERT_BATCH = 1000;
+
+    private final int roles;
+    private final int electors;
+    private final long intervalMs;
+    private final long assumeDeadMs;
+
+    ScalabilityBenchmark(int roles, int electors, long intervalMs, long assumeDeadMs) {
+        this.roles = roles;
+        this.electors = electors;
+        this.intervalMs = intervalMs;
+        this.assumeDeadMs = assumeDeadMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long[] roleCounts = longs("bench.roles", "10,1000,10000");
+        long[] electorCounts = longs("bench.electors", "1,10,100,1000");
+        long intervalMs = Long.getLong("bench.intervalMs", 1000L);
+        long assumeDeadMs = Long.getLong("bench.assumeDeadMs", 5000L);
+        long warmupMs = TimeUnit.SECONDS.toMillis(Long.getLong("bench.warmupSec", 5L));
+        long durationMs = TimeUnit.SECONDS.toMillis(Long.getLong("bench.durationSec", 10L));
+        int poolSize = Integer.getInteger("bench.poolSize", 20);
+        String url = System.getProperty("bench.url");
+        String out = System.getProperty("bench.out");
+
+        try (PrintStream csv = (out == null) ? new PrintStream(System.out, true) : new PrintStream(out)) {
+            csv.println(CSV_HEADER);
+            for (long roles : roleCounts) {
+                for (long electors : electorCounts) {
+                    if (electors > roles) {
+                        System.err.println("Skipping " + electors + " electors with " + roles 
+                                + " roles: each elector needs its own role");
+                        continue;
+                    }
+                    System.err.println("Measuring " + electors + " electors with " + roles + " roles");
+                    ScalabilityBenchmark benchmark = new ScalabilityBenchmark((int) roles, (int) electors, intervalMs, assumeDeadMs);
+                    Result result;
+                    if (url == null) {
+                        try (H2Database database = new H2Database()) {
+                            database.getDataSource().setMaxConnections(poolSize);
+                            result = benchmark.run(database.getDataSource(), warmupMs, durationMs);
+                        }
+                    } else {
+                        DataSource dataSource = new DriverManagerDataSource(url, 
+                                System.getProperty("bench.user"), System.getProperty("bench.password"));
+                        result = benchmark.run(dataSource, warmupMs, durationMs);
+                    }
+                    csv.println(result.toCsv());
+                    csv.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param dataSource database to use
+     * @param warmupMs time to run before measuring
+     * @param durationMs time to measure
+     * @return result
+     */
+    Result run(DataSource dataSource, long warmupMs, long durationMs) 
+            throws SQLException, LeaderElectorPreFlightException, InterruptedException {
+        Result result = new Result(this, durationMs);
+        LongAdder statements = new LongAdder();
+        BenchmarkRecorder recorder = new BenchmarkRecorder();
+        DatabaseEngine databaseEngine;
+        try (Connection connection = dataSource.getConnection()) {
+            databaseEngine = DatabaseEngine.getDatabaseEngineFromConnection(connection);
+        }
+        prepareTable(dataSource, configuration(databaseEngine, 0, recorder));
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threadBean.getThreadCount();
+        long heapBefore = usedHeapAfterGc();
+        List<LeaderElector> leaderElectors = new ArrayList<>(electors);
+        try {
+            CountingDataSource countingDataSource = new CountingDataSource(dataSource, statements);
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < electors; i++) {
+                long electorStartNanos = System.nanoTime();
+                leaderElectors.add(new LeaderElector(configuration(databaseEngine, i, recorder), countingDataSource));
+                result.startup.record(System.nanoTime() - electorStartNanos);
+            }
+            result.startupNanos = System.nanoTime() - startNanos;
+
+            Thread.sleep(warmupMs);
+            result.threads = threadBean.getThreadCount();
+            result.threadsPerElector = (double) (result.threads - threadsBefore) / electors;
+            result.heapPerElectorBytes = (double) (usedHeapAfterGc() - heapBefore) / electors;
+
+            long statementsBefore = statements.sum();
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            long allocatedBefore = allocatedBytes(threadBean);
+            recorder.recording = true;
+            long measureStartNanos = System.nanoTime();
+            Thread.sleep(durationMs);
+            recorder.recording = false;
+            double seconds = (System.nanoTime() - measureStartNanos) / 1e9;
+            long allocatedAfter = allocatedBytes(threadBean);
+
+            result.statementsPerSecond = (statements.sum() - statementsBefore) / seconds;
+            result.gcPerSecond = (gcCount() - gcCountBefore) / seconds;
+            result.gcMillisPerSecond = (gcMillis() - gcMillisBefore) / seconds;
+            result.allocatedMbPerSecond = (allocatedBefore < 0 || allocatedAfter < 0) 
+                    ? -1 : (allocatedAfter - allocatedBefore) / seconds / (1024 * 1024);
+            result.electionsPerSecond = recorder.elections.sum() / seconds;
+            result.failedElections = recorder.failedElections.sum();
+            result.recorder = recorder;
+        } finally {
+            LeaderElector.closeAll(leaderElectors);
+        }
+        return result;
+    }
+
+    /**
+     * Creates the table if it doesn't exist and fills it with exactly
+     * {@code roles} rows for this benchmark.
+     */
+    private void prepareTable(DataSource dataSource, LeaderElectorConfiguration configuration) throws SQLException {
+        SQLCmds sqlCmds = SQLCmds.getSQL(configuration);
+        try (Connection connection = dataSource.getConnection()) {
+            if (!SQLUtils.tableExists(connection, configuration.getSchemaName(), configuration.getTableName())) {
+                try (PreparedStatement pstmt = sqlCmds.getCreateTableStmt(connection)) {
+                    pstmt.execute();
+                }
+                for (String sql : sqlCmds.getAfterCreateTableSQL()) {
+                    try (Statement stmt = connection.createStatement()) {
+                        stmt.execute(sql);
+                    }
+                }
+            }
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM " + sqlCmds.getTabName() + " WHERE role_id LIKE '" + ROLE_PREFIX + "%'");
+            }
+            for (int i = 0; i < roles; i++) {
+                try (PreparedStatement pstmt = sqlCmds.getInsertRoleStmt(connection, roleId(i))) {
+                    pstmt.execute();
+                }
+                if ((i + 1) % INSERT_BATCH == 0) {
+                    connection.commit();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private LeaderElectorConfiguration configuration(DatabaseEngine databaseEngine, int elector, ElectionMetricsRecorder recorder) {
+        return LeaderElectorConfiguration.builder()
+                .withRoleId(roleId(elector))
+                .withCandidateId("candidate-" + elector)
+                .withDatabaseEngine(databaseEngine)
+                .withCreateTable(false)
+                .withIntervalMs(intervalMs)
+                .withAssumeDeadMs(assumeDeadMs)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener((event, leaderElector) -> { })
+                .withMetricsRecorder(recorder)
+                .build();
+    }
+
+    private static String roleId(int i) {
+        return ROLE_PREFIX + i;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        // A few rounds, as a single System.gc() may not collect everything
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    // Bytes allocated by the threads alive now, or -1 if the JVM can't tell
+    private static long allocatedBytes(ThreadMXBean threadBean) {
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!sunThreadBean.isThreadAllocatedMemorySupported() || !sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : sunThreadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    private static long[] longs(String property, String defaultValue) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(","))
+                .map(String::trim)
+                .mapToLong(Long::parseLong)
+                .toArray();
+    }
+
+    /**
+     * Records the measurements of all Leader Electors together, but only
+     * while {@link #recording} is set.
+     */
+    private static final class BenchmarkRecorder implements ElectionMetricsRecorder {
+
+        private final LatencyHistogram cycle = new LatencyHistogram();
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LatencyHistogram select = new LatencyHistogram();
+        private final LatencyHistogram update = new LatencyHistogram();
+        private final LatencyHistogram commit = new LatencyHistogram();
+        private final LongAdder elections = new LongAdder();
+        private final LongAdder failedElections = new LongAdder();
+        private volatile boolean recording;
+
+        @Override
+        public void recordTiming(ElectionPhase phase, long nanos) {
+            if (!recording) {
+                return;
+            }
+            switch (phase) {
+                case CYCLE:
+                    cycle.record(nanos);
+                    break;
+                case CONNECTION_ACQUIRE:
+                    acquire.record(nanos);
+                    break;
+                case SELECT:
+                    select.record(nanos);
+                    break;
+                case UPDATE:
+                    update.record(nanos);
+                    break;
+                case COMMIT:
+                    commit.record(nanos);
+                    break;
+                default:
+            }
+        }
+
+        @Override
+        public void recordOutcome(EventType eventType, boolean failed) {
+            if (!recording) {
+                return;
+            }
+            elections.increment();
+            if (failed) {
+                failedElections.increment();
+            }
+        }
+
+        @Override
+        public void recordError(LeaderElectorException error) {
+        }
+    }
+
+    /**
+     * Outcome of the benchmark of one combination of settings.
+     */
+    static final class Result {
+
+        private final ScalabilityBenchmark benchmark;
+        private final long durationMs;
+        private final LatencyHistogram startup = new LatencyHistogram();
+        private long startupNanos;
+        private int threads;
+        private double threadsPerElector;
+        private double heapPerElectorBytes;
+        private double electionsPerSecond;
+        private long failedElections;
+        private double statementsPerSecond;
+        private double gcPerSecond;
+        private double gcMillisPerSecond;
+        private double allocatedMbPerSecond;
+        private BenchmarkRecorder recorder;
+
+        Result(ScalabilityBenchmark benchmark, long durationMs) {
+            this.benchmark = benchmark;
+            this.durationMs = durationMs;
+        }
+
+        double getElectionsPerSecond() {
+            return electionsPerSecond;
+        }
+
+        long getFailedElections() {
+            return failedElections;
+        }
+
+        double getThreadsPerElector() {
+            return threadsPerElector;
+        }
+
+        long getStartedElectors() {
+            return startup.getCount();
+        }
+
+        /**
+         * Mean time spent in the database per election cycle, excluding
+         * obtaining the connection.
+         */
+        double getDbMeanMillis() {
+            long cycles = recorder.cycle.getCount();
+            if (cycles == 0) {
+                return 0;
+            }
+            long nanos = recorder.select.getSum() + recorder.update.getSum() + recorder.commit.getSum();
+            return nanos / 1e6 / cycles;
+        }
+
+        String toCsv() {
+            LatencySnapshot startupMs = startup.snapshotMillis();
+            LatencySnapshot cycleMs = recorder.cycle.snapshotMillis();
+            LatencySnapshot acquireMs = recorder.acquire.snapshotMillis();
+            StringBuilder sb = new StringBuilder();
+            sb.append(benchmark.roles)
+                    .append(',').append(benchmark.electors)
+                    .append(',').append(benchmark.intervalMs)
+                    .append(',').append(TimeUnit.MILLISECONDS.toSeconds(durationMs))
+                    .append(',').append(TimeUnit.NANOSECONDS.toMillis(startupNanos));
+            append(sb, startupMs.getP50Millis(), startupMs.getP99Millis(), startupMs.getMaxMillis());
+            sb.append(',').append(threads);
+            append(sb, threadsPerElector, heapPerElectorBytes / 1024, electionsPerSecond);
+            sb.append(',').append(failedElections);
+            append(sb, statementsPerSecond,
+                    cycleMs.getP50Millis(), cycleMs.getP99Millis(), cycleMs.getMaxMillis(),
+                    acquireMs.getP50Millis(), acquireMs.getP99Millis(),
+                    getDbMeanMillis(),
+                    recorder.select.snapshotMillis().getP99Millis(),
+                    recorder.update.snapshotMillis().getP99Millis(),
+                    recorder.commit.snapshotMillis().getP99Millis(),
+                    gcPerSecond, gcMillisPerSecond, allocatedMbPerSecond);
+            return sb.toString();
+        }
+
+        private static void append(StringBuilder sb, double... values) {
+            for (double value : values) {
+                sb.append(',').append(String.format(Locale.ROOT, "%.3f", value));
+            }
+        }
+    }
+}
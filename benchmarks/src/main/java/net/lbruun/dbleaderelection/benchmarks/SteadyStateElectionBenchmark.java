@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.StubDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the steady-state election cycle, meaning the cycles where
+ * nothing changes: the leader renews its lease (CONFIRMED) and a follower
+ * observes that the lease is still held by someone else (NOOP). The
+ * leader is measured both with and without the renewal fast path.
+ * 
+ * <p>
+ * The {@code leaderElector*} benchmarks measure the whole periodic 
+ * election of a {@link LeaderElector}, with the renewal fast path: 
+ * the election itself plus what is done around it (metrics, history, 
+ * JFR, watchdog and the current leader snapshot). The periodic election
+ * is private, so it is invoked through a method handle. The Leader 
+ * Electors' own scheduled elections are cancelled so that elections only
+ * run on the benchmark thread.
+ *
+ * <p>
+ * The database is a {@link StubDatabase} so what is measured is the
+ * library's own overhead. The stub's dynamic proxies allocate when they
+ * box arguments, so {@code -prof gc} shows the stub's allocations as well
+ * as those of the library. {@code SteadyStateAllocationTest} tells the
+ * two apart.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SteadyStateElectionBenchmark {
+
+    static final String ROLE_ID = "BENCH";
+
+    private static final MethodHandle PERIODIC_ELECTION = leaderElectorMethod("periodicElection");
+    private static final MethodHandle CANCEL_PERIODIC_ELECTION = leaderElectorMethod("cancelPeriodicElection");
+
+    private StubDatabase database;
+    private SQLLeaderElect leader;
+    private SQLLeaderElect leaderLocked;
+    private SQLLeaderElect follower;
+    private EnumSet<EventType> subscription;
+    private LeaderElector leaderElector;
+    private LeaderElector followerElector;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        database = new StubDatabase();
+        leader = new SQLLeaderElect(configuration("leader"), database, "stub");
+        leaderLocked = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(configuration("leader")).withRenewalFastPath(false).build(),
+                new StubDatabase(), "stub");
+        follower = new SQLLeaderElect(configuration("follower"), database, "stub");
+        subscription = LeaderElectorConfiguration.DEFAULT_SUBSCRIPTION;
+
+        ElectionCycle cycle = leader.runElection(false);
+        if (cycle.getEventType() != EventType.LEADERSHIP_ASSUMED) {
+            throw new IllegalStateException("Expected leader to assume leadership, got " + cycle.getEventType());
+        }
+        cycle = leaderLocked.runElection(false);
+        if (cycle.getEventType() != EventType.LEADERSHIP_ASSUMED) {
+            throw new IllegalStateException("Expected leader to assume leadership, got " + cycle.getEventType());
+        }
+
+        leaderElector = leaderElector("leader", new StubDatabase());
+        StubDatabase followerDatabase = new StubDatabase();
+        followerDatabase.setRow("leader", System.currentTimeMillis(), 1);
+        followerElector = leaderElector("follower", followerDatabase);
+        PERIODIC_ELECTION.invokeExact(leaderElector);
+        PERIODIC_ELECTION.invokeExact(followerElector);
+        if (!leaderElector.isLeader() || followerElector.isLeader()) {
+            throw new IllegalStateException("Expected 'leader' to be leader, got " + leaderElector.getCurrentLeader());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        leaderElector.close();
+        followerElector.close();
+    }
+
+    @Benchmark
+    public Object leaderRenew() {
+        return dispatch(leader.runElection(false));
+    }
+
+    @Benchmark
+    public Object leaderRenewLocked() {
+        return dispatch(leaderLocked.runElection(false));
+    }
+
+    @Benchmark
+    public Object followerNoop() {
+        return dispatch(follower.runElection(false));
+    }
+
+    @Benchmark
+    public void leaderElectorRenew() throws Throwable {
+        PERIODIC_ELECTION.invokeExact(leaderElector);
+    }
+
+    @Benchmark
+    public void leaderElectorNoop() throws Throwable {
+        PERIODIC_ELECTION.invokeExact(followerElector);
+    }
+
+    // Same as what LeaderElector does with the outcome of a cycle: an
+    // Event is only created if someone has subscribed to it.
+    private Object dispatch(ElectionCycle cycle) {
+        if (subscription.contains(cycle.getEventType())) {
+            return cycle.toEvent();
+        }
+        return cycle.getEventType();
+    }
+
+    static LeaderElectorConfiguration configuration(String candidateId) {
+        return LeaderElectorConfiguration.builder()
+                .withRoleId(ROLE_ID)
+                .withCandidateId(candidateId)
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withRenewalFastPath(true)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener(new LeaderElectorListener.NoOpListener())
+                .build();
+    }
+
+    // Creates a Leader Elector and cancels its scheduled elections. An 
+    // election which is already running is waited for.
+    private static LeaderElector leaderElector(String candidateId, StubDatabase database) throws Throwable {
+        LeaderElector leaderElector = new LeaderElector(configuration(candidateId), database);
+        CANCEL_PERIODIC_ELECTION.invokeExact(leaderElector);
+        Field executorElector = LeaderElector.class.getDeclaredField("executorElector");
+        executorElector.setAccessible(true);
+        ((ExecutorService) executorElector.get(leaderElector)).submit(() -> {}).get();
+        return leaderElector;
+    }
+
+    private static MethodHandle leaderElectorMethod(String name) {
+        try {
+            Method method = LeaderElector.class.getDeclaredMethod(name);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("LeaderElector." + name + "() not found", ex);
+        }
+    }
+}
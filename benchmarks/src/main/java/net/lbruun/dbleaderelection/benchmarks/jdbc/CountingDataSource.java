@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks.jdbc;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * {@code DataSource} which counts the statements executed through it and
+ * which can be made unavailable, as if the network to the database was 
+ * down. While unavailable, new connections cannot be obtained.
+ * It can also be paused, as if the process using it was frozen. While
+ * paused, every JDBC call made through it blocks until it is resumed.
+ *
+ * <p>
+ * Intended for simulations, not for measuring time: every connection and
+ * statement is wrapped in a dynamic proxy.
+ */
+public class CountingDataSource implements DataSource {
+
+    private final DataSource delegate;
+    private final LongAdder statements;
+    private final Object pauseLock = new Object();
+    private volatile boolean available = true;
+    private volatile boolean paused;
+
+    /**
+     * @param delegate where connections come from
+     * @param statements incremented for every statement executed, may be
+     *     shared between several instances
+     */
+    public CountingDataSource(DataSource delegate, LongAdder statements) {
+        this.delegate = delegate;
+        this.statements = statements;
+    }
+
+    /**
+     * Makes the database (un)reachable. Connections already handed out are
+     * not affected.
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Pauses or resumes. While paused, calls to {@code getConnection()} and
+     * to every method of the connections and statements handed out block
+     * until resumed, or until the calling thread is interrupted in which 
+     * case they throw {@code SQLException}. Calls already in progress in 
+     * the delegate are not affected.
+     */
+    public void setPaused(boolean paused) {
+        synchronized (pauseLock) {
+            this.paused = paused;
+            pauseLock.notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        awaitResumed();
+        if (!available) {
+            throw new SQLTransientConnectionException("Database unavailable (simulated)");
+        }
+        return proxy(Connection.class, delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        awaitResumed();
+        if (!available) {
+            throw new SQLTransientConnectionException("Database unavailable (simulated)");
+        }
+        return proxy(Connection.class, delegate.getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    // Not unwrappable, as connections from the delegate would not be counted
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException("Not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+
+    private <T> T proxy(Class<T> iface, T target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            awaitResumed();
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement) {
+                // Covers Statement, PreparedStatement and CallableStatement
+                return proxy(statementInterface(method.getReturnType()), (Statement) result);
+            }
+            if (method.getName().startsWith("execute") && target instanceof Statement) {
+                statements.increment();
+            }
+            return result;
+        };
+        return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, handler));
+    }
+
+    private void awaitResumed() throws SQLException {
+        if (!paused) {
+            return;
+        }
+        synchronized (pauseLock) {
+            while (paused) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while paused (simulated)", ex);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Statement> statementInterface(Class<?> returnType) {
+        return (Class<Statement>) returnType;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
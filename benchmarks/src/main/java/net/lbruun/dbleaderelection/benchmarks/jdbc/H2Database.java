@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+/**
+ * Embedded, in-memory H2 database for benchmarks which should include a
+ * real JDBC driver without depending on anything outside the JVM.
+ *
+ * <p>
+ * Connections are pooled, as they would be in an application, so that
+ * opening a connection is not part of what is measured.
+ */
+public final class H2Database implements AutoCloseable {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final JdbcConnectionPool dataSource;
+
+    /**
+     * Creates a new, empty, database.
+     */
+    public H2Database() {
+        String url = "jdbc:h2:mem:bench" + COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        dataSource = JdbcConnectionPool.create(url, "sa", "");
+    }
+
+    public JdbcConnectionPool getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Drops the database and closes all connections.
+     */
+    @Override
+    public void close() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            dataSource.dispose();
+        }
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks.jdbc;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_CANDIDATE_ID;
+import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_LASTSEENTIMESTAMP_MS;
+
+/**
+ * In-memory stand-in for a database holding a single row in the
+ * leader election table.
+ *
+ * <p>
+ * The purpose is to measure the library's own overhead, in particular
+ * allocations, without the noise of a real JDBC driver. For this reason
+ * the same {@code Connection}, {@code PreparedStatement} and 
+ * {@code ResultSet} instances are handed out over and over again. They
+ * are dynamic proxies which only implement what the library uses. The
+ * argument arrays (and boxed values) created by a proxy are never kept, 
+ * so once compiled the JIT eliminates them and the stub doesn't allocate.
+ *
+ * <p>
+ * Statements are recognized from their SQL text so that the stub works
+ * regardless of which {@code DatabaseEngine} the library is configured
+ * for. The start-up checks of a {@code LeaderElector} are answered from
+ * a fixed description of the table. The class is not thread-safe: it must 
+ * only be used from a single thread at a time.
+ */
+public final class StubDatabase implements DataSource {
+
+    private enum Kind {
+        SELECT_ROW,
+        SELECT_DB_TIME,
+        INSERT_ROLE,
+        AFFIRM,
+        ASSUME,
+        RENEW,
+        RELINQUISH
+    }
+
+    // Columns of the table: name, type and size, as reported by DatabaseMetaData.getColumns()
+    private static final Object[][] COLUMNS = {
+        {"role_id", Types.VARCHAR, 20},
+        {"candidate_id", Types.VARCHAR, 256},
+        {"last_seen_timestamp", Types.BIGINT, 19},
+        {"lease_counter", Types.BIGINT, 19},
+        {"candidate_endpoint", Types.VARCHAR, 256}
+    };
+
+    // The one and only row
+    private String candidateId = NO_LEADER_CANDIDATE_ID;
+    private long lastSeenTimestamp = NO_LEADER_LASTSEENTIMESTAMP_MS;
+    private long leaseCounter = 0;
+    private String candidateEndpoint = null;
+
+    private final StubConnection connectionHandler = new StubConnection();
+    private final Connection connection = proxy(Connection.class, connectionHandler);
+    private final PreparedStatement[] statements = new PreparedStatement[Kind.values().length];
+    private final StubStatement[] statementHandlers = new StubStatement[Kind.values().length];
+    private final StubResultSet resultSetHandler = new StubResultSet();
+    private final ResultSet resultSet = proxy(ResultSet.class, resultSetHandler);
+    private long statementsExecuted;
+
+    public StubDatabase() {
+        for (Kind kind : Kind.values()) {
+            statementHandlers[kind.ordinal()] = new StubStatement(kind);
+            statements[kind.ordinal()] = proxy(PreparedStatement.class, statementHandlers[kind.ordinal()]);
+        }
+    }
+
+    @Override
+    public Connection getConnection() {
+        connectionHandler.closed = false;
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException("Not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+
+    /**
+     * Sets the content of the row, as if another process had written it.
+     */
+    public void setRow(String candidateId, long lastSeenTimestamp, long leaseCounter) {
+        this.candidateId = candidateId;
+        this.lastSeenTimestamp = lastSeenTimestamp;
+        this.leaseCounter = leaseCounter;
+    }
+
+    public String getCandidateId() {
+        return candidateId;
+    }
+
+    public long getLastSeenTimestamp() {
+        return lastSeenTimestamp;
+    }
+
+    public long getLeaseCounter() {
+        return leaseCounter;
+    }
+
+    /**
+     * Number of statements executed since the stub was created.
+     */
+    public long getStatementsExecuted() {
+        return statementsExecuted;
+    }
+
+    private static Kind classify(String sql) throws SQLException {
+        String s = sql.trim();
+        if (s.regionMatches(true, 0, "SELECT", 0, 6)) {
+            return (s.contains("candidate_id")) ? Kind.SELECT_ROW : Kind.SELECT_DB_TIME;
+        }
+        if (s.regionMatches(true, 0, "INSERT", 0, 6) || s.regionMatches(true, 0, "MERGE", 0, 5)) {
+            return Kind.INSERT_ROLE;
+        }
+        if (s.regionMatches(true, 0, "UPDATE", 0, 6)) {
+            if (s.contains(NO_LEADER_CANDIDATE_ID)) {
+                return Kind.RELINQUISH;
+            }
+            if (s.contains("SET candidate_id")) {
+                return Kind.ASSUME;
+            }
+            return (s.contains("lease_counter")) ? Kind.RENEW : Kind.AFFIRM;
+        }
+        throw new SQLFeatureNotSupportedException("Stub does not understand SQL: " + sql);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, handler);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                return proxy.getClass().getName();
+        }
+    }
+
+    private static SQLFeatureNotSupportedException notSupported(Method method) {
+        return new SQLFeatureNotSupportedException(method.getDeclaringClass().getSimpleName() + "." 
+                + method.getName() + " is not supported by the stub");
+    }
+
+
+    private final class StubConnection implements InvocationHandler {
+
+        private boolean autoCommit = true;
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "prepareStatement":
+                    Kind kind = classify((String) args[0]);
+                    statementHandlers[kind.ordinal()].clearParameters();
+                    return statements[kind.ordinal()];
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "commit":
+                case "rollback":
+                    return null;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return true;
+                case "getSchema":
+                    return null;
+                case "getMetaData":
+                    return proxy(DatabaseMetaData.class, new StubMetaData());
+                default:
+                    throw notSupported(method);
+            }
+        }
+    }
+
+
+    private final class StubStatement implements InvocationHandler {
+
+        private final Kind kind;
+        private final String[] stringParams = new String[6];
+        private final long[] longParams = new long[6];
+
+        StubStatement(Kind kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "setString":
+                    stringParams[(Integer) args[0]] = (String) args[1];
+                    return null;
+                case "setLong":
+                    longParams[(Integer) args[0]] = (Long) args[1];
+                    return null;
+                case "setNull":
+                    stringParams[(Integer) args[0]] = null;
+                    return null;
+                case "clearParameters":
+                    clearParameters();
+                    return null;
+                case "setQueryTimeout":
+                case "close":
+                    return null;
+                case "execute":
+                    if (kind == Kind.SELECT_ROW || kind == Kind.SELECT_DB_TIME) {
+                        executeQuery();
+                        return true;
+                    }
+                    executeUpdate();
+                    return false;
+                case "executeQuery":
+                    return executeQuery();
+                case "executeUpdate":
+                    return executeUpdate();
+                default:
+                    throw notSupported(method);
+            }
+        }
+
+        void clearParameters() {
+            for (int i = 0; i < stringParams.length; i++) {
+                stringParams[i] = null;
+                longParams[i] = 0;
+            }
+        }
+
+        private ResultSet executeQuery() throws SQLException {
+            statementsExecuted++;
+            resultSetHandler.reset(kind, System.currentTimeMillis());
+            return resultSet;
+        }
+
+        private int executeUpdate() throws SQLException {
+            statementsExecuted++;
+            long now = System.currentTimeMillis();
+            switch (kind) {
+                case INSERT_ROLE:
+                    // The row always exists
+                    return 0;
+                case AFFIRM:
+                    if (candidateId.equals(stringParams[2])) {
+                        lastSeenTimestamp = now;
+                        return 1;
+                    }
+                    return 0;
+                case ASSUME:
+                    candidateId = stringParams[1];
+                    leaseCounter = longParams[2];
+                    candidateEndpoint = stringParams[3];  // the stub's table has the endpoint column
+                    lastSeenTimestamp = now;
+                    return 1;
+                case RENEW:
+                    if (candidateId.equals(stringParams[2]) && leaseCounter == longParams[3]) {
+                        lastSeenTimestamp = now;
+                        return 1;
+                    }
+                    return 0;
+                case RELINQUISH:
+                    if (candidateId.equals(stringParams[2])) {
+                        candidateId = NO_LEADER_CANDIDATE_ID;
+                        lastSeenTimestamp = NO_LEADER_LASTSEENTIMESTAMP_MS;
+                        candidateEndpoint = null;
+                        return 1;
+                    }
+                    return 0;
+                default:
+                    throw new SQLException("Not an update statement: " + kind);
+            }
+        }
+    }
+
+
+    private final class StubResultSet implements InvocationHandler {
+
+        private Kind kind;
+        private long now;
+        private boolean hasNext;
+
+        void reset(Kind kind, long now) {
+            this.kind = kind;
+            this.now = now;
+            this.hasNext = true;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "next":
+                    boolean result = hasNext;
+                    hasNext = false;
+                    return result;
+                case "getString":
+                    return getString((Integer) args[0]);
+                case "getLong":
+                    return getLong((Integer) args[0]);
+                case "wasNull":
+                    return false;
+                case "close":
+                    return null;
+                default:
+                    throw notSupported(method);
+            }
+        }
+
+        private String getString(int columnIndex) throws SQLException {
+            if (kind == Kind.SELECT_ROW && columnIndex == 1) {
+                return candidateId;
+            }
+            if (kind == Kind.SELECT_ROW && columnIndex == 5) {
+                return candidateEndpoint;
+            }
+            throw new SQLException("Column " + columnIndex + " is not a string column");
+        }
+
+        private long getLong(int columnIndex) throws SQLException {
+            if (kind == Kind.SELECT_DB_TIME) {
+                if (columnIndex == 1) {
+                    return now;
+                }
+            } else {
+                switch (columnIndex) {
+                    case 2:
+                        return lastSeenTimestamp;
+                    case 3:
+                        return now;
+                    case 4:
+                        return leaseCounter;
+                }
+            }
+            throw new SQLException("Column " + columnIndex + " is not a long column");
+        }
+    }
+
+
+    // Only used by the start-up checks, so allocating is fine
+    private static final class StubMetaData implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "storesLowerCaseIdentifiers":
+                    return true;
+                case "storesUpperCaseIdentifiers":
+                    return false;
+                case "getTables":
+                    return rows(new Object[][]{{null, null, args[2], "TABLE"}});
+                case "getColumns":
+                    String columnName = (String) args[3];
+                    List<Object[]> columns = new ArrayList<>();
+                    for (Object[] column : COLUMNS) {
+                        if (columnName == null || columnName.equals(column[0])) {
+                            columns.add(new Object[]{null, null, args[2], column[0], column[1], null, column[2]});
+                        }
+                    }
+                    return rows(columns.toArray(new Object[0][]));
+                default:
+                    throw notSupported(method);
+            }
+        }
+
+        private static ResultSet rows(Object[][] rows) {
+            return proxy(ResultSet.class, new InvocationHandler() {
+                private int row = -1;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row < rows.length;
+                        case "getString":
+                        case "getInt":
+                            return rows[row][(Integer) args[0] - 1];
+                        case "close":
+                            return null;
+                        default:
+                            throw notSupported(method);
+                    }
+                }
+            });
+        }
+    }
+}
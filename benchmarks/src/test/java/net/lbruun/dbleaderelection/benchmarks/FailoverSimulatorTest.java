@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.util.Random;
+import net.lbruun.dbleaderelection.benchmarks.FailoverSimulator.Fault;
+import net.lbruun.dbleaderelection.benchmarks.FailoverSimulator.Result;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FailoverSimulatorTest {
+
+    private static final long INTERVAL_MS = 200;
+    private static final long ASSUME_DEAD_MS = 3300;
+
+    @Test
+    public void testKill() throws Exception {
+        FailoverSimulator simulator = new FailoverSimulator(Fault.KILL, 2, INTERVAL_MS, ASSUME_DEAD_MS, new Random(1));
+        Result result = simulator.run(1);
+
+        assertEquals(0, result.getTimeouts());
+        assertEquals(1, result.getMeasuredRounds());
+        // No one may take over before the lease of the killed leader has
+        // expired. The lease was renewed at most one interval before the kill.
+        long newLeaderMs = result.getNewLeaderMillis(50);
+        assertTrue(newLeaderMs >= ASSUME_DEAD_MS - INTERVAL_MS, "New leader after " + newLeaderMs + " ms");
+        assertTrue(result.toCsv().startsWith("KILL,2,200,3300,1,0,"), result.toCsv());
+    }
+
+    @Test
+    public void testPause() throws Exception {
+        FailoverSimulator simulator = new FailoverSimulator(Fault.PAUSE, 2, INTERVAL_MS, ASSUME_DEAD_MS, new Random(1));
+        Result result = simulator.run(1);
+
+        assertEquals(0, result.getTimeouts());
+        assertEquals(1, result.getMeasuredRounds());
+        long newLeaderMs = result.getNewLeaderMillis(50);
+        assertTrue(newLeaderMs >= ASSUME_DEAD_MS - INTERVAL_MS, "New leader after " + newLeaderMs + " ms");
+        // The frozen leader keeps believing it is leader until it comes back
+        // after 1.5 x assumeDeadMs, long after the other one has taken over.
+        long overlapMs = result.getOverlapMillis(50);
+        assertTrue(overlapMs >= ASSUME_DEAD_MS * 3 / 2 - newLeaderMs, "Overlap " + overlapMs + " ms");
+        assertTrue(result.toCsv().startsWith("PAUSE,2,200,3300,1,0,"), result.toCsv());
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import net.lbruun.dbleaderelection.benchmarks.ScalabilityBenchmark.Result;
+import net.lbruun.dbleaderelection.benchmarks.jdbc.H2Database;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScalabilityBenchmarkTest {
+
+    private static final long INTERVAL_MS = 100;
+
+    @Test
+    public void testRun() throws Exception {
+        ScalabilityBenchmark benchmark = new ScalabilityBenchmark(200, 5, INTERVAL_MS, 3500);
+        Result result;
+        try (H2Database database = new H2Database()) {
+            result = benchmark.run(database.getDataSource(), 300, 1000);
+        }
+
+        assertEquals(5, result.getStartedElectors());
+        assertEquals(0, result.getFailedElections());
+        // Every elector runs about 10 elections per second
+        assertTrue(result.getElectionsPerSecond() > 25, result.toCsv());
+        assertTrue(result.getThreadsPerElector() > 0, result.toCsv());
+        assertTrue(result.getDbMeanMillis() > 0, result.toCsv());
+        assertTrue(result.toCsv().startsWith("200,5,100,1,"), result.toCsv());
+        assertEquals(ScalabilityBenchmark.CSV_HEADER.split(",").length, result.toCsv().split(",").length);
+    }
+}
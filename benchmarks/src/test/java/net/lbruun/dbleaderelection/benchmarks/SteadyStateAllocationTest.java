@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Guards against allocations creeping back into the steady-state
+ * election cycle, both in {@code SQLLeaderElect} and in what 
+ * {@code LeaderElector} does around each cycle.
+ *
+ * <p>
+ * The benchmarks of {@link SteadyStateElectionBenchmark} are executed 
+ * until compiled and then again while Flight Recorder samples 
+ * allocations. JMH's allocation profiler cannot be used: it counts the
+ * bytes allocated by the {@link net.lbruun.dbleaderelection.benchmarks.jdbc.StubDatabase}
+ * too, and its dynamic proxies allocate when boxing arguments. Instead,
+ * every sampled allocation is attributed to the code which made it. The
+ * stub may allocate, anything else may not.
+ */
+public class SteadyStateAllocationTest {
+
+    private static final int WARMUP_OPS = 300_000;
+    private static final int MEASURED_OPS = 1_000_000;
+
+    private static final String BENCHMARK_CLASS = SteadyStateElectionBenchmark.class.getName();
+    private static final String STUB_PACKAGE = "net.lbruun.dbleaderelection.benchmarks.jdbc.";
+
+    @Test
+    public void testSteadyStateDoesNotAllocate() throws Throwable {
+        SteadyStateElectionBenchmark benchmark = new SteadyStateElectionBenchmark();
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("leaderRenew", benchmark::leaderRenew);
+        operations.put("leaderRenewLocked", benchmark::leaderRenewLocked);
+        operations.put("followerNoop", benchmark::followerNoop);
+        operations.put("leaderElectorRenew", benchmark::leaderElectorRenew);
+        operations.put("leaderElectorNoop", benchmark::leaderElectorNoop);
+
+        // Flight Recorder is started before the warm-up. Starting it 
+        // later would deoptimize code which checks if events are enabled.
+        try (Recording initialization = new Recording()) {
+            initialization.start();
+        }
+        benchmark.setup();
+        try {
+            for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+                Set<String> allocationSites = allocationSites(entry.getValue());
+                assertEquals(Collections.emptySet(), allocationSites, entry.getKey() + " allocates");
+            }
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    // Executes the operation and returns where it allocated, excluding
+    // allocations by the stub.
+    private static Set<String> allocationSites(Operation operation) throws Throwable {
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            operation.run();
+        }
+        Path file = Files.createTempFile("allocations", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+                recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+                // Events are enabled unless disabled. A recorded event is 
+                // allocated, which is not what the steady state is about.
+                recording.disable("net.lbruun.dbleaderelect.ElectionCycle");
+                recording.start();
+                for (int i = 0; i < MEASURED_OPS; i++) {
+                    operation.run();
+                }
+                recording.stop();
+                recording.dump(file);
+            }
+            long threadId = Thread.currentThread().getId();
+            Set<String> sites = new TreeSet<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                RecordedThread thread = event.getThread();
+                if (thread == null || thread.getJavaThreadId() != threadId) {
+                    continue;
+                }
+                String site = allocationSite(event.getStackTrace());
+                if (site != null) {
+                    sites.add(event.getClass("objectClass").getName() + " at " + site);
+                }
+            }
+            return sites;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // The first frame outside of the JDK, or null if that is the stub or
+    // if the allocation was not made by the benchmark.
+    private static String allocationSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || !stackTrace.getFrames().stream()
+                .anyMatch(frame -> frame.getMethod().getType().getName().equals(BENCHMARK_CLASS))) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            // Proxy classes are in 'jdk.proxy<n>' packages from Java 16
+            if (type.startsWith(STUB_PACKAGE) || type.contains("$Proxy")) {
+                return null;
+            }
+            if (type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")) {
+                continue;
+            }
+            return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Throwable;
+    }
+}
@@ -28,6 +28,7 @@ import java.util.logging.Logger;
 import net.lbruun.dbleaderelect.LeaderElector;
 import net.lbruun.dbleaderelect.LeaderElectorListener;
 import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionNonRecoverable;
 
 /**
  *
@@ -86,7 +87,6 @@ public class LeaderElectionExample implements LeaderElectorListener, LeaderElect
     
     
     private void endApp(int exitCode) {
-        leaderWork.exit();
         leaderElector.close();
         System.exit(exitCode);
     }
@@ -106,16 +106,19 @@ public class LeaderElectionExample implements LeaderElectorListener, LeaderElect
         switch (event.getEventType()) {
             case LEADERSHIP_ASSUMED:
                 LOGGER.log(Level.INFO, "Leadership assumed from previous leader {0}", event.getCandidateId());
-                // Here: We can optionally extract 'leaseCounter' from the event
-                // and use as a fencing token on an external resource. 
-                // This example does not demonstrate this.
-                
-                leaderWork.start();
+                // Leader work is executed by the leader executor which
+                // makes the 'leaseCounter' available to the tasks for use
+                // as a fencing token on an external resource.
+                try {
+                    leaderWork.start(leaderElector.leaderExecutor());
+                } catch (LeaderElectorExceptionNonRecoverable ex) {
+                    // Leader Elector has been closed
+                }
                 break;
  
             case LEADERSHIP_LOST:
+                // Leader work has already been stopped at this point.
                 LOGGER.log(Level.INFO, "Leadership lost for candidate {0} (me)", event.getCandidateId());
-                leaderWork.stop();
                 break;
 
         }
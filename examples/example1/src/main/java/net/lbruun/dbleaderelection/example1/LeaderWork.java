@@ -15,91 +15,33 @@
  */
 package net.lbruun.dbleaderelection.example1;
 
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import net.lbruun.dbleaderelect.LeaderExecutorService;
 
 /**
- * Simulates a thread doing work that only leaders should do.
+ * Simulates work that only leaders should do.
+ * 
+ * <p>
+ * The work is executed by the Leader Elector's 
+ * {@link net.lbruun.dbleaderelect.LeaderElector#leaderExecutor() leader executor}.
+ * This means it is automatically stopped (interrupted) when leadership is lost
+ * and there is no need to keep track of leadership status here.
  */
 public class LeaderWork implements Runnable {
 
-    private static final Logger LOGGER = Logger.getLogger(LeaderWork.class.getName());
-    private final BlockingDeque<Action> queue = new LinkedBlockingDeque<>();
-
-    private enum Action {
-        START,
-        STOP,
-        EXIT
-    }
-
-    public LeaderWork() {
-        new Thread(this).start();
-    }
-
     @Override
     public void run() {
-        boolean doLeaderWork = false;
-        boolean run = true;
-        while (run) {
-            try {
-                Action action = queue.pollLast(500, TimeUnit.MILLISECONDS);
-                if (action != null) {
-                    switch (action) {
-                        case START:
-                            doLeaderWork = true;
-                            break;
-                        case STOP:
-                            doLeaderWork = false;
-                            break;
-                        case EXIT:
-                            run = false;
-                            break;
-                    }
-                }
-            } catch (InterruptedException ex) {
-                LOGGER.log(Level.SEVERE, "Unexpected", ex);
-                break;  
-            }
-            if (doLeaderWork) {
-                System.out.println("Leader work : doing tasks ...");
-            }
-        }
-        System.out.println("Leader work: exiting ...");
-    }
-
-    private void put(Action action, boolean last) {
-        try {
-            if (last) {
-                queue.putLast(action);
-            } else {
-                queue.putFirst(action);
-            }
-        } catch (InterruptedException ex) {
-            LOGGER.log(Level.SEVERE, "Unexpected", ex);
-        }
-    }
-
-    /**
-     * Start (or resume) doing leader work.
-     */
-    public void start() {
-        put(Action.START, true);
-    }
-
-    /**
-     * Stop doing leader work.
-     */
-    public void stop() {
-        put(Action.STOP, true);
+        // The lease counter can be used as a fencing token on external
+        // resources. This example merely prints it.
+        System.out.println("Leader work : doing tasks ... (lease counter: " 
+                + LeaderExecutorService.currentLeaseCounter() + ")");
     }
 
     /**
-     * Exit leader work thread (this)
+     * Start doing leader work. Must be invoked every time leadership
+     * is assumed as the work is cancelled when leadership is lost.
      */
-    public void exit() {
-        put(Action.EXIT, false);
+    public void start(LeaderExecutorService leaderExecutor) {
+        leaderExecutor.scheduleWithFixedDelay(this, 0, 500, TimeUnit.MILLISECONDS);
     }
 }
@@ -15,24 +15,60 @@
  */
 package net.lbruun.dbleaderelect;
 
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
 import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionNonRecoverable;
+import net.lbruun.dbleaderelect.internal.core.ElectionBackoff;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.LeaderElect;
+import net.lbruun.dbleaderelect.internal.core.LeaderScopedExecutor;
+import net.lbruun.dbleaderelect.internal.core.LeaseWatchdog;
+import net.lbruun.dbleaderelect.internal.events.ErrorEventImpl;
+import net.lbruun.dbleaderelect.fencing.LeaseFence;
+import net.lbruun.dbleaderelect.internal.fencing.LeaseFenceImpl;
+import net.lbruun.dbleaderelect.internal.events.EventImpl;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionRecoverable;
+import net.lbruun.dbleaderelect.internal.core.QuorumLeaderElect;
 import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
+import net.lbruun.dbleaderelect.internal.jfr.FlightRecorderEvents;
+import net.lbruun.dbleaderelect.internal.jobs.LeaderJobSchedulerImpl;
+import net.lbruun.dbleaderelect.jobs.LeaderJobScheduler;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 import net.lbruun.dbleaderelect.exception.LeaderElectorConfigurationException;
 import net.lbruun.dbleaderelect.exception.LeaderElectorPreFlightException;
 import net.lbruun.dbleaderelect.internal.utils.SQLUtils;
+import net.lbruun.dbleaderelect.internal.utils.SharedScheduler;
 import net.lbruun.dbleaderelect.internal.utils.ThreadFactoryWithNamePrefix;
+import net.lbruun.dbleaderelect.metrics.ElectionHistory;
+import net.lbruun.dbleaderelect.metrics.ElectionMetrics;
+import net.lbruun.dbleaderelect.metrics.ElectionMetricsRecorder;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
 
 /**
  * Leader Elector which uses a table in an ACID-compliant relational database to
@@ -57,8 +93,15 @@ import net.lbruun.dbleaderelect.internal.utils.ThreadFactoryWithNamePrefix;
  * reduced.
  *
  * <p>
+ * If the database is unavailable, elections may optionally back off
+ * (see {@link LeaderElectorConfiguration.Builder#withBackoffMaxMs(long) backoffMaxMs})
+ * so that many candidates do not hammer a database which is recovering.
+ *
+ * <p>
  * {@link #close() Closing} the instance will mean that any current leadership
- * will be relinquished.
+ * will be relinquished. When there are many instances in the same application
+ * use {@link #closeAll(java.util.Collection) closeAll()} to close them
+ * down in parallel.
  * 
  * <p>
  * Class is thread-safe.
@@ -76,13 +119,40 @@ public class LeaderElector implements AutoCloseable {
     public static final long NO_LEADER_LASTSEENTIMESTAMP_MS = 0;
     public static final Instant NO_LEADER_LASTSEENTIMESTAMP = Instant.ofEpochMilli(NO_LEADER_LASTSEENTIMESTAMP_MS);
 
+    /**
+     * Maximum time {@link #close()} and {@link #closeAll(java.util.Collection) closeAll()}
+     * will wait for close-down to complete.
+     */
+    public static final long CLOSE_TIMEOUT_MS = 10 * 1000L;
+
+    private static final ElectionPhase[] PHASES = ElectionPhase.values();
+
     private final ScheduledExecutorService executorElector;
     private final ExecutorService executorNotifier;
+    private final LinkedBlockingDeque<Runnable> notifierQueue = new LinkedBlockingDeque<>();
+    private final LeaseWatchdog watchdog;   // null if disabled
+    private final ElectionBackoff backoff;  // null if disabled, only accessed from the election thread
+    private final AtomicLong watchdogTrips = new AtomicLong(0);
     private volatile boolean closing = false;
+    private volatile ScheduledFuture<?> electionFuture;  // pending periodic election
+    private final Runnable periodicElectionTask = this::periodicElection;
+    private CompletableFuture<Void> closeFuture;   // guarded by 'this'
+    private volatile LeaderScopedExecutor leaderExecutor;  // lazily created
+    private LeaderJobScheduler jobScheduler;               // lazily created, guarded by 'this'
     private final LeaderElectorConfiguration configuration;
     private final DataSource dataSource;
-    private final SQLLeaderElect sqlLeaderElect;
-    private final String tableNameDisplay;
+    private final SQLLeaderElect sqlLeaderElect;    // for the first (or only) database
+    private final LeaderElect leaderElect;
+    private volatile LeaderInfo currentLeader;   // null if not known
+    private final ElectionMetrics metrics = new ElectionMetrics();
+    private final ElectionHistory history;
+    private ObjectName mxBeanName;   // null if not registered
+    private boolean leaseMarginLow = false;   // only accessed from the election thread
+    // Outcome of the most recent election, for getStatus()
+    private volatile EventType lastOutcome;   // null until the first election has completed
+    private volatile long lastElectionAtMillis;
+    private volatile long lastElectionNanos;
+    private volatile LeaderElectorException lastError;
 
     /**
      * Create a leader elector.
@@ -94,45 +164,152 @@ public class LeaderElector implements AutoCloseable {
      * (for example if connection to database cannot be obtained)
      */
     public LeaderElector(LeaderElectorConfiguration configuration, DataSource dataSource) throws LeaderElectorPreFlightException {
+        this(configuration, dataSource, null);
+    }
+
+    /**
+     * Create a leader elector which, while not leader, polls a read replica
+     * rather than the primary database.
+     *
+     * <p>
+     * While not leader, the leader election table is read from the replica
+     * without taking any lock. The election is only executed on the primary
+     * (with the usual lock) if the lease seen on the replica may have
+     * expired, with a margin of
+     * {@link LeaderElectorConfiguration#getReplicaMaxLagMs() replicaMaxLagMs},
+     * or if the replica cannot be read. The leader only uses the primary.
+     * Since all decisions are made on the primary, the replica only affects
+     * how quickly followers notice that leadership is up for grabs.
+     *
+     * @param configuration configuration for the leader elector
+     * @param dataSource datasource where the leader election table reside. This
+     * can be a pooled DataSource.
+     * @param replicaDataSource datasource for a read replica of 
+     * {@code dataSource}, or {@code null}.
+     * @throws LeaderElectorPreFlightException if startup verification fails
+     * (for example if connection to database cannot be obtained)
+     */
+    public LeaderElector(LeaderElectorConfiguration configuration, DataSource dataSource, DataSource replicaDataSource) throws LeaderElectorPreFlightException {
+        this(configuration, Collections.singletonList(dataSource), replicaDataSource);
+    }
+
+    /**
+     * Create a leader elector which holds leadership across a number of 
+     * independent databases, so that leadership survives the loss of a
+     * minority of them.
+     *
+     * <p>
+     * The number of databases must be odd. The election is executed in 
+     * all of them concurrently, each with its own leader election table, 
+     * and the candidate is leader while it holds the lease in a majority of
+     * them. The outcome of an election is decided as soon as a majority
+     * has answered, so a slow database doesn't slow down the election. 
+     * The lease counter reported to the listener (and used by the 
+     * {@link #leaderExecutor() leader executor}) is one which the candidate
+     * holds in a majority of the databases and it is larger than that of 
+     * any previous leader, so it remains usable as a fencing token. 
+     *
+     * <p>
+     * All databases must be reachable when the Leader Elector is created. 
+     * Settings which are auto-detected, such as the database engine, are 
+     * detected for each database.
+     * 
+     * <p>
+     * The {@link #jobScheduler() job scheduler} and the 
+     * {@link #leaseFence() lease fence} are not available. They rely on
+     * the lease in a single database, and the first database need not be
+     * one where the leader holds the lease.
+     *
+     * @param configuration configuration for the leader elector
+     * @param dataSources datasources where the leader election tables reside, 
+     * an odd number of them. These can be pooled DataSources.
+     * @throws IllegalArgumentException if the number of datasources is even
+     * @throws LeaderElectorPreFlightException if startup verification fails
+     * (for example if connection to one of the databases cannot be obtained)
+     */
+    public LeaderElector(LeaderElectorConfiguration configuration, List<? extends DataSource> dataSources) throws LeaderElectorPreFlightException {
+        this(configuration, dataSources, null);
+    }
+
+    private LeaderElector(LeaderElectorConfiguration configuration, List<? extends DataSource> dataSources, DataSource replicaDataSource) throws LeaderElectorPreFlightException {
+        if (dataSources.size() % 2 == 0) {
+            throw new IllegalArgumentException("An odd number of DataSources is required, got " + dataSources.size());
+        }
         long startTime = System.currentTimeMillis();
         configuration.getLeaderElectorLogger().logInfo(
-                this.getClass(), "Leader Elector starting (configuration: " + configuration + ")");
-        this.dataSource = dataSource;
+                this.getClass(), () -> "Leader Elector starting (configuration: " + configuration + ")");
+        this.dataSource = dataSources.get(0);
+
+        List<SQLLeaderElect> sqlLeaderElects = new ArrayList<>(dataSources.size());
+        LeaderElectorConfiguration firstConfiguration = null;
+        for (DataSource ds : dataSources) {
+            // Amend configuration with auto-detected values
+            LeaderElectorConfiguration runtimeConfiguration;
+            try {
+                runtimeConfiguration = LeaderElectorConfiguration.getRuntimeConfiguration(configuration, ds);
+            } catch (LeaderElectorConfigurationException ex) {
+                throw new LeaderElectorPreFlightException("Cannot auto-detect configuration values", ex);
+            }
+            
+            // Pre-flight check
+            String displayName = verifyConnection(runtimeConfiguration, ds);
+            SQLLeaderElect elect = new SQLLeaderElect(runtimeConfiguration, ds, replicaDataSource, displayName);
 
+            if (configuration.createTable()) {
+                try {
+                    elect.ensureTable();
+                } catch (SQLException ex) {
+                    throw new LeaderElectorPreFlightException("Could not create table " + displayName, ex);
+                }
+            }
 
-        // Amend configuration with auto-detected values
-        try {
-            this.configuration = LeaderElectorConfiguration.getRuntimeConfiguration(configuration, dataSource);
-        } catch (LeaderElectorConfigurationException ex) {
-            throw new LeaderElectorPreFlightException("Cannot auto-detect configuration values", ex);
-        }
+            boolean endpointColumn = verifyTable(runtimeConfiguration, ds, displayName);
+            elect.setEndpointColumn(endpointColumn);
 
-        // Pre-flight check
-        tableNameDisplay = verifyConnection();
-        
-        sqlLeaderElect = new SQLLeaderElect(this.configuration, dataSource, tableNameDisplay);
-       
-        if (configuration.createTable()) {
             try {
-                sqlLeaderElect.ensureTable();
+                elect.ensureRoleRow();
             } catch (SQLException ex) {
-                throw new LeaderElectorPreFlightException("Could not create table " + tableNameDisplay, ex);
+                String msg = "Could not insert row into " + displayName + " for role_id='" + configuration.getRoleId() + "'";
+                throw new LeaderElectorPreFlightException(msg, ex);
             }
+            if (firstConfiguration == null) {
+                firstConfiguration = runtimeConfiguration;
+            }
+            sqlLeaderElects.add(elect);
         }
-        
-        verifyTable();
-        
-        try {
-            sqlLeaderElect.ensureRoleRow();
-        } catch (SQLException ex) {
-            String msg = "Could not insert row into " + tableNameDisplay + " for role_id='" + configuration.getRoleId() + "'";
-            throw new LeaderElectorPreFlightException(msg, ex);
-        }
+        this.configuration = firstConfiguration;
+        this.sqlLeaderElect = sqlLeaderElects.get(0);
+        this.leaderElect = (sqlLeaderElects.size() == 1)
+                ? sqlLeaderElect
+                : new QuorumLeaderElect(this.configuration, sqlLeaderElects);
         
         // Executors
-        executorElector = Executors.newScheduledThreadPool(1, new ThreadFactoryWithNamePrefix("LeaderElector-election"));
-        executorNotifier = Executors.newSingleThreadExecutor(new ThreadFactoryWithNamePrefix("LeaderElector-notification"));
+        // The pending periodic election is cancelled on close. It must then
+        // leave the queue right away so that it doesn't hold up the 
+        // termination of the executor.
+        ScheduledThreadPoolExecutor elector = new ScheduledThreadPoolExecutor(1, new ThreadFactoryWithNamePrefix("LeaderElector-election"));
+        elector.setRemoveOnCancelPolicy(true);
+        executorElector = elector;
+        // The notification queue is a deque so that a loss of leadership
+        // detected by the watchdog can jump the queue. Such events are
+        // put directly on the queue, which is why the thread must exist.
+        ThreadPoolExecutor notifier = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                notifierQueue, new ThreadFactoryWithNamePrefix("LeaderElector-notification"));
+        notifier.prestartAllCoreThreads();
+        executorNotifier = notifier;
+        watchdog = (this.configuration.getWatchdogThresholdMs() > 0)
+                ? new LeaseWatchdog(this.configuration.getWatchdogThresholdMs(), this::watchdogTripped)
+                : null;
+        backoff = (this.configuration.getBackoffMaxMs() > 0)
+                ? new ElectionBackoff(this.configuration.getIntervalMs(), 
+                        this.configuration.getBackoffMaxMs(), this.configuration.getCircuitBreakerThreshold())
+                : null;
+
 
+        history = new ElectionHistory(this.configuration.getHistorySize());
+        if (this.configuration.isJmxEnabled()) {
+            registerMXBean();
+        }
         
         start();
 
@@ -154,7 +331,73 @@ public class LeaderElector implements AutoCloseable {
         return configuration;
     }
 
-    private String verifyConnection() throws LeaderElectorPreFlightException {
+    /**
+     * Gets the measurements of this Leader Elector: counts of elections
+     * and their outcomes, errors and latencies of the phases of the
+     * election cycle. The same measurements are available over JMX if
+     * {@link LeaderElectorConfiguration#isJmxEnabled() jmxEnabled}.
+     * 
+     * @return metrics, never {@code null}
+     */
+    public ElectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the most recent election cycles of this Leader Elector, as many
+     * as {@link LeaderElectorConfiguration#getHistorySize() historySize}.
+     * Use {@link ElectionHistory#dump()} to get them as text, for example 
+     * after an unexpected change of leadership.
+     * 
+     * @return history, never {@code null}
+     */
+    public ElectionHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Gets the state of this Leader Elector, for monitoring. This does 
+     * <i>not</i> connect to the database: the snapshot is made from the
+     * outcome of the most recent election. Unlike {@link #isLeader()} this
+     * method can also be used when the instance is closed.
+     * 
+     * @return status, never {@code null}
+     */
+    public LeaderElectorStatus getStatus() {
+        boolean closed = closing;
+        boolean leader = !closed && leaderElect.isLeader();
+        LeaderInfo leaderInfo = currentLeader;
+        long leaseCounter = (leader && leaderInfo != null && leaderInfo.isSelf()) ? leaderInfo.getLeaseCounter() : -1;
+        return new LeaderElectorStatus(configuration.getRoleId(), configuration.getCandidateId(), 
+                closed, leader, leaseCounter, lastOutcome, lastElectionAtMillis, lastElectionNanos, 
+                metrics.getCurrentFailureStreak(), lastError);
+    }
+
+    private void registerMXBean() {
+        try {
+            ObjectName name = new ObjectName("net.lbruun.dbleaderelect:type=LeaderElector"
+                    + ",roleId=" + ObjectName.quote(configuration.getRoleId())
+                    + ",candidateId=" + ObjectName.quote(configuration.getCandidateId()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            mxBeanName = name;
+        } catch (Exception ex) {
+            // Metrics are not important enough to stop the Leader Elector
+            configuration.getLeaderElectorLogger().logError(this.getClass(), "Could not register MXBean", ex);
+        }
+    }
+
+    private void unregisterMXBean() {
+        if (mxBeanName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mxBeanName);
+        } catch (Exception ex) {
+            configuration.getLeaderElectorLogger().logError(this.getClass(), "Could not unregister MXBean", ex);
+        }
+    }
+
+    private static String verifyConnection(LeaderElectorConfiguration configuration, DataSource dataSource) throws LeaderElectorPreFlightException {
         String schemaName = configuration.getSchemaName();
         String tableName = configuration.getTableName();
         int timeoutSecs = 10;
@@ -171,7 +414,10 @@ public class LeaderElector implements AutoCloseable {
         }
     }
     
-    private void verifyTable() throws LeaderElectorPreFlightException {
+    /**
+     * @return true if the table has the (optional) endpoint column
+     */
+    private static boolean verifyTable(LeaderElectorConfiguration configuration, DataSource dataSource, String tableNameDisplay) throws LeaderElectorPreFlightException {
         String schemaName = configuration.getSchemaName();
         String tableName = configuration.getTableName();
 
@@ -191,6 +437,17 @@ public class LeaderElector implements AutoCloseable {
                     };
             SQLUtils.tableColumnVerification(connection, schemaName, tableName, expectedColumns);
             
+            // Optional column, added in a later version of the table
+            boolean endpointColumn = SQLUtils.columnExists(connection, schemaName, tableName, "candidate_endpoint");
+            if (!endpointColumn) {
+                if (configuration.getCandidateEndpoint() != null) {
+                    throw new LeaderElectorPreFlightException("Table " + tableNameDisplay 
+                            + " has no column candidate_endpoint. The column is required when candidateEndpoint is configured");
+                }
+                configuration.getLeaderElectorLogger().logInfo(LeaderElector.class, 
+                        "Table " + tableNameDisplay + " has no column candidate_endpoint. The endpoint of the leader will not be available.");
+            }
+            return endpointColumn;
         } catch (SQLException ex) {
             throw new LeaderElectorPreFlightException("Error on initial verification", ex);
         }
@@ -200,11 +457,52 @@ public class LeaderElector implements AutoCloseable {
 
         int maxJitter = (int) (configuration.getIntervalMs() / 3);
         int jitter = ThreadLocalRandom.current().nextInt(maxJitter + 1);
-        executorElector.scheduleWithFixedDelay(
-                getRunnable(false, true), // task to execute
-                jitter, // initial delay 
-                configuration.getIntervalMs(), // subsequent delay
-                TimeUnit.MILLISECONDS);
+        if (backoff == null) {
+            // A single task for the lifetime of the Leader Elector, so that
+            // elections don't allocate a new task every cycle
+            electionFuture = executorElector.scheduleWithFixedDelay(
+                    periodicElectionTask, jitter, configuration.getIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            scheduleElection(jitter);
+        }
+    }
+
+    private void scheduleElection(long delayMs) {
+        try {
+            electionFuture = executorElector.schedule(periodicElectionTask, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // Closing down
+        }
+    }
+
+    /**
+     * The periodic election. Without backoff it runs at a fixed delay of
+     * {@code intervalMs}. With backoff it schedules the next election when 
+     * done, normally {@code intervalMs} later but longer if backing off.
+     */
+    private void periodicElection() {
+        if (closing) {
+            return;
+        }
+        if (backoff == null) {
+            runElection(false, true);
+            return;
+        }
+        backoff.electionStarting();
+        ElectionCycle cycle = runElection(false, true);
+        ElectionBackoff.State stateBefore = backoff.getState();
+        long delayMs = backoff.electionCompleted(cycle != null && !cycle.hasErrors());
+        ElectionBackoff.State stateAfter = backoff.getState();
+        if (stateBefore == ElectionBackoff.State.CLOSED && stateAfter == ElectionBackoff.State.OPEN) {
+            configuration.getLeaderElectorLogger().logInfo(this.getClass(), 
+                    "Elections keep failing. Backing off (next election in " + delayMs + " ms)");
+        } else if (stateBefore == ElectionBackoff.State.HALF_OPEN && stateAfter == ElectionBackoff.State.CLOSED) {
+            configuration.getLeaderElectorLogger().logInfo(this.getClass(), 
+                    "Election succeeded. Resuming normal election interval");
+        }
+        if (!closing) {
+            scheduleElection(delayMs);
+        }
     }
 
     
@@ -236,7 +534,7 @@ public class LeaderElector implements AutoCloseable {
         if (closing) {
             return;
         }
-        if (!sqlLeaderElect.isLeader()) {
+        if (!leaderElect.isLeader()) {
             return;
         }
         executorElector.schedule(getRunnable(
@@ -264,7 +562,33 @@ public class LeaderElector implements AutoCloseable {
         if (closing) {
             throw new LeaderElectorExceptionNonRecoverable("Instance is closed");
         }
-        return sqlLeaderElect.isLeader();
+        return leaderElect.isLeader();
+    }
+
+    /**
+     * Gets who is leader, as observed by the most recent election of this
+     * candidate. This does <i>not</i> connect to the database: the 
+     * snapshot is refreshed by the regular election, every 
+     * {@link LeaderElectorConfiguration#getIntervalMs() intervalMs}. 
+     * It is therefore cheap enough to be used for routing of every request,
+     * for example to forward requests to the 
+     * {@link LeaderInfo#getEndpoint() leader's endpoint}.
+     * 
+     * <p>
+     * If the database cannot be reached then the last known leader is
+     * kept and its {@link LeaderInfo#getAge() age} grows. If this candidate
+     * itself is leader then the snapshot is only returned for as long as
+     * {@link #isLeader()} is true.
+     * 
+     * @return current leader or {@code null} if there is no leader, or if
+     *    it is not known who is leader
+     */
+    public LeaderInfo getCurrentLeader() {
+        LeaderInfo leader = currentLeader;
+        if (leader != null && leader.isSelf() && !leaderElect.isLeader()) {
+            return null;   // for example given up by the watchdog
+        }
+        return leader;
     }
 
     /**
@@ -277,51 +601,434 @@ public class LeaderElector implements AutoCloseable {
         return closing;
     }
 
-    private Runnable getRunnable(int loginTimeoutSecs, final boolean relinquish, final boolean propagateEvent) {
-        return () -> {
-            try {
-                if (loginTimeoutSecs > 0) {
-                    dataSource.setLoginTimeout(loginTimeoutSecs);
+    /**
+     * Gets an executor which only executes tasks while this candidate
+     * is leader. Tasks executing in the executor are interrupted and
+     * outstanding tasks are dropped as soon as leadership is lost.
+     * See {@link LeaderExecutorService} for details.
+     * 
+     * <p>
+     * The executor is created on first invocation of this method and has
+     * {@link LeaderElectorConfiguration#getLeaderExecutorPoolSize() leaderExecutorPoolSize}
+     * threads. Subsequent invocations return the same executor. The executor 
+     * is shut down when the Leader Elector is closed. 
+     *
+     * @throws LeaderElectorExceptionNonRecoverable if this instance is closed
+     * @return executor for leader tasks
+     */
+    public synchronized LeaderExecutorService leaderExecutor() throws LeaderElectorExceptionNonRecoverable {
+        if (closing) {
+            throw new LeaderElectorExceptionNonRecoverable("Instance is closed");
+        }
+        if (leaderExecutor == null) {
+            final LeaderScopedExecutor executor = new LeaderScopedExecutor(
+                    configuration.getLeaderExecutorPoolSize(),
+                    configuration.getAssumeDeadMs(),
+                    configuration.getLeaderElectorLogger());
+            leaderExecutor = executor;
+            
+            // We may already be leader. The state of the last election is 
+            // only safe to read from the election thread, which is also 
+            // where every subsequent election will update the executor. 
+            executorElector.execute(() -> {
+                ElectionCycle lastCycle = leaderElect.getLastElectionCycle();
+                if (lastCycle.hasOutcome()) {
+                    executor.onElection(lastCycle);
                 }
-                LeaderElectorListener.Event event = sqlLeaderElect.electLeader(relinquish);
-                if (propagateEvent) {
-                    sendEvent(event);
+            });
+        }
+        return leaderExecutor;
+    }
+
+    /**
+     * Gets a scheduler for jobs which only execute on the leader and 
+     * which continue where they left off when leadership moves to another
+     * candidate. See {@link LeaderJobScheduler} for details.
+     * 
+     * <p>
+     * The state of the jobs is kept in the 
+     * {@link LeaderElectorConfiguration#getJobTableName() job table}. If
+     * {@link LeaderElectorConfiguration#createTable() createTable} is
+     * {@code true} then the table is created on first invocation of this
+     * method. Jobs execute in the {@link #leaderExecutor() leader executor}.
+     *
+     * @throws LeaderElectorExceptionNonRecoverable if this instance is closed
+     *     or if the job table cannot be created
+     * @throws UnsupportedOperationException if the Leader Elector elects 
+     *     across {@link #LeaderElector(LeaderElectorConfiguration, List) several databases}
+     * @return job scheduler
+     */
+    public synchronized LeaderJobScheduler jobScheduler() throws LeaderElectorExceptionNonRecoverable {
+        if (closing) {
+            throw new LeaderElectorExceptionNonRecoverable("Instance is closed");
+        }
+        checkSingleDatabase("Leader jobs");
+        if (jobScheduler == null) {
+            if (configuration.createTable()) {
+                try {
+                    sqlLeaderElect.ensureJobTable();
+                } catch (SQLException ex) {
+                    throw new LeaderElectorExceptionNonRecoverable("Could not create table " + configuration.getJobTableName(), ex);
                 }
-            } catch (Exception ex) {                
-                ex.printStackTrace();
             }
-        };
+            leaderExecutor();
+            jobScheduler = new LeaderJobSchedulerImpl(
+                    leaderExecutor, dataSource, sqlLeaderElect.getSqlCmds(), configuration);
+        }
+        return jobScheduler;
+    }
+
+    /**
+     * Gets a fence for writes which must only be committed while this 
+     * candidate holds its current lease. See {@link LeaseFence} for 
+     * details.
+     * 
+     * <p>
+     * When invoked from a task in the {@link #leaderExecutor() leader executor}
+     * the fence is bound to the lease under which the task was started.
+     * Otherwise it is bound to the lease currently held. If this candidate
+     * is not leader then every write through the fence is rejected.
+     * 
+     * @throws LeaderElectorExceptionNonRecoverable if this instance is closed
+     * @throws UnsupportedOperationException if the Leader Elector elects 
+     *     across {@link #LeaderElector(LeaderElectorConfiguration, List) several databases}
+     * @return fence
+     */
+    public LeaseFence leaseFence() throws LeaderElectorExceptionNonRecoverable {
+        long leaseCounter = LeaderExecutorService.currentLeaseCounter();
+        if (leaseCounter == LeaderExecutorService.NO_LEASE_COUNTER) {
+            LeaderInfo leader = getCurrentLeader();
+            if (leader != null && leader.isSelf()) {
+                leaseCounter = leader.getLeaseCounter();
+            }
+        }
+        return leaseFence(leaseCounter);
+    }
+
+    /**
+     * Gets a fence for writes which must only be committed while this 
+     * candidate holds the given lease, for example the one from 
+     * {@link net.lbruun.dbleaderelect.jobs.JobExecutionContext#getLeaseCounter()}.
+     * See {@link LeaseFence} for details.
+     * 
+     * @param leaseCounter lease counter of the lease
+     * @throws LeaderElectorExceptionNonRecoverable if this instance is closed
+     * @throws UnsupportedOperationException if the Leader Elector elects 
+     *     across {@link #LeaderElector(LeaderElectorConfiguration, List) several databases}
+     * @return fence
+     */
+    public LeaseFence leaseFence(long leaseCounter) throws LeaderElectorExceptionNonRecoverable {
+        if (closing) {
+            throw new LeaderElectorExceptionNonRecoverable("Instance is closed");
+        }
+        checkSingleDatabase("Lease fences");
+        return new LeaseFenceImpl(dataSource, sqlLeaderElect.getSqlCmds(), configuration, leaseCounter);
+    }
+
+    // Leader jobs and lease fences check the lease in the first database.
+    // With a quorum the leader's majority may not include that database.
+    private void checkSingleDatabase(String feature) {
+        if (leaderElect != sqlLeaderElect) {
+            throw new UnsupportedOperationException(feature + " are not supported when electing across several databases");
+        }
+    }
+
+    /**
+     * Executes an election and acts on its outcome. 
+     * 
+     * @return outcome of the election, or {@code null} if it could 
+     *    not be executed
+     */
+    private ElectionCycle runElection(final boolean relinquish, final boolean propagateEvent) {
+        try {
+            long tripsBefore = watchdogTrips.get();
+            Object jfrEvent = FlightRecorderEvents.beginCycle();
+            ElectionCycle cycle = leaderElect.runElection(relinquish);
+            FlightRecorderEvents.endCycle(jfrEvent, cycle, configuration.getCandidateId());
+            recordMetrics(cycle);
+            EventType eventType = cycle.getEventType();
+            boolean renewed = (eventType == EventType.LEADERSHIP_ASSUMED || eventType == EventType.LEADERSHIP_CONFIRMED);
+            if (watchdogTrips.get() != tripsBefore) {
+                // The watchdog has given up leadership while this election
+                // was in progress, and has already told the listener. 
+                // A renewal from this election is not trusted; the next 
+                // election re-assumes with a new lease counter if we 
+                // still hold the lease. 
+                if (renewed) {
+                    leaderElect.revokeLocally();
+                    return cycle;
+                }
+                if (eventType == EventType.LEADERSHIP_LOST) {
+                    return cycle;
+                }
+            }
+            if (watchdog != null) {
+                if (renewed) {
+                    watchdog.renewed(cycle.getStartNanos());
+                } else {
+                    watchdog.disarm();
+                }
+            }
+            // Leader tasks must be stopped before the listener is told
+            // about a loss of leadership.
+            LeaderScopedExecutor executor = leaderExecutor;
+            if (executor != null) {
+                executor.onElection(cycle);
+            }
+            if (eventType == EventType.LEADERSHIP_ASSUMED || eventType == EventType.LEADERSHIP_LOST) {
+                FlightRecorderEvents.leadershipTransition(configuration.getRoleId(), 
+                        configuration.getCandidateId(), eventType, cycle.getLeaseCounter());
+            }
+            updateCurrentLeader(cycle);
+            if (propagateEvent) {
+                sendEvent(cycle);
+            }
+            return cycle;
+        } catch (Exception ex) {                
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    private void recordMetrics(ElectionCycle cycle) {
+        long cycleNanos = System.nanoTime() - cycle.getStartNanos();
+        // Only a renewal of our own lease says something about the margin.
+        // When taking over, the age is that of the previous leader's lease.
+        long leaseAgeMillis = (cycle.getEventType() == EventType.LEADERSHIP_CONFIRMED) 
+                ? cycle.getLeaseAgeMillis() 
+                : -1;
+        boolean marginLow = (leaseAgeMillis >= 0) && isLeaseMarginLow(leaseAgeMillis);
+        ElectionMetricsRecorder recorder = configuration.getMetricsRecorder();
+        record(metrics, cycle, cycleNanos, leaseAgeMillis, marginLow);
+        if (recorder != ElectionMetricsRecorder.NO_OP) {
+            try {
+                record(recorder, cycle, cycleNanos, leaseAgeMillis, marginLow);
+            } catch (RuntimeException ex) {
+                // Ignored, as documented
+            }
+        }
+        if (leaseAgeMillis >= 0) {
+            warnIfLeaseMarginLow(cycle, leaseAgeMillis, marginLow);
+        }
+        recordStatus(cycle, cycleNanos);
+        history.record(cycle, cycleNanos);
+        logCycle(cycle, cycleNanos);
+    }
+
+    // The level is checked before a message is built (rather than passing 
+    // a Supplier) so that nothing is allocated per cycle when disabled.
+    private void logCycle(ElectionCycle cycle, long cycleNanos) {
+        LeaderElectorLogger logger = configuration.getLeaderElectorLogger();
+        if (logger.isTraceEnabled(LeaderElector.class)) {
+            logger.logTrace(LeaderElector.class, describeCycle(cycle, cycleNanos, true));
+        } else if (logger.isDebugEnabled(LeaderElector.class)) {
+            logger.logDebug(LeaderElector.class, describeCycle(cycle, cycleNanos, false));
+        }
+    }
+
+    private static String describeCycle(ElectionCycle cycle, long cycleNanos, boolean withPhases) {
+        StringBuilder sb = new StringBuilder("Election cycle: ");
+        sb.append(cycle.getEventType())
+                .append(" leader=").append(cycle.getCandidateId())
+                .append(" counter=").append(cycle.getLeaseCounter())
+                .append(" duration=").append(TimeUnit.NANOSECONDS.toMicros(cycleNanos)).append("us");
+        if (withPhases) {
+            if (cycle.getLeaseAgeMillis() >= 0) {
+                sb.append(" leaseAge=").append(cycle.getLeaseAgeMillis()).append("ms");
+            }
+            for (ElectionPhase phase : PHASES) {
+                long phaseNanos = cycle.getPhaseNanos(phase);
+                if (phaseNanos >= 0) {
+                    sb.append(' ').append(phase).append('=')
+                            .append(TimeUnit.NANOSECONDS.toMicros(phaseNanos)).append("us");
+                }
+            }
+        }
+        for (int i = 0; i < cycle.getErrorCount(); i++) {
+            sb.append(" error=").append(cycle.getError(i));
+        }
+        return sb.toString();
+    }
+
+    private void recordStatus(ElectionCycle cycle, long cycleNanos) {
+        LeaderElectorException error = null;
+        for (int i = 0; i < cycle.getErrorCount(); i++) {
+            if (error == null || (cycle.getError(i) instanceof LeaderElectorExceptionNonRecoverable 
+                    && !(error instanceof LeaderElectorExceptionNonRecoverable))) {
+                error = cycle.getError(i);
+            }
+        }
+        lastError = error;
+        lastElectionAtMillis = cycle.getStartTimeMillis();
+        lastElectionNanos = cycleNanos;
+        lastOutcome = cycle.getEventType();
+    }
+
+    private boolean isLeaseMarginLow(long leaseAgeMillis) {
+        double fraction = configuration.getLeaseMarginWarningFraction();
+        long marginMillis = configuration.getAssumeDeadMs() - leaseAgeMillis;
+        return fraction > 0 && marginMillis < fraction * configuration.getAssumeDeadMs();
+    }
+
+    private void warnIfLeaseMarginLow(ElectionCycle cycle, long leaseAgeMillis, boolean marginLow) {
+        long marginMillis = configuration.getAssumeDeadMs() - leaseAgeMillis;
+        if (marginLow) {
+            FlightRecorderEvents.leaseMarginLow(configuration.getRoleId(), configuration.getCandidateId(), 
+                    cycle.getLeaseCounter(), leaseAgeMillis, marginMillis);
+            if (!leaseMarginLow) {
+                configuration.getLeaderElectorLogger().logWarning(this.getClass(), 
+                        "Lease renewed with only " + marginMillis + " ms to spare (lease age " + leaseAgeMillis 
+                        + " ms, assumeDeadMs " + configuration.getAssumeDeadMs() + " ms). "
+                        + "Leadership is at risk of being lost. Check the response times of the database, "
+                        + "or increase assumeDeadMs relative to intervalMs.", null);
+            }
+        } else if (leaseMarginLow) {
+            configuration.getLeaderElectorLogger().logInfo(this.getClass(), 
+                    "Lease margin back to normal: lease renewed with " + marginMillis + " ms to spare");
+        }
+        leaseMarginLow = marginLow;
+    }
+
+    private static void record(ElectionMetricsRecorder recorder, ElectionCycle cycle, long cycleNanos, 
+            long leaseAgeMillis, boolean marginLow) {
+        recorder.recordTiming(ElectionPhase.CYCLE, cycleNanos);
+        for (ElectionPhase phase : PHASES) {
+            long nanos = cycle.getPhaseNanos(phase);
+            if (nanos >= 0) {
+                recorder.recordTiming(phase, nanos);
+            }
+        }
+        for (int i = 0; i < cycle.getErrorCount(); i++) {
+            recorder.recordError(cycle.getError(i));
+        }
+        if (leaseAgeMillis >= 0) {
+            recorder.recordLeaseRenewal(leaseAgeMillis, marginLow);
+        }
+        recorder.recordOutcome(cycle.getEventType(), cycle.hasErrors());
+    }
+
+    private void updateCurrentLeader(ElectionCycle cycle) {
+        switch (cycle.getEventType()) {
+            case LEADERSHIP_ASSUMED:
+            case LEADERSHIP_CONFIRMED:
+                observeLeader(configuration.getCandidateId(), configuration.getCandidateEndpoint(), true, cycle);
+                break;
+            case LEADERSHIP_NOOP:
+                String candidateId = cycle.getCandidateId();
+                if (candidateId == null || candidateId.equals(NO_LEADER_CANDIDATE_ID)) {
+                    currentLeader = null;
+                } else {
+                    observeLeader(candidateId, cycle.getCandidateEndpoint(), false, cycle);
+                }
+                break;
+            case LEADERSHIP_LOST:
+                currentLeader = null;
+                break;
+            default:
+                // Undetermined: keep what was last observed. Its age tells
+                // how reliable it is.
+        }
+    }
+
+    // A new snapshot only when the leader or its lease changes, so that the
+    // steady state doesn't allocate
+    private void observeLeader(String candidateId, String endpoint, boolean self, ElectionCycle cycle) {
+        LeaderInfo leader = currentLeader;
+        if (leader != null && leader.isSameLease(candidateId, endpoint, cycle.getLeaseCounter(), self)) {
+            leader.observed(cycle.getEventTimeMillis(), cycle.getStartNanos());
+        } else {
+            currentLeader = new LeaderInfo(candidateId, endpoint, cycle.getLeaseCounter(), self, 
+                    cycle.getEventTimeMillis(), cycle.getStartNanos());
+        }
     }
 
     private Runnable getRunnable(final boolean relinquish, final boolean propagateEvent) {
-        return getRunnable(-1, relinquish, propagateEvent);
+        return () -> runElection(relinquish, propagateEvent);
     }
 
-    private void sendEvent(final LeaderElectorListener.Event event) {
+    private void sendEvent(final ElectionCycle cycle) {
         // Ignore events if we're closing or closed.
         if (closing) {
             return;
         }
         final EnumSet<LeaderElectorListener.EventType> listenerSubscription = configuration.getListenerSubscription();
+        if (listenerSubscription.contains(cycle.getEventType())) {
+            // Only materialize the event if someone is actually interested.
+            // This keeps the steady-state cycle free of allocations for the
+            // common case where LEADERSHIP_CONFIRMED and LEADERSHIP_NOOP are
+            // not subscribed to.
+            sendEvent(cycle.toEvent());
+        } else {
+            // Event is ignored as its type doesn't match the subscription
+        }
+    }
+
+    /**
+     * Invoked by the watchdog when the lease has not been renewed within
+     * the threshold. Runs on the watchdog's thread and must not depend on
+     * the database.
+     */
+    private void watchdogTripped() {
+        if (closing) {
+            return;
+        }
+        watchdogTrips.incrementAndGet();
+        leaderElect.revokeLocally();
+        String msg = "Lease not renewed within " + configuration.getWatchdogThresholdMs() 
+                + " ms. Giving up leadership locally.";
+        configuration.getLeaderElectorLogger().logError(this.getClass(), msg, null);
+        FlightRecorderEvents.leadershipTransition(configuration.getRoleId(), 
+                configuration.getCandidateId(), EventType.LEADERSHIP_LOST, -1);
+        LeaderScopedExecutor executor = leaderExecutor;
+        if (executor != null) {
+            executor.revoke("watchdog");
+        }
+        if (configuration.getListenerSubscription().contains(EventType.LEADERSHIP_LOST)) {
+            Instant now = Instant.now();
+            LeaderElectorListener.Event.ErrorEvent[] errors = new LeaderElectorListener.Event.ErrorEvent[]{
+                new ErrorEventImpl(now, new LeaderElectorExceptionRecoverable(msg))};
+            LeaderElectorListener.Event event = new EventImpl(
+                    EventType.LEADERSHIP_LOST, now, now, configuration.getRoleId(), 
+                    null, null, -1, errors);
+            if (!executorNotifier.isShutdown()) {
+                notifierQueue.offerFirst(notificationTask(event));
+            }
+        }
+    }
+
+    private void sendEvent(final LeaderElectorListener.Event event) {
+        executorNotifier.execute(notificationTask(event));
+    }
+
+    private Runnable notificationTask(final LeaderElectorListener.Event event) {
         final LeaderElectorListener listener = configuration.getListener();
-        if (listenerSubscription.contains(event.getEventType())) {
-            executorNotifier.submit(() -> {
+        final long queuedNanos = System.nanoTime();
+        return () -> {
+            long lagNanos = System.nanoTime() - queuedNanos;
+            recordDispatchLag(lagNanos);
+            FlightRecorderEvents.listenerDispatch(configuration.getRoleId(), event.getEventType(), lagNanos);
+            try {
+                listener.onLeaderElectionEvent(event, this);
+            } catch (Exception ex) {
+                String msg = "Error while propagating event from Leader Elector. Leader Elector will be shut down";
                 try {
-                    listener.onLeaderElectionEvent(event, this);
-                } catch (Exception ex) {
-                    String msg = "Error while propagating event from Leader Elector. Leader Elector will be shut down";
-                    try {
-                        configuration.getLeaderElectorLogger()
-                                .logError(listener.getClass(), msg, ex);
-                    } catch (Exception exIgnored) {
-                        System.err.println("ERROR: " + msg);
-                        ex.printStackTrace(System.err);
-                    }
-                    close();
+                    configuration.getLeaderElectorLogger()
+                            .logError(listener.getClass(), msg, ex);
+                } catch (Exception exIgnored) {
+                    System.err.println("ERROR: " + msg);
+                    ex.printStackTrace(System.err);
                 }
-            });
-        } else {
-            // Event is ignored as its type doesn't match the subscription
+                close();
+            }
+        };
+    }
+
+    private void recordDispatchLag(long nanos) {
+        metrics.recordTiming(ElectionPhase.LISTENER_DISPATCH_LAG, nanos);
+        try {
+            configuration.getMetricsRecorder().recordTiming(ElectionPhase.LISTENER_DISPATCH_LAG, nanos);
+        } catch (RuntimeException ex) {
+            // Ignored, as documented
         }
     }
 
@@ -331,42 +1038,145 @@ public class LeaderElector implements AutoCloseable {
      * No events will be propagated as a result of this attempt.
      *
      * <p>
-     * After this method returns, {@link isClosed()}} will return {@code true}.
+     * This method blocks until the close-down has completed, however for at most
+     * {@value #CLOSE_TIMEOUT_MS} milliseconds. Use {@link #closeAsync()} to
+     * avoid blocking or {@link #closeAll(java.util.Collection) closeAll()} 
+     * to close down many instances in parallel.
+     * 
+     * <p>
+     * After this method returns, {@link #isClosed()} will return {@code true}.
      * An instance which has been closed cannot be re-used. Calling this method
      * more than once on the same instance has no effect.
      */
     @Override
-    public synchronized void close() {
-        if (closing) {
-            return;
+    public void close() {
+        awaitClose(closeAsync());
+    }
+
+    /**
+     * Closes down the Leader Elector without waiting for the close-down
+     * to complete. This is the non-blocking version of {@link #close()}.
+     * 
+     * <p>
+     * After this method returns, {@link #isClosed()} will return {@code true}
+     * and tasks in the {@link #leaderExecutor() leader executor} have been
+     * stopped, but the relinquishment of leadership (if any) may still be in
+     * progress. It is carried out by the Leader Elector's own background 
+     * thread. If that thread is stuck, for example in a database call which
+     * doesn't return, the rest of the close-down is carried out without it
+     * after {@value #CLOSE_TIMEOUT_MS} milliseconds.
+     * Calling this method more than once returns the same future.
+     *
+     * @return future which completes when the close-down has completed. The
+     *   future never completes exceptionally.
+     */
+    public synchronized CompletableFuture<Void> closeAsync() {
+        if (closeFuture != null) {
+            return closeFuture;
         }
         closing = true;
-        long startTime = System.currentTimeMillis();
+        closeFuture = new CompletableFuture<>();
+        final long startTime = System.currentTimeMillis();
         this.configuration.getLeaderElectorLogger().logInfo(
                 this.getClass(), "Leader Elector is closing down");
 
         // Make a best-effort attempt at relinquishing current leadership (if any). 
         // Events from this attempt are not propagated.
-        // We do not want to wait long time for connection to database to be obtained
-        // so set to 10 secs maximum.
-        executorElector.schedule(
-                getRunnable(
-                        10,   // max login time in seconds
-                        true, // relinquish ?
-                        false // propagateEvent ?
-                ),
-                0,  // immediate execution
-                TimeUnit.MILLISECONDS);
+        // Waiting for a connection is bounded by connectionAcquireTimeoutMs
+        // as for any other election.
+        final Runnable relinquishTask = getRunnable(
+                true, // relinquish ?
+                false // propagateEvent ?
+        );
+        final CompletableFuture<Void> future = closeFuture;
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        cancelPeriodicElection();
+
+        // Done here rather than on the election thread, which may be stuck
+        if (watchdog != null) {
+            watchdog.close();
+        }
+        LeaderScopedExecutor executor = leaderExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        unregisterMXBean();
 
+        executorElector.execute(() -> {
+            try {
+                // An election running while close-down started may have
+                // scheduled the next one.
+                cancelPeriodicElection();
+                relinquishTask.run();
+            } finally {
+                completeClose(completed, future, startTime, true);
+            }
+        });
+        // Tasks already submitted, such as the above, will still execute
         executorElector.shutdown();
-        try {
-            executorElector.awaitTermination(10, TimeUnit.SECONDS);
-        } catch (InterruptedException ex) {
-            // Swallow
+        // In case the election thread is stuck
+        ScheduledFuture<?> timeout = SharedScheduler.get().schedule(
+                () -> completeClose(completed, future, startTime, false),
+                CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        future.thenRun(() -> timeout.cancel(false));
+        return closeFuture;
+    }
+
+    private void completeClose(AtomicBoolean completed, CompletableFuture<Void> future, 
+            long startTime, boolean onElectionThread) {
+        if (!completed.compareAndSet(false, true)) {
+            return;
+        }
+        if (!onElectionThread) {
+            // Interrupt the election thread, and stop it when it returns
+            executorElector.shutdownNow();
         }
         executorNotifier.shutdown();
+        leaderElect.close();
         long durationMs = System.currentTimeMillis() - startTime;
-        this.configuration.getLeaderElectorLogger().logInfo(
-                this.getClass(), "Leader Elector closed in " + durationMs + " ms");
+        this.configuration.getLeaderElectorLogger().logInfo(this.getClass(), (onElectionThread)
+                ? "Leader Elector closed in " + durationMs + " ms"
+                : "Leader Elector closed in " + durationMs + " ms, without relinquishing leadership as the election thread is stuck");
+        future.complete(null);
+    }
+
+    private void cancelPeriodicElection() {
+        ScheduledFuture<?> pending = electionFuture;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * Closes down a number of Leader Electors in parallel. This is the
+     * equivalent of calling {@link #close()} on each of them, except that
+     * the close-downs, including the relinquishment of leadership, happen
+     * concurrently. The time it takes is therefore bounded by the
+     * slowest of them rather than the sum.
+     * 
+     * <p>
+     * This method blocks until all close-downs have completed, however for
+     * at most {@value #CLOSE_TIMEOUT_MS} milliseconds in total.
+     *
+     * @param leaderElectors instances to close. Instances which are already
+     *    closed are ignored. 
+     */
+    public static void closeAll(Collection<? extends LeaderElector> leaderElectors) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[leaderElectors.size()];
+        int i = 0;
+        for (LeaderElector leaderElector : leaderElectors) {
+            futures[i++] = leaderElector.closeAsync();
+        }
+        awaitClose(CompletableFuture.allOf(futures));
+    }
+
+    private static void awaitClose(CompletableFuture<?> future) {
+        try {
+            future.get(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            // Swallow. Close-down is best-effort.
+        }
     }
 }
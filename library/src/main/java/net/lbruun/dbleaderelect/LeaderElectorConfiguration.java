@@ -22,6 +22,7 @@ import java.sql.SQLTimeoutException;
 import java.util.EnumSet;
 import javax.sql.DataSource;
 import net.lbruun.dbleaderelect.utils.NodeIdUtils;
+import net.lbruun.dbleaderelect.metrics.ElectionMetricsRecorder;
 
 /**
  * Configuration for Leader Elector.
@@ -43,6 +44,10 @@ public class LeaderElectorConfiguration {
      * Maximum character length for the {@code candidateId} value.
      */
     public static final int CANDIDATEID_MAX_LENGTH = 256;
+    /**
+     * Maximum character length for the {@code candidateEndpoint} value.
+     */
+    public static final int CANDIDATEENDPOINT_MAX_LENGTH = 256;
     
     /**
      * Default value for {@code candidateId}. 
@@ -75,6 +80,67 @@ public class LeaderElectorConfiguration {
      * Default value for {@code createTable}
      */
     public static final boolean DEFAULT_CREATE_TABLE = false;
+
+    /**
+     * Default value for {@code leaderExecutorPoolSize}
+     */
+    public static final int DEFAULT_LEADER_EXECUTOR_POOL_SIZE = 1;
+
+    /**
+     * Default value for {@code jobTableName}.
+     */
+    public static final String DEFAULT_JOB_TABLENAME = "db_leader_elect_job";
+
+    /**
+     * Default value for {@code renewalFastPath}
+     */
+    public static final boolean DEFAULT_RENEWAL_FAST_PATH = false;
+
+    /**
+     * Default value for {@code dbClockSampleIntervalMs}: 0 (disabled).
+     */
+    public static final long DEFAULT_DB_CLOCK_SAMPLE_INTERVAL_MS = 0;
+
+    /**
+     * Default value for {@code replicaMaxLagMs}.
+     */
+    public static final long DEFAULT_REPLICA_MAX_LAG_MS = 1000;
+
+    /**
+     * Default value for {@code followerNoWait}.
+     */
+    public static final boolean DEFAULT_FOLLOWER_NO_WAIT = false;
+
+    /**
+     * Default value for {@code jmxEnabled}.
+     */
+    public static final boolean DEFAULT_JMX_ENABLED = false;
+
+    /**
+     * Default value for {@code leaseMarginWarningFraction}: a warning when
+     * less than 10% of the lease was left at renewal.
+     */
+    public static final double DEFAULT_LEASE_MARGIN_WARNING_FRACTION = 0.1;
+
+    /**
+     * Default value for {@code historySize}.
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 256;
+
+    /**
+     * Default value for {@code tableStorageProfile}.
+     */
+    public static final TableStorageProfile DEFAULT_TABLE_STORAGE_PROFILE = TableStorageProfile.DEFAULT;
+
+    /**
+     * Default value for {@code backoffMaxMs}: 0 (disabled).
+     */
+    public static final long DEFAULT_BACKOFF_MAX_MS = 0;
+
+    /**
+     * Default value for {@code circuitBreakerThreshold}.
+     */
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 3;
     
     
     /**
@@ -125,6 +191,22 @@ public class LeaderElectorConfiguration {
     private final EnumSet<LeaderElectorListener.EventType> listenerSubscription;
     private final int queryTimeoutSecs;
     private final boolean createTable;
+    private final int leaderExecutorPoolSize;
+    private final String jobTableName;
+    private final Long watchdogThresholdMs;   // null means derived from intervalMs and assumeDeadMs
+    private final boolean renewalFastPath;
+    private final long dbClockSampleIntervalMs;
+    private final long replicaMaxLagMs;
+    private final boolean followerNoWait;
+    private final TableStorageProfile tableStorageProfile;
+    private final long backoffMaxMs;
+    private final int circuitBreakerThreshold;
+    private final Long connectionAcquireTimeoutMs;   // null means derived from intervalMs and assumeDeadMs
+    private final String candidateEndpoint;
+    private final boolean jmxEnabled;
+    private final ElectionMetricsRecorder metricsRecorder;
+    private final double leaseMarginWarningFraction;
+    private final int historySize;
 
     private LeaderElectorConfiguration(
             String roleId,
@@ -138,7 +220,23 @@ public class LeaderElectorConfiguration {
             LeaderElectorListener listener,
             EnumSet<LeaderElectorListener.EventType> listenerSubscription,
             int queryTimeoutSecs,
-            boolean createTable
+            boolean createTable,
+            int leaderExecutorPoolSize,
+            String jobTableName,
+            Long watchdogThresholdMs,
+            boolean renewalFastPath,
+            long dbClockSampleIntervalMs,
+            long replicaMaxLagMs,
+            boolean followerNoWait,
+            TableStorageProfile tableStorageProfile,
+            long backoffMaxMs,
+            int circuitBreakerThreshold,
+            Long connectionAcquireTimeoutMs,
+            String candidateEndpoint,
+            boolean jmxEnabled,
+            ElectionMetricsRecorder metricsRecorder,
+            double leaseMarginWarningFraction,
+            int historySize
     ) {
         this.roleId = roleId;
         this.candidateId = candidateId;
@@ -152,6 +250,22 @@ public class LeaderElectorConfiguration {
         this.listenerSubscription  = listenerSubscription;
         this.queryTimeoutSecs = queryTimeoutSecs;
         this.createTable = createTable;
+        this.leaderExecutorPoolSize = leaderExecutorPoolSize;
+        this.jobTableName = jobTableName;
+        this.watchdogThresholdMs = watchdogThresholdMs;
+        this.renewalFastPath = renewalFastPath;
+        this.dbClockSampleIntervalMs = dbClockSampleIntervalMs;
+        this.replicaMaxLagMs = replicaMaxLagMs;
+        this.followerNoWait = followerNoWait;
+        this.tableStorageProfile = tableStorageProfile;
+        this.backoffMaxMs = backoffMaxMs;
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+        this.connectionAcquireTimeoutMs = connectionAcquireTimeoutMs;
+        this.candidateEndpoint = candidateEndpoint;
+        this.jmxEnabled = jmxEnabled;
+        this.metricsRecorder = metricsRecorder;
+        this.leaseMarginWarningFraction = leaseMarginWarningFraction;
+        this.historySize = historySize;
     }
 
     public String getRoleId() {
@@ -202,6 +316,108 @@ public class LeaderElectorConfiguration {
         return createTable;
     }
 
+    public int getLeaderExecutorPoolSize() {
+        return leaderExecutorPoolSize;
+    }
+
+    public String getJobTableName() {
+        return jobTableName;
+    }
+
+    /**
+     * Gets the watchdog threshold. 
+     * @see Builder#withWatchdogThresholdMs(long) 
+     * @return milliseconds, 0 means that the watchdog is disabled
+     */
+    public long getWatchdogThresholdMs() {
+        if (watchdogThresholdMs == null) {
+            return intervalMs + (assumeDeadMs - intervalMs) / 2;
+        }
+        return watchdogThresholdMs;
+    }
+
+    public boolean isRenewalFastPath() {
+        return renewalFastPath;
+    }
+
+    public long getDbClockSampleIntervalMs() {
+        return dbClockSampleIntervalMs;
+    }
+
+    public long getReplicaMaxLagMs() {
+        return replicaMaxLagMs;
+    }
+
+    public boolean isFollowerNoWait() {
+        return followerNoWait;
+    }
+
+    public TableStorageProfile getTableStorageProfile() {
+        return tableStorageProfile;
+    }
+
+    /**
+     * Gets the longest time between elections while backing off during
+     * a database outage, or 0 if back-off is disabled.
+     * 
+     * @see Builder#withBackoffMaxMs(long) 
+     */
+    public long getBackoffMaxMs() {
+        return backoffMaxMs;
+    }
+
+    /**
+     * Gets the number of consecutive failed elections after which 
+     * elections back off.
+     * 
+     * @see Builder#withCircuitBreakerThreshold(int) 
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * Gets the maximum time to wait for a connection in an election.
+     * @see Builder#withConnectionAcquireTimeoutMs(long) 
+     * @return milliseconds, 0 means no timeout
+     */
+    public long getConnectionAcquireTimeoutMs() {
+        if (connectionAcquireTimeoutMs == null) {
+            return (assumeDeadMs - intervalMs) / 2;
+        }
+        return connectionAcquireTimeoutMs;
+    }
+
+    /**
+     * Gets if the connection acquire timeout has been explicitly set, 
+     * rather than derived from {@code intervalMs} and {@code assumeDeadMs}.
+     * A derived timeout only applies to HikariCP.
+     * @see Builder#withConnectionAcquireTimeoutMs(long) 
+     */
+    public boolean isConnectionAcquireTimeoutMsExplicit() {
+        return connectionAcquireTimeoutMs != null;
+    }
+
+    public String getCandidateEndpoint() {
+        return candidateEndpoint;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public ElectionMetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    public double getLeaseMarginWarningFraction() {
+        return leaseMarginWarningFraction;
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
     @Override
     public String toString() {
         String dbE = (databaseEngine == null) ? "<auto-detect>" : databaseEngine.toString();
@@ -216,6 +432,21 @@ public class LeaderElectorConfiguration {
                 + ", assumeDeadMs=" + assumeDeadMs 
                 + ", queryTimeoutSecs=" + queryTimeoutSecs 
                 + ", createTable=" + createTable
+                + ", leaderExecutorPoolSize=" + leaderExecutorPoolSize
+                + ", jobTableName=" + jobTableName
+                + ", watchdogThresholdMs=" + getWatchdogThresholdMs()
+                + ", connectionAcquireTimeoutMs=" + getConnectionAcquireTimeoutMs()
+                + ", renewalFastPath=" + renewalFastPath
+                + ", dbClockSampleIntervalMs=" + dbClockSampleIntervalMs
+                + ", replicaMaxLagMs=" + replicaMaxLagMs
+                + ", followerNoWait=" + followerNoWait
+                + ", tableStorageProfile=" + tableStorageProfile
+                + ", backoffMaxMs=" + backoffMaxMs
+                + ", circuitBreakerThreshold=" + circuitBreakerThreshold
+                + ", candidateEndpoint=" + candidateEndpoint
+                + ", jmxEnabled=" + jmxEnabled
+                + ", leaseMarginWarningFraction=" + leaseMarginWarningFraction
+                + ", historySize=" + historySize
                 + ", listener=" + listener.getClass().getSimpleName()
                 + ", listenerSubscription=" + listenerSubscription.toString()
                 + ", leaderElectorLogger=" + leaderElectorLogger.getClass().getSimpleName()
@@ -313,6 +544,22 @@ public class LeaderElectorConfiguration {
         private EnumSet<LeaderElectorListener.EventType> listenerSubscription;
         private Integer queryTimeoutSecs;
         private Boolean createTable;
+        private Integer leaderExecutorPoolSize;
+        private String jobTableName;
+        private Long watchdogThresholdMs;
+        private Boolean renewalFastPath;
+        private Long dbClockSampleIntervalMs;
+        private Long replicaMaxLagMs;
+        private Boolean followerNoWait;
+        private TableStorageProfile tableStorageProfile;
+        private Long backoffMaxMs;
+        private Integer circuitBreakerThreshold;
+        private Long connectionAcquireTimeoutMs;
+        private String candidateEndpoint;
+        private Boolean jmxEnabled;
+        private ElectionMetricsRecorder metricsRecorder;
+        private Double leaseMarginWarningFraction;
+        private Integer historySize;
 
         private Builder() {
         }
@@ -329,6 +576,24 @@ public class LeaderElectorConfiguration {
             withSchemaName(configuration.getSchemaName());
             withTableName(configuration.getTableName());
             withCreateTable(configuration.createTable());
+            withLeaderExecutorPoolSize(configuration.getLeaderExecutorPoolSize());
+            withJobTableName(configuration.getJobTableName());
+            // Only copy if explicitly set. A derived value must follow 
+            // changes to intervalMs and assumeDeadMs.
+            this.watchdogThresholdMs = configuration.watchdogThresholdMs;
+            withRenewalFastPath(configuration.isRenewalFastPath());
+            withDbClockSampleIntervalMs(configuration.getDbClockSampleIntervalMs());
+            withReplicaMaxLagMs(configuration.getReplicaMaxLagMs());
+            withFollowerNoWait(configuration.isFollowerNoWait());
+            withTableStorageProfile(configuration.getTableStorageProfile());
+            withBackoffMaxMs(configuration.getBackoffMaxMs());
+            withCircuitBreakerThreshold(configuration.getCircuitBreakerThreshold());
+            this.connectionAcquireTimeoutMs = configuration.connectionAcquireTimeoutMs;
+            withCandidateEndpoint(configuration.getCandidateEndpoint());
+            withJmxEnabled(configuration.isJmxEnabled());
+            withMetricsRecorder(configuration.getMetricsRecorder());
+            withLeaseMarginWarningFraction(configuration.getLeaseMarginWarningFraction());
+            withHistorySize(configuration.getHistorySize());
         }
 
         /**
@@ -676,6 +941,453 @@ public class LeaderElectorConfiguration {
             return this;
         }
 
+        /**
+         * Number of threads in the {@link LeaderElector#leaderExecutor() leader executor}.
+         * This is the maximum number of leader tasks which can execute
+         * concurrently. The threads are only created if the leader executor
+         * is used.
+         * 
+         * <p>
+         * If not set, defaults to {@link #DEFAULT_LEADER_EXECUTOR_POOL_SIZE DEFAULT_LEADER_EXECUTOR_POOL_SIZE}.
+         * 
+         * @throws LeaderElectorConfigurationException if input is less than 1.
+         * @param leaderExecutorPoolSize number of threads
+         * @return 
+         */
+        public final Builder withLeaderExecutorPoolSize(int leaderExecutorPoolSize) {
+            if (leaderExecutorPoolSize < 1) {
+                throw new LeaderElectorConfigurationException("leaderExecutorPoolSize must be at least 1");
+            }
+            this.leaderExecutorPoolSize = leaderExecutorPoolSize;
+            return this;
+        }
+
+        /**
+         * Defines the name of the table which records the last run of
+         * {@link LeaderElector#jobScheduler() leader jobs}. The table is in the
+         * same schema as the {@link #withTableName(java.lang.String) leader election table}
+         * and is only used if jobs are scheduled. If
+         * {@link #withCreateTable(boolean) createTable} is {@code true} then
+         * the table is created when the job scheduler is first obtained.
+         * 
+         * <p>
+         * Defaults to {@link LeaderElectorConfiguration#DEFAULT_JOB_TABLENAME DEFAULT_JOB_TABLENAME} 
+         * if not set.
+         * 
+         * @throws LeaderElectorConfigurationException if argument is {@code null}
+         *    empty string, or if argument contains a '.' character.
+         * @param jobTableName, not {@code null}
+         */
+        public final Builder withJobTableName(String jobTableName) {
+            if (jobTableName == null || jobTableName.isEmpty()) {
+                throw new LeaderElectorConfigurationException("jobTableName must have a value, cannot be empty or null");
+            }
+            if (jobTableName.indexOf('.') != -1) {
+                throw new LeaderElectorConfigurationException("Invalid value for jobTableName  \"" + jobTableName + "\". The value must be non-qualified (without any '.')");
+            }
+            this.jobTableName = jobTableName;
+            return this;
+        }
+
+        /**
+         * Defines the number of milliseconds without a successful lease renewal
+         * after which the leader gives up leadership locally, regardless of 
+         * what the election thread is doing. This protects against the election
+         * thread being stuck, for example on a hung attempt to obtain a 
+         * database connection, while the node still believes it is leader. 
+         * When the threshold is crossed the
+         * {@link LeaderElectorListener.EventType#LEADERSHIP_LOST LEADERSHIP_LOST}
+         * event is delivered ahead of any other pending events, tasks in the 
+         * {@link LeaderElector#leaderExecutor() leader executor} are interrupted
+         * and {@link LeaderElector#isLeader()} returns {@code false}. None of this
+         * depends on the database responding. If the candidate still holds the
+         * lease when the election thread recovers then it re-assumes leadership
+         * with a new lease counter.
+         * 
+         * <p>
+         * If set, the value must be larger than {@link #withIntervalMs(long) intervalMs}
+         * and smaller than {@link #withAssumeDeadMs(long) assumeDeadMs}. 
+         * A value of 0 (zero) disables the watchdog.
+         * 
+         * <p>
+         * If not set, defaults to half-way between {@code intervalMs} and {@code assumeDeadMs}.
+         * 
+         * @throws LeaderElectorConfigurationException if input is negative.
+         * @param watchdogThresholdMs milliseconds, or 0 to disable
+         * @return 
+         */
+        public final Builder withWatchdogThresholdMs(long watchdogThresholdMs) {
+            if (watchdogThresholdMs < 0) {
+                throw new LeaderElectorConfigurationException("watchdogThresholdMs must be >= 0");
+            }
+            this.watchdogThresholdMs = watchdogThresholdMs;
+            return this;
+        }
+
+        /**
+         * Defines if the leader may renew its lease with a single {@code UPDATE}
+         * in autocommit mode, rather than with a full election (a transaction
+         * with a locking {@code SELECT}, an {@code UPDATE} and a commit). 
+         * The fast path is only used while the local lease is fresh, meaning 
+         * while the time since the last renewal is less than half-way between
+         * {@link #withIntervalMs(long) intervalMs} and 
+         * {@link #withAssumeDeadMs(long) assumeDeadMs}. A renewal on 
+         * schedule therefore uses the fast path, while one that is late (for
+         * example after a long GC pause) uses the full election. The 
+         * {@code UPDATE} only matches
+         * if the candidate still holds the lease with the same lease counter.
+         * If it doesn't match, the full election is executed as usual in the
+         * same cycle. If it fails, the error is the outcome of the cycle, as 
+         * for the full election.
+         * 
+         * <p>
+         * This halves the number of database round trips for the leader and
+         * means the leader no longer holds a row lock when renewing. On the
+         * other hand the leader no longer reads the row when renewing, so 
+         * the sanity checks of its content are only done by the full 
+         * election.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_RENEWAL_FAST_PATH DEFAULT_RENEWAL_FAST_PATH}.
+         * 
+         * @param renewalFastPath
+         * @return 
+         */
+        public final Builder withRenewalFastPath(boolean renewalFastPath) {
+            this.renewalFastPath = renewalFastPath;
+            return this;
+        }
+
+        /**
+         * Enables local estimation of the database clock and defines how often
+         * the database clock is sampled, in milliseconds. A value of 0 (zero)
+         * disables the feature.
+         * 
+         * <p>
+         * When enabled, a candidate which is not leader keeps a local estimate
+         * of the database time, with an error bound, by sampling the database
+         * clock and compensating for the round trip time of the query. As long
+         * as the lease last observed for another candidate has certainly not
+         * expired, even assuming the worst case error of the estimate, the
+         * candidate skips querying the leader election table and reports
+         * {@link LeaderElectorListener.EventType#LEADERSHIP_NOOP LEADERSHIP_NOOP}.
+         * Expiry is still decided by the database clock only. This reduces
+         * the load from followers to roughly one query per
+         * {@link #withAssumeDeadMs(long) assumeDeadMs} (plus one clock sample 
+         * per sample interval).
+         * 
+         * <p>
+         * The trade-off is that if the leader
+         * {@link LeaderElector#relinquish() relinquishes} leadership, followers
+         * may not notice until the lease they last observed has expired.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_DB_CLOCK_SAMPLE_INTERVAL_MS DEFAULT_DB_CLOCK_SAMPLE_INTERVAL_MS}
+         * (disabled).
+         * 
+         * @throws LeaderElectorConfigurationException if input is negative.
+         * @param dbClockSampleIntervalMs milliseconds, or 0 to disable
+         * @return 
+         */
+        public final Builder withDbClockSampleIntervalMs(long dbClockSampleIntervalMs) {
+            if (dbClockSampleIntervalMs < 0) {
+                throw new LeaderElectorConfigurationException("dbClockSampleIntervalMs must be >= 0");
+            }
+            this.dbClockSampleIntervalMs = dbClockSampleIntervalMs;
+            return this;
+        }
+
+        /**
+         * Defines the safety margin, in milliseconds, used when deciding from
+         * a read replica if the current lease may have expired. Only relevant
+         * if the {@link LeaderElector} is created with a
+         * {@link LeaderElector#LeaderElector(LeaderElectorConfiguration, javax.sql.DataSource, javax.sql.DataSource) replica DataSource}.
+         * 
+         * <p>
+         * A candidate which is not leader reads the leader election table from
+         * the replica, without taking any lock, and only executes the election
+         * on the primary if the lease seen on the replica is within
+         * {@code replicaMaxLagMs} of expiring (or has expired). The value should
+         * cover the replication lag as well as any difference between the 
+         * clocks of the replica and the primary.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_REPLICA_MAX_LAG_MS DEFAULT_REPLICA_MAX_LAG_MS}.
+         * 
+         * @throws LeaderElectorConfigurationException if input is negative.
+         * @param replicaMaxLagMs milliseconds
+         * @return 
+         */
+        public final Builder withReplicaMaxLagMs(long replicaMaxLagMs) {
+            if (replicaMaxLagMs < 0) {
+                throw new LeaderElectorConfigurationException("replicaMaxLagMs must be >= 0");
+            }
+            this.replicaMaxLagMs = replicaMaxLagMs;
+            return this;
+        }
+
+        /**
+         * Defines if a candidate which is not leader should give up, rather
+         * than wait, if the row in the leader election table is locked by
+         * another candidate. The row being locked means that another candidate
+         * is active, so the outcome is
+         * {@link LeaderElectorListener.EventType#LEADERSHIP_NOOP LEADERSHIP_NOOP}. 
+         * This way candidates do not queue on the lock and each hold a
+         * connection while doing so. After a few consecutive elections which
+         * found the row locked, the candidate waits for the lock as usual so
+         * that it cannot be starved indefinitely.
+         * 
+         * <p>
+         * Uses {@code FOR UPDATE NOWAIT} on PostgreSQL, Oracle and MySQL,
+         * {@code READPAST} on SQL Server and {@code SKIP LOCKED DATA} on Db2.
+         * MySQL requires version 8.0 or later. Not supported on H2, where
+         * the candidate waits for the lock as usual.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_FOLLOWER_NO_WAIT DEFAULT_FOLLOWER_NO_WAIT}.
+         * 
+         * @param followerNoWait
+         * @return 
+         */
+        public final Builder withFollowerNoWait(boolean followerNoWait) {
+            this.followerNoWait = followerNoWait;
+            return this;
+        }
+
+        /**
+         * Defines the storage options used when the leader election table is
+         * created by the Leader Elector. Only relevant if 
+         * {@link #withCreateTable(boolean) createTable} is {@code true}. See
+         * {@link TableStorageProfile} for the options used for each database.
+         * 
+         * <p>
+         * Defaults to {@link LeaderElectorConfiguration#DEFAULT_TABLE_STORAGE_PROFILE DEFAULT_TABLE_STORAGE_PROFILE} 
+         * if not set.
+         * 
+         * @throws LeaderElectorConfigurationException if argument is {@code null}
+         * @param tableStorageProfile, not {@code null}
+         * @return 
+         */
+        public final Builder withTableStorageProfile(TableStorageProfile tableStorageProfile) {
+            if (tableStorageProfile == null) {
+                throw new LeaderElectorConfigurationException("tableStorageProfile cannot be null");
+            }
+            this.tableStorageProfile = tableStorageProfile;
+            return this;
+        }
+
+        /**
+         * Enables back-off during database outages and defines the longest
+         * time, in milliseconds, between elections while backing off. A value
+         * of 0 (zero) disables back-off: elections are then attempted every
+         * {@link #withIntervalMs(long) intervalMs} regardless of errors.
+         * 
+         * <p>
+         * When enabled, the election acts as a circuit breaker. After
+         * {@link #withCircuitBreakerThreshold(int) circuitBreakerThreshold}
+         * consecutive elections have failed the breaker opens: no elections
+         * are attempted for a random delay chosen with <i>decorrelated jitter</i>,
+         * meaning between {@code intervalMs} and three times the previous
+         * delay, capped at {@code backoffMaxMs}. When the delay has passed a
+         * single election is attempted (half-open). If it fails the breaker
+         * opens again with a new, typically longer, delay. As soon as an 
+         * election succeeds the normal cadence of {@code intervalMs} is resumed.
+         * The randomness spreads out the reconnect attempts from many candidates
+         * against a database which is recovering.
+         * 
+         * <p>
+         * The trade-off is that it may take up to {@code backoffMaxMs} after
+         * the database has recovered before a candidate notices. 
+         * A candidate is never leader while its elections fail.
+         * 
+         * <p>
+         * If set, the value must be 0 (zero) or at least {@link #withIntervalMs(long) intervalMs}.
+         * Defaults to {@link #DEFAULT_BACKOFF_MAX_MS DEFAULT_BACKOFF_MAX_MS}
+         * (disabled).
+         * 
+         * @throws LeaderElectorConfigurationException if input is negative.
+         * @param backoffMaxMs milliseconds, or 0 to disable
+         * @return 
+         */
+        public final Builder withBackoffMaxMs(long backoffMaxMs) {
+            if (backoffMaxMs < 0) {
+                throw new LeaderElectorConfigurationException("backoffMaxMs must be >= 0");
+            }
+            this.backoffMaxMs = backoffMaxMs;
+            return this;
+        }
+
+        /**
+         * Defines the number of consecutive failed elections after which the
+         * circuit breaker opens and elections back off. Only relevant if
+         * {@link #withBackoffMaxMs(long) backoffMaxMs} is not 0 (zero).
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_CIRCUIT_BREAKER_THRESHOLD DEFAULT_CIRCUIT_BREAKER_THRESHOLD}.
+         * 
+         * @throws LeaderElectorConfigurationException if input is less than 1.
+         * @param circuitBreakerThreshold number of elections
+         * @return 
+         */
+        public final Builder withCircuitBreakerThreshold(int circuitBreakerThreshold) {
+            if (circuitBreakerThreshold < 1) {
+                throw new LeaderElectorConfigurationException("circuitBreakerThreshold must be >= 1");
+            }
+            this.circuitBreakerThreshold = circuitBreakerThreshold;
+            return this;
+        }
+
+        /**
+         * Defines the maximum time, in milliseconds, the Leader Elector waits
+         * for a connection from the {@code DataSource} in an election. If no
+         * connection is obtained in time the election fails with a
+         * {@link java.sql.SQLTransientConnectionException SQLTransientConnectionException},
+         * exactly as if the database could not be reached. This way a
+         * slow or exhausted connection pool cannot silently delay the renewal
+         * of the lease past {@link #withAssumeDeadMs(long) assumeDeadMs}.
+         * 
+         * <p>
+         * The settings of the {@code DataSource} are not changed, so the
+         * {@code DataSource} may be shared with the application. For HikariCP
+         * the timeout is passed to the pool for the individual request. For any
+         * other {@code DataSource} the connection is requested in a background
+         * thread and abandoned (closed when it eventually arrives) if it
+         * doesn't arrive in time; while such a request is outstanding
+         * subsequent elections fail immediately rather than queue up more
+         * requests. A value of 0 (zero) disables the timeout: the Leader Elector
+         * then waits as long as the {@code DataSource} does.
+         * 
+         * <p>
+         * If not set, defaults to half of the difference between 
+         * {@link #withIntervalMs(long) intervalMs} and {@link #withAssumeDeadMs(long) assumeDeadMs}
+         * for HikariCP, and to no timeout for any other {@code DataSource}.
+         * The background thread means a thread hand-off and some garbage
+         * in every election, which is only incurred when asked for.
+         * 
+         * @throws LeaderElectorConfigurationException if input is negative.
+         * @param connectionAcquireTimeoutMs milliseconds, or 0 to disable
+         * @return 
+         */
+        public final Builder withConnectionAcquireTimeoutMs(long connectionAcquireTimeoutMs) {
+            if (connectionAcquireTimeoutMs < 0) {
+                throw new LeaderElectorConfigurationException("connectionAcquireTimeoutMs must be >= 0");
+            }
+            this.connectionAcquireTimeoutMs = connectionAcquireTimeoutMs;
+            return this;
+        }
+
+        /**
+         * Defines how the current candidate can be reached, for example
+         * a URL or a {@code host:port} string. The value is written to 
+         * the leader election table when the candidate assumes leadership
+         * and is made available to the other candidates via
+         * {@link LeaderElector#getCurrentLeader()}. This allows followers to
+         * forward requests to the leader without a database query of their
+         * own. The library does not interpret the value.
+         * 
+         * <p>
+         * The value must be no longer than {@link #CANDIDATEENDPOINT_MAX_LENGTH CANDIDATEENDPOINT_MAX_LENGTH}.
+         * Requires that the leader election table has the {@code candidate_endpoint}
+         * column. Tables created by earlier versions of this library do not.
+         * 
+         * <p>
+         * Defaults to {@code null} (no endpoint).
+         *
+         * @throws LeaderElectorConfigurationException if the value is an empty
+         *         string or is too long
+         * @param candidateEndpoint endpoint of the candidate, may be {@code null}
+         * @return
+         */
+        public final Builder withCandidateEndpoint(String candidateEndpoint) {
+            if (candidateEndpoint != null && (candidateEndpoint.isEmpty() || candidateEndpoint.length() > CANDIDATEENDPOINT_MAX_LENGTH)) {
+                throw new LeaderElectorConfigurationException("Invalid value for candidateEndpoint: \"" + candidateEndpoint + "\". candidateEndpoint must not be empty and must be no longer than " + CANDIDATEENDPOINT_MAX_LENGTH + " characters long");
+            }
+            this.candidateEndpoint = candidateEndpoint;
+            return this;
+        }
+
+        /**
+         * Defines if the Leader Elector's {@link net.lbruun.dbleaderelect.metrics.ElectionMetrics metrics}
+         * are registered as an MXBean with the platform MBean server, under the name
+         * {@code net.lbruun.dbleaderelect:type=LeaderElector,roleId=<roleId>,candidateId=<candidateId>}.
+         * The MXBean is unregistered when the Leader Elector is closed.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_JMX_ENABLED DEFAULT_JMX_ENABLED}.
+         * 
+         * @param jmxEnabled
+         * @return 
+         */
+        public final Builder withJmxEnabled(boolean jmxEnabled) {
+            this.jmxEnabled = jmxEnabled;
+            return this;
+        }
+
+        /**
+         * Defines a recorder which receives the measurements of the Leader
+         * Elector, for example in order to feed them into a metrics library.
+         * The Leader Elector always keeps its own 
+         * {@link net.lbruun.dbleaderelect.LeaderElector#getMetrics() metrics} as well.
+         * 
+         * <p>
+         * Defaults to {@link ElectionMetricsRecorder#NO_OP}.
+         * 
+         * @param metricsRecorder
+         * @return 
+         */
+        public final Builder withMetricsRecorder(ElectionMetricsRecorder metricsRecorder) {
+            if (metricsRecorder == null) {
+                throw new LeaderElectorConfigurationException("metricsRecorder cannot be null");
+            }
+            this.metricsRecorder = metricsRecorder;
+            return this;
+        }
+
+        /**
+         * Defines when the safety margin of the lease is considered low. The
+         * margin is how much time was left of the lease when the leader renewed
+         * it, i.e. {@code assumeDeadMs} minus the age of the lease. If the margin
+         * is below this fraction of {@code assumeDeadMs} then a warning is logged
+         * (once, until the margin recovers), the renewal is counted in the
+         * {@link net.lbruun.dbleaderelect.metrics.ElectionMetrics#getLowLeaseMarginRenewals() metrics}
+         * and a JFR event is emitted. A low margin means that the renewals 
+         * are getting slow, typically because the database is, and that 
+         * leadership is at risk of being lost. 0 disables the warning.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_LEASE_MARGIN_WARNING_FRACTION DEFAULT_LEASE_MARGIN_WARNING_FRACTION}.
+         * 
+         * @param leaseMarginWarningFraction fraction, at least 0 and less than 1
+         * @return 
+         */
+        public final Builder withLeaseMarginWarningFraction(double leaseMarginWarningFraction) {
+            if (leaseMarginWarningFraction < 0 || leaseMarginWarningFraction >= 1) {
+                throw new LeaderElectorConfigurationException("leaseMarginWarningFraction must be >= 0 and < 1");
+            }
+            this.leaseMarginWarningFraction = leaseMarginWarningFraction;
+            return this;
+        }
+
+        /**
+         * Defines how many of the most recent election cycles the Leader Elector
+         * keeps in its {@link net.lbruun.dbleaderelect.LeaderElector#getHistory() history}.
+         * The memory for the history is allocated up front, about 100 bytes per 
+         * cycle. 0 disables the history.
+         * 
+         * <p>
+         * Defaults to {@link #DEFAULT_HISTORY_SIZE DEFAULT_HISTORY_SIZE}.
+         * 
+         * @param historySize number of cycles
+         * @return 
+         */
+        public final Builder withHistorySize(int historySize) {
+            if (historySize < 0) {
+                throw new LeaderElectorConfigurationException("historySize must be >= 0");
+            }
+            this.historySize = historySize;
+            return this;
+        }
+
         /**
          * Creates a new configuration.
          * 
@@ -715,10 +1427,62 @@ public class LeaderElectorConfiguration {
             if (createTable == null) {
                 createTable = DEFAULT_CREATE_TABLE;
             }
+            if (leaderExecutorPoolSize == null) {
+                leaderExecutorPoolSize = DEFAULT_LEADER_EXECUTOR_POOL_SIZE;
+            }
+            if (jobTableName == null) {
+                jobTableName = DEFAULT_JOB_TABLENAME;
+            }
+            if (renewalFastPath == null) {
+                renewalFastPath = DEFAULT_RENEWAL_FAST_PATH;
+            }
+            if (dbClockSampleIntervalMs == null) {
+                dbClockSampleIntervalMs = DEFAULT_DB_CLOCK_SAMPLE_INTERVAL_MS;
+            }
+            if (replicaMaxLagMs == null) {
+                replicaMaxLagMs = DEFAULT_REPLICA_MAX_LAG_MS;
+            }
+            if (followerNoWait == null) {
+                followerNoWait = DEFAULT_FOLLOWER_NO_WAIT;
+            }
+            if (tableStorageProfile == null) {
+                tableStorageProfile = DEFAULT_TABLE_STORAGE_PROFILE;
+            }
+            if (backoffMaxMs == null) {
+                backoffMaxMs = DEFAULT_BACKOFF_MAX_MS;
+            }
+            if (circuitBreakerThreshold == null) {
+                circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+            }
+            if (jmxEnabled == null) {
+                jmxEnabled = DEFAULT_JMX_ENABLED;
+            }
+            if (metricsRecorder == null) {
+                metricsRecorder = ElectionMetricsRecorder.NO_OP;
+            }
+            if (leaseMarginWarningFraction == null) {
+                leaseMarginWarningFraction = DEFAULT_LEASE_MARGIN_WARNING_FRACTION;
+            }
+            if (historySize == null) {
+                historySize = DEFAULT_HISTORY_SIZE;
+            }
             
             // Validation
             if (intervalMs >= (assumeDeadMs - 3000)) {
                 throw new LeaderElectorConfigurationException("assumeDeadMs must be at least 3 seconds larger than intervalMs");
+            }
+            if (watchdogThresholdMs != null && watchdogThresholdMs != 0
+                    && (watchdogThresholdMs <= intervalMs || watchdogThresholdMs >= assumeDeadMs)) {
+                throw new LeaderElectorConfigurationException("watchdogThresholdMs must be larger than intervalMs and smaller than assumeDeadMs");
+            }
+            if (replicaMaxLagMs >= assumeDeadMs) {
+                throw new LeaderElectorConfigurationException("replicaMaxLagMs must be smaller than assumeDeadMs");
+            }
+            if (backoffMaxMs != 0 && backoffMaxMs < intervalMs) {
+                throw new LeaderElectorConfigurationException("backoffMaxMs must be 0 or at least intervalMs");
+            }
+            if (connectionAcquireTimeoutMs != null && connectionAcquireTimeoutMs >= assumeDeadMs) {
+                throw new LeaderElectorConfigurationException("connectionAcquireTimeoutMs must be smaller than assumeDeadMs");
             }           
             
             
@@ -736,7 +1500,23 @@ public class LeaderElectorConfiguration {
                     listener, 
                     listenerSubscription, 
                     queryTimeoutSecs,
-                    createTable
+                    createTable,
+                    leaderExecutorPoolSize,
+                    jobTableName,
+                    watchdogThresholdMs,
+                    renewalFastPath,
+                    dbClockSampleIntervalMs,
+                    replicaMaxLagMs,
+                    followerNoWait,
+                    tableStorageProfile,
+                    backoffMaxMs,
+                    circuitBreakerThreshold,
+                    connectionAcquireTimeoutMs,
+                    candidateEndpoint,
+                    jmxEnabled,
+                    metricsRecorder,
+                    leaseMarginWarningFraction,
+                    historySize
             );
         }
     }
@@ -15,6 +15,7 @@
  */
 package net.lbruun.dbleaderelect;
 
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,6 +23,20 @@ import java.util.logging.Logger;
  * Catches informational startup and closedown messages from a Leader Elector
  * instance. Users who wish to forward such messages to the logging framework 
  * of their choice must implement this interface.
+ * 
+ * <p>
+ * Only {@link #logInfo(Class, String) logInfo} and 
+ * {@link #logError(Class, String, Throwable) logError} must be implemented.
+ * The remaining levels have default implementations: warnings go to
+ * {@code logError} and debug and trace messages are discarded. An
+ * implementation which wants debug or trace messages must override both
+ * the {@code isXxxEnabled} method and the {@code logXxx(Class, String)}
+ * method of the level. See {@link Slf4jLeaderElectorLogger} for an
+ * example.
+ * 
+ * <p>
+ * Messages which are expensive to build are passed as a {@link Supplier}.
+ * The supplier is only invoked if the level is enabled.
  */
 public interface LeaderElectorLogger {
     
@@ -37,6 +52,11 @@ public interface LeaderElectorLogger {
         @Override
         public void logError(Class sourceKlazz, String message, Throwable cause) {
         }
+
+        @Override
+        public boolean isInfoEnabled(Class sourceKlazz) {
+            return false;
+        }
     };
     
     /**
@@ -55,6 +75,14 @@ public interface LeaderElectorLogger {
                 cause.printStackTrace(System.err);
             }
         }
+
+        @Override
+        public void logWarning(Class sourceKlazz, String message, Throwable cause) {
+            System.err.println(sourceKlazz.getName() + " WARNING: " + message);
+            if (cause != null) {
+                cause.printStackTrace(System.err);
+            }
+        }
     };
         
     
@@ -72,6 +100,36 @@ public interface LeaderElectorLogger {
         public void logError(Class sourceKlazz, String message, Throwable cause) {
             Logger.getLogger(sourceKlazz.getName()).log(Level.SEVERE, message, cause);
         }
+
+        @Override
+        public void logWarning(Class sourceKlazz, String message, Throwable cause) {
+            Logger.getLogger(sourceKlazz.getName()).log(Level.WARNING, message, cause);
+        }
+
+        @Override
+        public void logDebug(Class sourceKlazz, String message) {
+            Logger.getLogger(sourceKlazz.getName()).log(Level.FINE, message);
+        }
+
+        @Override
+        public void logTrace(Class sourceKlazz, String message) {
+            Logger.getLogger(sourceKlazz.getName()).log(Level.FINEST, message);
+        }
+
+        @Override
+        public boolean isInfoEnabled(Class sourceKlazz) {
+            return Logger.getLogger(sourceKlazz.getName()).isLoggable(Level.INFO);
+        }
+
+        @Override
+        public boolean isDebugEnabled(Class sourceKlazz) {
+            return Logger.getLogger(sourceKlazz.getName()).isLoggable(Level.FINE);
+        }
+
+        @Override
+        public boolean isTraceEnabled(Class sourceKlazz) {
+            return Logger.getLogger(sourceKlazz.getName()).isLoggable(Level.FINEST);
+        }
     };
 
     /**
@@ -115,4 +173,131 @@ public interface LeaderElectorLogger {
      */
     public void logError(Class sourceKlazz, String message, Throwable cause);
 
+    /**
+     * Same as {@link #logInfo(Class, String)} except that the message is
+     * only built if {@link #isInfoEnabled(Class) info is enabled}.
+     *
+     * @param sourceKlazz the class which emitted the message.
+     * @param message supplier of the message to be logged
+     */
+    public default void logInfo(Class sourceKlazz, Supplier<String> message) {
+        if (isInfoEnabled(sourceKlazz)) {
+            logInfo(sourceKlazz, message.get());
+        }
+    }
+
+    /**
+     * Gets called when there is a condition which is not (yet) an error but
+     * which should be looked into. For example if the lease is renewed with
+     * only little time to spare.
+     *
+     * <p>
+     * The default implementation forwards to 
+     * {@link #logError(Class, String, Throwable) logError}. The method must
+     * return quickly and must not throw exceptions.
+     *
+     * @param sourceKlazz the class which emitted the message.
+     * @param message message to be logged
+     * @param cause the exception, may be {@code null}
+     */
+    public default void logWarning(Class sourceKlazz, String message, Throwable cause) {
+        logError(sourceKlazz, message, cause);
+    }
+
+    /**
+     * Gets called with diagnostic messages, for example one message per
+     * election cycle. Only called if {@link #isDebugEnabled(Class)} returns
+     * {@code true}.
+     *
+     * <p>
+     * The default implementation discards the message. The method must 
+     * return quickly and must not throw exceptions.
+     *
+     * @param sourceKlazz the class which emitted the message.
+     * @param message message to be logged
+     */
+    public default void logDebug(Class sourceKlazz, String message) {
+    }
+
+    /**
+     * Same as {@link #logDebug(Class, String)} except that the message is
+     * only built if {@link #isDebugEnabled(Class) debug is enabled}.
+     *
+     * @param sourceKlazz the class which emitted the message.
+     * @param message supplier of the message to be logged
+     */
+    public default void logDebug(Class sourceKlazz, Supplier<String> message) {
+        if (isDebugEnabled(sourceKlazz)) {
+            logDebug(sourceKlazz, message.get());
+        }
+    }
+
+    /**
+     * Gets called with very detailed diagnostic messages, for example the
+     * time spent in each database round trip of an election cycle. Only 
+     * called if {@link #isTraceEnabled(Class)} returns {@code true}.
+     *
+     * <p>
+     * The default implementation discards the message. The method must 
+     * return quickly and must not throw exceptions.
+     *
+     * @param sourceKlazz the class which emitted the message.
+     * @param message message to be logged
+     */
+    public default void logTrace(Class sourceKlazz, String message) {
+    }
+
+    /**
+     * Same as {@link #logTrace(Class, String)} except that the message is
+     * only built if {@link #isTraceEnabled(Class) trace is enabled}.
+     *
+     * @param sourceKlazz the class which emitted the message.
+     * @param message supplier of the message to be logged
+     */
+    public default void logTrace(Class sourceKlazz, Supplier<String> message) {
+        if (isTraceEnabled(sourceKlazz)) {
+            logTrace(sourceKlazz, message.get());
+        }
+    }
+
+    /**
+     * Tells if informational messages from {@code sourceKlazz} are logged.
+     * The default implementation returns {@code true}.
+     * 
+     * @param sourceKlazz the class which emits the message.
+     * @return true if info messages are logged
+     */
+    public default boolean isInfoEnabled(Class sourceKlazz) {
+        return true;
+    }
+
+    /**
+     * Tells if debug messages from {@code sourceKlazz} are logged.
+     * The default implementation returns {@code false}.
+     *
+     * <p>
+     * The method is called once per election cycle and must therefore be
+     * cheap.
+     * 
+     * @param sourceKlazz the class which emits the message.
+     * @return true if debug messages are logged
+     */
+    public default boolean isDebugEnabled(Class sourceKlazz) {
+        return false;
+    }
+
+    /**
+     * Tells if trace messages from {@code sourceKlazz} are logged.
+     * The default implementation returns {@code false}.
+     *
+     * <p>
+     * The method is called once per election cycle and must therefore be
+     * cheap.
+     * 
+     * @param sourceKlazz the class which emits the message.
+     * @return true if trace messages are logged
+     */
+    public default boolean isTraceEnabled(Class sourceKlazz) {
+        return false;
+    }
 }
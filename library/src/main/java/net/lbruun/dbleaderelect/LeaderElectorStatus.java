@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect;
+
+import java.time.Duration;
+import java.time.Instant;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionNonRecoverable;
+
+/**
+ * State of a {@link LeaderElector}, for monitoring. Obtained from
+ * {@link LeaderElector#getStatus()}.
+ *
+ * <p>
+ * The snapshot is made from what the Leader Elector already knows from
+ * its regular elections. Obtaining it never connects to the database, 
+ * so it can be polled as often as needed, for example by a health check.
+ * 
+ * <p>
+ * Instances are immutable.
+ */
+public final class LeaderElectorStatus {
+
+    private final String roleId;
+    private final String candidateId;
+    private final boolean closed;
+    private final boolean leader;
+    private final long leaseCounter;
+    private final EventType lastOutcome;
+    private final long lastElectionAtMillis;
+    private final long lastElectionNanos;
+    private final int failureStreak;
+    private final LeaderElectorException lastError;
+
+    LeaderElectorStatus(String roleId, String candidateId, boolean closed, boolean leader, long leaseCounter, 
+            EventType lastOutcome, long lastElectionAtMillis, long lastElectionNanos, 
+            int failureStreak, LeaderElectorException lastError) {
+        this.roleId = roleId;
+        this.candidateId = candidateId;
+        this.closed = closed;
+        this.leader = leader;
+        this.leaseCounter = leaseCounter;
+        this.lastOutcome = lastOutcome;
+        this.lastElectionAtMillis = lastElectionAtMillis;
+        this.lastElectionNanos = lastElectionNanos;
+        this.failureStreak = failureStreak;
+        this.lastError = lastError;
+    }
+
+    public String getRoleId() {
+        return roleId;
+    }
+
+    public String getCandidateId() {
+        return candidateId;
+    }
+
+    /**
+     * Gets if the Leader Elector is closed (or closing).
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets if the candidate is leader.
+     * @return true if leader
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Gets the lease counter of the lease held by this candidate.
+     * @return lease counter, or -1 if not leader
+     */
+    public long getLeaseCounter() {
+        return leaseCounter;
+    }
+
+    /**
+     * Gets the outcome of the most recent election.
+     * @return outcome or {@code null} if no election has completed yet
+     */
+    public EventType getLastOutcome() {
+        return lastOutcome;
+    }
+
+    /**
+     * Gets when the most recent election started.
+     * @return time or {@code null} if no election has completed yet
+     */
+    public Instant getLastElectionAt() {
+        return (lastOutcome == null) ? null : Instant.ofEpochMilli(lastElectionAtMillis);
+    }
+
+    /**
+     * Gets how long the most recent election took.
+     * @return duration or {@code null} if no election has completed yet
+     */
+    public Duration getLastElectionDuration() {
+        return (lastOutcome == null) ? null : Duration.ofNanos(lastElectionNanos);
+    }
+
+    /**
+     * Gets the number of elections in a row, up to and including the most
+     * recent, which have ended with errors.
+     * @return count
+     */
+    public int getFailureStreak() {
+        return failureStreak;
+    }
+
+    /**
+     * Gets the error which ended the most recent election. If there was
+     * more than one, the first non-recoverable one is returned.
+     * @return error or {@code null} if the most recent election 
+     *   ended without errors
+     */
+    public LeaderElectorException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Gets if the most recent election ended with a non-recoverable error.
+     * Such an error doesn't go away by itself, for example a missing
+     * table or a lost connection which could not be re-established.
+     * @return true if so
+     */
+    public boolean hasNonRecoverableError() {
+        return lastError instanceof LeaderElectorExceptionNonRecoverable;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderElectorStatus{" 
+                + "roleId=" + roleId 
+                + ", candidateId=" + candidateId 
+                + ", closed=" + closed 
+                + ", leader=" + leader 
+                + ", leaseCounter=" + leaseCounter 
+                + ", lastOutcome=" + lastOutcome 
+                + ", lastElectionAt=" + getLastElectionAt() 
+                + ", lastElectionDuration=" + getLastElectionDuration() 
+                + ", failureStreak=" + failureStreak 
+                + ", lastError=" + lastError 
+                + '}';
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect;
+
+import java.util.concurrent.ScheduledExecutorService;
+import net.lbruun.dbleaderelect.internal.core.LeaderScopedExecutor;
+
+/**
+ * Executor which only executes tasks while the owning {@link LeaderElector}
+ * holds leadership. Obtained from {@link LeaderElector#leaderExecutor()}.
+ *
+ * <p>
+ * Tasks can be submitted at any time. A task which becomes due while the
+ * candidate is not leader waits until leadership is assumed.
+ * When leadership is lost, or when the local lease deadline passes without
+ * the lease having been renewed, all outstanding tasks are cancelled:
+ * running tasks are interrupted and queued tasks, including periodic
+ * tasks, are dropped. This happens <i>before</i> the
+ * {@link LeaderElectorListener.EventType#LEADERSHIP_LOST LEADERSHIP_LOST}
+ * event is delivered to the listener. Tasks which should run every time
+ * the candidate becomes leader should therefore be (re-)submitted when
+ * receiving the
+ * {@link LeaderElectorListener.EventType#LEADERSHIP_ASSUMED LEADERSHIP_ASSUMED}
+ * event.
+ *
+ * <p>
+ * The local lease deadline is {@link LeaderElectorConfiguration#getAssumeDeadMs() assumeDeadMs}
+ * after the start of the election cycle which last renewed the lease.
+ * After this point in time other candidates may have taken over leadership.
+ *
+ * <p>
+ * Tasks should respond to interrupts. A task which writes to a shared
+ * resource should use the {@link #currentLeaseCounter() lease counter} as a
+ * fencing token so that writes from a former leader can be rejected.
+ * For writes to the database which holds the leader election table
+ * this is done by {@link LeaderElector#leaseFence()}.
+ *
+ * <p>
+ * The executor is shut down when the Leader Elector is closed.
+ */
+public interface LeaderExecutorService extends ScheduledExecutorService {
+
+    /**
+     * Value returned by {@link #currentLeaseCounter()} when not called
+     * from a task executed by a {@code LeaderExecutorService}.
+     */
+    public static final long NO_LEASE_COUNTER = -1;
+
+    /**
+     * Gets the lease counter of the leadership under which the task
+     * executing in the current thread was started. The value can be
+     * used as a fencing token: it is strictly larger than the value
+     * of any previous leadership for the same role.
+     *
+     * @return lease counter or {@link #NO_LEASE_COUNTER} if the current
+     *    thread is not executing a task from a {@code LeaderExecutorService}.
+     */
+    public static long currentLeaseCounter() {
+        return LeaderScopedExecutor.currentLeaseCounter();
+    }
+
+    /**
+     * Gets if tasks are currently allowed to execute, meaning if the
+     * candidate holds leadership and the local lease deadline has not
+     * passed.
+     *
+     * @return true if tasks are allowed to execute
+     */
+    public boolean isLeader();
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Who is leader, as last observed by a {@link LeaderElector}. Obtained 
+ * from {@link LeaderElector#getCurrentLeader()}.
+ *
+ * <p>
+ * The snapshot is taken by the regular election and costs nothing to 
+ * obtain. It is normally no older than 
+ * {@link LeaderElectorConfiguration#getIntervalMs() intervalMs}, but can
+ * be older if the database cannot be reached. Use {@link #getAge()} to 
+ * decide if it is recent enough for the purpose at hand, for example for
+ * forwarding a request to the leader's {@link #getEndpoint() endpoint}.
+ * 
+ * <p>
+ * The leader described by an instance never changes. As long as later 
+ * elections observe the same lease, the instance is refreshed rather
+ * than replaced, so that {@link #getObservedAt()} and {@link #getAge()}
+ * refer to the most recent observation. A snapshot of a previous leader
+ * is no longer refreshed and its age keeps growing.
+ */
+public final class LeaderInfo {
+
+    private final String candidateId;
+    private final String endpoint;
+    private final long leaseCounter;
+    private final boolean self;
+    private volatile long observedAtMillis;
+    private volatile long observedAtNanos;
+
+    LeaderInfo(String candidateId, String endpoint, long leaseCounter, boolean self, 
+            long observedAtMillis, long observedAtNanos) {
+        this.candidateId = candidateId;
+        this.endpoint = endpoint;
+        this.leaseCounter = leaseCounter;
+        this.self = self;
+        this.observedAtMillis = observedAtMillis;
+        this.observedAtNanos = observedAtNanos;
+    }
+
+    /**
+     * Gets if this describes the given leader and lease.
+     */
+    boolean isSameLease(String candidateId, String endpoint, long leaseCounter, boolean self) {
+        return this.leaseCounter == leaseCounter
+                && this.self == self
+                && this.candidateId.equals(candidateId)
+                && Objects.equals(this.endpoint, endpoint);
+    }
+
+    /**
+     * Records that the lease has been observed again.
+     */
+    void observed(long observedAtMillis, long observedAtNanos) {
+        this.observedAtNanos = observedAtNanos;
+        this.observedAtMillis = observedAtMillis;
+    }
+
+    /**
+     * Gets the candidate id of the leader.
+     * @return candidate id, never {@code null}
+     */
+    public String getCandidateId() {
+        return candidateId;
+    }
+
+    /**
+     * Gets the endpoint of the leader, as configured on the leader by
+     * {@link LeaderElectorConfiguration.Builder#withCandidateEndpoint(String) candidateEndpoint}.
+     * @return endpoint or {@code null} if the leader has no endpoint
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Gets the lease counter of the leader's current lease.
+     * @return lease counter
+     */
+    public long getLeaseCounter() {
+        return leaseCounter;
+    }
+
+    /**
+     * Gets if the leader is the current candidate.
+     * @return true if the current candidate is leader
+     */
+    public boolean isSelf() {
+        return self;
+    }
+
+    /**
+     * Gets the time when the leadership was last observed, meaning the 
+     * time of the most recent election which saw this lease.
+     * @return time of observation
+     */
+    public Instant getObservedAt() {
+        return Instant.ofEpochMilli(observedAtMillis);
+    }
+
+    /**
+     * Gets the time elapsed since the leadership was observed. 
+     * @return age of this snapshot
+     */
+    public Duration getAge() {
+        return Duration.ofNanos(System.nanoTime() - observedAtNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderInfo{" 
+                + "candidateId=" + candidateId 
+                + ", endpoint=" + endpoint 
+                + ", leaseCounter=" + leaseCounter 
+                + ", self=" + self 
+                + ", observedAt=" + getObservedAt() 
+                + '}';
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger for LeaderElector based on SLF4J. All levels are forwarded to
+ * the SLF4J logger named after the class which emitted the message, and
+ * the level checks are those of SLF4J. Debug logging of every election
+ * cycle can therefore be enabled in the logging configuration, without
+ * any cost when it is disabled.
+ *
+ * <p>
+ * Requires {@code slf4j-api} on the classpath.
+ */
+public class Slf4jLeaderElectorLogger implements LeaderElectorLogger {
+
+    private final ConcurrentMap<Class, Logger> loggers = new ConcurrentHashMap<>();
+
+    @Override
+    public void logInfo(Class sourceKlazz, String message) {
+        getLogger(sourceKlazz).info(message);
+    }
+
+    @Override
+    public void logInfo(Class sourceKlazz, Supplier<String> message) {
+        Logger logger = getLogger(sourceKlazz);
+        if (logger.isInfoEnabled()) {
+            logger.info(message.get());
+        }
+    }
+
+    @Override
+    public void logError(Class sourceKlazz, String message, Throwable cause) {
+        getLogger(sourceKlazz).error(message, cause);
+    }
+
+    @Override
+    public void logWarning(Class sourceKlazz, String message, Throwable cause) {
+        getLogger(sourceKlazz).warn(message, cause);
+    }
+
+    @Override
+    public void logDebug(Class sourceKlazz, String message) {
+        getLogger(sourceKlazz).debug(message);
+    }
+
+    @Override
+    public void logDebug(Class sourceKlazz, Supplier<String> message) {
+        Logger logger = getLogger(sourceKlazz);
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.get());
+        }
+    }
+
+    @Override
+    public void logTrace(Class sourceKlazz, String message) {
+        getLogger(sourceKlazz).trace(message);
+    }
+
+    @Override
+    public void logTrace(Class sourceKlazz, Supplier<String> message) {
+        Logger logger = getLogger(sourceKlazz);
+        if (logger.isTraceEnabled()) {
+            logger.trace(message.get());
+        }
+    }
+
+    @Override
+    public boolean isInfoEnabled(Class sourceKlazz) {
+        return getLogger(sourceKlazz).isInfoEnabled();
+    }
+
+    @Override
+    public boolean isDebugEnabled(Class sourceKlazz) {
+        return getLogger(sourceKlazz).isDebugEnabled();
+    }
+
+    @Override
+    public boolean isTraceEnabled(Class sourceKlazz) {
+        return getLogger(sourceKlazz).isTraceEnabled();
+    }
+
+    // The level checks are done once per election cycle. A get() on the
+    // map doesn't allocate, unlike going through LoggerFactory each time.
+    private Logger getLogger(Class klass) {
+        Logger logger = loggers.get(klass);
+        if (logger == null) {
+            logger = loggers.computeIfAbsent(klass, LoggerFactory::getLogger);
+        }
+        return logger;
+    }
+}
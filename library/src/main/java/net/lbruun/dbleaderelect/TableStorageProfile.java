@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect;
+
+/**
+ * Storage options for the leader election table when it is created by
+ * the Leader Elector (see 
+ * {@link LeaderElectorConfiguration.Builder#withCreateTable(boolean) createTable}).
+ * 
+ * <p>
+ * The leader rewrites its row every {@code intervalMs}, forever. Most
+ * databases store such updates as new row versions and log each of them,
+ * so a table which is tuned for this use case can make a noticeable
+ * difference to maintenance work (vacuum, page splits) and log volume.
+ */
+public enum TableStorageProfile {
+    
+    /**
+     * The table is created with the database's default storage options.
+     */
+    DEFAULT,
+    
+    /**
+     * The table is tuned for frequent updates of the same row:
+     * <ul>
+     *   <li>PostgreSQL: {@code fillfactor} of 50 so that updates can be 
+     *       HOT (heap-only tuple) updates which don't touch the index and
+     *       whose dead tuples are pruned without vacuum. Autovacuum is set 
+     *       to trigger on a fixed number of dead tuples rather than a 
+     *       fraction of the (tiny) table.</li>
+     *   <li>SQL Server: fill factor of 50 on the primary key so that rows
+     *       can grow (a longer {@code candidate_id}) without page splits.</li>
+     *   <li>Oracle: {@code PCTFREE 50} so that rows can grow without 
+     *       migrating, and {@code INITRANS 4} to avoid waiting for a 
+     *       transaction slot in the block.</li>
+     *   <li>Db2: {@code PCTFREE 50} and {@code VOLATILE CARDINALITY}, 
+     *       the latter so that the optimizer always uses the primary key
+     *       index regardless of table statistics.</li>
+     *   <li>MySQL, MariaDB and H2: same as {@link #DEFAULT}. InnoDB updates
+     *       fixed-size values in place.</li>
+     * </ul>
+     */
+    WRITE_OPTIMIZED
+}
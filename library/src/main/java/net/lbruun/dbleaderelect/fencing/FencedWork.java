@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.fencing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Work executed by {@link LeaseFence#execute(FencedWork)}.
+ * 
+ * @param <T> type of result
+ */
+@FunctionalInterface
+public interface FencedWork<T> {
+
+    /**
+     * Executes the work. The connection is in a transaction which is
+     * committed when the method returns normally, and rolled back if it
+     * throws. The work must not commit or roll back itself.
+     * 
+     * @param connection connection to use for the writes
+     * @return result, may be {@code null}
+     * @throws SQLException on database error
+     */
+    public T execute(Connection connection) throws SQLException;
+}
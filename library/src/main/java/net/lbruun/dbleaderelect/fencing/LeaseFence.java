@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.fencing;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import net.lbruun.dbleaderelect.exception.LeaderElectorLeaseLostException;
+
+/**
+ * Makes writes conditional on the candidate still holding a lease, 
+ * identified by its lease counter. Obtained from 
+ * {@link net.lbruun.dbleaderelect.LeaderElector#leaseFence()}.
+ * 
+ * <p>
+ * A leader may have lost its lease without knowing it yet, for example
+ * after a long GC pause. The lease counter can be used as a fencing token
+ * by other services, but for writes to the database which holds the 
+ * leader election table the check can be done directly against the table,
+ * as part of the write itself. There are two ways of doing this:
+ * 
+ * <ul>
+ *   <li>{@link #execute(FencedWork)} or {@link #check(Connection)}: reads
+ *       the leader election row in the same transaction as the writes and
+ *       locks it until the transaction ends. If the lease is not held, 
+ *       nothing is committed. If it is held, no other candidate can take
+ *       over the lease before the writes have been committed. Depending on
+ *       the database the lock is either shared or exclusive (H2, Oracle), 
+ *       in which case fenced transactions are executed one at a time.
+ *       Either way the lock also delays the leader's own lease renewal, so
+ *       fenced transactions must be short.</li>
+ *   <li>{@link #getPredicateSQL()}: an {@code EXISTS} predicate which can 
+ *       be added to the {@code WHERE} clause of a single {@code UPDATE}, 
+ *       {@code DELETE} or {@code INSERT .. SELECT} statement. This doesn't
+ *       take any lock nor need a transaction. It rejects writes from a 
+ *       leader whose lease has been taken over by another candidate, which
+ *       is the main purpose of a fencing token.</li>
+ * </ul>
+ * 
+ * <p>
+ * Both only work for tables in the same database as the leader election 
+ * table. Fencing is therefore only available when the Leader Elector uses
+ * a single database. When it elects across several databases, 
+ * {@link net.lbruun.dbleaderelect.LeaderElector#leaseFence()} throws
+ * {@code UnsupportedOperationException}.
+ * 
+ * <p>
+ * A fence is immutable and bound to a single lease. Once the lease is 
+ * lost, every write through the fence is rejected, also if the candidate
+ * later becomes leader again: a new fence must be obtained.
+ */
+public interface LeaseFence {
+
+    /**
+     * Gets the lease counter of the lease which writes are fenced by.
+     * 
+     * @return lease counter, or 
+     *     {@link net.lbruun.dbleaderelect.LeaderExecutorService#NO_LEASE_COUNTER NO_LEASE_COUNTER}
+     *     if the fence was obtained while not leader, in which case every
+     *     write is rejected.
+     */
+    public long getLeaseCounter();
+
+    /**
+     * Executes work in a transaction which only commits if the lease is
+     * still held. The transaction uses a connection from the 
+     * Leader Elector's {@code DataSource}.
+     * 
+     * @param <T> type of result
+     * @param work the writes
+     * @return result of {@code work}
+     * @throws LeaderElectorLeaseLostException if the lease is not held. 
+     *     {@code work} has not been executed.
+     * @throws SQLException on database error, or if thrown by {@code work}.
+     *     The transaction has been rolled back.
+     */
+    public <T> T execute(FencedWork<T> work) throws SQLException, LeaderElectorLeaseLostException;
+
+    /**
+     * Same as {@link #execute(FencedWork)}, but using a connection supplied
+     * by the caller. The connection must be to the database which holds
+     * the leader election table. Its auto-commit mode is restored 
+     * afterwards.
+     * 
+     * @param <T> type of result
+     * @param connection connection
+     * @param work the writes
+     * @return result of {@code work}
+     * @throws LeaderElectorLeaseLostException if the lease is not held. 
+     *     {@code work} has not been executed.
+     * @throws SQLException on database error, or if thrown by {@code work}.
+     *     The transaction has been rolled back.
+     */
+    public <T> T execute(Connection connection, FencedWork<T> work) throws SQLException, LeaderElectorLeaseLostException;
+
+    /**
+     * Checks that the lease is held, and locks it until the end of the
+     * current transaction. For callers which manage the transaction 
+     * themselves: the connection must not be in auto-commit mode and the
+     * check should be done before any of the writes.
+     * 
+     * @param connection connection in a transaction
+     * @throws LeaderElectorLeaseLostException if the lease is not held
+     * @throws SQLException on database error
+     */
+    public void check(Connection connection) throws SQLException, LeaderElectorLeaseLostException;
+
+    /**
+     * Gets an SQL predicate which is true if, and only if, the lease is
+     * held. The predicate has three parameters which must be set with 
+     * {@link #setPredicateParameters(PreparedStatement, int)}. Example:
+     * <pre>{@code
+     * String sql = "UPDATE account SET balance = ? WHERE id = ? AND " + fence.getPredicateSQL();
+     * try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+     *     pstmt.setLong(1, balance);
+     *     pstmt.setString(2, id);
+     *     fence.setPredicateParameters(pstmt, 3);
+     *     if (pstmt.executeUpdate() == 0) {
+     *         // Lease lost (or no such account)
+     *     }
+     * }
+     * }</pre>
+     * 
+     * @return predicate
+     */
+    public String getPredicateSQL();
+
+    /**
+     * Sets the parameters of the {@link #getPredicateSQL() predicate}.
+     * 
+     * @param pstmt statement
+     * @param parameterIndex index of the first parameter of the predicate
+     * @return index of the parameter after the predicate
+     * @throws SQLException on error
+     */
+    public int setPredicateParameters(PreparedStatement pstmt, int parameterIndex) throws SQLException;
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local estimate of the database clock.
+ *
+ * <p>
+ * The estimate is built from samples of the database time, NTP-style: for
+ * each sample the local monotonic clock ({@link System#nanoTime()}) is read
+ * just before the query is sent and just after the result is received. The
+ * database time is assumed to correspond to the midpoint of that round trip,
+ * with an error of at most half the round trip time. Of the samples which
+ * are still fresh, the one which gives the smallest error bound is kept.
+ *
+ * <p>
+ * Between samples the estimate is advanced using the local monotonic clock.
+ * As the local clock may run at a slightly different rate than the database
+ * clock, the error bound grows with {@link #MAX_DRIFT_PPM} of the elapsed
+ * time. The estimate is therefore reported as an upper bound, the latest
+ * possible value of the true database time, which is what is needed for
+ * deciding that a lease has certainly not expired.
+ *
+ * <p>
+ * Not thread-safe.
+ */
+public class DbClock {
+
+    /**
+     * Maximum rate difference assumed between the local monotonic clock
+     * and the database clock, in parts per million. Ordinary quartz clocks
+     * are well within 100 ppm. A large margin is used as the database host
+     * may be correcting its clock by slewing.
+     */
+    public static final long MAX_DRIFT_PPM = 1000;
+
+    /**
+     * Allowance for the resolution of the database clock. Values are
+     * milliseconds but some databases have a coarser clock, for example
+     * SQL Server's {@code GETUTCDATE()} has a resolution of about 3.3 ms.
+     */
+    private static final long RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+    private final long maxSampleAgeNanos;
+    private boolean hasSample = false;
+    private long refNanos;          // local monotonic time of the sample
+    private long dbMillisAtRef;     // database time at 'refNanos'
+    private long errorNanos;        // error bound at 'refNanos'
+
+    /**
+     * @param maxSampleAgeMs age after which the current sample should be
+     *     replaced by a new one, see {@link #needsSample(long)}.
+     */
+    public DbClock(long maxSampleAgeMs) {
+        this.maxSampleAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxSampleAgeMs);
+    }
+
+    /**
+     * Adds a sample of the database clock.
+     *
+     * @param sendNanos value of {@link System#nanoTime()} just before the
+     *     query was sent
+     * @param dbMillis database time as returned by the query, milliseconds
+     *     since the epoch
+     * @param receiveNanos value of {@link System#nanoTime()} just after the
+     *     result was received
+     * @return true if the sample was used, false if it was discarded because
+     *     the current sample gives a tighter estimate
+     */
+    public boolean addSample(long sendNanos, long dbMillis, long receiveNanos) {
+        long rttNanos = Math.max(0, receiveNanos - sendNanos);
+        long midNanos = sendNanos + (rttNanos / 2);
+        long sampleErrorNanos = (rttNanos / 2) + RESOLUTION_NANOS;
+        if (hasSample && !isStale(receiveNanos)
+                && errorBoundNanos(midNanos) <= sampleErrorNanos) {
+            return false;
+        }
+        hasSample = true;
+        refNanos = midNanos;
+        dbMillisAtRef = dbMillis;
+        errorNanos = sampleErrorNanos;
+        return true;
+    }
+
+    /**
+     * Discards the current sample, for example because the database
+     * may have been failed over to another host.
+     */
+    public void reset() {
+        hasSample = false;
+    }
+
+    /**
+     * Gets if there is a sample which can be used for estimating the
+     * database time.
+     */
+    public boolean hasSample() {
+        return hasSample;
+    }
+
+    /**
+     * Gets if a new sample should be taken, either because there is no 
+     * sample or because the current sample is older than the maximum age.
+     * @param nowNanos value of {@link System#nanoTime()}
+     */
+    public boolean needsSample(long nowNanos) {
+        return !hasSample || isStale(nowNanos);
+    }
+
+    private boolean isStale(long nowNanos) {
+        return (nowNanos - refNanos) >= maxSampleAgeNanos;
+    }
+
+    /**
+     * Gets the latest possible value of the database time.
+     * @param nowNanos value of {@link System#nanoTime()}
+     * @return milliseconds since the epoch
+     * @throws IllegalStateException if there is no sample
+     */
+    public long upperBoundMillis(long nowNanos) {
+        checkHasSample();
+        return dbMillisAtRef + ceilMillis((nowNanos - refNanos) + errorBoundNanos(nowNanos));
+    }
+
+    private long errorBoundNanos(long nowNanos) {
+        long elapsedNanos = Math.abs(nowNanos - refNanos);
+        return errorNanos + (elapsedNanos / 1_000_000L) * MAX_DRIFT_PPM;
+    }
+
+    private void checkHasSample() {
+        if (!hasSample) {
+            throw new IllegalStateException("No sample of the database clock");
+        }
+    }
+
+    private static long ceilMillis(long nanos) {
+        return -Math.floorDiv(-nanos, 1_000_000L);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.Random;
+
+/**
+ * Circuit breaker with back-off for the periodic election.
+ *
+ * <p>
+ * While closed, elections run every {@code intervalMs}. After
+ * {@code threshold} consecutive failed elections the breaker opens and the
+ * next election is delayed using <i>decorrelated jitter</i>: a random delay
+ * between {@code intervalMs} and three times the previous delay, capped at
+ * {@code maxDelayMs}. The delayed election is a half-open trial. If it
+ * fails the breaker opens again with a new delay, otherwise it closes and
+ * the delay drops straight back to {@code intervalMs}.
+ *
+ * <p>
+ * Decorrelated jitter (rather than plain exponential back-off with jitter)
+ * grows the delay about as fast but keeps candidates which started failing
+ * at the same time from retrying in lock step.
+ *
+ * <p>
+ * Not thread-safe.
+ */
+public class ElectionBackoff {
+
+    public enum State {
+        /**
+         * Elections run at the normal cadence.
+         */
+        CLOSED,
+        /**
+         * Elections are backing off. The next election is a trial.
+         */
+        OPEN,
+        /**
+         * The trial election is in progress.
+         */
+        HALF_OPEN
+    }
+
+    private final long intervalMs;
+    private final long maxDelayMs;
+    private final int threshold;
+    private final Random random;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long previousDelayMs;
+
+    /**
+     * @param intervalMs normal delay between elections
+     * @param maxDelayMs longest delay between elections while backing off
+     * @param threshold number of consecutive failed elections after which
+     *     the breaker opens
+     */
+    public ElectionBackoff(long intervalMs, long maxDelayMs, int threshold) {
+        this(intervalMs, maxDelayMs, threshold, new Random());
+    }
+
+    ElectionBackoff(long intervalMs, long maxDelayMs, int threshold, Random random) {
+        this.intervalMs = intervalMs;
+        this.maxDelayMs = Math.max(intervalMs, maxDelayMs);
+        this.threshold = threshold;
+        this.random = random;
+        this.previousDelayMs = intervalMs;
+    }
+
+    /**
+     * Must be called when an election starts.
+     */
+    public void electionStarting() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+        }
+    }
+
+    /**
+     * Records the outcome of an election and returns the delay until 
+     * the next election.
+     *
+     * @param success if the election completed without errors
+     * @return delay in milliseconds
+     */
+    public long electionCompleted(boolean success) {
+        if (success) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            previousDelayMs = intervalMs;
+            return intervalMs;
+        }
+        if (state == State.CLOSED) {
+            consecutiveFailures++;
+            if (consecutiveFailures < threshold) {
+                return intervalMs;
+            }
+        }
+        state = State.OPEN;
+        previousDelayMs = nextDelay(previousDelayMs);
+        return previousDelayMs;
+    }
+
+    private long nextDelay(long previous) {
+        long upper = (previous > maxDelayMs / 3) ? maxDelayMs : previous * 3;
+        if (upper <= intervalMs) {
+            return intervalMs;
+        }
+        return intervalMs + (long) (random.nextDouble() * (upper - intervalMs));
+    }
+
+    public State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+/**
+ * Source of local time for an election. All elections use 
+ * {@link #SYSTEM}. Tests replace it with a virtual clock so that time 
+ * only moves when the test says so, making the timing of elections 
+ * reproducible.
+ *
+ * <p>
+ * Implementations must not allocate: the clock is read several times per
+ * election cycle.
+ */
+public interface ElectionClock {
+
+    /**
+     * Clock backed by {@link System#currentTimeMillis()} and 
+     * {@link System#nanoTime()}.
+     */
+    public static final ElectionClock SYSTEM = new ElectionClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Wall-clock time.
+     * @return milliseconds since the epoch
+     * @see System#currentTimeMillis() 
+     */
+    public long currentTimeMillis();
+
+    /**
+     * Monotonic time, for measuring elapsed time only.
+     * @return nanoseconds since an arbitrary origin
+     * @see System#nanoTime() 
+     */
+    public long nanoTime();
+}
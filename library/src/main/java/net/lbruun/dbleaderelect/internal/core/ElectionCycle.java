@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.time.Instant;
+import java.util.Arrays;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+import net.lbruun.dbleaderelect.internal.events.EventHelpers;
+import net.lbruun.dbleaderelect.internal.events.EventImpl;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
+
+/**
+ * Outcome of a single leader election cycle.
+ *
+ * <p>
+ * An instance is owned by a {@link SQLLeaderElect} and is overwritten by
+ * every cycle. All values are kept as primitives (epoch millis) so that
+ * the steady-state renew/noop path does not allocate. The outcome must be
+ * consumed on the election thread before the next cycle starts. If
+ * something needs to outlive the cycle, for example because a listener
+ * subscribes to the event type, then use {@link #toEvent()} which
+ * materializes an immutable {@link LeaderElectorListener.Event}.
+ */
+public final class ElectionCycle {
+
+    private final String roleId;
+    private EventType eventType;
+    private long startTimeMillis;
+    private long startNanos;
+    private long eventTimeMillis;
+    private String candidateId;
+    private long lastSeenTimestampMillis;
+    private long leaseCounter;
+    private String candidateEndpoint;
+    private long leaseAgeMillis;
+    private EventHelpers.ErrorEventsBuilder errors;
+    private final long[] phaseNanos = new long[ElectionPhase.values().length];
+
+    ElectionCycle(String roleId) {
+        this.roleId = roleId;
+    }
+
+    void begin(long startTimeMillis, long startNanos) {
+        this.startTimeMillis = startTimeMillis;
+        this.startNanos = startNanos;
+        this.eventType = null;
+        this.eventTimeMillis = 0;
+        this.candidateId = null;
+        this.lastSeenTimestampMillis = 0;
+        this.leaseCounter = -1;
+        this.candidateEndpoint = null;
+        this.leaseAgeMillis = -1;
+        this.errors = null;
+        Arrays.fill(phaseNanos, -1);
+    }
+
+    /**
+     * Adds to the time spent in a phase of the cycle. 
+     */
+    void addPhaseNanos(ElectionPhase phase, long nanos) {
+        int i = phase.ordinal();
+        phaseNanos[i] = (phaseNanos[i] < 0) ? nanos : phaseNanos[i] + nanos;
+    }
+
+    void set(EventType eventType, String candidateId, long lastSeenTimestampMillis, long leaseCounter, long eventTimeMillis) {
+        this.eventType = eventType;
+        this.candidateId = candidateId;
+        this.lastSeenTimestampMillis = lastSeenTimestampMillis;
+        this.leaseCounter = leaseCounter;
+        this.eventTimeMillis = eventTimeMillis;
+    }
+
+    void setCandidateEndpoint(String candidateEndpoint) {
+        this.candidateEndpoint = candidateEndpoint;
+    }
+
+    void setLeaseAgeMillis(long leaseAgeMillis) {
+        this.leaseAgeMillis = leaseAgeMillis;
+    }
+
+    void setErrors(EventHelpers.ErrorEventsBuilder errors, boolean wasLeaderAtStartOfElection, long eventTimeMillis) {
+        this.eventType = (wasLeaderAtStartOfElection) ? EventType.LEADERSHIP_LOST : EventType.LEADERSHIP_UNDETERMINED;
+        this.candidateId = null;
+        this.lastSeenTimestampMillis = 0;
+        this.leaseCounter = -1;
+        this.errors = errors;
+        this.eventTimeMillis = eventTimeMillis;
+    }
+
+    public boolean hasOutcome() {
+        return eventType != null;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public String getRoleId() {
+        return roleId;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * Value of {@link System#nanoTime()} at the start of the cycle. A lease
+     * renewed in the cycle cannot have been renewed earlier than this,
+     * which makes the value a safe (conservative) base for local lease 
+     * deadlines.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEventTimeMillis() {
+        return eventTimeMillis;
+    }
+
+    public String getCandidateId() {
+        return candidateId;
+    }
+
+    public long getLastSeenTimestampMillis() {
+        return lastSeenTimestampMillis;
+    }
+
+    public long getLeaseCounter() {
+        return leaseCounter;
+    }
+
+    /**
+     * Endpoint of the leader, as written by the leader to the leader 
+     * election table. Only has a value for 
+     * {@link EventType#LEADERSHIP_NOOP LEADERSHIP_NOOP}, and only if the
+     * leader has an endpoint.
+     */
+    public String getCandidateEndpoint() {
+        return candidateEndpoint;
+    }
+
+    /**
+     * Age of the lease, whoever held it, when it was read in this cycle:
+     * the time since it was last renewed. For the leader this is the time
+     * since its own previous renewal. If that renewal used the renewal fast
+     * path, the age is an upper bound which includes obtaining the
+     * connection and executing the UPDATE.
+     * @return milliseconds or -1 if the lease was not read in this cycle
+     */
+    public long getLeaseAgeMillis() {
+        return leaseAgeMillis;
+    }
+
+    public boolean hasErrors() {
+        return errors != null;
+    }
+
+    EventHelpers.ErrorEventsBuilder getErrors() {
+        return errors;
+    }
+
+    public int getErrorCount() {
+        return (errors == null) ? 0 : errors.size();
+    }
+
+    public LeaderElectorException getError(int index) {
+        return errors.get(index).getError();
+    }
+
+    /**
+     * Time spent in a phase of the cycle.
+     * @return nanoseconds or -1 if the phase was not measured in this cycle
+     */
+    public long getPhaseNanos(ElectionPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Creates an immutable event from the current outcome.
+     * @return event
+     */
+    public LeaderElectorListener.Event toEvent() {
+        if (errors != null) {
+            return new EventImpl(
+                    eventType,
+                    Instant.ofEpochMilli(startTimeMillis),
+                    Instant.ofEpochMilli(eventTimeMillis),
+                    roleId,
+                    null, // candidateId
+                    null, // previousLastSeenTimestamp
+                    -1,   // newLeaseCounter
+                    errors.toArray());
+        }
+        return new EventImpl(
+                eventType,
+                Instant.ofEpochMilli(startTimeMillis),
+                Instant.ofEpochMilli(eventTimeMillis),
+                roleId,
+                candidateId,
+                Instant.ofEpochMilli(lastSeenTimestampMillis),
+                leaseCounter,
+                null);
+    }
+}
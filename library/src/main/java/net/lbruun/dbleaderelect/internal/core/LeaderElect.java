@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+/**
+ * The election as seen by {@link net.lbruun.dbleaderelect.LeaderElector}:
+ * either against a single database ({@link SQLLeaderElect}) or against
+ * a quorum of databases ({@link QuorumLeaderElect}).
+ */
+public interface LeaderElect {
+
+    /**
+     * Executes a leader election. Must only be invoked from the election
+     * thread.
+     *
+     * <p>
+     * The returned object is owned by the implementation and is overwritten
+     * by the next invocation. It must therefore be consumed before this 
+     * method is invoked again.
+     *
+     * @param relinquish if current leadership (if any) should be given up
+     * @return outcome of the election
+     */
+    public ElectionCycle runElection(boolean relinquish);
+
+    /**
+     * Gets the outcome of the most recent election. 
+     *
+     * @see #runElection(boolean) 
+     * @return outcome, which has no outcome if no election has yet 
+     *     been executed
+     */
+    public ElectionCycle getLastElectionCycle();
+
+    /**
+     * Gets if leader as of the most recent election. Can be called from
+     * any thread.
+     */
+    public boolean isLeader();
+
+    /**
+     * Gives up leadership locally without touching the database. The next
+     * election will re-assume leadership with a new lease counter if the
+     * candidate still holds the lease. Can be called from any thread.
+     */
+    public void revokeLocally();
+
+    /**
+     * Releases resources. Invoked when the Leader Elector has closed down.
+     */
+    public default void close() {
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.LeaderExecutorService;
+import net.lbruun.dbleaderelect.internal.utils.SharedScheduler;
+import net.lbruun.dbleaderelect.internal.utils.ThreadFactoryWithNamePrefix;
+
+/**
+ * Implementation of {@link LeaderExecutorService}.
+ *
+ * <p>
+ * Worker threads are gated in {@link #beforeExecute(Thread, Runnable)}: a
+ * task which is due while not leader blocks its worker until leadership
+ * is (re-)gained or until the task is cancelled. Every task which has
+ * been handed to a worker is tracked until it completes so that it can
+ * be cancelled (interrupted) on loss of leadership.
+ *
+ * <p>
+ * The executor is fed with the outcome of every election cycle via
+ * {@link #onElection(ElectionCycle)}. This must happen on the election
+ * thread.
+ */
+public class LeaderScopedExecutor extends ScheduledThreadPoolExecutor implements LeaderExecutorService {
+
+    // Lease counter of the task running in the current thread. An array is
+    // used (rather than a Long) so that setting the value doesn't box.
+    private static final ThreadLocal<long[]> CURRENT_LEASE_COUNTER
+            = ThreadLocal.withInitial(() -> new long[]{NO_LEASE_COUNTER});
+
+    private final long assumeDeadNanos;
+    private final LeaderElectorLogger logger;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition leadershipChanged = lock.newCondition();
+    private final Set<Future<?>> activeTasks = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> leadershipGainedListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean leader = false;
+    private volatile long leaseCounter = NO_LEASE_COUNTER;
+    private volatile long leadershipEpoch = 0;  // incremented each time leadership is gained
+    private long leaseDeadlineNanos;            // guarded by 'lock'
+    private ScheduledFuture<?> deadlineCheck;   // guarded by 'lock'
+
+    public LeaderScopedExecutor(int poolSize, long assumeDeadMs, LeaderElectorLogger logger) {
+        super(poolSize, new ThreadFactoryWithNamePrefix("LeaderElector-leader"));
+        this.assumeDeadNanos = TimeUnit.MILLISECONDS.toNanos(assumeDeadMs);
+        this.logger = logger;
+        setRemoveOnCancelPolicy(true);
+        setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * @see LeaderExecutorService#currentLeaseCounter()
+     */
+    public static long currentLeaseCounter() {
+        return CURRENT_LEASE_COUNTER.get()[0];
+    }
+
+    @Override
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Gets a number which identifies the current period of leadership. 
+     * It is incremented every time leadership is gained (including
+     * when the lease counter changes while leader).
+     */
+    public long getLeadershipEpoch() {
+        return leadershipEpoch;
+    }
+
+    /**
+     * Adds a listener which is invoked every time leadership is gained,
+     * after tasks have been allowed to execute. The listener is invoked
+     * on the election thread and must therefore return quickly, typically
+     * by submitting tasks to this executor.
+     * @param listener 
+     */
+    public void addLeadershipGainedListener(Runnable listener) {
+        leadershipGainedListeners.add(listener);
+    }
+
+    /**
+     * Updates leadership status from the outcome of an election.
+     * @param cycle
+     */
+    public void onElection(ElectionCycle cycle) {
+        EventType eventType = cycle.getEventType();
+        if (eventType == EventType.LEADERSHIP_ASSUMED || eventType == EventType.LEADERSHIP_CONFIRMED) {
+            leaseRenewed(cycle.getLeaseCounter(), cycle.getStartNanos());
+        } else if (leader) {
+            revoke("leadership lost");
+        }
+    }
+
+    private void leaseRenewed(long newLeaseCounter, long renewedAtNanos) {
+        boolean changedLease;
+        lock.lock();
+        try {
+            changedLease = leader && (leaseCounter != newLeaseCounter);
+        } finally {
+            lock.unlock();
+        }
+        if (changedLease) {
+            // Tasks started under the previous lease must not continue.
+            revoke("lease counter changed");
+        }
+        boolean gained = false;
+        lock.lock();
+        try {
+            leaseCounter = newLeaseCounter;
+            leaseDeadlineNanos = renewedAtNanos + assumeDeadNanos;
+            if (!leader && !isShutdown()) {
+                leader = true;
+                leadershipEpoch++;
+                gained = true;
+                leadershipChanged.signalAll();
+                scheduleDeadlineCheck(leaseDeadlineNanos - System.nanoTime());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (gained) {
+            for (Runnable listener : leadershipGainedListeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException ex) {
+                    logger.logError(this.getClass(), "Error in leadership listener", ex);
+                }
+            }
+        }
+    }
+
+    // Must be called with 'lock' held
+    private void scheduleDeadlineCheck(long delayNanos) {
+        deadlineCheck = SharedScheduler.get().schedule(
+                this::checkDeadline, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void checkDeadline() {
+        lock.lock();
+        try {
+            if (!leader) {
+                return;
+            }
+            long remainingNanos = leaseDeadlineNanos - System.nanoTime();
+            if (remainingNanos > 0) {
+                // Lease has been renewed since the check was scheduled
+                scheduleDeadlineCheck(remainingNanos);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        revoke("lease deadline passed without renewal");
+    }
+
+    /**
+     * Stops execution of tasks and cancels all outstanding tasks. Tasks
+     * are allowed to execute again when the next election confirms
+     * leadership. Can be called from any thread.
+     * @param reason for logging
+     */
+    public void revoke(String reason) {
+        lock.lock();
+        try {
+            if (!leader) {
+                return;
+            }
+            leader = false;
+            leaseCounter = NO_LEASE_COUNTER;
+            if (deadlineCheck != null) {
+                deadlineCheck.cancel(false);
+                deadlineCheck = null;
+            }
+            leadershipChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        logger.logInfo(this.getClass(), "Cancelling leader tasks: " + reason);
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        for (Runnable r : getQueue().toArray(new Runnable[0])) {
+            if (r instanceof Future) {
+                ((Future<?>) r).cancel(false);
+            }
+        }
+        for (Future<?> f : activeTasks) {
+            f.cancel(true);
+        }
+        // Wake up workers waiting for leadership with a (now) cancelled task
+        lock.lock();
+        try {
+            leadershipChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        Future<?> task = (Future<?>) r;
+        activeTasks.add(task);
+        lock.lock();
+        try {
+            while (!leader && !task.isCancelled() && !isShutdown()) {
+                leadershipChanged.awaitUninterruptibly();
+            }
+            CURRENT_LEASE_COUNTER.get()[0] = leaseCounter;
+        } finally {
+            lock.unlock();
+        }
+        // If leadership was lost while the task was waiting, then the task
+        // has been cancelled and will not execute.
+        if (!leader) {
+            task.cancel(false);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        CURRENT_LEASE_COUNTER.get()[0] = NO_LEASE_COUNTER;
+        activeTasks.remove((Future<?>) r);
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        // Workers waiting for leadership should give up if we're not leader
+        lock.lock();
+        try {
+            leadershipChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notExecuted = super.shutdownNow();
+        lock.lock();
+        try {
+            leader = false;
+            leaseCounter = NO_LEASE_COUNTER;
+            if (deadlineCheck != null) {
+                deadlineCheck.cancel(false);
+                deadlineCheck = null;
+            }
+            leadershipChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Future<?> f : activeTasks) {
+            f.cancel(true);
+        }
+        return notExecuted;
+    }
+}
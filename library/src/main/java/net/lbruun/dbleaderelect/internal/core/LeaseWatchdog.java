@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import net.lbruun.dbleaderelect.internal.utils.SharedScheduler;
+
+/**
+ * Detects that the lease has not been renewed within a threshold. 
+ * 
+ * <p>
+ * The watchdog runs on the {@link SharedScheduler}, not on the election
+ * thread, so it trips even if the election thread is stuck (for example
+ * on a hung attempt to obtain a database connection). Once tripped, the 
+ * watchdog is disarmed until the lease is renewed again.
+ */
+public class LeaseWatchdog {
+
+    private final long thresholdNanos;
+    private final Runnable onTrip;
+    private boolean armed = false;              // guarded by 'this'
+    private boolean closed = false;             // guarded by 'this'
+    private long deadlineNanos;                 // guarded by 'this'
+    private ScheduledFuture<?> deadlineCheck;   // guarded by 'this'
+
+    /**
+     * @param thresholdMs maximum time between renewals
+     * @param onTrip invoked (on the shared scheduler thread) when the 
+     *     threshold is crossed. Must return quickly.
+     */
+    public LeaseWatchdog(long thresholdMs, Runnable onTrip) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.onTrip = onTrip;
+    }
+
+    /**
+     * Records a renewal of the lease and arms the watchdog.
+     * @param renewedAtNanos value of {@link System#nanoTime()} at (or before)
+     *     the renewal
+     */
+    public synchronized void renewed(long renewedAtNanos) {
+        deadlineNanos = renewedAtNanos + thresholdNanos;
+        if (!armed && !closed) {
+            armed = true;
+            scheduleDeadlineCheck(deadlineNanos - System.nanoTime());
+        }
+    }
+
+    /**
+     * Disarms the watchdog, for example because leadership has been lost.
+     */
+    public synchronized void disarm() {
+        armed = false;
+        if (deadlineCheck != null) {
+            deadlineCheck.cancel(false);
+            deadlineCheck = null;
+        }
+    }
+
+    /**
+     * Disarms the watchdog for good. Renewals reported afterwards, by an 
+     * election which was in progress, are ignored.
+     */
+    public synchronized void close() {
+        closed = true;
+        disarm();
+    }
+
+    // Must be called with lock on 'this'
+    private void scheduleDeadlineCheck(long delayNanos) {
+        deadlineCheck = SharedScheduler.get().schedule(
+                this::checkDeadline, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void checkDeadline() {
+        synchronized (this) {
+            if (!armed) {
+                return;
+            }
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos > 0) {
+                // Renewed since the check was scheduled
+                scheduleDeadlineCheck(remainingNanos);
+                return;
+            }
+            armed = false;
+            deadlineCheck = null;
+        }
+        onTrip.run();
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionNonRecoverable;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionRecoverable;
+import net.lbruun.dbleaderelect.internal.events.EventHelpers;
+import net.lbruun.dbleaderelect.internal.utils.ThreadFactoryWithNamePrefix;
+
+import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_CANDIDATE_ID;
+
+/**
+ * Leader election across an odd number of independent databases. The 
+ * candidate is leader while it holds the lease in a majority of them.
+ *
+ * <p>
+ * Each database has its own {@link SQLLeaderElect}, which does the election
+ * in that database exactly as if it was the only one. The elections run
+ * concurrently, each in its own thread, and the outcome is decided as soon
+ * as it is known whether a majority holds the lease for this candidate.
+ * An election which is still running at that point (a slow database) 
+ * continues in the background; the database is skipped by subsequent
+ * elections until it has completed. Latency therefore follows the median
+ * database rather than the slowest.
+ *
+ * <p>
+ * <b>Lease counter</b><br>
+ * The combined lease counter must be usable as a fencing token, meaning it
+ * must be larger than that of any earlier leader. This is achieved by 
+ * holding the lease with the same lease counter in a majority of the 
+ * databases, and by choosing that value larger than what was in any of 
+ * those databases before. As the majorities of two leaders overlap in at
+ * least one database, where lease counters only ever increase, a later
+ * leader's lease counter is larger. When leadership is first gained in 
+ * the individual databases they will typically have different lease
+ * counters. The largest of them is then used as floor (see 
+ * {@link SQLLeaderElect#setLeaseCounterFloor(long)}) and the others are
+ * brought up to it in a second round, within the same election.
+ *
+ * <p>
+ * <b>Split votes</b><br>
+ * If the lease is held in some, but not a majority, of the databases while
+ * other candidates hold it in the rest, then it is given up in those 
+ * databases so that another candidate can gain a majority.
+ */
+public class QuorumLeaderElect implements LeaderElect {
+
+    private final String myCandidateId;
+    private final LeaderElectorLogger logger;
+    private final Member[] members;
+    private final int majority;
+    private final ExecutorService executor;
+    private final BlockingQueue<Member> completions = new LinkedBlockingQueue<>();
+    private final ElectionCycle cycle;
+    private final ElectionClock clock;
+    private volatile boolean currentlyAmLeader = false;
+    
+    // Only ever accessed from the election thread
+    private long round = 0;
+    private long leaseCounter = -1;       // combined lease counter, while leader
+    private long leaseCounterFloor = Long.MIN_VALUE;
+
+    /**
+     * @param configuration
+     * @param elects one per database, all for the same role and candidate
+     * @throws IllegalArgumentException if the number of databases is even
+     */
+    public QuorumLeaderElect(LeaderElectorConfiguration configuration, List<SQLLeaderElect> elects) {
+        this(configuration, elects, ElectionClock.SYSTEM);
+    }
+
+    /**
+     * @param configuration
+     * @param elects one per database, all for the same role and candidate
+     * @param clock source of local time, {@link ElectionClock#SYSTEM} 
+     *     except in tests
+     * @throws IllegalArgumentException if the number of databases is even
+     */
+    public QuorumLeaderElect(LeaderElectorConfiguration configuration, List<SQLLeaderElect> elects, ElectionClock clock) {
+        if (elects.size() % 2 == 0) {
+            throw new IllegalArgumentException("An odd number of databases is required, got " + elects.size());
+        }
+        this.myCandidateId = configuration.getCandidateId();
+        this.logger = configuration.getLeaderElectorLogger();
+        this.members = new Member[elects.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new Member(i, elects.get(i));
+        }
+        this.majority = members.length / 2 + 1;
+        this.executor = Executors.newFixedThreadPool(members.length, 
+                new ThreadFactoryWithNamePrefix("LeaderElector-quorum", true));
+        this.cycle = new ElectionCycle(configuration.getRoleId());
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean isLeader() {
+        return currentlyAmLeader;
+    }
+
+    @Override
+    public void revokeLocally() {
+        currentlyAmLeader = false;
+        for (Member member : members) {
+            member.elect.revokeLocally();
+        }
+    }
+
+    @Override
+    public ElectionCycle getLastElectionCycle() {
+        return cycle;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ElectionCycle runElection(boolean relinquish) {
+        final boolean wasLeader = currentlyAmLeader;
+        cycle.begin(clock.currentTimeMillis(), clock.nanoTime());
+        final long firstRound = ++round;
+
+        List<Member> all = new ArrayList<>(members.length);
+        for (Member member : members) {
+            all.add(member);
+        }
+        int started = start(all, relinquish);
+        if (relinquish) {
+            await(started, started, 0, m -> true);
+            currentlyAmLeader = false;
+            setOutcome(false, wasLeader, firstRound);
+            return cycle;
+        }
+        List<Member> held = filter(await(started, majority, majority, this::holds), this::holds);
+
+        // Databases which completed too late to count (in this or an
+        // earlier round) are included as well so that the floor is not 
+        // decided by the fastest databases only.
+        long floor = leaseCounterFloor;
+        for (Member member : members) {
+            floor = Math.max(floor, member.heldLeaseCounter);
+        }
+        leaseCounterFloor = floor;
+        final long target = floor;
+        List<Member> belowTarget = filter(held, m -> leaseCounterOf(m) < target);
+        int agreeing = held.size() - belowTarget.size();
+
+        if (held.size() >= majority && agreeing < majority) {
+            // Second round: bring the lease counter up to the floor
+            round++;
+            started = start(belowTarget, false);
+            agreeing += filter(await(started, majority - agreeing, 0, m -> holdsWith(m, target)), m -> holdsWith(m, target)).size();
+        } else if (!held.isEmpty() && held.size() < majority && heldBySomeoneElse(firstRound)) {
+            // Split vote. The outcome of this is not waited for.
+            round++;
+            start(held, true);
+        }
+
+        boolean leader = (agreeing >= majority);
+        currentlyAmLeader = leader;
+        if (wasLeader && !leader) {
+            // Leadership must be re-assumed with a new lease counter
+            for (Member member : members) {
+                member.elect.revokeLocally();
+            }
+        }
+        setOutcome(leader, wasLeader, firstRound);
+        return cycle;
+    }
+
+    private void setOutcome(boolean leader, boolean wasLeader, long firstRound) {
+        List<Member> responded = new ArrayList<>(members.length);
+        for (Member member : members) {
+            if (!member.busy && member.completedRound >= firstRound) {
+                responded.add(member);
+            }
+        }
+        reportHealth(responded);
+
+        if (leader) {
+            long lastSeenMillis = 0;
+            long[] leaseAges = new long[responded.size()];
+            int holding = 0;
+            for (Member member : responded) {
+                if (holdsWith(member, leaseCounterFloor)) {
+                    ElectionCycle memberCycle = member.elect.getLastElectionCycle();
+                    lastSeenMillis = Math.max(lastSeenMillis, memberCycle.getLastSeenTimestampMillis());
+                    leaseAges[holding++] = memberCycle.getLeaseAgeMillis();
+                }
+            }
+            EventType eventType = (wasLeader && leaseCounter == leaseCounterFloor) 
+                    ? EventType.LEADERSHIP_CONFIRMED 
+                    : EventType.LEADERSHIP_ASSUMED;
+            leaseCounter = leaseCounterFloor;
+            cycle.set(eventType, myCandidateId, lastSeenMillis, leaseCounter, clock.currentTimeMillis());
+            // Leadership lasts as long as the lease in a majority, so the 
+            // age which matters is the majority'th youngest.
+            if (holding >= majority) {
+                Arrays.sort(leaseAges, 0, holding);
+                cycle.setLeaseAgeMillis(leaseAges[majority - 1]);
+            }
+            return;
+        }
+        leaseCounter = -1;
+        
+        List<Member> ok = filter(responded, m -> !hasErrors(m));
+        if (ok.size() < majority) {
+            EventHelpers.ErrorEventsBuilder errors = new EventHelpers.ErrorEventsBuilder();
+            for (Member member : responded) {
+                if (member.exception != null) {
+                    errors.add(new LeaderElectorExceptionNonRecoverable(member.exception));
+                } else if (member.elect.getLastElectionCycle().hasErrors()) {
+                    errors.addAll(member.elect.getLastElectionCycle().getErrors());
+                }
+            }
+            errors.add(new LeaderElectorExceptionRecoverable("Only " + ok.size() + " of " 
+                    + members.length + " databases completed the election"));
+            cycle.setErrors(errors, wasLeader, clock.currentTimeMillis());
+            return;
+        }
+
+        // The candidate which holds the lease in the most databases
+        ElectionCycle best = null;
+        int bestCount = 0;
+        for (Member member : ok) {
+            ElectionCycle memberCycle = member.elect.getLastElectionCycle();
+            int count = 0;
+            for (Member other : ok) {
+                if (sameCandidate(memberCycle, other.elect.getLastElectionCycle())) {
+                    count++;
+                }
+            }
+            if (count > bestCount) {
+                best = memberCycle;
+                bestCount = count;
+            }
+        }
+        cycle.set((wasLeader) ? EventType.LEADERSHIP_LOST : EventType.LEADERSHIP_NOOP,
+                best.getCandidateId(), best.getLastSeenTimestampMillis(), best.getLeaseCounter(), 
+                clock.currentTimeMillis());
+        cycle.setCandidateEndpoint(best.getCandidateEndpoint());
+    }
+
+    /**
+     * Starts the election in those of the given databases which are not 
+     * busy with an earlier election.
+     * @return number of elections started
+     */
+    private int start(List<Member> toStart, boolean relinquish) {
+        final long thisRound = round;
+        final long floor = leaseCounterFloor;
+        int started = 0;
+        for (Member member : toStart) {
+            if (member.busy) {
+                continue;
+            }
+            member.busy = true;
+            try {
+                executor.execute(() -> {
+                    RuntimeException exception = null;
+                    long heldLeaseCounter = Long.MIN_VALUE;
+                    try {
+                        member.elect.setLeaseCounterFloor(floor);
+                        if (member.elect.runElection(relinquish).hasErrors()) {
+                            // Don't continue with the same lease if the
+                            // database comes back, see revokeLocally().
+                            member.elect.revokeLocally();
+                        } else if (member.elect.isLeader()) {
+                            heldLeaseCounter = member.elect.getLastElectionCycle().getLeaseCounter();
+                        }
+                    } catch (RuntimeException ex) {
+                        exception = ex;
+                        member.elect.revokeLocally();
+                    }
+                    member.exception = exception;
+                    member.heldLeaseCounter = heldLeaseCounter;
+                    member.completedRound = thisRound;
+                    member.busy = false;
+                    completions.add(member);
+                });
+                started++;
+            } catch (RejectedExecutionException ex) {
+                member.busy = false;   // closing down
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Waits for the elections started in the current round until 
+     * {@code needed} of them have an outcome which satisfies {@code success},
+     * or until that is no longer possible and {@code neededWithoutErrors} 
+     * of them have completed without errors (so that the outcome can
+     * be determined).
+     * @return the databases which completed
+     */
+    private List<Member> await(int started, int needed, int neededWithoutErrors, Predicate<Member> success) {
+        List<Member> completed = new ArrayList<>(started);
+        int successes = 0;
+        int withoutErrors = 0;
+        while (completed.size() < started && successes < needed
+                && (successes + (started - completed.size()) >= needed || withoutErrors < neededWithoutErrors)) {
+            Member member;
+            try {
+                member = completions.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (member.completedRound != round) {
+                continue;   // from an earlier round
+            }
+            completed.add(member);
+            if (success.test(member)) {
+                successes++;
+            }
+            if (!hasErrors(member)) {
+                withoutErrors++;
+            }
+        }
+        return completed;
+    }
+
+    private boolean heldBySomeoneElse(long firstRound) {
+        for (Member member : members) {
+            if (!member.busy && member.completedRound >= firstRound && !hasErrors(member)) {
+                ElectionCycle memberCycle = member.elect.getLastElectionCycle();
+                if (memberCycle.getEventType() == EventType.LEADERSHIP_NOOP
+                        && memberCycle.getCandidateId() != null
+                        && !memberCycle.getCandidateId().equals(myCandidateId)
+                        && !memberCycle.getCandidateId().equals(NO_LEADER_CANDIDATE_ID)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void reportHealth(List<Member> responded) {
+        for (Member member : responded) {
+            boolean failing = hasErrors(member);
+            if (failing && !member.failing) {
+                Throwable cause = (member.exception != null) 
+                        ? member.exception 
+                        : member.elect.getLastElectionCycle().getErrors().toArray()[0].getError();
+                logger.logError(this.getClass(), "Election failed in database #" + (member.index + 1) 
+                        + " of " + members.length, cause);
+            } else if (!failing && member.failing) {
+                logger.logInfo(this.getClass(), "Election succeeded again in database #" + (member.index + 1)
+                        + " of " + members.length);
+            }
+            member.failing = failing;
+        }
+    }
+
+    private boolean holds(Member member) {
+        if (hasErrors(member)) {
+            return false;
+        }
+        EventType eventType = member.elect.getLastElectionCycle().getEventType();
+        return eventType == EventType.LEADERSHIP_ASSUMED || eventType == EventType.LEADERSHIP_CONFIRMED;
+    }
+
+    private boolean holdsWith(Member member, long leaseCounter) {
+        return holds(member) && leaseCounterOf(member) == leaseCounter;
+    }
+
+    private static long leaseCounterOf(Member member) {
+        return member.elect.getLastElectionCycle().getLeaseCounter();
+    }
+
+    private static boolean hasErrors(Member member) {
+        return member.exception != null || member.elect.getLastElectionCycle().hasErrors();
+    }
+
+    private static boolean sameCandidate(ElectionCycle c1, ElectionCycle c2) {
+        return (c1.getCandidateId() == null) 
+                ? c2.getCandidateId() == null 
+                : c1.getCandidateId().equals(c2.getCandidateId());
+    }
+
+    private static List<Member> filter(List<Member> list, Predicate<Member> predicate) {
+        List<Member> result = new ArrayList<>(list.size());
+        for (Member member : list) {
+            if (predicate.test(member)) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One of the databases. 
+     */
+    private static class Member {
+        private final int index;
+        private final SQLLeaderElect elect;
+        
+        // Set by the election thread when an election is started and
+        // cleared by the worker thread when it has completed. While set,
+        // 'elect' must not be touched by the election thread.
+        private volatile boolean busy = false;
+        
+        // Written by the worker thread before 'busy' is cleared
+        private volatile long completedRound = 0;
+        private volatile RuntimeException exception;
+        private volatile long heldLeaseCounter = Long.MIN_VALUE;  // when it completed holding the lease
+        
+        private boolean failing = false;   // election thread only
+
+        Member(int index, SQLLeaderElect elect) {
+            this.index = index;
+            this.elect = elect;
+        }
+    }
+}
@@ -22,6 +22,11 @@ import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_CANDIDATE_ID;
 
 /**
  * Represents a row read from the leader election table.
+ *
+ * <p>
+ * An instance can be re-used for subsequent reads by calling
+ * {@link #read(java.sql.ResultSet)}. This is what the election process
+ * does so that a steady-state election cycle doesn't need to allocate.
  */
 public class RowInLeaderElectionTable {
 
@@ -34,17 +39,48 @@ public class RowInLeaderElectionTable {
         NOBODY
     }
 
-    private final String candidateId;
-    private final long lastSeenTimestampMillis;
-    private final long nowUTCMillis;
-    private final long leaseCounter;
-    private final CurrentLeaderDbStatus currentLeaderDbStatus;
+    private final String ownCandidateId;
+    private String candidateId;
+    private long lastSeenTimestampMillis;
+    private long nowUTCMillis;
+    private long leaseCounter;
+    private String candidateEndpoint;
+    private CurrentLeaderDbStatus currentLeaderDbStatus;
+
+    /**
+     * Creates an empty (not yet read) row.
+     * @param ownCandidateId candidate id of the current candidate
+     */
+    public RowInLeaderElectionTable(String ownCandidateId) {
+        this.ownCandidateId = ownCandidateId;
+    }
 
     public RowInLeaderElectionTable(ResultSet rs, String ownCandidateId) throws SQLException {
+        this(ownCandidateId);
+        read(rs);
+    }
+
+    /**
+     * Populates this object from the current row of the ResultSet, 
+     * overwriting any previous values.
+     */
+    public void read(ResultSet rs) throws SQLException {
+        read(rs, false);
+    }
+
+    /**
+     * Populates this object from the current row of the ResultSet, 
+     * overwriting any previous values.
+     * @param rs
+     * @param withEndpoint if the ResultSet has the (optional) 
+     *    {@code CANDIDATE_ENDPOINT} column
+     */
+    public void read(ResultSet rs, boolean withEndpoint) throws SQLException {
         this.candidateId = rs.getString(1);                  // Column: CANDIDATE_ID
         this.lastSeenTimestampMillis = rs.getLong(2);        // Column: LAST_SEEN_TIMESTAMP
         this.nowUTCMillis = rs.getLong(3);                   // Column: <calculated column, constructed DB time>
         this.leaseCounter = rs.getLong(4);                   // Column: LEASE_COUNTER
+        this.candidateEndpoint = (withEndpoint) ? rs.getString(5) : null;  // Column: CANDIDATE_ENDPOINT
         this.currentLeaderDbStatus = calcCurrentLeaderDbStatus(ownCandidateId);
     }
 
@@ -64,6 +100,14 @@ public class RowInLeaderElectionTable {
         return leaseCounter;
     }
 
+    /**
+     * Endpoint of the candidate in {@link #getCandidateId()}, if any.
+     * Always {@code null} if the table has no endpoint column.
+     */
+    public String getCandidateEndpoint() {
+        return candidateEndpoint;
+    }
+
     public CurrentLeaderDbStatus getCurrentLeaderDbStatus() {
         return currentLeaderDbStatus;
     }
@@ -87,6 +131,7 @@ public class RowInLeaderElectionTable {
                 + "CANDIDATE_ID=" + candidateId 
                 + ", LAST_SEEN_TIMESTAMP=" + lastSeenTimestampMillis + " (" + lastSeenTimestampInstant + ")"
                 + ", LEASE_COUNTER=" + leaseCounter 
+                + ", CANDIDATE_ENDPOINT=" + candidateEndpoint 
                 + ", nowUTCMillis=" + nowUTCMillis+ " (" + nowUTCInstant + ")"
                 + ", (calculated) currentLeaderBbStatus=" + currentLeaderDbStatus
                 + "}";
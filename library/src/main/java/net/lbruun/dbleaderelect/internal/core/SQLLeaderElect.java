@@ -21,7 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLRecoverableException;
 import java.sql.SQLTransientException;
-import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
 import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_LASTSEENTIMESTAMP_MS;
 import net.lbruun.dbleaderelect.internal.events.EventHelpers;
@@ -32,17 +32,32 @@ import net.lbruun.dbleaderelect.internal.sql.SQLCmds;
 import net.lbruun.dbleaderelect.LeaderElectorListener;
 import net.lbruun.dbleaderelect.exception.LeaderElectorException;
 import net.lbruun.dbleaderelect.internal.core.RowInLeaderElectionTable.CurrentLeaderDbStatus;
+import net.lbruun.dbleaderelect.internal.utils.ConnectionAcquirer;
 import net.lbruun.dbleaderelect.internal.utils.SQLUtils;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
 
 /**
  *
  */
-public class SQLLeaderElect {
+public class SQLLeaderElect implements LeaderElect {
+
+    // Number of samples taken each time the database clock is sampled
+    private static final int DB_CLOCK_SAMPLES = 3;
+    
+    // Number of consecutive elections which may find the row locked (when
+    // not waiting for the lock) before we wait for it.
+    private static final int MAX_CONSECUTIVE_ROW_LOCKED = 3;
 
     private final LeaderElectorConfiguration configuration;
-    private final SQLCmds sqlCmds;
+    private SQLCmds sqlCmds;
     private volatile boolean currentlyAmLeader = false;
+    
+    // Set when leadership has been given up locally (by the watchdog) 
+    // without touching the database. The table may then still say that
+    // we are leader.
+    private volatile boolean revokedLocally = false;
     private int noOfConsecutiveTransientErrors = 0;
+    private int noOfConsecutiveRowLocked = 0;
     private volatile boolean hasHadSuccessfulExection = false;
     
     // Used to keep track of relinquish invocations. If we've volunatarily
@@ -54,20 +69,154 @@ public class SQLLeaderElect {
     private final String myRoleId;
     private final String myCandidateId;
     private final DataSource dataSource;
+    
+    // Connections for elections, obtained with a deadline. Only ever 
+    // accessed from the election thread.
+    private final ConnectionAcquirer connections;
+    private final ConnectionAcquirer replicaConnections;   // null if not used
     private final String tableNameDisplay;
+    private final ElectionClock clock;
+    
+    // Re-used for every cycle so that the steady-state path doesn't allocate.
+    // Only ever accessed from the election thread.
+    private final ElectionCycle cycle;
+    private final RowInLeaderElectionTable row;
+    // What was last read from the read replica. Kept apart from 'row' as a 
+    // rejected replica read must not become what the primary was last seen with.
+    private final RowInLeaderElectionTable replicaRow;   // null if not used
+    
+    // State of the lease we hold, as of the last renewal. Only used for
+    // the renewal fast path. Only ever accessed from the election thread.
+    private final long fastPathMaxLeaseAgeNanos;
+    private long myLeaseCounter;
+    private long lastRenewalNanos;
+    private long lastRenewalDbMillis;   // estimate of database time at last renewal
+    
+    // Estimate of the database clock and the lease last observed for another
+    // candidate. Only used for letting a follower skip elections while that
+    // lease has certainly not expired. Only ever accessed from the election thread.
+    private final DbClock dbClock;      // null if not enabled
+    private String observedLeader;      // null if there's no lease to rely on
+    private long observedLastSeenMillis;
+    private long observedLeaseCounter;
+    private String observedEndpoint;
+    
+    // Lease counter last seen on the primary while another candidate was 
+    // leader. A replica showing an older lease counter is lagging behind.
+    // Only ever accessed from the election thread.
+    private long primaryLeaseCounter = Long.MIN_VALUE;
+    
+    // Lowest lease counter to hold the lease with. See setLeaseCounterFloor().
+    // Only ever accessed from the election thread.
+    private long leaseCounterFloor = Long.MIN_VALUE;
 
     public SQLLeaderElect(LeaderElectorConfiguration configuration, DataSource dataSource, String tableNameDisplay) {
+        this(configuration, dataSource, null, tableNameDisplay);
+    }
+
+    /**
+     * @param configuration
+     * @param dataSource the primary database
+     * @param replicaDataSource read replica of the primary database, used
+     *     for polling while not leader. May be {@code null}.
+     * @param tableNameDisplay 
+     */
+    public SQLLeaderElect(LeaderElectorConfiguration configuration, DataSource dataSource, DataSource replicaDataSource, String tableNameDisplay) {
+        this(configuration, dataSource, replicaDataSource, tableNameDisplay, ElectionClock.SYSTEM);
+    }
+
+    /**
+     * @param configuration
+     * @param dataSource the primary database
+     * @param replicaDataSource read replica of the primary database, used
+     *     for polling while not leader. May be {@code null}.
+     * @param tableNameDisplay 
+     * @param clock source of local time, {@link ElectionClock#SYSTEM} 
+     *     except in tests
+     */
+    public SQLLeaderElect(LeaderElectorConfiguration configuration, DataSource dataSource, DataSource replicaDataSource, 
+            String tableNameDisplay, ElectionClock clock) {
+        this.clock = clock;
         this.dataSource = dataSource;
+        // A derived timeout is only applied where it is free (HikariCP)
+        boolean hikariOnly = !configuration.isConnectionAcquireTimeoutMsExplicit();
+        this.connections = new ConnectionAcquirer(dataSource, configuration.getConnectionAcquireTimeoutMs(), hikariOnly);
+        this.replicaConnections = (replicaDataSource != null)
+                ? new ConnectionAcquirer(replicaDataSource, configuration.getConnectionAcquireTimeoutMs(), hikariOnly)
+                : null;
         this.configuration = configuration;
         this.myRoleId = configuration.getRoleId();
         this.myCandidateId = configuration.getCandidateId();
         this.sqlCmds = SQLCmds.getSQL(configuration);
         this.tableNameDisplay = tableNameDisplay;
+        this.cycle = new ElectionCycle(myRoleId);
+        this.row = new RowInLeaderElectionTable(myCandidateId);
+        this.replicaRow = (replicaDataSource != null) ? new RowInLeaderElectionTable(myCandidateId) : null;
+        // Half-way between when the renewal is due and when the lease
+        // expires. The time since the last renewal is normally intervalMs
+        // plus the duration of the previous cycle.
+        this.fastPathMaxLeaseAgeNanos = (configuration.isRenewalFastPath())
+                ? TimeUnit.MILLISECONDS.toNanos((configuration.getIntervalMs() + configuration.getAssumeDeadMs()) / 2)
+                : 0;
+        this.dbClock = (configuration.getDbClockSampleIntervalMs() > 0)
+                ? new DbClock(configuration.getDbClockSampleIntervalMs())
+                : null;
     }
     
+    @Override
     public boolean isLeader() {
         return currentlyAmLeader;
     }
+
+    /**
+     * Sets the lowest lease counter with which to hold the lease. When 
+     * assuming leadership the lease counter becomes the larger of the 
+     * floor and the usual next value. If the lease is already held with
+     * a lower lease counter, the next election re-assumes leadership with
+     * the floor as lease counter (outcome
+     * {@link LeaderElectorListener.EventType#LEADERSHIP_ASSUMED LEADERSHIP_ASSUMED}).
+     * Must only be invoked from the election thread.
+     * 
+     * @param leaseCounterFloor 
+     */
+    public void setLeaseCounterFloor(long leaseCounterFloor) {
+        this.leaseCounterFloor = leaseCounterFloor;
+    }
+
+    /**
+     * Sets if the leader election table has the (optional) 
+     * {@code candidate_endpoint} column. By default it is assumed that it 
+     * has. Must be invoked before the first election.
+     * 
+     * @param endpointColumn 
+     */
+    public void setEndpointColumn(boolean endpointColumn) {
+        if (endpointColumn != sqlCmds.hasEndpointColumn()) {
+            sqlCmds = SQLCmds.getSQL(configuration, endpointColumn);
+        }
+    }
+
+    /**
+     * Gives up leadership locally without touching the database. The next
+     * election will re-assume leadership with a new lease counter if the
+     * candidate still holds the lease. Can be called from any thread.
+     */
+    @Override
+    public void revokeLocally() {
+        revokedLocally = true;
+        currentlyAmLeader = false;
+    }
+
+    /**
+     * Gets the outcome of the most recent election. Must only be called
+     * from the thread which executes elections.
+     * @return outcome of last election, event type is {@code null} if no 
+     *     election has yet been executed
+     */
+    @Override
+    public ElectionCycle getLastElectionCycle() {
+        return cycle;
+    }
     
     
     public void ensureTable() throws SQLException {
@@ -88,11 +237,41 @@ public class SQLLeaderElect {
                     if (!sqlCmds.isTableAlreadyExistException(ex)) {
                         throw ex;
                     }
+                    // Created by someone else, who also sets storage options
+                    return;
+                }
+                for (String sql : sqlCmds.getAfterCreateTableSQL()) {
+                    try (PreparedStatement stmt = connnection.prepareStatement(sql)) {
+                        stmt.execute();
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Creates the job table if it doesn't already exist.
+     */
+    public void ensureJobTable() throws SQLException {
+        try (Connection connnection = this.dataSource.getConnection()) {
+            if (!SQLUtils.tableExists(connnection, configuration.getSchemaName(), configuration.getJobTableName())) {
+                configuration.getLeaderElectorLogger().logInfo(this.getClass(), "Creating table " + sqlCmds.getJobTabName());
+                try (PreparedStatement createTableStmt = sqlCmds.getCreateJobTableStmt(connnection)) {
+                    createTableStmt.execute();
+                } catch (SQLException ex) {
+                    // See ensureTable()
+                    if (!sqlCmds.isTableAlreadyExistException(ex)) {
+                        throw ex;
+                    }
                 }
             }
         }
     }
     
+    public SQLCmds getSqlCmds() {
+        return sqlCmds;
+    }
+    
     public void ensureRoleRow() throws SQLException {
         try (Connection connnection = this.dataSource.getConnection()) {
             try (PreparedStatement p = sqlCmds.getInsertRoleStmt(connnection, this.configuration.getRoleId())) {
@@ -114,7 +293,8 @@ public class SQLLeaderElect {
     
     private void assumeLeadership(Connection connection, String roleId, String candidateId, long newLeaseCounter) 
             throws SQLException, LeaderElectorExceptionNonRecoverable {
-        try (PreparedStatement pstmt = sqlCmds.getAssumeLeadershipStmt(connection, roleId, candidateId, newLeaseCounter)) {
+        try (PreparedStatement pstmt = sqlCmds.getAssumeLeadershipStmt(connection, roleId, candidateId, 
+                newLeaseCounter, configuration.getCandidateEndpoint())) {
             executeUpdate(pstmt);
         }
     }
@@ -126,45 +306,133 @@ public class SQLLeaderElect {
         }
     }
     
+    private Connection acquireConnection() throws SQLException {
+        long startNanos = clock.nanoTime();
+        Connection connection = connections.getConnection();
+        cycle.addPhaseNanos(ElectionPhase.CONNECTION_ACQUIRE, clock.nanoTime() - startNanos);
+        return connection;
+    }
+
+    private ResultSet executeSelect(PreparedStatement pstmt) throws SQLException {
+        long startNanos = clock.nanoTime();
+        ResultSet rs = pstmt.executeQuery();
+        cycle.addPhaseNanos(ElectionPhase.SELECT, clock.nanoTime() - startNanos);
+        return rs;
+    }
+
     private void executeUpdate(PreparedStatement pstmt) 
             throws SQLException, LeaderElectorExceptionNonRecoverable {
+        long startNanos = clock.nanoTime();
         int rowsAffected = pstmt.executeUpdate();
+        cycle.addPhaseNanos(ElectionPhase.UPDATE, clock.nanoTime() - startNanos);
         if (rowsAffected != 1) {
             throw new LeaderElectorExceptionNonRecoverable(rowsAffected + " rows was affected by UPDATE statement. Expected exactly 1 (one) row to be affected.");
         }
     }
     
     private long getNewLeaseCounter(long existingLeaseCounter) {
-        return (existingLeaseCounter == Long.MAX_VALUE) ? 0 : existingLeaseCounter + 1;
+        long next = (existingLeaseCounter == Long.MAX_VALUE) ? 0 : existingLeaseCounter + 1;
+        return Math.max(next, leaseCounterFloor);
     }
     
+    /**
+     * Executes a leader election and returns the outcome as an event.
+     * Convenience for {@link #runElection(boolean)} followed by
+     * {@link ElectionCycle#toEvent()}.
+     */
     public LeaderElectorListener.Event electLeader(boolean relinquish) {
+        return runElection(relinquish).toEvent();
+    }
+
+    /**
+     * Executes a leader election. 
+     * 
+     * <p>
+     * The returned object is owned by this class and is overwritten by the 
+     * next invocation. It must therefore be consumed before this method
+     * is invoked again.
+     * 
+     * @param relinquish if current leadership (if any) should be given up
+     * @return outcome of the election
+     */
+    @Override
+    public ElectionCycle runElection(boolean relinquish) {
         boolean wasLeaderAtStartOfElection = currentlyAmLeader;
         EventHelpers.ErrorEventsBuilder errorHolder = null;   // holds errors
-        LeaderElectorListener.Event event = null;   // holds non-error events
-        Instant startTime = Instant.now();
+        cycle.begin(clock.currentTimeMillis(), clock.nanoTime());
 
-        try ( Connection connection = dataSource.getConnection()) {
+        if (!relinquish && wasLeaderAtStartOfElection && !revokedLocally
+                && myLeaseCounter >= leaseCounterFloor
+                && (cycle.getStartNanos() - lastRenewalNanos) < fastPathMaxLeaseAgeNanos) {
+            if (renewLease()) {
+                return cycle;
+            }
+            // Otherwise the lease was not matched: fall through to the 
+            // full election
+        }
+        
+        if (!relinquish && !wasLeaderAtStartOfElection && observedLeader != null) {
+            if (observedLeaseCertainlyValid()) {
+                cycle.set(LeaderElectorListener.EventType.LEADERSHIP_NOOP, observedLeader, observedLastSeenMillis, observedLeaseCounter, clock.currentTimeMillis());
+                cycle.setCandidateEndpoint(observedEndpoint);
+                return cycle;
+            }
+            observedLeader = null;
+        }
+        
+        if (!relinquish && !wasLeaderAtStartOfElection && replicaConnections != null) {
+            if (leaseValidOnReplica()) {
+                cycle.set(LeaderElectorListener.EventType.LEADERSHIP_NOOP, replicaRow.getCandidateId(), replicaRow.getLastSeenTimestampMillis(), replicaRow.getLeaseCounter(), clock.currentTimeMillis());
+                cycle.setCandidateEndpoint(replicaRow.getCandidateEndpoint());
+                hasRelinquishedLeadership = false; // Reset because another candidate holds leadership
+                observeOtherLeader(replicaRow);
+                return cycle;
+            }
+            // Otherwise fall through to the full election on the primary
+        }
+
+        try ( Connection connection = acquireConnection()) {
             boolean originalAutoCommit = connection.getAutoCommit();
             connection.setAutoCommit(false);
 
-            try ( PreparedStatement preparedStatement = sqlCmds.getSelectStmt(connection, myRoleId)) {
+            // A follower may give up if the row is locked. This requires that 
+            // we've read the row before, as the outcome is based on it.
+            final boolean noWait = configuration.isFollowerNoWait()
+                    && !wasLeaderAtStartOfElection && !relinquish
+                    && row.getCandidateId() != null
+                    && noOfConsecutiveRowLocked < MAX_CONSECUTIVE_ROW_LOCKED;
+            try ( PreparedStatement preparedStatement = (noWait) 
+                    ? sqlCmds.getSelectNoWaitStmt(connection, myRoleId) 
+                    : sqlCmds.getSelectStmt(connection, myRoleId)) {
                 // Set a timeout. We do not wish to wait for the database lock forever.
                 preparedStatement.setQueryTimeout(configuration.getQueryTimeoutSecs());
 
-                try ( ResultSet rs = preparedStatement.executeQuery()) {
-                    event = executeInsideTableLock(connection, rs, wasLeaderAtStartOfElection, relinquish);
+                boolean rowLocked;
+                try ( ResultSet rs = executeSelect(preparedStatement)) {
+                    rowLocked = !executeInsideTableLock(connection, rs, wasLeaderAtStartOfElection, relinquish, noWait);
+                } catch (SQLException ex) {
+                    if (noWait && sqlCmds.isLockNotAvailableException(ex)) {
+                        rowLocked = true;
+                    } else {
+                        throw ex;
+                    }
                 }
-                connection.commit(); // release table lock
-                noOfConsecutiveTransientErrors = 0;  // reset
-            } catch (SQLTransientException | SQLRecoverableException ex) {
-                noOfConsecutiveTransientErrors++;
-                if (noOfConsecutiveTransientErrors == 3) {
-                    noOfConsecutiveTransientErrors = 0;
-                    errorHolder = addError(errorHolder, new LeaderElectorExceptionNonRecoverable(ex));
+                if (rowLocked) {
+                    // Another candidate is active. Nothing has changed as far
+                    // as we know.
+                    connection.rollback();
+                    noOfConsecutiveRowLocked++;
+                    cycle.set(LeaderElectorListener.EventType.LEADERSHIP_NOOP, row.getCandidateId(), row.getLastSeenTimestampMillis(), row.getLeaseCounter(), clock.currentTimeMillis());
+                    cycle.setCandidateEndpoint(row.getCandidateEndpoint());
                 } else {
-                    errorHolder = addError(errorHolder, new LeaderElectorExceptionRecoverable(ex));
+                    long commitStartNanos = clock.nanoTime();
+                    connection.commit(); // release table lock
+                    cycle.addPhaseNanos(ElectionPhase.COMMIT, clock.nanoTime() - commitStartNanos);
+                    noOfConsecutiveRowLocked = 0;
                 }
+                noOfConsecutiveTransientErrors = 0;  // reset
+            } catch (SQLTransientException | SQLRecoverableException ex) {
+                errorHolder = addTransientError(errorHolder, ex);
             } catch (Exception ex) {
                 errorHolder = addError(errorHolder, new LeaderElectorExceptionNonRecoverable(ex));
                 try {
@@ -196,25 +464,227 @@ public class SQLLeaderElect {
 
         if (errorHolder != null) {
             currentlyAmLeader = false;
-            return errorHolder.build(startTime, wasLeaderAtStartOfElection, myRoleId);
-        } else if (event != null) {
+            resetDbClock();
+            cycle.setErrors(errorHolder, wasLeaderAtStartOfElection, clock.currentTimeMillis());
+            return cycle;
+        } else if (cycle.hasOutcome()) {
             if (!hasHadSuccessfulExection) {
                 hasHadSuccessfulExection = true;
             }
-            return event;
+            if (currentlyAmLeader && (cycle.getEventType() == LeaderElectorListener.EventType.LEADERSHIP_ASSUMED
+                    || cycle.getEventType() == LeaderElectorListener.EventType.LEADERSHIP_CONFIRMED)) {
+                myLeaseCounter = cycle.getLeaseCounter();
+                lastRenewalNanos = cycle.getStartNanos();
+                lastRenewalDbMillis = row.getNowUTCMillis();
+            }
+            if (cycle.getEventType() == LeaderElectorListener.EventType.LEADERSHIP_NOOP
+                    && row.getCurrentLeaderDbStatus() == CurrentLeaderDbStatus.SOMEONE_ELSE) {
+                primaryLeaseCounter = row.getLeaseCounter();
+                observeOtherLeader(row);
+            }
+            return cycle;
         }
 
         // Sanity check (we should not get here)
         throw new RuntimeException("Unexpected event. Neither 'event' nor 'errorHolder' has a value");
     }
 
-    private LeaderElectorListener.Event executeInsideTableLock(
+    /**
+     * Renewal fast path: renews the lease with a single UPDATE in autocommit
+     * mode, without the locking SELECT. The UPDATE only matches if we still
+     * hold the lease with the same lease counter.
+     * 
+     * <p>
+     * Errors are reported as the outcome of the cycle, in the same way as
+     * by the full election. They do not lead to the full election: that 
+     * would obtain a connection a second time, which during an outage
+     * means waiting for it twice.
+     * 
+     * @return true if the cycle has an outcome (the lease was renewed, or 
+     *     there was an error), false if the UPDATE didn't match and the 
+     *     full election must be executed
+     */
+    private boolean renewLease() {
+        EventHelpers.ErrorEventsBuilder errorHolder = null;
+        long updateStartNanos = 0;
+        long updateEndNanos = 0;
+        try (Connection connection = acquireConnection()) {
+            boolean originalAutoCommit = connection.getAutoCommit();
+            if (!originalAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+            try (PreparedStatement pstmt = sqlCmds.getRenewLeadershipStmt(connection, myRoleId, myCandidateId, myLeaseCounter)) {
+                pstmt.setQueryTimeout(configuration.getQueryTimeoutSecs());
+                updateStartNanos = clock.nanoTime();
+                int rowsAffected = pstmt.executeUpdate();
+                updateEndNanos = clock.nanoTime();
+                cycle.addPhaseNanos(ElectionPhase.UPDATE, updateEndNanos - updateStartNanos);
+                if (rowsAffected == 0) {
+                    return false;
+                }
+            } catch (SQLTransientException | SQLRecoverableException ex) {
+                errorHolder = addTransientError(errorHolder, ex);
+            } catch (SQLException ex) {
+                errorHolder = addError(errorHolder, new LeaderElectorExceptionNonRecoverable(ex));
+            } finally {
+                if (!originalAutoCommit) {
+                    connection.setAutoCommit(false);
+                }
+            }
+        } catch (SQLTransientException ex) {
+            // Errors obtaining a connection. As the leader has renewed 
+            // before, this is never the first connection.
+            errorHolder = addError(errorHolder, new LeaderElectorExceptionRecoverable("No longer able to connect to database", ex));
+        } catch (SQLException ex) {
+            errorHolder = addError(errorHolder, new LeaderElectorExceptionNonRecoverable(ex));
+        }
+        if (errorHolder != null) {
+            currentlyAmLeader = false;
+            resetDbClock();
+            cycle.setErrors(errorHolder, true, clock.currentTimeMillis());
+            return true;
+        }
+        // The previous 'last seen' is our own previous renewal. We do not 
+        // read it from the database, so it is estimated. The database stamps
+        // the lease somewhere between the start of an UPDATE and its return,
+        // so the age of the lease when it was renewed is at most the time 
+        // from the start of the previous renewal until this UPDATE returned.
+        // That includes obtaining the connection and the UPDATE itself.
+        long previousLastSeenMillis = lastRenewalDbMillis;
+        cycle.setLeaseAgeMillis(TimeUnit.NANOSECONDS.toMillis(updateEndNanos - lastRenewalNanos));
+        lastRenewalDbMillis += TimeUnit.NANOSECONDS.toMillis(updateStartNanos - lastRenewalNanos);
+        lastRenewalNanos = updateStartNanos;
+        noOfConsecutiveTransientErrors = 0;
+        cycle.set(LeaderElectorListener.EventType.LEADERSHIP_CONFIRMED, myCandidateId, previousLastSeenMillis, myLeaseCounter, clock.currentTimeMillis());
+        return true;
+    }
+
+    // Records the lease held by another candidate, as just read,
+    // for use by observedLeaseCertainlyValid()
+    private void observeOtherLeader(RowInLeaderElectionTable source) {
+        if (dbClock != null) {
+            observedLeader = source.getCandidateId();
+            observedLastSeenMillis = source.getLastSeenTimestampMillis();
+            observedLeaseCounter = source.getLeaseCounter();
+            observedEndpoint = source.getCandidateEndpoint();
+        }
+    }
+
+    /**
+     * Reads the row from the read replica, without locking, and decides if 
+     * another candidate's lease is valid with a margin of 
+     * {@code replicaMaxLagMs}. If so, the election on the primary can be
+     * skipped as its outcome would be {@code LEADERSHIP_NOOP}.
+     * 
+     * <p>
+     * A replica which is behind can only make the lease look older than it 
+     * is, which at worst sends us to the primary. The margin covers the
+     * difference between the clocks of the replica and the primary. 
+     * Anything unexpected, including errors, also sends us to the primary.
+     * 
+     * @return true if the lease is valid, in which case 'replicaRow' holds
+     *     what was read from the replica.
+     */
+    private boolean leaseValidOnReplica() {
+        try (Connection connection = replicaConnections.getConnection();
+                PreparedStatement pstmt = sqlCmds.getSelectNoLockStmt(connection, myRoleId)) {
+            pstmt.setQueryTimeout(configuration.getQueryTimeoutSecs());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                replicaRow.read(rs, sqlCmds.hasEndpointColumn());
+            }
+        } catch (SQLException ex) {
+            return false;
+        }
+        if (replicaRow.getCurrentLeaderDbStatus() != CurrentLeaderDbStatus.SOMEONE_ELSE 
+                || replicaRow.getLeaseCounter() < primaryLeaseCounter) {
+            // Someone's lease has expired, or the replica is behind what we've
+            // already seen on the primary.
+            return false;
+        }
+        long leaseAgeMillis = replicaRow.getNowUTCMillis() - replicaRow.getLastSeenTimestampMillis();
+        return (leaseAgeMillis + configuration.getReplicaMaxLagMs()) < configuration.getAssumeDeadMs();
+    }
+
+    /**
+     * Decides, without querying the leader election table, if the lease 
+     * last observed for another candidate has certainly not expired. The
+     * lease is considered valid only if it hasn't expired even at the latest
+     * possible database time, as estimated by the {@link DbClock}.
+     */
+    private boolean observedLeaseCertainlyValid() {
+        long nowNanos = clock.nanoTime();
+        if (dbClock.needsSample(nowNanos)) {
+            if (!sampleDbClock()) {
+                return false;
+            }
+            nowNanos = clock.nanoTime();
+        }
+        return dbClock.upperBoundMillis(nowNanos) < observedLastSeenMillis + configuration.getAssumeDeadMs();
+    }
+
+    /**
+     * Samples the database clock. A few samples are taken on the same 
+     * connection: the first is often slower than the rest and the 
+     * {@link DbClock} keeps the one with the shortest round trip.
+     * 
+     * @return true if successful
+     */
+    private boolean sampleDbClock() {
+        try (Connection connection = connections.getConnection()) {
+            // In autocommit mode each query is its own transaction. This matters
+            // for databases where the current time is the start time of the 
+            // transaction.
+            boolean originalAutoCommit = connection.getAutoCommit();
+            if (!originalAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+            try (PreparedStatement pstmt = sqlCmds.getDbTimeUTCMillisStmt(connection)) {
+                pstmt.setQueryTimeout(configuration.getQueryTimeoutSecs());
+                for (int i = 0; i < DB_CLOCK_SAMPLES; i++) {
+                    long sendNanos = clock.nanoTime();
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        long dbMillis = rs.getLong(1);
+                        dbClock.addSample(sendNanos, dbMillis, clock.nanoTime());
+                    }
+                }
+            } finally {
+                if (!originalAutoCommit) {
+                    connection.setAutoCommit(false);
+                }
+            }
+            return true;
+        } catch (SQLException ex) {
+            // The full election will report any problem with the database
+            dbClock.reset();
+            return false;
+        }
+    }
+
+    // After an error the database may have been failed over to another
+    // host, with a clock of its own.
+    private void resetDbClock() {
+        if (dbClock != null) {
+            dbClock.reset();
+        }
+    }
+
+    /**
+     * @param rowMayBeSkipped if the result comes from a SELECT which skips
+     *     locked rows
+     * @return false if the row was skipped because it is locked, otherwise true
+     */
+    private boolean executeInsideTableLock(
             Connection connection, 
             ResultSet rs, 
             boolean wasLeaderAtStartOfElection,
-            boolean relinquish) throws SQLException, LeaderElectorExceptionNonRecoverable {
-        Instant startTime = Instant.now();
-        LeaderElectorListener.Event event = null;   // holds non-error events
+            boolean relinquish,
+            boolean rowMayBeSkipped) throws SQLException, LeaderElectorExceptionNonRecoverable {
 
         int rows = 0;
 
@@ -223,13 +693,14 @@ public class SQLLeaderElect {
             if (rows > 1) {
                 throw new LeaderElectorExceptionNonRecoverable("Table " + tableNameDisplay + " has more than one row. This is unexpected. It must contain exactly one row.");
             }
-            final RowInLeaderElectionTable row = new RowInLeaderElectionTable(rs, myCandidateId);
+            row.read(rs, sqlCmds.hasEndpointColumn());
             final long lastSeenTimestampMillis = row.getLastSeenTimestampMillis();
             final long nowUTCMillis = row.getNowUTCMillis();
             final long leaseCounter = row.getLeaseCounter();
             final RowInLeaderElectionTable.CurrentLeaderDbStatus currentLeader = row.getCurrentLeaderDbStatus();
             final long leaseAgeMillis = nowUTCMillis - lastSeenTimestampMillis;
             final boolean leaseExpired = (leaseAgeMillis >= configuration.getAssumeDeadMs());
+            cycle.setLeaseAgeMillis(leaseAgeMillis);
 
             checkRowValidity(row);
 
@@ -240,11 +711,25 @@ public class SQLLeaderElect {
                         currentlyAmLeader = false;
                         hasRelinquishedLeadership = true;
                         if (wasLeaderAtStartOfElection) {
-                            event = EventHelpers.createLeadershipLostEvent(startTime, myRoleId, row.getCandidateId(), lastSeenTimestampMillis, leaseCounter);
+                            cycle.set(LeaderElectorListener.EventType.LEADERSHIP_LOST, row.getCandidateId(), lastSeenTimestampMillis, leaseCounter, clock.currentTimeMillis());
                         }
+                    } else if (!currentlyAmLeader && revokedLocally) {
+                        // We still hold the lease in the database but have given
+                        // up leadership locally (watchdog or errors). Re-assume
+                        // with a new lease counter so that work started under
+                        // the old lease is fenced off.
+                        long newLeaseCounter = getNewLeaseCounter(leaseCounter);
+                        assumeLeadership(connection, myRoleId, myCandidateId, newLeaseCounter);
+                        cycle.set(LeaderElectorListener.EventType.LEADERSHIP_ASSUMED, row.getCandidateId(), lastSeenTimestampMillis, newLeaseCounter, clock.currentTimeMillis());
+                        currentlyAmLeader = true;
+                        revokedLocally = false;
+                    } else if (leaseCounter < leaseCounterFloor) {
+                        // Re-assume with a higher lease counter, see setLeaseCounterFloor()
+                        assumeLeadership(connection, myRoleId, myCandidateId, leaseCounterFloor);
+                        cycle.set(LeaderElectorListener.EventType.LEADERSHIP_ASSUMED, row.getCandidateId(), lastSeenTimestampMillis, leaseCounterFloor, clock.currentTimeMillis());
                     } else {
                         affirmLeadership(connection, myRoleId, myCandidateId);
-                        event = EventHelpers.createLeadershipConfirmedEvent(startTime, myRoleId, myCandidateId, lastSeenTimestampMillis, leaseCounter);
+                        cycle.set(LeaderElectorListener.EventType.LEADERSHIP_CONFIRMED, myCandidateId, lastSeenTimestampMillis, leaseCounter, clock.currentTimeMillis());
                     }
                 }
                 break;
@@ -254,15 +739,17 @@ public class SQLLeaderElect {
                     } 
                 // intentional fall-thru (no break statement)
                 case NOBODY: {
+                    revokedLocally = false;  // no longer hold the lease
                     if (leaseExpired && (!hasRelinquishedLeadership)) {
                         long newLeaseCounter = getNewLeaseCounter(leaseCounter);
                         assumeLeadership(connection, myRoleId, myCandidateId, newLeaseCounter);
-                        event = EventHelpers.createLeadershipAssumedEvent(startTime, myRoleId, row.getCandidateId(), lastSeenTimestampMillis, newLeaseCounter);
+                        cycle.set(LeaderElectorListener.EventType.LEADERSHIP_ASSUMED, row.getCandidateId(), lastSeenTimestampMillis, newLeaseCounter, clock.currentTimeMillis());
                         if (!wasLeaderAtStartOfElection) {
                             currentlyAmLeader = true;
                         }
                     } else {
-                        event = EventHelpers.createLeadershipNoOp(startTime, myRoleId, row.getCandidateId(), lastSeenTimestampMillis, leaseCounter);
+                        cycle.set(LeaderElectorListener.EventType.LEADERSHIP_NOOP, row.getCandidateId(), lastSeenTimestampMillis, leaseCounter, clock.currentTimeMillis());
+                        cycle.setCandidateEndpoint(row.getCandidateEndpoint());
                     }
                 }
                 break;
@@ -271,28 +758,31 @@ public class SQLLeaderElect {
                     throw new LeaderElectorExceptionNonRecoverable("Unexpected value for 'currentLeader' : " + currentLeader);
             }
 
-            if (event == null) {
-                event = EventHelpers.createLeadershipNoOp(startTime, myRoleId, row.getCandidateId(), lastSeenTimestampMillis, leaseCounter);
+            if (!cycle.hasOutcome()) {
+                cycle.set(LeaderElectorListener.EventType.LEADERSHIP_NOOP, row.getCandidateId(), lastSeenTimestampMillis, leaseCounter, clock.currentTimeMillis());
+                cycle.setCandidateEndpoint(row.getCandidateEndpoint());
             }
         }
         
         if (rows == 0) {
+            if (rowMayBeSkipped) {
+                // The row is known to exist, so it must have been skipped
+                return false;
+            }
             throw new LeaderElectorExceptionNonRecoverable("No row for role_id='" + myRoleId + "' in table " + tableNameDisplay);
         }
-        
-        return event;
+        return true;
     }
                     
     private void checkRowValidity(RowInLeaderElectionTable row) throws LeaderElectorExceptionNonRecoverable {
-        String prefix = "ERROR: Unexpected: Table " + tableNameDisplay + " with content " + row ;
-        if (row.getCurrentLeaderDbStatus()== CurrentLeaderDbStatus.ME && (!currentlyAmLeader)) {
-            throw new LeaderElectorExceptionNonRecoverable(prefix
+        if (row.getCurrentLeaderDbStatus()== CurrentLeaderDbStatus.ME && (!currentlyAmLeader) && (!revokedLocally)) {
+            throw new LeaderElectorExceptionNonRecoverable(errorPrefix(row)
                     + ", says current candidate is leader but 'currentlyAmLeader' is false. "
                     + "Possibly table content was altered by an unsolicated process.");
         }
 
         if (row.getCurrentLeaderDbStatus() != CurrentLeaderDbStatus.ME && (currentlyAmLeader)) {
-            throw new LeaderElectorExceptionNonRecoverable(prefix
+            throw new LeaderElectorExceptionNonRecoverable(errorPrefix(row)
                     + ", says current \"" + row.getCandidateId() + "\" is leader, not me, but 'currentlyAmLeader' is true. "
                     + "In effect leadership was stolen. "        
                     + "Possible cause is if current process has not kept its lease alive. Perhaps the process has been dormant? "
@@ -301,12 +791,27 @@ public class SQLLeaderElect {
             );
         }
         if (row.getCurrentLeaderDbStatus() == CurrentLeaderDbStatus.NOBODY && row.getLastSeenTimestampMillis() != NO_LEADER_LASTSEENTIMESTAMP_MS) {
-            throw new LeaderElectorExceptionNonRecoverable(prefix
+            throw new LeaderElectorExceptionNonRecoverable(errorPrefix(row)
                     + ", is inconsistent. "
                     + "Possibly table content was altered by an unsolicated process.");
         }
     }
     
+    // Only built when needed as it is expensive
+    private String errorPrefix(RowInLeaderElectionTable row) {
+        return "ERROR: Unexpected: Table " + tableNameDisplay + " with content " + row;
+    }
+    
+    // A transient error is recoverable, unless it is the third in a row
+    private EventHelpers.ErrorEventsBuilder addTransientError(final EventHelpers.ErrorEventsBuilder errorEventsBuilder, SQLException ex) {
+        noOfConsecutiveTransientErrors++;
+        if (noOfConsecutiveTransientErrors == 3) {
+            noOfConsecutiveTransientErrors = 0;
+            return addError(errorEventsBuilder, new LeaderElectorExceptionNonRecoverable(ex));
+        }
+        return addError(errorEventsBuilder, new LeaderElectorExceptionRecoverable(ex));
+    }
+
     // Helper to accumulate errorHolder (Exceptions)
     private EventHelpers.ErrorEventsBuilder addError(final EventHelpers.ErrorEventsBuilder errorEventsBuilder, LeaderElectorException error) {
         EventHelpers.ErrorEventsBuilder e = (errorEventsBuilder == null) ? new EventHelpers.ErrorEventsBuilder() : errorEventsBuilder;
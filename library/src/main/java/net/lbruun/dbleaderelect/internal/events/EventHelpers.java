@@ -18,44 +18,32 @@ package net.lbruun.dbleaderelect.internal.events;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import net.lbruun.dbleaderelect.LeaderElectorListener;
 import net.lbruun.dbleaderelect.LeaderElectorListener.Event.ErrorEvent;
 import net.lbruun.dbleaderelect.exception.LeaderElectorException;
 
 public class EventHelpers {
-    public static LeaderElectorListener.Event createLeadershipAssumedEvent(Instant startTime, String roleId, String previousCandidateId, long previousLastSeenMillisEpoch, long newLeaseCounter) {
-        return new EventImpl(LeaderElectorListener.EventType.LEADERSHIP_ASSUMED, startTime, roleId, previousCandidateId, Instant.ofEpochMilli(previousLastSeenMillisEpoch), newLeaseCounter,  null);
-    }
-
-    public static LeaderElectorListener.Event createLeadershipLostEvent(Instant startTime, String roleId, String candidateId, long previousLastSeenMillisEpoch, long leaseCounter ) {
-        return new EventImpl(LeaderElectorListener.EventType.LEADERSHIP_LOST, startTime, roleId, candidateId, Instant.ofEpochMilli(previousLastSeenMillisEpoch), leaseCounter, null);
-    }
-
-    public static LeaderElectorListener.Event createLeadershipConfirmedEvent(Instant startTime, String roleId, String candidateId, long previousLastSeenMillisEpoch, long existingLeaseCounter) {
-        return new EventImpl(LeaderElectorListener.EventType.LEADERSHIP_CONFIRMED, startTime, roleId, candidateId, Instant.ofEpochMilli(previousLastSeenMillisEpoch), existingLeaseCounter, null);
-    }
-
-    public static LeaderElectorListener.Event createLeadershipNoOp(Instant startTime, String roleId, String candidateId, long previousLastSeenMillisEpoch, long leaseCounter) {
-        return new EventImpl(LeaderElectorListener.EventType.LEADERSHIP_NOOP, startTime, roleId, candidateId, Instant.ofEpochMilli(previousLastSeenMillisEpoch), leaseCounter, null);
-    }
 
     public static class ErrorEventsBuilder {
         private final List<ErrorEvent> errorEvents = new ArrayList<>(4);
-        
+
         public void add(LeaderElectorException error) {
             errorEvents.add(new ErrorEventImpl(Instant.now(), error));
         }
-        
-        public LeaderElectorListener.Event build(Instant startTime, boolean wasLeaderAtStartOfElection, String roleId) {
-             return new EventImpl(
-                     (wasLeaderAtStartOfElection) ? LeaderElectorListener.EventType.LEADERSHIP_LOST : LeaderElectorListener.EventType.LEADERSHIP_UNDETERMINED,
-                     startTime, 
-                     roleId,
-                     null, // candidateId
-                     null, // previousLastSeenTimestamp
-                     -1,   // newLeaseCounter
-                     errorEvents.toArray(new ErrorEvent[errorEvents.size()])
-             );
+
+        public void addAll(ErrorEventsBuilder other) {
+            errorEvents.addAll(other.errorEvents);
+        }
+
+        public int size() {
+            return errorEvents.size();
+        }
+
+        public ErrorEvent get(int index) {
+            return errorEvents.get(index);
+        }
+
+        public ErrorEvent[] toArray() {
+            return errorEvents.toArray(new ErrorEvent[errorEvents.size()]);
         }
     }
 
@@ -41,6 +41,10 @@ public class EventImpl implements LeaderElectorListener.Event {
     private final LeaderElectorListener.Event.ErrorEvent[] errors;
 
     public EventImpl(LeaderElectorListener.EventType eventType, Instant startTime, String roleId, String candidateId, Instant previousLastSeenTimestamp, long newLeaseCounter, LeaderElectorListener.Event.ErrorEvent[] errors) {
+        this(eventType, startTime, Instant.now(), roleId, candidateId, previousLastSeenTimestamp, newLeaseCounter, errors);
+    }
+
+    public EventImpl(LeaderElectorListener.EventType eventType, Instant startTime, Instant eventTime, String roleId, String candidateId, Instant previousLastSeenTimestamp, long newLeaseCounter, LeaderElectorListener.Event.ErrorEvent[] errors) {
         this.startTime = startTime;
         this.eventType = eventType;
         this.roleId = roleId;
@@ -48,7 +52,7 @@ public class EventImpl implements LeaderElectorListener.Event {
         this.lastSeenTimestamp = previousLastSeenTimestamp;
         this.leaseCounter = newLeaseCounter;
         this.errors = errors;
-        this.eventTime = Instant.now();
+        this.eventTime = eventTime;
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.fencing;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.exception.LeaderElectorLeaseLostException;
+import net.lbruun.dbleaderelect.fencing.FencedWork;
+import net.lbruun.dbleaderelect.fencing.LeaseFence;
+import net.lbruun.dbleaderelect.internal.sql.SQLCmds;
+
+/**
+ * Implementation of {@link LeaseFence}.
+ */
+public class LeaseFenceImpl implements LeaseFence {
+
+    private final DataSource dataSource;
+    private final SQLCmds sqlCmds;
+    private final String roleId;
+    private final String candidateId;
+    private final int queryTimeoutSecs;
+    private final long leaseCounter;
+
+    public LeaseFenceImpl(DataSource dataSource, SQLCmds sqlCmds, LeaderElectorConfiguration configuration, long leaseCounter) {
+        this.dataSource = dataSource;
+        this.sqlCmds = sqlCmds;
+        this.roleId = configuration.getRoleId();
+        this.candidateId = configuration.getCandidateId();
+        this.queryTimeoutSecs = configuration.getQueryTimeoutSecs();
+        this.leaseCounter = leaseCounter;
+    }
+
+    @Override
+    public long getLeaseCounter() {
+        return leaseCounter;
+    }
+
+    @Override
+    public <T> T execute(FencedWork<T> work) throws SQLException, LeaderElectorLeaseLostException {
+        try (Connection connection = dataSource.getConnection()) {
+            return execute(connection, work);
+        }
+    }
+
+    @Override
+    public <T> T execute(Connection connection, FencedWork<T> work) throws SQLException, LeaderElectorLeaseLostException {
+        boolean originalAutoCommit = connection.getAutoCommit();
+        if (originalAutoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            T result;
+            try {
+                check(connection);
+                result = work.execute(connection);
+            } catch (Throwable ex) {
+                try {
+                    connection.rollback();
+                } catch (SQLException ex2) {
+                    ex.addSuppressed(ex2);
+                }
+                throw ex;
+            }
+            connection.commit();
+            return result;
+        } finally {
+            if (originalAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void check(Connection connection) throws SQLException, LeaderElectorLeaseLostException {
+        try (PreparedStatement pstmt = sqlCmds.getSelectFenceStmt(connection, roleId, candidateId, leaseCounter)) {
+            pstmt.setQueryTimeout(queryTimeoutSecs);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new LeaderElectorLeaseLostException("Lease " + leaseCounter + " of role " + roleId 
+                            + " is not held by candidate " + candidateId);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getPredicateSQL() {
+        return sqlCmds.getFencePredicateSQL();
+    }
+
+    @Override
+    public int setPredicateParameters(PreparedStatement pstmt, int parameterIndex) throws SQLException {
+        pstmt.setString(parameterIndex, roleId);
+        pstmt.setString(parameterIndex + 1, candidateId);
+        pstmt.setLong(parameterIndex + 2, leaseCounter);
+        return parameterIndex + 3;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaseFence{" + "roleId=" + roleId + ", candidateId=" + candidateId + ", leaseCounter=" + leaseCounter + '}';
+    }
+}
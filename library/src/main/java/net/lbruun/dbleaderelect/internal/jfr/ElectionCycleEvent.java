@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for an election cycle. The duration of the event is the
+ * duration of the cycle.
+ */
+@Name("net.lbruun.dbleaderelect.ElectionCycle")
+@Label("Election Cycle")
+@Category("Leader Election")
+@Description("An election cycle of a Leader Elector. Phases which were not executed are -1.")
+@StackTrace(false)
+final class ElectionCycleEvent extends Event {
+
+    @Label("Role")
+    String roleId;
+
+    @Label("Candidate")
+    String candidateId;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Failed")
+    @Description("If the cycle ended with errors")
+    boolean failed;
+
+    @Label("Lease Counter")
+    long leaseCounter;
+
+    @Label("Lease Age")
+    @Description("Time since the lease was last renewed, as read in this cycle")
+    @Timespan(Timespan.MILLISECONDS)
+    long leaseAge;
+
+    @Label("Connection Acquire")
+    @Timespan(Timespan.NANOSECONDS)
+    long connectionAcquireTime;
+
+    @Label("Select")
+    @Description("Locking SELECT, including the wait for the row lock")
+    @Timespan(Timespan.NANOSECONDS)
+    long selectTime;
+
+    @Label("Update")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateTime;
+
+    @Label("Commit")
+    @Timespan(Timespan.NANOSECONDS)
+    long commitTime;
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+
+/**
+ * Emits Java Flight Recorder events, if JFR exists in the JVM.
+ *
+ * <p>
+ * JFR ({@code jdk.jfr}) exists in Java 11 and later, and in Java 8 from
+ * update 262. On other JVMs every method does nothing. The classes which
+ * depend on {@code jdk.jfr} are only loaded if JFR exists.
+ *
+ * <p>
+ * The events are enabled and disabled with the usual JFR settings. They
+ * are named {@code net.lbruun.dbleaderelect.*} and are in the category
+ * "Leader Election". Until a recording has been started in the JVM, 
+ * emitting an event costs no more than a check of a flag.
+ */
+public final class FlightRecorderEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder", false, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts the timing of an election cycle. The returned handle must
+     * be passed to {@link #endCycle(Object, ElectionCycle, String)}.
+     * 
+     * @return handle, or {@code null} if the event is not recorded
+     */
+    public static Object beginCycle() {
+        return AVAILABLE ? JfrEventEmitter.beginCycle() : null;
+    }
+
+    /**
+     * Ends the timing of an election cycle and records the event.
+     * 
+     * @param handle from {@link #beginCycle()}, may be {@code null}
+     * @param cycle outcome of the election
+     * @param candidateId candidate which executed the election
+     */
+    public static void endCycle(Object handle, ElectionCycle cycle, String candidateId) {
+        if (handle != null) {
+            JfrEventEmitter.endCycle(handle, cycle, candidateId);
+        }
+    }
+
+    /**
+     * Records that leadership was assumed or lost.
+     * 
+     * @param roleId role
+     * @param candidateId candidate which assumed or lost leadership
+     * @param eventType {@link EventType#LEADERSHIP_ASSUMED LEADERSHIP_ASSUMED}
+     *   or {@link EventType#LEADERSHIP_LOST LEADERSHIP_LOST}
+     * @param leaseCounter lease counter, or -1 if not known
+     */
+    public static void leadershipTransition(String roleId, String candidateId, EventType eventType, long leaseCounter) {
+        if (AVAILABLE) {
+            JfrEventEmitter.leadershipTransition(roleId, candidateId, eventType, leaseCounter);
+        }
+    }
+
+    /**
+     * Records that the lease was renewed with a low safety margin.
+     * 
+     * @param roleId role
+     * @param candidateId candidate which renewed the lease
+     * @param leaseCounter lease counter
+     * @param leaseAgeMillis age of the lease at renewal
+     * @param marginMillis time which was left of the lease
+     */
+    public static void leaseMarginLow(String roleId, String candidateId, long leaseCounter, long leaseAgeMillis, long marginMillis) {
+        if (AVAILABLE) {
+            JfrEventEmitter.leaseMarginLow(roleId, candidateId, leaseCounter, leaseAgeMillis, marginMillis);
+        }
+    }
+
+    /**
+     * Records that an event was handed to the listener.
+     * 
+     * @param roleId role
+     * @param eventType type of the event
+     * @param delayNanos time from when the event was queued until the
+     *   listener was invoked
+     */
+    public static void listenerDispatch(String roleId, EventType eventType, long delayNanos) {
+        if (AVAILABLE) {
+            JfrEventEmitter.listenerDispatch(roleId, eventType, delayNanos);
+        }
+    }
+}
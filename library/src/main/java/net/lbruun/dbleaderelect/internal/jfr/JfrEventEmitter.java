@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import jdk.jfr.FlightRecorder;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
+
+/**
+ * The part of {@link FlightRecorderEvents} which depends on 
+ * {@code jdk.jfr}. Must only be loaded if JFR exists.
+ */
+final class JfrEventEmitter {
+
+    private JfrEventEmitter() {
+    }
+
+    static Object beginCycle() {
+        // No event can be enabled before the first recording is started
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        // Checked before the event is created so that cycles don't 
+        // allocate while recordings are running without this event
+        if (!ElectionCycleEventType.TYPE.isEnabled()) {
+            return null;
+        }
+        ElectionCycleEvent event = new ElectionCycleEvent();
+        event.begin();
+        return event;
+    }
+
+    // Lazy initialization holder. Looking up the event type registers
+    // the event, which should not happen before a recording is started.
+    private static class ElectionCycleEventType {
+        private static final jdk.jfr.EventType TYPE = jdk.jfr.EventType.getEventType(ElectionCycleEvent.class);
+    }
+
+    static void endCycle(Object handle, ElectionCycle cycle, String candidateId) {
+        ElectionCycleEvent event = (ElectionCycleEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.roleId = cycle.getRoleId();
+            event.candidateId = candidateId;
+            event.outcome = (cycle.getEventType() == null) ? null : cycle.getEventType().name();
+            event.failed = cycle.hasErrors();
+            event.leaseCounter = cycle.getLeaseCounter();
+            event.leaseAge = cycle.getLeaseAgeMillis();
+            event.connectionAcquireTime = cycle.getPhaseNanos(ElectionPhase.CONNECTION_ACQUIRE);
+            event.selectTime = cycle.getPhaseNanos(ElectionPhase.SELECT);
+            event.updateTime = cycle.getPhaseNanos(ElectionPhase.UPDATE);
+            event.commitTime = cycle.getPhaseNanos(ElectionPhase.COMMIT);
+            event.commit();
+        }
+    }
+
+    static void leadershipTransition(String roleId, String candidateId, EventType eventType, long leaseCounter) {
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        LeadershipTransitionEvent event = new LeadershipTransitionEvent();
+        if (event.shouldCommit()) {
+            event.roleId = roleId;
+            event.candidateId = candidateId;
+            event.transition = eventType.name();
+            event.leaseCounter = leaseCounter;
+            event.commit();
+        }
+    }
+
+    static void leaseMarginLow(String roleId, String candidateId, long leaseCounter, long leaseAgeMillis, long marginMillis) {
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        LeaseMarginLowEvent event = new LeaseMarginLowEvent();
+        if (event.shouldCommit()) {
+            event.roleId = roleId;
+            event.candidateId = candidateId;
+            event.leaseCounter = leaseCounter;
+            event.leaseAge = leaseAgeMillis;
+            event.margin = marginMillis;
+            event.commit();
+        }
+    }
+
+    static void listenerDispatch(String roleId, EventType eventType, long delayNanos) {
+        if (!FlightRecorder.isInitialized()) {
+            return;
+        }
+        ListenerDispatchEvent event = new ListenerDispatchEvent();
+        if (event.shouldCommit()) {
+            event.roleId = roleId;
+            event.eventType = eventType.name();
+            event.delay = delayNanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a candidate assuming or losing leadership.
+ */
+@Name("net.lbruun.dbleaderelect.LeadershipTransition")
+@Label("Leadership Transition")
+@Category("Leader Election")
+@Description("A candidate assumed or lost leadership")
+@StackTrace(false)
+final class LeadershipTransitionEvent extends Event {
+
+    @Label("Role")
+    String roleId;
+
+    @Label("Candidate")
+    String candidateId;
+
+    @Label("Transition")
+    String transition;
+
+    @Label("Lease Counter")
+    @Description("Lease counter of the lease assumed or lost, -1 if not known")
+    long leaseCounter;
+}
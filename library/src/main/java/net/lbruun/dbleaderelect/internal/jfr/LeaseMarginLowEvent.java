@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a renewal of the lease with a low safety margin.
+ */
+@Name("net.lbruun.dbleaderelect.LeaseMarginLow")
+@Label("Lease Margin Low")
+@Category("Leader Election")
+@Description("The leader renewed its lease with little time to spare")
+@StackTrace(false)
+final class LeaseMarginLowEvent extends Event {
+
+    @Label("Role")
+    String roleId;
+
+    @Label("Candidate")
+    String candidateId;
+
+    @Label("Lease Counter")
+    long leaseCounter;
+
+    @Label("Lease Age")
+    @Description("Time since the lease was last renewed")
+    @Timespan(Timespan.MILLISECONDS)
+    long leaseAge;
+
+    @Label("Margin")
+    @Description("Time which was left of the lease")
+    @Timespan(Timespan.MILLISECONDS)
+    long margin;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for an event being handed to the listener.
+ */
+@Name("net.lbruun.dbleaderelect.ListenerDispatch")
+@Label("Listener Dispatch")
+@Category("Leader Election")
+@Description("An event was handed to the Leader Elector's listener")
+@StackTrace(false)
+final class ListenerDispatchEvent extends Event {
+
+    @Label("Role")
+    String roleId;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Delay")
+    @Description("Time from when the event was queued until the listener was invoked")
+    @Timespan(Timespan.NANOSECONDS)
+    long delay;
+}
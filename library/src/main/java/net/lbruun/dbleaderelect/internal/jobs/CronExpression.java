@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jobs;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Minimal cron expression with the classic 5 fields: minute, hour,
+ * day-of-month, month and day-of-week.
+ *
+ * <p>
+ * Each field is held as a bit mask of allowed values.
+ */
+public final class CronExpression {
+
+    private static final String[] MONTH_NAMES = {
+        "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+    private static final String[] DAY_NAMES = {
+        "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+    
+    // Longest possible gap between matching days is between two
+    // Feb 29th (e.g. 2096 -> 2104).
+    private static final int MAX_YEARS_AHEAD = 9;
+
+    private final String expression;
+    private final long minutes;       // bits 0-59
+    private final long hours;         // bits 0-23
+    private final long daysOfMonth;   // bits 1-31
+    private final long months;        // bits 1-12
+    private final long daysOfWeek;    // bits 0-6, 0 = Sunday
+    private final boolean domRestricted;
+    private final boolean dowRestricted;
+
+    private CronExpression(String expression, long minutes, long hours, long daysOfMonth, 
+            long months, long daysOfWeek, boolean domRestricted, boolean dowRestricted) {
+        this.expression = expression;
+        this.minutes = minutes;
+        this.hours = hours;
+        this.daysOfMonth = daysOfMonth;
+        this.months = months;
+        this.daysOfWeek = daysOfWeek;
+        this.domRestricted = domRestricted;
+        this.dowRestricted = dowRestricted;
+    }
+
+    /**
+     * Parses a cron expression.
+     * 
+     * @param expression
+     * @return 
+     * @throws IllegalArgumentException if the expression is invalid or if
+     *     it never matches (such as the 30th of February).
+     */
+    public static CronExpression parse(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression \"" + expression + "\" must have 5 fields, has " + fields.length);
+        }
+        long dow = parseField(expression, fields[4], 0, 7, DAY_NAMES);
+        if ((dow & (1L << 7)) != 0) {
+            dow = (dow & ~(1L << 7)) | 1L;   // 7 is also Sunday
+        }
+        CronExpression cron = new CronExpression(
+                expression.trim(),
+                parseField(expression, fields[0], 0, 59, null),
+                parseField(expression, fields[1], 0, 23, null),
+                parseField(expression, fields[2], 1, 31, null),
+                parseField(expression, fields[3], 1, 12, MONTH_NAMES),
+                dow,
+                !fields[2].equals("*"),
+                !fields[4].equals("*"));
+        if (cron.next(0, ZoneId.of("UTC")) == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Cron expression \"" + expression + "\" never matches");
+        }
+        return cron;
+    }
+
+    private static long parseField(String expression, String field, int min, int max, String[] names) {
+        long bits = 0;
+        for (String part : field.split(",", -1)) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash != -1) {
+                step = parseValue(expression, part.substring(slash + 1), 1, max, null);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                if (dash != -1) {
+                    from = parseValue(expression, part.substring(0, dash), min, max, names);
+                    to = parseValue(expression, part.substring(dash + 1), min, max, names);
+                    if (from > to) {
+                        throw new IllegalArgumentException("Invalid range \"" + part + "\" in cron expression \"" + expression + "\"");
+                    }
+                } else {
+                    from = parseValue(expression, part, min, max, names);
+                    to = (slash != -1) ? max : from;
+                }
+            }
+            for (int i = from; i <= to; i += step) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    private static int parseValue(String expression, String str, int min, int max, String[] names) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(str)) {
+                    return (min == 1) ? i + 1 : i;
+                }
+            }
+        }
+        int value;
+        try {
+            value = Integer.parseInt(str);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value \"" + str + "\" in cron expression \"" + expression + "\"");
+        }
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("Value " + value + " is outside of range " + min + "-" + max + " in cron expression \"" + expression + "\"");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the first point in time which matches the expression and
+     * which is strictly after {@code afterMillis}.
+     *
+     * @param afterMillis milliseconds since the epoch
+     * @param zone time zone in which to evaluate the expression
+     * @return milliseconds since the epoch, or {@code Long.MAX_VALUE}
+     *     if there is no such point in time within the next years.
+     */
+    public long next(long afterMillis, ZoneId zone) {
+        ZonedDateTime t = Instant.ofEpochMilli(afterMillis).atZone(zone)
+                .truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int maxYear = t.getYear() + MAX_YEARS_AHEAD;
+        while (t.getYear() <= maxYear) {
+            if (!isSet(months, t.getMonthValue())) {
+                t = t.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(t)) {
+                t = t.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!isSet(hours, t.getHour())) {
+                t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!isSet(minutes, t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t.toInstant().toEpochMilli();
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private boolean dayMatches(ZonedDateTime t) {
+        boolean dom = isSet(daysOfMonth, t.getDayOfMonth());
+        boolean dow = isSet(daysOfWeek, t.getDayOfWeek().getValue() % 7);
+        if (domRestricted && dowRestricted) {
+            return dom || dow;
+        }
+        return dom && dow;
+    }
+
+    private static boolean isSet(long bits, int i) {
+        return (bits & (1L << i)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jobs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.internal.core.LeaderScopedExecutor;
+import net.lbruun.dbleaderelect.internal.sql.SQLCmds;
+import net.lbruun.dbleaderelect.jobs.JobExecutionContext;
+import net.lbruun.dbleaderelect.jobs.JobSchedule;
+import net.lbruun.dbleaderelect.jobs.LeaderJob;
+import net.lbruun.dbleaderelect.jobs.LeaderJobScheduler;
+
+/**
+ * Implementation of {@link LeaderJobScheduler}.
+ *
+ * <p>
+ * Each job is a chain of one-shot tasks in the {@link LeaderScopedExecutor}:
+ * a <i>resume</i> task which reads the job's last claimed fire time,
+ * followed by <i>run</i> tasks which each claim the fire time, execute the
+ * job, record its completion and schedule the next run. The chain is started every time leadership is
+ * gained. Tasks belonging to a previous period of leadership (identified by
+ * the executor's leadership epoch) do nothing, so a job never has more than
+ * one live chain.
+ */
+public class LeaderJobSchedulerImpl implements LeaderJobScheduler {
+
+    public static final int JOB_ID_MAX_LENGTH = 100;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final LeaderScopedExecutor executor;
+    private final DataSource dataSource;
+    private final SQLCmds sqlCmds;
+    private final String roleId;
+    private final String candidateId;
+    private final long retryDelayMs;
+    private final LeaderElectorLogger logger;
+    private final ConcurrentHashMap<String, JobEntry> jobs = new ConcurrentHashMap<>();
+
+    public LeaderJobSchedulerImpl(LeaderScopedExecutor executor, DataSource dataSource, 
+            SQLCmds sqlCmds, LeaderElectorConfiguration configuration) {
+        this.executor = executor;
+        this.dataSource = dataSource;
+        this.sqlCmds = sqlCmds;
+        this.roleId = configuration.getRoleId();
+        this.candidateId = configuration.getCandidateId();
+        this.retryDelayMs = configuration.getIntervalMs();
+        this.logger = configuration.getLeaderElectorLogger();
+        executor.addLeadershipGainedListener(this::resumeAll);
+    }
+
+    @Override
+    public void schedule(String jobId, JobSchedule schedule, LeaderJob job) {
+        Objects.requireNonNull(jobId, "jobId cannot be null");
+        Objects.requireNonNull(schedule, "schedule cannot be null");
+        Objects.requireNonNull(job, "job cannot be null");
+        if (jobId.isEmpty() || jobId.length() > JOB_ID_MAX_LENGTH) {
+            throw new IllegalArgumentException("jobId must be between 1 and " + JOB_ID_MAX_LENGTH + " characters long");
+        }
+        JobEntry entry = new JobEntry(jobId, schedule, job);
+        if (jobs.putIfAbsent(jobId, entry) != null) {
+            throw new IllegalArgumentException("Job '" + jobId + "' is already scheduled");
+        }
+        // If leadership is gained after this point then the job is 
+        // resumed by the listener as well. The leadership epoch 
+        // makes sure only one of them has effect.
+        if (executor.isLeader()) {
+            submitResume(entry);
+        }
+    }
+
+    @Override
+    public boolean unschedule(String jobId) {
+        JobEntry entry = jobs.remove(jobId);
+        if (entry == null) {
+            return false;
+        }
+        entry.remove();
+        return true;
+    }
+
+    private void resumeAll() {
+        for (JobEntry entry : jobs.values()) {
+            submitResume(entry);
+        }
+    }
+
+    private void submitResume(JobEntry entry) {
+        try {
+            executor.execute(() -> resume(entry));
+        } catch (RejectedExecutionException ex) {
+            // Executor has been shut down
+        }
+    }
+
+    private void resume(JobEntry entry) {
+        long epoch = executor.getLeadershipEpoch();
+        if (!entry.claim(epoch)) {
+            return;
+        }
+        long lastFireTime;
+        try {
+            lastFireTime = readLastFireTime(entry.jobId);
+        } catch (SQLException ex) {
+            logger.logError(this.getClass(), "Could not read state of job '" + entry.jobId 
+                    + "'. Retrying in " + retryDelayMs + " ms", ex);
+            entry.unclaim(epoch);
+            try {
+                entry.setPending(executor.schedule(() -> resume(entry), retryDelayMs, TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException rex) {
+                // Executor has been shut down
+            }
+            return;
+        }
+        long fireTime = (lastFireTime == NEVER)
+                ? entry.schedule.firstFireTime(System.currentTimeMillis())
+                : entry.schedule.nextFireTime(lastFireTime);
+        scheduleRun(entry, epoch, fireTime);
+    }
+
+    private void scheduleRun(JobEntry entry, long epoch, long fireTime) {
+        long now = System.currentTimeMillis();
+        // Fire times missed while no one was leader are collapsed
+        // into a single run.
+        final long runFireTime = entry.schedule.latestFireTime(fireTime, now);
+        if (runFireTime == Long.MAX_VALUE) {
+            logger.logInfo(this.getClass(), "Job '" + entry.jobId + "' has no more fire times");
+            return;
+        }
+        try {
+            entry.setPending(executor.schedule(
+                    () -> run(entry, epoch, runFireTime),
+                    Math.max(0, runFireTime - now), TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException ex) {
+            // Executor has been shut down
+        }
+    }
+
+    private void run(JobEntry entry, long epoch, long fireTime) {
+        if (!entry.isCurrent(epoch) || executor.getLeadershipEpoch() != epoch) {
+            return;
+        }
+        long leaseCounter = LeaderScopedExecutor.currentLeaseCounter();
+
+        // The fire time is claimed before the job is executed. A candidate
+        // which assumes leadership continues after the last claimed fire
+        // time, so a run which outlives its lease is never repeated, not
+        // even while it is still executing.
+        try {
+            if (!claimRun(entry.jobId, fireTime, leaseCounter)) {
+                logger.logInfo(this.getClass(), "Job '" + entry.jobId + "' (fire time " 
+                        + Instant.ofEpochMilli(fireTime) + ") not executed as lease " 
+                        + leaseCounter + " is no longer current");
+                return;
+            }
+        } catch (SQLException ex) {
+            // The claim may or may not have been made. Claiming the same
+            // fire time again under the same lease is harmless.
+            logger.logError(this.getClass(), "Could not claim run of job '" + entry.jobId + "' (fire time " 
+                    + Instant.ofEpochMilli(fireTime) + "). Retrying in " + retryDelayMs + " ms", ex);
+            try {
+                entry.setPending(executor.schedule(() -> run(entry, epoch, fireTime), retryDelayMs, TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException rex) {
+                // Executor has been shut down
+            }
+            return;
+        }
+
+        try {
+            entry.job.execute(new Context(entry.jobId, fireTime, leaseCounter));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception ex) {
+            logger.logError(this.getClass(), "Job '" + entry.jobId + "' failed (fire time " 
+                    + Instant.ofEpochMilli(fireTime) + ")", ex);
+            scheduleRun(entry, epoch, entry.schedule.nextFireTime(fireTime));
+            return;
+        }
+        
+        // The job has completed. Even if leadership has been lost in the 
+        // meantime the completion is recorded, unless the job has since 
+        // been claimed by someone else.
+        boolean interrupted = Thread.interrupted();
+        try {
+            completeRun(entry.jobId, fireTime, leaseCounter);
+        } catch (SQLException ex) {
+            logger.logError(this.getClass(), "Could not record completion of job '" + entry.jobId + "' (fire time " 
+                    + Instant.ofEpochMilli(fireTime) + ")", ex);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!interrupted) {
+            scheduleRun(entry, epoch, entry.schedule.nextFireTime(fireTime));
+        }
+    }
+
+    private long readLastFireTime(String jobId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement pstmt = sqlCmds.getSelectJobStmt(connection, roleId, jobId);
+                ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            return NEVER;
+        }
+    }
+
+    /**
+     * Claims a run of a job: records its fire time under the lease.
+     * @return false if the lease is no longer current
+     */
+    private boolean claimRun(String jobId, long fireTime, long leaseCounter) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean originalAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try {
+                try (PreparedStatement pstmt = sqlCmds.getUpdateJobStmt(connection, roleId, jobId, fireTime, candidateId, leaseCounter)) {
+                    if (pstmt.executeUpdate() == 1) {
+                        return true;
+                    }
+                }
+                // Either the job has never been recorded or the lease is
+                // no longer current.
+                try (PreparedStatement pstmt = sqlCmds.getInsertJobStmt(connection, roleId, jobId, fireTime, candidateId, leaseCounter)) {
+                    return pstmt.executeUpdate() == 1;
+                } catch (SQLException ex) {
+                    if (sqlCmds.isDuplicateKeyException(ex)) {
+                        // Row exists, but has been recorded under a newer lease
+                        return false;
+                    }
+                    throw ex;
+                }
+            } finally {
+                connection.setAutoCommit(originalAutoCommit);
+            }
+        }
+    }
+
+    /**
+     * Records that a claimed run of a job has completed successfully.
+     */
+    private void completeRun(String jobId, long fireTime, long leaseCounter) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean originalAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (PreparedStatement pstmt = sqlCmds.getCompleteJobStmt(connection, roleId, jobId, fireTime, leaseCounter)) {
+                pstmt.executeUpdate();
+            } finally {
+                connection.setAutoCommit(originalAutoCommit);
+            }
+        }
+    }
+
+    
+    private static final class JobEntry {
+
+        private final String jobId;
+        private final JobSchedule schedule;
+        private final LeaderJob job;
+        private long epoch = -1;        // guarded by 'this'
+        private boolean removed;        // guarded by 'this'
+        private Future<?> pending;      // guarded by 'this'
+
+        JobEntry(String jobId, JobSchedule schedule, LeaderJob job) {
+            this.jobId = jobId;
+            this.schedule = schedule;
+            this.job = job;
+        }
+
+        /**
+         * Claims the job for the given period of leadership.
+         * @return false if already claimed or if the job has been removed
+         */
+        synchronized boolean claim(long newEpoch) {
+            if (removed || epoch == newEpoch) {
+                return false;
+            }
+            epoch = newEpoch;
+            return true;
+        }
+
+        synchronized void unclaim(long oldEpoch) {
+            if (epoch == oldEpoch) {
+                epoch = -1;
+            }
+        }
+
+        synchronized boolean isCurrent(long e) {
+            return !removed && epoch == e;
+        }
+
+        synchronized void setPending(Future<?> future) {
+            if (removed) {
+                future.cancel(false);
+            } else {
+                pending = future;
+            }
+        }
+
+        synchronized void remove() {
+            removed = true;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+
+    private static final class Context implements JobExecutionContext {
+
+        private final String jobId;
+        private final long fireTime;
+        private final long leaseCounter;
+
+        Context(String jobId, long fireTime, long leaseCounter) {
+            this.jobId = jobId;
+            this.fireTime = fireTime;
+            this.leaseCounter = leaseCounter;
+        }
+
+        @Override
+        public String getJobId() {
+            return jobId;
+        }
+
+        @Override
+        public Instant getScheduledFireTime() {
+            return Instant.ofEpochMilli(fireTime);
+        }
+
+        @Override
+        public long getLeaseCounter() {
+            return leaseCounter;
+        }
+
+        @Override
+        public String toString() {
+            return "JobExecutionContext{" + "jobId=" + jobId + ", scheduledFireTime=" 
+                    + getScheduledFireTime() + ", leaseCounter=" + leaseCounter + '}';
+        }
+    }
+}
@@ -18,7 +18,12 @@ package net.lbruun.dbleaderelect.internal.sql;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.TableStorageProfile;
 import net.lbruun.dbleaderelect.DatabaseEngine;
 import net.lbruun.dbleaderelect.LeaderElector;
 import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_CANDIDATE_ID;
@@ -36,24 +41,45 @@ public abstract class SQLCmds {
             + "    last_seen_timestamp," // #2
             + "    %s as now_utc_ms," // #3
             + "    lease_counter" // #4
+            + "%s" // #5 (optional) candidate_endpoint
             + " FROM %s"
             + " WHERE role_id = ?"
             + " FOR UPDATE";
+    // Same as above, without locking. Used for reading from a replica.
+    private static final String SQL_SELECT_NOLOCK_TEMPLATE
+            = "SELECT "
+            + "    candidate_id," // #1
+            + "    last_seen_timestamp," // #2
+            + "    %s as now_utc_ms," // #3
+            + "    lease_counter" // #4
+            + "%s" // #5 (optional) candidate_endpoint
+            + " FROM %s"
+            + " WHERE role_id = ?";
     private static final String SQL_AFFIRM_LEADERSHIP_TEMPLATE
             = "UPDATE %s"
             + " SET  last_seen_timestamp = %s"
             + " WHERE role_id = ?"
             + " AND candidate_id = ?";
+    // Used outside of the table lock, in autocommit mode. The lease counter
+    // predicate makes sure we only renew the lease we think we hold.
+    private static final String SQL_RENEW_LEADERSHIP_TEMPLATE
+            = "UPDATE %s"
+            + " SET  last_seen_timestamp = %s"
+            + " WHERE role_id = ?"
+            + " AND candidate_id = ?"
+            + " AND lease_counter = ?";
     private static final String SQL_ASSUME_LEADERSHIP_TEMPLATE
             = "UPDATE %s"
             + " SET candidate_id = ? ,"
             + "     last_seen_timestamp = %s ,"
             + "     lease_counter = ?"
+            + "%s"
             + " WHERE role_id = ?";
     private static final String SQL_RELINQUISH_LEADERSHIP_TEMPLATE
             = "UPDATE %s"
             + " SET candidate_id = '" + NO_LEADER_CANDIDATE_ID + "'"
             + "    ,last_seen_timestamp = 0"
+            + "%s"
             + " WHERE role_id = ?"
             + " AND candidate_id = ?";
 
@@ -64,9 +90,77 @@ public abstract class SQLCmds {
             + "   candidate_id          %2$s(256)   NOT NULL," 
             + "   last_seen_timestamp   %3$s        NOT NULL," 
             + "   lease_counter         %3$s        NOT NULL," 
-            + "   PRIMARY KEY (role_id)" 
+            + "   candidate_endpoint    %2$s(256)," 
+            + "   PRIMARY KEY (role_id)%4$s" 
+            + "  )%5$s";
+    
+    private static final String SQL_CREATE_JOB_TABLE_TEMPLATE
+            = "CREATE TABLE %1$s"
+            + " ("
+            + "   role_id               %2$s(20)    NOT NULL,"
+            + "   job_id                %2$s(100)   NOT NULL,"
+            + "   last_fire_time        %3$s        NOT NULL,"
+            + "   last_run_timestamp    %3$s        NOT NULL,"
+            + "   lease_counter         %3$s        NOT NULL,"
+            + "   PRIMARY KEY (role_id, job_id)"
             + "  )";
+    private static final String SQL_SELECT_JOB_TEMPLATE
+            = "SELECT "
+            + "    last_fire_time," // #1
+            + "    lease_counter" // #2
+            + " FROM %s"
+            + " WHERE role_id = ?"
+            + " AND job_id = ?";
     
+    // The EXISTS clause is the fence: the row is only updated if the 
+    // lease under which the job is claimed is still the current lease.
+    private static final String SQL_UPDATE_JOB_TEMPLATE
+            = "UPDATE %1$s"
+            + " SET last_fire_time = ? ,"
+            + "     last_run_timestamp = %2$s ,"
+            + "     lease_counter = ?"
+            + " WHERE role_id = ?"
+            + " AND job_id = ?"
+            + " AND lease_counter <= ?"
+            + " AND EXISTS (SELECT 1 FROM %3$s"
+            + "             WHERE role_id = ?"
+            + "             AND candidate_id = ?"
+            + "             AND lease_counter = ?)";
+    private static final String SQL_INSERT_JOB_TEMPLATE
+            = "INSERT INTO %1$s"
+            + " (role_id, job_id, last_fire_time, last_run_timestamp, lease_counter)"
+            + " SELECT %4$s, %5$s, %6$s, %2$s, %6$s"
+            + " FROM %3$s"
+            + " WHERE role_id = ?"
+            + " AND candidate_id = ?"
+            + " AND lease_counter = ?";
+    // Not fenced: the row is only updated if it still holds the claim 
+    // made for the run.
+    private static final String SQL_COMPLETE_JOB_TEMPLATE
+            = "UPDATE %1$s"
+            + " SET last_run_timestamp = %2$s"
+            + " WHERE role_id = ?"
+            + " AND job_id = ?"
+            + " AND last_fire_time = ?"
+            + " AND lease_counter = ?";
+
+    // Fenced writes: the lease must still be held by the candidate. The 
+    // read takes a (preferably shared) lock on the row which is held 
+    // until the caller's transaction ends, so that the lease cannot 
+    // change hands before the caller's writes are committed.
+    private static final String SQL_SELECT_FENCE_TEMPLATE
+            = "SELECT lease_counter"
+            + " FROM %s%s"
+            + " WHERE role_id = ?"
+            + " AND candidate_id = ?"
+            + " AND lease_counter = ?"
+            + "%s";
+    private static final String SQL_FENCE_PREDICATE_TEMPLATE
+            = "EXISTS (SELECT 1 FROM %s"
+            + " WHERE role_id = ?"
+            + " AND candidate_id = ?"
+            + " AND lease_counter = ?)";
+
     public static final String COLUMN_LIST_FOR_INSERT
             = "(role_id, candidate_id, last_seen_timestamp, lease_counter)";
     public static final String VALUES_LIST_FOR_INSERT
@@ -74,42 +168,92 @@ public abstract class SQLCmds {
 
     
     private final String createTableSQL;
+    private final List<String> afterCreateTableSQL;
     private final String selectSQL;
+    private final String selectNoLockSQL;
+    private final String selectNoWaitSQL;
     private final String affirmLeadershipSQL;
     private final String assumeLeadershipSQL;
+    private final String renewLeadershipSQL;
     private final String relinquishLeadershipSQL;
+    private final String createJobTableSQL;
+    private final String selectJobSQL;
+    private final String updateJobSQL;
+    private final String insertJobSQL;
+    private final String completeJobSQL;
+    private final String selectFenceSQL;
+    private final String fencePredicateSQL;
     private final String tabName;
     private final String tabNamePlain;
+    private final String jobTabName;
+    private final boolean endpointColumn;
 
-    public SQLCmds(LeaderElectorConfiguration configuration) {
+    /**
+     * @param configuration
+     * @param endpointColumn if the leader election table has the 
+     *    (optional) {@code candidate_endpoint} column. If not, it is 
+     *    neither read nor written. The table created by 
+     *    {@link #getCreateTableSQL()} always has the column.
+     */
+    public SQLCmds(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        this.endpointColumn = endpointColumn;
         this.tabName = (configuration.getSchemaName() != null) 
                 ? configuration.getSchemaName() + "." + configuration.getTableName() 
                 : configuration.getTableName();
         this.tabNamePlain = configuration.getTableName();
-        this.createTableSQL = String.format(SQL_CREATE_TABLE_TEMPLATE, this.tabName, this.getVarcharStr(), this.getBigIntStr());
-        this.selectSQL = String.format(DEFAULT_SQL_SELECT_TEMPLATE, currentUtcMsExpression(),this.tabName);
+        this.createTableSQL = String.format(SQL_CREATE_TABLE_TEMPLATE, this.tabName, this.getVarcharStr(), this.getBigIntStr(),
+                primaryKeyOptions(configuration.getTableStorageProfile()),
+                tableOptions(configuration.getTableStorageProfile()));
+        this.afterCreateTableSQL = afterCreateTableSQL(this.tabName, configuration.getTableStorageProfile());
+        this.selectSQL = String.format(DEFAULT_SQL_SELECT_TEMPLATE, currentUtcMsExpression(), endpointSelectList(), this.tabName);
+        this.selectNoLockSQL = String.format(SQL_SELECT_NOLOCK_TEMPLATE, currentUtcMsExpression(), endpointSelectList(), this.tabName);
+        this.selectNoWaitSQL = String.format(DEFAULT_SQL_SELECT_TEMPLATE + " NOWAIT", currentUtcMsExpression(), endpointSelectList(), this.tabName);
         this.affirmLeadershipSQL = String.format(SQL_AFFIRM_LEADERSHIP_TEMPLATE, this.tabName, currentUtcMsExpression());
-        this.assumeLeadershipSQL = String.format(SQL_ASSUME_LEADERSHIP_TEMPLATE, this.tabName, currentUtcMsExpression());
-        this.relinquishLeadershipSQL = String.format(SQL_RELINQUISH_LEADERSHIP_TEMPLATE, this.tabName);
+        this.assumeLeadershipSQL = String.format(SQL_ASSUME_LEADERSHIP_TEMPLATE, this.tabName, currentUtcMsExpression(),
+                (endpointColumn) ? " ,   candidate_endpoint = ?" : "");
+        this.renewLeadershipSQL = String.format(SQL_RENEW_LEADERSHIP_TEMPLATE, this.tabName, currentUtcMsExpression());
+        this.relinquishLeadershipSQL = String.format(SQL_RELINQUISH_LEADERSHIP_TEMPLATE, this.tabName,
+                (endpointColumn) ? "    ,candidate_endpoint = NULL" : "");
+        this.jobTabName = (configuration.getSchemaName() != null) 
+                ? configuration.getSchemaName() + "." + configuration.getJobTableName() 
+                : configuration.getJobTableName();
+        this.createJobTableSQL = String.format(SQL_CREATE_JOB_TABLE_TEMPLATE, this.jobTabName, this.getVarcharStr(), this.getBigIntStr());
+        this.selectJobSQL = String.format(SQL_SELECT_JOB_TEMPLATE, this.jobTabName);
+        this.updateJobSQL = String.format(SQL_UPDATE_JOB_TEMPLATE, this.jobTabName, currentUtcMsExpression(), this.tabName);
+        this.insertJobSQL = String.format(SQL_INSERT_JOB_TEMPLATE, this.jobTabName, currentUtcMsExpression(), this.tabName,
+                typedParameter(this.getVarcharStr() + "(20)"),
+                typedParameter(this.getVarcharStr() + "(100)"),
+                typedParameter(this.getBigIntStr()));
+        this.completeJobSQL = String.format(SQL_COMPLETE_JOB_TEMPLATE, this.jobTabName, currentUtcMsExpression());
+        this.selectFenceSQL = String.format(SQL_SELECT_FENCE_TEMPLATE, this.tabName, fenceTableHint(), fenceLockClause());
+        this.fencePredicateSQL = String.format(SQL_FENCE_PREDICATE_TEMPLATE, this.tabName);
     }
 
     
     public static SQLCmds getSQL(LeaderElectorConfiguration configuration) {
+        return getSQL(configuration, true);
+    }
+
+    /**
+     * @param configuration
+     * @param endpointColumn see {@link #hasEndpointColumn()}
+     */
+    public static SQLCmds getSQL(LeaderElectorConfiguration configuration, boolean endpointColumn) {
         DatabaseEngine databaseEngine = configuration.getDatabaseEngine();
         switch (databaseEngine) {
             case POSTGRESQL:
-                return new SQLCmdsPostgreSQL(configuration);
+                return new SQLCmdsPostgreSQL(configuration, endpointColumn);
             case MYSQL:
             case MARIADB:    
-                return new SQLCmdsMySQL(configuration);
+                return new SQLCmdsMySQL(configuration, endpointColumn);
             case ORACLE:    
-                return new SQLCmdsOracle(configuration);
+                return new SQLCmdsOracle(configuration, endpointColumn);
             case MSSQL:    
-                return new SQLCmdsMSSQL(configuration);
+                return new SQLCmdsMSSQL(configuration, endpointColumn);
             case H2:    
-                return new SQLCmdsH2(configuration);
+                return new SQLCmdsH2(configuration, endpointColumn);
             case DB2_LUW:
-                return new SQLCmdsDb2(configuration);
+                return new SQLCmdsDb2(configuration, endpointColumn);
             default:
                 throw new LeaderElectorPreFlightException("Support for " + databaseEngine + " not yet implemented");
         }
@@ -139,6 +283,77 @@ public abstract class SQLCmds {
         return createTableSQL;
     }
 
+    /**
+     * Gets if the {@code candidate_endpoint} column is read (as column #5
+     * of the SELECT statements) and written.
+     */
+    public boolean hasEndpointColumn() {
+        return endpointColumn;
+    }
+
+    /**
+     * Text to insert after the {@code lease_counter} column in the select 
+     * list of the SELECT statements. Must be used by subclasses which 
+     * override these statements.
+     */
+    protected final String endpointSelectList() {
+        return (endpointColumn) ? ",    candidate_endpoint" : "";
+    }
+
+    /**
+     * Gets statements to be executed after the leader election table has 
+     * been created by {@link #getCreateTableSQL()}, for storage options 
+     * which cannot be set on {@code CREATE TABLE}.
+     */
+    public List<String> getAfterCreateTableSQL() {
+        return afterCreateTableSQL;
+    }
+
+    /**
+     * Options for the primary key of the leader election table, appended 
+     * to {@code PRIMARY KEY (role_id)}. Must not depend on instance fields
+     * as it is invoked from the constructor.
+     */
+    protected String primaryKeyOptions(TableStorageProfile profile) {
+        return "";
+    }
+
+    /**
+     * Options for the leader election table, appended to 
+     * {@code CREATE TABLE}. Must not depend on instance fields as it is 
+     * invoked from the constructor.
+     */
+    protected String tableOptions(TableStorageProfile profile) {
+        return "";
+    }
+
+    /**
+     * Table hint for {@link #getSelectFenceSQL()}, appended to the table
+     * name. Must not depend on instance fields as it is invoked from the 
+     * constructor.
+     */
+    protected String fenceTableHint() {
+        return "";
+    }
+
+    /**
+     * Locking clause for {@link #getSelectFenceSQL()}, appended to the 
+     * statement. A shared lock is preferred as it doesn't serialize 
+     * fenced writes. Must not depend on instance fields as it is invoked
+     * from the constructor.
+     */
+    protected String fenceLockClause() {
+        return " FOR SHARE";
+    }
+
+    /**
+     * See {@link #getAfterCreateTableSQL()}. Must not depend on instance
+     * fields as it is invoked from the constructor.
+     */
+    protected List<String> afterCreateTableSQL(String tabName, TableStorageProfile profile) {
+        return Collections.emptyList();
+    }
+
     public String getAffirmLeadershipSQL() {
         return affirmLeadershipSQL;
     }
@@ -147,6 +362,10 @@ public abstract class SQLCmds {
         return assumeLeadershipSQL;
     }
 
+    public String getRenewLeadershipSQL() {
+        return renewLeadershipSQL;
+    }
+
     public String getRelinquishLeadershipSQL() {
         return relinquishLeadershipSQL;
     }
@@ -154,6 +373,25 @@ public abstract class SQLCmds {
     public String getSelectSQL() {
         return selectSQL;
     }
+
+    /**
+     * Gets SQL which is the same as {@link #getSelectSQL()} except that 
+     * it does not wait if the row is locked by another session. Depending
+     * on the database, a locked row either results in an exception for 
+     * which {@link #isLockNotAvailableException(java.sql.SQLException)}
+     * returns true, or in the row being skipped (an empty result).
+     */
+    public String getSelectNoWaitSQL() {
+        return selectNoWaitSQL;
+    }
+
+    /**
+     * Gets SQL for reading the row without taking any lock. The columns
+     * are the same as for {@link #getSelectSQL()}.
+     */
+    public String getSelectNoLockSQL() {
+        return selectNoLockSQL;
+    }
     
     public String getBigIntStr() {
         return "bigint";
@@ -166,6 +404,33 @@ public abstract class SQLCmds {
     public boolean isTableAlreadyExistException(SQLException ex) {
         return false;
     }
+
+    /**
+     * Parameter marker for a value of the given SQL type in a position 
+     * where the database cannot infer the type, such as in the select 
+     * list of {@code INSERT INTO .. SELECT ?, ? FROM ..}. Most drivers 
+     * send the type along with the value so a plain marker is enough.
+     */
+    protected String typedParameter(String sqlType) {
+        return "?";
+    }
+
+    /**
+     * Gets if the exception is the result of a row being locked by another
+     * session when using {@link #getSelectNoWaitSQL()}.
+     */
+    public boolean isLockNotAvailableException(SQLException ex) {
+        return false;
+    }
+
+    /**
+     * Gets if the exception is the result of a primary key or unique
+     * constraint violation.
+     */
+    public boolean isDuplicateKeyException(SQLException ex) {
+        return (ex instanceof SQLIntegrityConstraintViolationException)
+                || (ex.getSQLState() != null && ex.getSQLState().startsWith("23"));
+    }
     /**
      * Statement which returns a single row with a single column with value
      * which is the milliseconds since epoch as derived from the time in the
@@ -179,11 +444,122 @@ public abstract class SQLCmds {
         return connection.prepareStatement(getCreateTableSQL());
     }
     
+    public String getCreateJobTableSQL() {
+        return createJobTableSQL;
+    }
+
+    public PreparedStatement getCreateJobTableStmt(Connection connection) throws SQLException {
+        return connection.prepareStatement(getCreateJobTableSQL());
+    }
+
+    public PreparedStatement getSelectJobStmt(Connection connection, String roleId, String jobId) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(selectJobSQL);
+        pstmt.setString(1, roleId);
+        pstmt.setString(2, jobId);
+        return pstmt;
+    }
+
+    /**
+     * Statement which claims a run of a job, but only if the job row exists,
+     * has not been written under a newer lease and if {@code candidateId} 
+     * still holds the lease identified by {@code leaseCounter}. 
+     * The update count is 0 if any of these conditions are not met.
+     */
+    public PreparedStatement getUpdateJobStmt(Connection connection, String roleId, String jobId, 
+            long fireTime, String candidateId, long leaseCounter) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(updateJobSQL);
+        pstmt.setLong(1, fireTime);
+        pstmt.setLong(2, leaseCounter);
+        pstmt.setString(3, roleId);
+        pstmt.setString(4, jobId);
+        pstmt.setLong(5, leaseCounter);
+        pstmt.setString(6, roleId);
+        pstmt.setString(7, candidateId);
+        pstmt.setLong(8, leaseCounter);
+        return pstmt;
+    }
+
+    /**
+     * Statement which claims the first run of a job, but only if 
+     * {@code candidateId} still holds the lease identified by 
+     * {@code leaseCounter}. The update count is 0 if this is not the case.
+     * Fails with a {@link #isDuplicateKeyException(java.sql.SQLException) duplicate key error}
+     * if the row already exists.
+     */
+    public PreparedStatement getInsertJobStmt(Connection connection, String roleId, String jobId, 
+            long fireTime, String candidateId, long leaseCounter) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(insertJobSQL);
+        pstmt.setString(1, roleId);
+        pstmt.setString(2, jobId);
+        pstmt.setLong(3, fireTime);
+        pstmt.setLong(4, leaseCounter);
+        pstmt.setString(5, roleId);
+        pstmt.setString(6, candidateId);
+        pstmt.setLong(7, leaseCounter);
+        return pstmt;
+    }
+
+    /**
+     * Statement which records that a claimed run of a job has completed.
+     * The update count is 0 if the row no longer holds the claim, i.e. if
+     * the job has since been claimed for another fire time or under 
+     * another lease.
+     */
+    public PreparedStatement getCompleteJobStmt(Connection connection, String roleId, String jobId, 
+            long fireTime, long leaseCounter) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(completeJobSQL);
+        pstmt.setString(1, roleId);
+        pstmt.setString(2, jobId);
+        pstmt.setLong(3, fireTime);
+        pstmt.setLong(4, leaseCounter);
+        return pstmt;
+    }
+    
+    /**
+     * Gets SQL which reads the row if, and only if, {@code candidateId} 
+     * holds the lease identified by {@code lease_counter}. The row is 
+     * locked until the end of the transaction, preventing another 
+     * candidate from assuming leadership in the meantime.
+     */
+    public String getSelectFenceSQL() {
+        return selectFenceSQL;
+    }
+
+    /**
+     * Gets an {@code EXISTS} predicate which is true if, and only if, 
+     * a candidate holds a lease. The predicate has three parameters:
+     * role id, candidate id and lease counter.
+     */
+    public String getFencePredicateSQL() {
+        return fencePredicateSQL;
+    }
+
+    public PreparedStatement getSelectFenceStmt(Connection connection, String roleId, 
+            String candidateId, long leaseCounter) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(getSelectFenceSQL());
+        pstmt.setString(1, roleId);
+        pstmt.setString(2, candidateId);
+        pstmt.setLong(3, leaseCounter);
+        return pstmt;
+    }
+
     public PreparedStatement getSelectStmt(Connection connection, String roleId) throws SQLException {
         PreparedStatement pstmt = connection.prepareStatement(getSelectSQL());
         pstmt.setString(1, roleId);
         return pstmt;
     }
+
+    public PreparedStatement getSelectNoWaitStmt(Connection connection, String roleId) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(getSelectNoWaitSQL());
+        pstmt.setString(1, roleId);
+        return pstmt;
+    }
+
+    public PreparedStatement getSelectNoLockStmt(Connection connection, String roleId) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(getSelectNoLockSQL());
+        pstmt.setString(1, roleId);
+        return pstmt;
+    }
     
     public PreparedStatement getAffirmLeadershipStmt(Connection connection, String roleId, String candidateId)
             throws SQLException {
@@ -193,12 +569,35 @@ public abstract class SQLCmds {
         return pstmt;
     }
 
-    public PreparedStatement getAssumeLeadershipStmt(Connection connection, String roleId, String candidateId, long newLeaseCounter)
+    public PreparedStatement getRenewLeadershipStmt(Connection connection, String roleId, String candidateId, long leaseCounter)
+            throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(getRenewLeadershipSQL());
+        pstmt.setString(1, roleId);
+        pstmt.setString(2, candidateId);
+        pstmt.setLong(3, leaseCounter);
+        return pstmt;
+    }
+
+    /**
+     * @param candidateEndpoint may be null. Ignored if the table has no 
+     *     endpoint column.
+     */
+    public PreparedStatement getAssumeLeadershipStmt(Connection connection, String roleId, String candidateId, 
+            long newLeaseCounter, String candidateEndpoint)
             throws SQLException {
         PreparedStatement pstmt = connection.prepareStatement(getAssumeLeadershipSQL());
         pstmt.setString(1, candidateId);
         pstmt.setLong(2, newLeaseCounter);
-        pstmt.setString(3, roleId);
+        if (endpointColumn) {
+            if (candidateEndpoint == null) {
+                pstmt.setNull(3, Types.VARCHAR);
+            } else {
+                pstmt.setString(3, candidateEndpoint);
+            }
+            pstmt.setString(4, roleId);
+        } else {
+            pstmt.setString(3, roleId);
+        }
         return pstmt;
     }
 
@@ -251,6 +650,14 @@ public abstract class SQLCmds {
     public String getTabNamePlain() {
         return tabNamePlain;
     }
+
+    /**
+     * Tablename for the job table, as it should be used in SQL strings. If relevant it will 
+     * include a schema prefix.
+     */
+    public final String getJobTabName() {
+        return jobTabName;
+    }
     
     
 }
@@ -18,7 +18,11 @@ package net.lbruun.dbleaderelect.internal.sql;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.TableStorageProfile;
 
 /**
  * Db2 for Linux, Unix and Windows (aka Ddb2 LUW)
@@ -33,9 +37,22 @@ public class SQLCmdsDb2 extends SQLCmds {
             + "    last_seen_timestamp," // #2
             + "    %s as now_utc_ms," // #3
             + "    lease_counter" // #4
+            + "%s" // #5 (optional) candidate_endpoint
             + " FROM %s"
             + " WHERE role_id = ?"
             + " FOR READ ONLY WITH RS USE AND KEEP EXCLUSIVE LOCKS WAIT FOR OUTCOME";
+
+    // Skips the row if it is locked
+    private static final String SQL_SELECT_NOWAIT_TEMPLATE
+          = "SELECT "
+            + "    candidate_id," // #1
+            + "    last_seen_timestamp," // #2
+            + "    %s as now_utc_ms," // #3
+            + "    lease_counter" // #4
+            + "%s" // #5 (optional) candidate_endpoint
+            + " FROM %s"
+            + " WHERE role_id = ?"
+            + " FOR READ ONLY WITH RS USE AND KEEP EXCLUSIVE LOCKS SKIP LOCKED DATA";
     
     private static final String SQL_CURRENT_UTC_MS = 
             "(DATE_PART('EPOCH', TRUNC_TIMESTAMP(CURRENT_TIMESTAMP(3), 'SS'))*1000)"
@@ -43,10 +60,12 @@ public class SQLCmdsDb2 extends SQLCmds {
             + " (DATE_PART('MILLISECOND', CURRENT_TIMESTAMP(3)) - TRUNC(DATE_PART('MILLISECOND', CURRENT_TIMESTAMP(3)),-3))";
 
     private final String selectSQL_Db2;
+    private final String selectNoWaitSQL_Db2;
 
-    public SQLCmdsDb2(LeaderElectorConfiguration configuration) {
-        super(configuration);
-        this.selectSQL_Db2 = String.format(SQL_SELECT_TEMPLATE, currentUtcMsExpression(), this.getTabName());
+    public SQLCmdsDb2(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        super(configuration, endpointColumn);
+        this.selectSQL_Db2 = String.format(SQL_SELECT_TEMPLATE, currentUtcMsExpression(), endpointSelectList(), this.getTabName());
+        this.selectNoWaitSQL_Db2 = String.format(SQL_SELECT_NOWAIT_TEMPLATE, currentUtcMsExpression(), endpointSelectList(), this.getTabName());
     }
 
     public String currentUtcMsExpression() {
@@ -58,6 +77,11 @@ public class SQLCmdsDb2 extends SQLCmds {
         return this.selectSQL_Db2;
     }
 
+    @Override
+    public String getSelectNoWaitSQL() {
+        return this.selectNoWaitSQL_Db2;
+    }
+
     @Override
     public PreparedStatement getInsertRoleStmt(Connection connection, String roleId) throws SQLException {
         // Db2's procedural language doesn't have try-catch, instead is has
@@ -76,13 +100,35 @@ public class SQLCmdsDb2 extends SQLCmds {
         return preparedStatement;
     }
 
+    @Override
+    protected String typedParameter(String sqlType) {
+        // Db2 rejects untyped parameter markers in a select list
+        return "CAST(? AS " + sqlType + ")";
+    }
+
     @Override
     public String fromNothingString() {
         return "FROM SYSIBM.SYSDUMMY1";
     }
 
+    @Override
+    protected List<String> afterCreateTableSQL(String tabName, TableStorageProfile profile) {
+        // Neither can be set on CREATE TABLE in Db2 LUW
+        if (profile == TableStorageProfile.WRITE_OPTIMIZED) {
+            return Collections.unmodifiableList(Arrays.asList(
+                    "ALTER TABLE " + tabName + " PCTFREE 50",
+                    "ALTER TABLE " + tabName + " VOLATILE CARDINALITY"));
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     public boolean isTableAlreadyExistException(SQLException ex) {
         return (ex.getSQLState().equals("42710") && (ex.getErrorCode() == -601));
     }
+
+    @Override
+    protected String fenceLockClause() {
+        return " FOR READ ONLY WITH RS USE AND KEEP SHARE LOCKS";
+    }
 }
@@ -18,6 +18,7 @@ package net.lbruun.dbleaderelect.internal.sql;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import net.lbruun.dbleaderelect.LeaderElector;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
 
 /**
@@ -28,8 +29,8 @@ public class SQLCmdsH2 extends SQLCmds {
     private static final String SQL_CURRENT_UTC_MS = 
             "CAST(EXTRACT(EPOCH FROM CURRENT_TIMESTAMP)*1000 AS bigint)";
 
-    public SQLCmdsH2(LeaderElectorConfiguration configuration) {
-        super(configuration);
+    public SQLCmdsH2(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        super(configuration, endpointColumn);
     }
 
     public String currentUtcMsExpression() {
@@ -43,9 +44,15 @@ public class SQLCmdsH2 extends SQLCmds {
         // under heavy concurrent load. But this is H2, hopefully nobody would
         // run a production workload on it. So we accept this deviation
         // from the formal requirement for this method.
-        String sql = "MERGE INTO " + getTabName() + " " + COLUMN_LIST_FOR_INSERT
-                + " KEY(role_id)"
-                + " VALUES " + VALUES_LIST_FOR_INSERT;
+        // Note that the MERGE must only insert: the H2-specific 
+        // 'MERGE .. KEY(..)' would overwrite an existing row and thereby 
+        // reset the current leadership.
+        String sql = "MERGE INTO " + getTabName() + " t"
+                + " USING (VALUES (CAST(? AS " + getVarcharStr() + "(20)))) s(role_id)"
+                + " ON t.role_id = s.role_id"
+                + " WHEN NOT MATCHED THEN INSERT " + COLUMN_LIST_FOR_INSERT
+                + " VALUES (s.role_id, '" + LeaderElector.NO_LEADER_CANDIDATE_ID + "'," 
+                + LeaderElector.NO_LEADER_LASTSEENTIMESTAMP_MS + ", 0)";
         PreparedStatement preparedStatement = connection.prepareStatement(sql);
         preparedStatement.setString(1, roleId);
         return preparedStatement;
@@ -55,4 +62,17 @@ public class SQLCmdsH2 extends SQLCmds {
     public boolean isTableAlreadyExistException(SQLException ex) {
         return (ex.getSQLState().equals("42S01"));
     }
+
+    @Override
+    public String getSelectNoWaitSQL() {
+        // H2 (as of 2.0.206) accepts 'FOR UPDATE NOWAIT' but waits for the 
+        // lock anyway, until the lock timeout, which then breaks the connection.
+        return getSelectSQL();
+    }
+
+    @Override
+    protected String fenceLockClause() {
+        // H2 has no shared row locks
+        return " FOR UPDATE";
+    }
 }
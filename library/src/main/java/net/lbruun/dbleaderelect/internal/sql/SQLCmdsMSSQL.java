@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.TableStorageProfile;
 
 /**
  *
@@ -33,20 +34,36 @@ public class SQLCmdsMSSQL extends SQLCmds {
             + "    last_seen_timestamp," // #2
             + "    %s as now_utc_ms," // #3
             + "    lease_counter" // #4
+            + "%s" // #5 (optional) candidate_endpoint
             + " FROM %s"
             + " WITH (UPDLOCK,HOLDLOCK,ROWLOCK)"
             + " WHERE role_id = ?";
 
+    // Skips the row if it is locked. READPAST cannot be combined with 
+    // HOLDLOCK (serializable). It isn't needed as the row always exists.
+    private static final String SQL_SELECT_NOWAIT_TEMPLATE
+            = "SELECT "
+            + "    candidate_id," // #1
+            + "    last_seen_timestamp," // #2
+            + "    %s as now_utc_ms," // #3
+            + "    lease_counter" // #4
+            + "%s" // #5 (optional) candidate_endpoint
+            + " FROM %s"
+            + " WITH (UPDLOCK,ROWLOCK,READPAST)"
+            + " WHERE role_id = ?";
+
     // DATEDIFF_BIG was instroduced in SQL Server 2016
     private static final String SQL_CURRENT_UTC_MS = 
             "DATEDIFF_BIG(millisecond, '1970-01-01 00:00:00', GETUTCDATE())";
     
     private final String selectSQL_MSSQL;
+    private final String selectNoWaitSQL_MSSQL;
 
     
-    public SQLCmdsMSSQL(LeaderElectorConfiguration configuration) {
-        super(configuration);
-        this.selectSQL_MSSQL = String.format(SQL_SELECT_TEMPLATE, currentUtcMsExpression(), this.getTabName());
+    public SQLCmdsMSSQL(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        super(configuration, endpointColumn);
+        this.selectSQL_MSSQL = String.format(SQL_SELECT_TEMPLATE, currentUtcMsExpression(), endpointSelectList(), this.getTabName());
+        this.selectNoWaitSQL_MSSQL = String.format(SQL_SELECT_NOWAIT_TEMPLATE, currentUtcMsExpression(), endpointSelectList(), this.getTabName());
     }
 
     public String currentUtcMsExpression() {
@@ -57,6 +74,11 @@ public class SQLCmdsMSSQL extends SQLCmds {
     public String getSelectSQL() {
         return this.selectSQL_MSSQL;
     }
+
+    @Override
+    public String getSelectNoWaitSQL() {
+        return this.selectNoWaitSQL_MSSQL;
+    }
     
     @Override
     public PreparedStatement getInsertRoleStmt(Connection connection, String roleId) throws SQLException {
@@ -74,8 +96,29 @@ public class SQLCmdsMSSQL extends SQLCmds {
         return preparedStatement;
     }
 
+    @Override
+    protected String primaryKeyOptions(TableStorageProfile profile) {
+        // Memory-optimized tables are not an option: they do not support 
+        // the UPDLOCK and HOLDLOCK hints which the election depends on.
+        if (profile == TableStorageProfile.WRITE_OPTIMIZED) {
+            return " WITH (FILLFACTOR = 50)";
+        }
+        return "";
+    }
+
     @Override
     public boolean isTableAlreadyExistException(SQLException ex) {
         return (ex.getSQLState().equals("S0001") && (ex.getErrorCode() == 2714));
     }
+
+    @Override
+    protected String fenceTableHint() {
+        // Shared lock, held until the end of the transaction
+        return " WITH (HOLDLOCK,ROWLOCK)";
+    }
+
+    @Override
+    protected String fenceLockClause() {
+        return "";
+    }
 }
@@ -28,8 +28,8 @@ public class SQLCmdsMySQL extends SQLCmds {
     private static final String SQL_CURRENT_UTC_MS = 
             "CAST(1000*UNIX_TIMESTAMP(current_timestamp(3)) AS UNSIGNED INTEGER)";
 
-    public SQLCmdsMySQL(LeaderElectorConfiguration configuration) {
-        super(configuration);
+    public SQLCmdsMySQL(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        super(configuration, endpointColumn);
     }
 
     public String currentUtcMsExpression() {
@@ -49,4 +49,16 @@ public class SQLCmdsMySQL extends SQLCmds {
     public boolean isTableAlreadyExistException(SQLException ex) {
         return (ex.getSQLState().equals("42S01"));
     }
+
+    @Override
+    public boolean isLockNotAvailableException(SQLException ex) {
+        // ER_LOCK_NOWAIT. NOWAIT requires MySQL 8.0.
+        return (ex.getErrorCode() == 3572);
+    }
+
+    @Override
+    protected String fenceLockClause() {
+        // 'FOR SHARE' requires MySQL 8.0, this also works with MariaDB
+        return " LOCK IN SHARE MODE";
+    }
 }
@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.TableStorageProfile;
 
 /**
  *
@@ -28,8 +29,8 @@ public class SQLCmdsOracle extends SQLCmds {
     private static final String SQL_CURRENT_UTC_MS = 
             "(EXTRACT(DAY FROM (SYSTIMESTAMP - TIMESTAMP '1970-01-01 00:00:00 UTC') * 24 * 60) * 60 + EXTRACT(SECOND FROM SYSTIMESTAMP)) *  1000";
 
-    public SQLCmdsOracle(LeaderElectorConfiguration configuration) {
-        super(configuration);
+    public SQLCmdsOracle(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        super(configuration, endpointColumn);
     }
 
     public String currentUtcMsExpression() {
@@ -65,4 +66,24 @@ public class SQLCmdsOracle extends SQLCmds {
     public boolean isTableAlreadyExistException(SQLException ex) {
         return (ex.getSQLState().equals("42000") && (ex.getErrorCode() == 955));
     }
+
+    @Override
+    protected String tableOptions(TableStorageProfile profile) {
+        if (profile == TableStorageProfile.WRITE_OPTIMIZED) {
+            return " PCTFREE 50 INITRANS 4";
+        }
+        return "";
+    }
+
+    @Override
+    public boolean isLockNotAvailableException(SQLException ex) {
+        // ORA-00054: resource busy and acquire with NOWAIT specified
+        return (ex.getErrorCode() == 54);
+    }
+
+    @Override
+    protected String fenceLockClause() {
+        // Oracle has no shared row locks
+        return " FOR UPDATE";
+    }
 }
@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.TableStorageProfile;
 
 /**
  *
@@ -28,8 +29,8 @@ public class SQLCmdsPostgreSQL extends SQLCmds {
     private static final String SQL_CURRENT_UTC_MS = 
             "CAST(EXTRACT(EPOCH FROM CURRENT_TIMESTAMP(3))*1000 AS bigint)";
 
-    public SQLCmdsPostgreSQL(LeaderElectorConfiguration configuration) {
-        super(configuration);
+    public SQLCmdsPostgreSQL(LeaderElectorConfiguration configuration, boolean endpointColumn) {
+        super(configuration, endpointColumn);
     }
 
     public String currentUtcMsExpression() {
@@ -50,4 +51,23 @@ public class SQLCmdsPostgreSQL extends SQLCmds {
     public boolean isTableAlreadyExistException(SQLException ex) {
         return (ex.getSQLState().equals("42P07"));
     }
+
+    @Override
+    protected String tableOptions(TableStorageProfile profile) {
+        if (profile == TableStorageProfile.WRITE_OPTIMIZED) {
+            // Room on the page for HOT updates. Vacuum after a fixed number
+            // of dead tuples, as a fraction of a table with a handful of 
+            // rows is meaningless.
+            return " WITH (fillfactor = 50,"
+                    + " autovacuum_vacuum_scale_factor = 0, autovacuum_vacuum_threshold = 1000,"
+                    + " autovacuum_analyze_scale_factor = 0, autovacuum_analyze_threshold = 100000)";
+        }
+        return "";
+    }
+
+    @Override
+    public boolean isLockNotAvailableException(SQLException ex) {
+        // lock_not_available
+        return ("55P03".equals(ex.getSQLState()));
+    }
 }
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.sql.DataSource;
+
+/**
+ * Obtains connections from a {@link DataSource} with a deadline, without
+ * changing any settings of the {@code DataSource}.
+ *
+ * <p>
+ * For HikariCP the deadline is passed to the pool for the individual
+ * request ({@code HikariPool.getConnection(long)}). HikariCP is not a
+ * dependency of this library, so the method is looked up reflectively,
+ * once. The pool is obtained from {@code getHikariPoolMXBean()}, which 
+ * returns the {@code HikariPool} itself. That is an implementation detail
+ * of HikariCP, verified against HikariCP 4.0.3. If a version returns 
+ * something else, HikariCP is treated like any other 
+ * {@code DataSource}. For any other {@code DataSource} the connection is requested in a
+ * background thread and abandoned if it doesn't arrive in time. An
+ * abandoned connection is closed when it eventually arrives. While an
+ * abandoned request is outstanding, further requests fail immediately so
+ * that a hanging {@code DataSource} cannot accumulate threads.
+ *
+ * <p>
+ * Timeouts are reported as {@link SQLTransientConnectionException}, 
+ * which is also what HikariCP throws.
+ *
+ * <p>
+ * Not thread-safe.
+ */
+public class ConnectionAcquirer {
+
+    private static final String HIKARI_DATASOURCE_CLASS = "com.zaxxer.hikari.HikariDataSource";
+
+    private final DataSource dataSource;
+    private final boolean hikariOnly;
+    private long timeoutMs;
+    private HikariAccess hikari;                // null if not HikariCP
+    private CompletableFuture<Connection> abandoned;  // outstanding request which timed out
+
+    /**
+     * @param dataSource
+     * @param timeoutMs maximum time to wait for a connection, or 0 to
+     *     wait as long as the {@code DataSource} does
+     */
+    public ConnectionAcquirer(DataSource dataSource, long timeoutMs) {
+        this(dataSource, timeoutMs, false);
+    }
+
+    /**
+     * @param dataSource
+     * @param timeoutMs maximum time to wait for a connection, or 0 to
+     *     wait as long as the {@code DataSource} does
+     * @param hikariOnly if the timeout only applies to HikariCP. For any
+     *     other {@code DataSource} the connection is then requested 
+     *     directly, without a timeout.
+     */
+    public ConnectionAcquirer(DataSource dataSource, long timeoutMs, boolean hikariOnly) {
+        this.dataSource = dataSource;
+        this.hikariOnly = hikariOnly;
+        this.hikari = (timeoutMs > 0) ? HikariAccess.forDataSource(dataSource) : null;
+        this.timeoutMs = (hikariOnly && hikari == null) ? 0 : timeoutMs;
+    }
+
+    /**
+     * Gets a connection from the {@code DataSource}, waiting at most
+     * the timeout.
+     * 
+     * @return connection
+     * @throws SQLTransientConnectionException if no connection could be
+     *     obtained in time
+     * @throws SQLException from the {@code DataSource}
+     */
+    public Connection getConnection() throws SQLException {
+        if (timeoutMs <= 0) {
+            return dataSource.getConnection();
+        }
+        if (hikari != null) {
+            Object pool = hikari.getPool();
+            if (pool == null) {
+                // Pool not (or no longer) running: let HikariDataSource decide
+                return dataSource.getConnection();
+            }
+            if (hikari.isPool(pool)) {
+                return hikari.getConnection(pool, timeoutMs);
+            }
+            // Unexpected HikariCP version: treat it like any other DataSource
+            hikari = null;
+            if (hikariOnly) {
+                timeoutMs = 0;
+                return dataSource.getConnection();
+            }
+        }
+        return getConnectionInBackground();
+    }
+
+    private Connection getConnectionInBackground() throws SQLException {
+        if (abandoned != null) {
+            if (!abandoned.isDone()) {
+                throw new SQLTransientConnectionException(
+                        "A previous request for a connection is still waiting after more than " + timeoutMs + " ms");
+            }
+            abandoned = null;
+        }
+        CompletableFuture<Connection> future = new CompletableFuture<>();
+        Executor.INSTANCE.execute(() -> {
+            try {
+                future.complete(dataSource.getConnection());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            abandoned = future;
+            future.thenAccept(ConnectionAcquirer::closeQuietly);
+            throw new SQLTransientConnectionException("No connection obtained within " + timeoutMs + " ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.thenAccept(ConnectionAcquirer::closeQuietly);
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            // Ignore. Nobody is waiting for this connection.
+        }
+    }
+
+    // Lazy initialization holder for the threads used for background
+    // requests. Threads are daemon threads and die when idle.
+    private static class Executor {
+        private static final ExecutorService INSTANCE = new ThreadPoolExecutor(
+                0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryWithNamePrefix("LeaderElector-connect", true));
+    }
+
+    /**
+     * Access to HikariCP's per-request connection timeout.
+     * 
+     * <p>
+     * Relies on {@code HikariDataSource.getHikariPoolMXBean()} returning 
+     * the {@code HikariPool} itself, which is the case in HikariCP 4.0.3.
+     * It is not part of HikariCP's API, so the pool is checked with
+     * {@link #isPool(Object)} before use.
+     */
+    private static class HikariAccess {
+
+        private final DataSource hikariDataSource;
+        private final Class<?> poolClass;               // HikariPool
+        private final MethodHandle getPool;             // (HikariDataSource) -> HikariPoolMXBean
+        private final MethodHandle isClosed;            // (HikariDataSource) -> boolean
+        private final MethodHandle getConnection;       // (HikariPool, long) -> Connection
+
+        private HikariAccess(DataSource hikariDataSource, Class<?> poolClass, MethodHandle getPool, 
+                MethodHandle isClosed, MethodHandle getConnection) {
+            this.hikariDataSource = hikariDataSource;
+            this.poolClass = poolClass;
+            this.getPool = getPool;
+            this.isClosed = isClosed;
+            this.getConnection = getConnection;
+        }
+
+        /**
+         * @return access, or null if the DataSource is not HikariCP (or 
+         *     the HikariCP version is unexpected)
+         */
+        static HikariAccess forDataSource(DataSource dataSource) {
+            try {
+                ClassLoader classLoader = dataSource.getClass().getClassLoader();
+                Class<?> dsClass = Class.forName(HIKARI_DATASOURCE_CLASS, false, classLoader);
+                // A wrapper is not unwrapped as it may intercept getConnection()
+                if (!dsClass.isInstance(dataSource)) {
+                    return null;
+                }
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodHandle getPoolMxBean = lookup.findVirtual(dsClass, "getHikariPoolMXBean",
+                        MethodType.methodType(Class.forName("com.zaxxer.hikari.HikariPoolMXBean", false, classLoader)));
+                Class<?> poolClass = Class.forName("com.zaxxer.hikari.pool.HikariPool", false, classLoader);
+                MethodHandle getConnection = lookup.findVirtual(poolClass, "getConnection",
+                        MethodType.methodType(Connection.class, long.class));
+                MethodHandle isClosed = lookup.findVirtual(dsClass, "isClosed",
+                        MethodType.methodType(boolean.class));
+                return new HikariAccess(dataSource, poolClass,
+                        getPoolMxBean.asType(MethodType.methodType(Object.class, DataSource.class)),
+                        isClosed.asType(MethodType.methodType(boolean.class, DataSource.class)),
+                        getConnection.asType(MethodType.methodType(Connection.class, Object.class, long.class)));
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+                return null;
+            }
+        }
+
+        /**
+         * @return the pool's MXBean, or null if the pool isn't running
+         */
+        Object getPool() throws SQLException {
+            try {
+                if ((boolean) isClosed.invokeExact(hikariDataSource)) {
+                    return null;
+                }
+                return (Object) getPool.invokeExact(hikariDataSource);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new SQLException(ex);
+            }
+        }
+
+        /**
+         * @param pool as returned by {@link #getPool()}
+         * @return true if {@code pool} is the {@code HikariPool} itself
+         */
+        boolean isPool(Object pool) {
+            return poolClass.isInstance(pool);
+        }
+
+        /**
+         * @param pool as returned by {@link #getPool()}, for which
+         *     {@link #isPool(Object)} is true
+         * @return connection
+         */
+        Connection getConnection(Object pool, long timeoutMs) throws SQLException {
+            try {
+                return (Connection) getConnection.invokeExact(pool, timeoutMs);
+            } catch (SQLException | RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new SQLException(ex);
+            }
+        }
+    }
+}
@@ -75,6 +75,32 @@ public class SQLUtils {
     }
     
     
+    /**
+     * Verifies if a column exists on a table by lookup in the database's 
+     * internal dictionary.
+     * 
+     * @param connection
+     * @param schemaName schema name, optional, current schema is used if not specified
+     * @param tableName table name, mandatory, not qualified
+     * @param columnName column name, mandatory
+     * @return true if the column exists
+     * @throws SQLException 
+     */
+    public static boolean columnExists(Connection connection, String schemaName, String tableName, String columnName) throws SQLException {
+        Objects.requireNonNull(connection, "connection cannot be null");
+        Objects.requireNonNull(tableName, "tableName cannot be null");
+        Objects.requireNonNull(columnName, "columnName cannot be null");
+        
+        DatabaseMetaData meta = connection.getMetaData();
+        
+        String s = objectNameNormalisation(meta, schemaName);
+        String t = objectNameNormalisation(meta, tableName);
+        String c = objectNameNormalisation(meta, columnName);
+        try ( ResultSet resultSet = meta.getColumns(null, s, t, c)) {
+            return resultSet.next();
+        }
+    }
+    
     public static void tableColumnVerification(DataSource dataSource, String schemaName, String tableName, TableColumn[] expectedColumns) throws SQLException {
         Objects.requireNonNull(dataSource, "dataSource cannot be null");
         try ( Connection connection = dataSource.getConnection()) {
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.utils;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * JVM-wide timer for short-lived housekeeping tasks such as deadline checks.
+ * 
+ * <p>
+ * All Leader Elector instances in the JVM share a single daemon thread,
+ * named "LeaderElector-timer", which is created on first use. Tasks 
+ * executed by the timer must be quick and must never block. 
+ */
+public class SharedScheduler {
+
+    private SharedScheduler() {
+    }
+
+    /**
+     * Gets the shared timer. 
+     * 
+     * <p>
+     * The returned executor must never be shut down. Cancelled tasks are
+     * removed from the timer's queue immediately.
+     * @return executor
+     */
+    public static ScheduledExecutorService get() {
+        return Holder.INSTANCE;
+    }
+    
+    // Lazy initialization holder
+    private static class Holder {
+        private static final ScheduledThreadPoolExecutor INSTANCE = create();
+
+        private static ScheduledThreadPoolExecutor create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    1, new ThreadFactoryWithNamePrefix("LeaderElector-timer", true));
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
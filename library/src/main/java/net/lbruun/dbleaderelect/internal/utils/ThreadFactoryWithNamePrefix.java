@@ -51,6 +51,7 @@ public class ThreadFactoryWithNamePrefix implements ThreadFactory {
     private final ThreadGroup group;
     private final AtomicInteger threadNumber = new AtomicInteger(1);
     private final String namePrefix;
+    private final boolean daemon;
 
     /**
      * Creates a new ThreadFactory where threads are created with a thread name 
@@ -61,6 +62,19 @@ public class ThreadFactoryWithNamePrefix implements ThreadFactory {
      *      {@link java.util.concurrent.Executors#defaultThreadFactory()}.
      */
     public ThreadFactoryWithNamePrefix(String prefix) {
+        this(prefix, false);
+    }
+
+    /**
+     * Creates a new ThreadFactory where threads are created with a thread name 
+     * prefix of <code>prefix</code>.
+     *
+     * @param prefix Thread name prefix. 
+     * @param daemon if the created threads should be daemon threads. The
+     *      JDK default thread factory always creates non-daemon threads.
+     */
+    public ThreadFactoryWithNamePrefix(String prefix, boolean daemon) {
+        this.daemon = daemon;
         SecurityManager s = System.getSecurityManager();
         group = (s != null) ? s.getThreadGroup()
                 : Thread.currentThread().getThreadGroup();
@@ -75,8 +89,8 @@ public class ThreadFactoryWithNamePrefix implements ThreadFactory {
         Thread t = new Thread(group, r,
                 namePrefix + threadNumber.getAndIncrement(),
                 0);
-        if (t.isDaemon()) {
-            t.setDaemon(false);
+        if (t.isDaemon() != daemon) {
+            t.setDaemon(daemon);
         }
         if (t.getPriority() != Thread.NORM_PRIORITY) {
             t.setPriority(Thread.NORM_PRIORITY);
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.jobs;
+
+import java.time.Instant;
+
+/**
+ * Information about a single run of a {@link LeaderJob}.
+ */
+public interface JobExecutionContext {
+
+    /**
+     * Gets the id of the job.
+     * @return job id
+     */
+    public String getJobId();
+
+    /**
+     * Gets the point in time at which the job was scheduled to run. 
+     * If the job was due several times while no candidate was leader
+     * then this is the latest of those points in time.
+     * 
+     * @return fire time
+     */
+    public Instant getScheduledFireTime();
+
+    /**
+     * Gets the lease counter of the leadership under which the job runs.
+     * The run is claimed in the job table with this value as fencing
+     * token. The job itself can use the value in the same way when writing
+     * to other resources.
+     * 
+     * @return lease counter
+     * @see net.lbruun.dbleaderelect.LeaderExecutorService#currentLeaseCounter() 
+     */
+    public long getLeaseCounter();
+}
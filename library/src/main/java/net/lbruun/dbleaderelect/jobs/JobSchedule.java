@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.jobs;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import net.lbruun.dbleaderelect.internal.jobs.CronExpression;
+
+/**
+ * When a {@link LeaderJob} should execute. Fire times are milliseconds 
+ * since the epoch.
+ */
+public abstract class JobSchedule {
+
+    private JobSchedule() {
+    }
+
+    /**
+     * Schedule which fires at a fixed rate. A job which has never run
+     * before fires immediately. Thereafter the job fires every 
+     * {@code period} measured from the previous fire time, not 
+     * from when the previous run completed.
+     *
+     * @param period time between fire times, at least 1 millisecond
+     * @return schedule
+     * @throws IllegalArgumentException if {@code period} is less than 1 millisecond
+     */
+    public static JobSchedule fixedRate(Duration period) {
+        Objects.requireNonNull(period, "period cannot be null");
+        if (period.toMillis() < 1) {
+            throw new IllegalArgumentException("period must be at least 1 millisecond");
+        }
+        return new FixedRate(period.toMillis());
+    }
+
+    /**
+     * Schedule from a cron expression, evaluated in UTC.
+     * 
+     * @param expression cron expression
+     * @return schedule
+     * @see #cron(java.lang.String, java.time.ZoneId) 
+     */
+    public static JobSchedule cron(String expression) {
+        return cron(expression, ZoneOffset.UTC);
+    }
+
+    /**
+     * Schedule from a cron expression. The expression has the classic 5
+     * fields: minute, hour, day-of-month, month and day-of-week. Each field
+     * is either {@code *} or a comma-separated list of values or ranges
+     * ({@code 1-5}), optionally with a step ({@code *}{@code /15}, 
+     * {@code 0-30/10}). Months and days-of-week can also be given by their
+     * English three-letter names. Day-of-week 0 and 7 are both Sunday. 
+     * If both day-of-month and day-of-week are restricted then a day 
+     * matches if either matches.
+     * 
+     * <p>
+     * A job which has never run before fires at the first matching
+     * minute.
+     * 
+     * @param expression cron expression
+     * @param zone time zone in which to evaluate the expression
+     * @return schedule
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public static JobSchedule cron(String expression, ZoneId zone) {
+        Objects.requireNonNull(expression, "expression cannot be null");
+        Objects.requireNonNull(zone, "zone cannot be null");
+        return new Cron(CronExpression.parse(expression), zone);
+    }
+
+    /**
+     * Gets the fire time of a job which has never run before.
+     *
+     * @param nowMillis current time
+     * @return first fire time
+     */
+    public abstract long firstFireTime(long nowMillis);
+
+    /**
+     * Gets the fire time which follows {@code fireTimeMillis}.
+     *
+     * @param fireTimeMillis previous fire time
+     * @return next fire time, strictly after {@code fireTimeMillis}
+     */
+    public abstract long nextFireTime(long fireTimeMillis);
+
+    /**
+     * Gets the latest fire time which is not after {@code nowMillis}, 
+     * following {@code fireTimeMillis}. This is used to collapse 
+     * fire times which were missed into a single run. 
+     * 
+     * @param fireTimeMillis a fire time
+     * @param nowMillis current time
+     * @return latest fire time not after {@code nowMillis} or 
+     *     {@code fireTimeMillis} if it is in the future.
+     */
+    public long latestFireTime(long fireTimeMillis, long nowMillis) {
+        long latest = fireTimeMillis;
+        long next = nextFireTime(latest);
+        while (next <= nowMillis) {
+            latest = next;
+            next = nextFireTime(latest);
+        }
+        return latest;
+    }
+
+    
+    private static final class FixedRate extends JobSchedule {
+
+        private final long periodMs;
+
+        FixedRate(long periodMs) {
+            this.periodMs = periodMs;
+        }
+
+        @Override
+        public long firstFireTime(long nowMillis) {
+            return nowMillis;
+        }
+
+        @Override
+        public long nextFireTime(long fireTimeMillis) {
+            return fireTimeMillis + periodMs;
+        }
+
+        @Override
+        public long latestFireTime(long fireTimeMillis, long nowMillis) {
+            if (fireTimeMillis >= nowMillis) {
+                return fireTimeMillis;
+            }
+            return fireTimeMillis + ((nowMillis - fireTimeMillis) / periodMs) * periodMs;
+        }
+
+        @Override
+        public String toString() {
+            return "fixedRate(" + periodMs + " ms)";
+        }
+    }
+
+    private static final class Cron extends JobSchedule {
+
+        private final CronExpression expression;
+        private final ZoneId zone;
+
+        Cron(CronExpression expression, ZoneId zone) {
+            this.expression = expression;
+            this.zone = zone;
+        }
+
+        @Override
+        public long firstFireTime(long nowMillis) {
+            return expression.next(nowMillis - 1, zone);
+        }
+
+        @Override
+        public long nextFireTime(long fireTimeMillis) {
+            return expression.next(fireTimeMillis, zone);
+        }
+
+        @Override
+        public String toString() {
+            return "cron(" + expression + ", " + zone + ")";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.jobs;
+
+/**
+ * A job which is executed by a {@link LeaderJobScheduler}.
+ */
+@FunctionalInterface
+public interface LeaderJob {
+
+    /**
+     * Executes the job. The method is only invoked while the candidate
+     * is leader. If leadership is lost while the job executes then the
+     * executing thread is interrupted.
+     * 
+     * <p>
+     * The job completes successfully if the method returns normally. 
+     * The run has been claimed before the method is invoked, so a failed
+     * run is not repeated.
+     *
+     * @param context information about the run
+     * @throws Exception if the job fails. The failure is logged and the
+     *     job is scheduled for its next fire time as normal.
+     */
+    public void execute(JobExecutionContext context) throws Exception;
+}
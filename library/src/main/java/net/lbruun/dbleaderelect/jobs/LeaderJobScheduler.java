@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.jobs;
+
+/**
+ * Schedules jobs which only execute on the leader and which continue 
+ * where they left off when leadership moves to another candidate.
+ * Obtained from {@link net.lbruun.dbleaderelect.LeaderElector#jobScheduler()}.
+ *
+ * <p>
+ * Every candidate should schedule the same jobs, typically at startup. 
+ * Only the leader executes them. Before a job is executed, its fire time
+ * is claimed in the 
+ * {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#getJobTableName() job table}
+ * together with the lease counter of the leader. The update is fenced: it
+ * only succeeds if the lease is still current in the database. If it 
+ * doesn't, the job is not executed. When the job completes successfully,
+ * this is recorded as well.
+ * 
+ * <p>
+ * When a candidate assumes leadership it reads the last claimed fire time
+ * of each job and schedules the job's next fire time from there, rather than
+ * starting from scratch. If one or more fire times were missed during the
+ * failover then the job is executed once, immediately, for the latest missed
+ * fire time.
+ * 
+ * <p>
+ * A job is therefore executed at most once for each fire time, also if a
+ * run outlives the lease it was claimed under and keeps executing. The
+ * flip side is that a fire time whose run fails, or whose leader dies 
+ * during the run, is not repeated. The run which outlives its lease may
+ * still be executing while the new leader executes the job for a later
+ * fire time. Jobs which must not overlap should therefore use the 
+ * {@link JobExecutionContext#getLeaseCounter() lease counter} as a
+ * fencing token for their own writes.
+ * 
+ * <p>
+ * Jobs execute in the {@link net.lbruun.dbleaderelect.LeaderElector#leaderExecutor() leader executor}
+ * and are subject to its rules, in particular they are interrupted when 
+ * leadership is lost.
+ */
+public interface LeaderJobScheduler {
+
+    /**
+     * Schedules a job.
+     * 
+     * @param jobId identifies the job across candidates and restarts. Must 
+     *     be unique within the role and at most 100 characters.
+     * @param schedule when to execute the job
+     * @param job the job
+     * @throws IllegalArgumentException if a job with the same id is already
+     *     scheduled or if {@code jobId} is invalid.
+     */
+    public void schedule(String jobId, JobSchedule schedule, LeaderJob job);
+
+    /**
+     * Removes a job. A run which is already executing is not interrupted. 
+     * The job's row in the job table is left as-is.
+     * 
+     * @param jobId id of job
+     * @return true if the job was scheduled
+     */
+    public boolean unschedule(String jobId);
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+
+/**
+ * The most recent election cycles of a Leader Elector, for finding out 
+ * afterwards what happened, for example why leadership changed hands.
+ * Obtained from {@link net.lbruun.dbleaderelect.LeaderElector#getHistory()}.
+ * 
+ * <p>
+ * The history is a ring buffer of a fixed size, 
+ * {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#getHistorySize() historySize},
+ * which is allocated up front. Recording a cycle neither locks nor 
+ * allocates, so the history can be kept permanently. Each slot is 
+ * guarded by a sequence number which is odd while the slot is being 
+ * written (a seqlock): a reader which sees the number change while 
+ * reading a slot retries it, and is therefore never handed a torn record.
+ */
+public final class ElectionHistory {
+
+    private static final ElectionPhase[] DB_PHASES = ElectionRecord.DB_PHASES;
+    private static final int FIELDS = 5;   // long fields per slot, besides phases
+    private static final int F_SEQUENCE = 0;
+    private static final int F_START = 1;
+    private static final int F_DURATION = 2;
+    private static final int F_LEASE_COUNTER = 3;
+    private static final int F_LEASE_AGE = 4;
+
+    private final int capacity;
+    private final int longsPerSlot;
+    private final AtomicLongArray slotVersions;
+    private final AtomicLongArray longs;
+    private final AtomicReferenceArray<EventType> outcomes;
+    private final AtomicReferenceArray<String> leaders;
+    private final AtomicReferenceArray<String> errorClasses;
+    private final AtomicLong written = new AtomicLong();   // number of cycles recorded
+
+    /**
+     * Creates a history.
+     * @param capacity number of cycles to keep, may be 0
+     */
+    public ElectionHistory(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        this.capacity = capacity;
+        this.longsPerSlot = FIELDS + DB_PHASES.length;
+        this.slotVersions = new AtomicLongArray(capacity);
+        this.longs = new AtomicLongArray(capacity * longsPerSlot);
+        this.outcomes = new AtomicReferenceArray<>(capacity);
+        this.leaders = new AtomicReferenceArray<>(capacity);
+        this.errorClasses = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Gets the number of cycles which can be kept.
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of cycles recorded since the Leader Elector was 
+     * created, including those which have since been overwritten.
+     * @return count
+     */
+    public long getRecordedCount() {
+        return written.get();
+    }
+
+    /**
+     * Records a cycle. Must only be invoked from one thread at a time,
+     * which is the Leader Elector's election thread.
+     * 
+     * @param cycle outcome of the election
+     * @param cycleNanos duration of the cycle
+     */
+    public void record(ElectionCycle cycle, long cycleNanos) {
+        if (capacity == 0) {
+            return;
+        }
+        long sequence = written.get() + 1;
+        int slot = (int) ((sequence - 1) % capacity);
+        int base = slot * longsPerSlot;
+        long version = slotVersions.get(slot);
+        slotVersions.set(slot, version + 1);   // odd: being written
+
+        longs.lazySet(base + F_SEQUENCE, sequence);
+        longs.lazySet(base + F_START, cycle.getStartTimeMillis());
+        longs.lazySet(base + F_DURATION, cycleNanos);
+        longs.lazySet(base + F_LEASE_COUNTER, cycle.getLeaseCounter());
+        longs.lazySet(base + F_LEASE_AGE, cycle.getLeaseAgeMillis());
+        for (int i = 0; i < DB_PHASES.length; i++) {
+            longs.lazySet(base + FIELDS + i, cycle.getPhaseNanos(DB_PHASES[i]));
+        }
+        outcomes.lazySet(slot, cycle.getEventType());
+        leaders.lazySet(slot, cycle.hasErrors() ? null : cycle.getCandidateId());
+        errorClasses.lazySet(slot, (cycle.getErrorCount() == 0) ? null : errorClass(cycle.getError(0)));
+
+        slotVersions.set(slot, version + 2);   // even: complete
+        written.set(sequence);
+    }
+
+    private static String errorClass(LeaderElectorException error) {
+        Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+        return cause.getClass().getName();
+    }
+
+    /**
+     * Gets the cycles in the history, oldest first. 
+     * 
+     * <p>
+     * Can be invoked from any thread, also while cycles are being 
+     * recorded. Cycles which are overwritten while they are being read 
+     * are left out.
+     * 
+     * @return records
+     */
+    public List<ElectionRecord> getRecords() {
+        long newest = written.get();
+        long oldest = Math.max(1, newest - capacity + 1);
+        List<ElectionRecord> records = new ArrayList<>((int) (newest - oldest + 1));
+        for (long sequence = oldest; sequence <= newest; sequence++) {
+            ElectionRecord record = read(sequence);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    // Reads the slot where the given cycle was written, or returns null 
+    // if it has since been overwritten
+    private ElectionRecord read(long sequence) {
+        int slot = (int) ((sequence - 1) % capacity);
+        int base = slot * longsPerSlot;
+        while (true) {
+            long version = slotVersions.get(slot);
+            if ((version & 1) != 0) {
+                Thread.yield();   // being written
+                continue;
+            }
+            long actualSequence = longs.get(base + F_SEQUENCE);
+            long startTimeMillis = longs.get(base + F_START);
+            long durationNanos = longs.get(base + F_DURATION);
+            long leaseCounter = longs.get(base + F_LEASE_COUNTER);
+            long leaseAgeMillis = longs.get(base + F_LEASE_AGE);
+            long[] phaseNanos = new long[DB_PHASES.length];
+            for (int i = 0; i < DB_PHASES.length; i++) {
+                phaseNanos[i] = longs.get(base + FIELDS + i);
+            }
+            EventType outcome = outcomes.get(slot);
+            String leader = leaders.get(slot);
+            String errorClass = errorClasses.get(slot);
+            if (slotVersions.get(slot) != version) {
+                continue;   // changed while reading
+            }
+            if (actualSequence != sequence) {
+                return null;
+            }
+            return new ElectionRecord(sequence, startTimeMillis, durationNanos, outcome, 
+                    leader, leaseCounter, leaseAgeMillis, errorClass, phaseNanos);
+        }
+    }
+
+    /**
+     * Writes the history as text, one line per cycle, oldest first.
+     * 
+     * @param out where to write
+     * @throws UncheckedIOException if writing fails
+     */
+    public void dump(Appendable out) {
+        try {
+            for (ElectionRecord record : getRecords()) {
+                out.append(record.toString()).append(System.lineSeparator());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Gets the history as text, one line per cycle, oldest first.
+     * @return text
+     * @see #dump(Appendable)
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        dump(sb);
+        return sb.toString();
+    }
+}
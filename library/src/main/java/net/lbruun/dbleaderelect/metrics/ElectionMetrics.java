@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+
+/**
+ * Measurements of a Leader Elector, aggregated in memory. Obtained from
+ * {@link net.lbruun.dbleaderelect.LeaderElector#getMetrics()}.
+ * 
+ * <p>
+ * Durations are kept in {@link LatencyHistogram histograms}, one per
+ * {@link ElectionPhase}, in nanoseconds. Everything is counted from the 
+ * creation of the Leader Elector; nothing is ever reset. Recording 
+ * doesn't allocate, except for the first error of every class.
+ */
+public final class ElectionMetrics implements ElectionMetricsRecorder, ElectionMetricsMXBean {
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[ElectionPhase.values().length];
+    private final AtomicLongArray outcomes = new AtomicLongArray(EventType.values().length);
+    private final AtomicLong elections = new AtomicLong();
+    private final AtomicLong failedElections = new AtomicLong();
+    private final AtomicInteger currentFailureStreak = new AtomicInteger();
+    private final AtomicInteger longestFailureStreak = new AtomicInteger();
+    private final Map<String, AtomicLong> errorCounts = new ConcurrentHashMap<>();
+    private final LatencyHistogram leaseAge = new LatencyHistogram();
+    private final AtomicLong lowLeaseMarginRenewals = new AtomicLong();
+
+    public ElectionMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void recordTiming(ElectionPhase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordOutcome(EventType eventType, boolean failed) {
+        elections.incrementAndGet();
+        outcomes.incrementAndGet(eventType.ordinal());
+        if (failed) {
+            failedElections.incrementAndGet();
+            int streak = currentFailureStreak.incrementAndGet();
+            longestFailureStreak.accumulateAndGet(streak, Math::max);
+        } else {
+            currentFailureStreak.set(0);
+        }
+    }
+
+    @Override
+    public void recordError(LeaderElectorException error) {
+        Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+        errorCounts.computeIfAbsent(cause.getClass().getName(), k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public void recordLeaseRenewal(long leaseAgeMillis, boolean marginLow) {
+        leaseAge.record(TimeUnit.MILLISECONDS.toNanos(leaseAgeMillis));
+        if (marginLow) {
+            lowLeaseMarginRenewals.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the histogram of a phase. Values are in nanoseconds.
+     * @param phase phase
+     * @return histogram
+     */
+    public LatencyHistogram getHistogram(ElectionPhase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * Gets the histogram of the age of the lease at renewal. Values are 
+     * in nanoseconds, but with millisecond precision.
+     * @return histogram
+     */
+    public LatencyHistogram getLeaseAgeHistogram() {
+        return leaseAge;
+    }
+
+    /**
+     * Gets the number of elections which had the given outcome.
+     * @param eventType outcome
+     * @return count
+     */
+    public long getOutcomeCount(EventType eventType) {
+        return outcomes.get(eventType.ordinal());
+    }
+
+    @Override
+    public long getElections() {
+        return elections.get();
+    }
+
+    @Override
+    public long getFailedElections() {
+        return failedElections.get();
+    }
+
+    @Override
+    public long getLeadershipAssumed() {
+        return getOutcomeCount(EventType.LEADERSHIP_ASSUMED);
+    }
+
+    @Override
+    public long getLeadershipLost() {
+        return getOutcomeCount(EventType.LEADERSHIP_LOST);
+    }
+
+    @Override
+    public int getCurrentFailureStreak() {
+        return currentFailureStreak.get();
+    }
+
+    @Override
+    public int getLongestFailureStreak() {
+        return longestFailureStreak.get();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> map = new TreeMap<>();
+        errorCounts.forEach((k, v) -> map.put(k, v.get()));
+        return map;
+    }
+
+    @Override
+    public long getLowLeaseMarginRenewals() {
+        return lowLeaseMarginRenewals.get();
+    }
+
+    @Override
+    public LatencySnapshot getLeaseAgeAtRenewal() {
+        return leaseAge.snapshotMillis();
+    }
+
+    @Override
+    public LatencySnapshot getCycleLatency() {
+        return getHistogram(ElectionPhase.CYCLE).snapshotMillis();
+    }
+
+    @Override
+    public LatencySnapshot getConnectionAcquireLatency() {
+        return getHistogram(ElectionPhase.CONNECTION_ACQUIRE).snapshotMillis();
+    }
+
+    @Override
+    public LatencySnapshot getSelectLatency() {
+        return getHistogram(ElectionPhase.SELECT).snapshotMillis();
+    }
+
+    @Override
+    public LatencySnapshot getUpdateLatency() {
+        return getHistogram(ElectionPhase.UPDATE).snapshotMillis();
+    }
+
+    @Override
+    public LatencySnapshot getCommitLatency() {
+        return getHistogram(ElectionPhase.COMMIT).snapshotMillis();
+    }
+
+    @Override
+    public LatencySnapshot getListenerDispatchLag() {
+        return getHistogram(ElectionPhase.LISTENER_DISPATCH_LAG).snapshotMillis();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ElectionMetrics}. Registered by the Leader Elector
+ * if {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#isJmxEnabled() jmxEnabled}
+ * under the name 
+ * {@code net.lbruun.dbleaderelect:type=LeaderElector,roleId=<roleId>,candidateId=<candidateId>}.
+ * Durations are in milliseconds.
+ */
+public interface ElectionMetricsMXBean {
+
+    /**
+     * Gets the number of elections executed.
+     * @return count
+     */
+    public long getElections();
+
+    /**
+     * Gets the number of elections which ended with errors.
+     * @return count
+     */
+    public long getFailedElections();
+
+    /**
+     * Gets the number of times leadership has been assumed.
+     * @return count
+     */
+    public long getLeadershipAssumed();
+
+    /**
+     * Gets the number of times leadership has been lost.
+     * @return count
+     */
+    public long getLeadershipLost();
+
+    /**
+     * Gets the number of elections in a row, up to and including the
+     * latest, which have ended with errors.
+     * @return count
+     */
+    public int getCurrentFailureStreak();
+
+    /**
+     * Gets the longest {@link #getCurrentFailureStreak() failure streak} seen.
+     * @return count
+     */
+    public int getLongestFailureStreak();
+
+    /**
+     * Gets the number of errors by class of exception. The class is that
+     * of the underlying cause, typically an exception from the JDBC driver.
+     * @return map from class name to count
+     */
+    public Map<String, Long> getErrorCounts();
+
+    /**
+     * Gets the number of renewals of the lease where the safety margin was
+     * below {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#getLeaseMarginWarningFraction() leaseMarginWarningFraction}.
+     * @return count
+     */
+    public long getLowLeaseMarginRenewals();
+
+    /**
+     * Gets the distribution of the age of the lease when the leader renewed
+     * it. The safety margin is {@code assumeDeadMs} minus the age.
+     * @return age of the lease at renewal
+     */
+    public LatencySnapshot getLeaseAgeAtRenewal();
+
+    /**
+     * @return latency of {@link ElectionPhase#CYCLE}
+     */
+    public LatencySnapshot getCycleLatency();
+
+    /**
+     * @return latency of {@link ElectionPhase#CONNECTION_ACQUIRE}
+     */
+    public LatencySnapshot getConnectionAcquireLatency();
+
+    /**
+     * @return latency of {@link ElectionPhase#SELECT}
+     */
+    public LatencySnapshot getSelectLatency();
+
+    /**
+     * @return latency of {@link ElectionPhase#UPDATE}
+     */
+    public LatencySnapshot getUpdateLatency();
+
+    /**
+     * @return latency of {@link ElectionPhase#COMMIT}
+     */
+    public LatencySnapshot getCommitLatency();
+
+    /**
+     * @return latency of {@link ElectionPhase#LISTENER_DISPATCH_LAG}
+     */
+    public LatencySnapshot getListenerDispatchLag();
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+
+/**
+ * Receives measurements from a Leader Elector. Implement this to feed the
+ * measurements into a metrics library. Configured with
+ * {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration.Builder#withMetricsRecorder(ElectionMetricsRecorder) metricsRecorder}.
+ * The Leader Elector always records into its own {@link ElectionMetrics}
+ * as well.
+ * 
+ * <p>
+ * Methods are invoked on the Leader Elector's own threads, mostly the one
+ * which executes elections, once or a few times per 
+ * {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#getIntervalMs() intervalMs}.
+ * They must return quickly and should not allocate memory in the 
+ * common case. Exceptions thrown are ignored.
+ */
+public interface ElectionMetricsRecorder {
+
+    /**
+     * Recorder which does nothing.
+     */
+    public static final ElectionMetricsRecorder NO_OP = new ElectionMetricsRecorder() {
+        @Override
+        public void recordTiming(ElectionPhase phase, long nanos) {
+        }
+
+        @Override
+        public void recordOutcome(EventType eventType, boolean failed) {
+        }
+
+        @Override
+        public void recordError(LeaderElectorException error) {
+        }
+    };
+
+    /**
+     * Records the duration of a phase of an election cycle.
+     * 
+     * @param phase phase
+     * @param nanos duration in nanoseconds
+     */
+    public void recordTiming(ElectionPhase phase, long nanos);
+
+    /**
+     * Records the outcome of an election cycle. Invoked once per cycle, 
+     * after the timings of the cycle have been recorded. 
+     * {@link EventType#LEADERSHIP_ASSUMED LEADERSHIP_ASSUMED} and 
+     * {@link EventType#LEADERSHIP_LOST LEADERSHIP_LOST} are the 
+     * leadership transitions.
+     * 
+     * @param eventType outcome
+     * @param failed if the cycle ended with errors
+     */
+    public void recordOutcome(EventType eventType, boolean failed);
+
+    /**
+     * Records an error from an election cycle. Invoked for each error 
+     * before the outcome of the cycle is recorded. The 
+     * {@link Throwable#getCause() cause} of the error, if any, is
+     * typically the exception from the JDBC driver.
+     * 
+     * @param error error
+     */
+    public void recordError(LeaderElectorException error);
+
+    /**
+     * Records the age of the lease when the leader renewed it. The 
+     * safety margin is 
+     * {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#getAssumeDeadMs() assumeDeadMs}
+     * minus the age. Invoked before the outcome of the cycle is recorded.
+     * Does nothing by default.
+     * 
+     * @param leaseAgeMillis age of the lease, in milliseconds
+     * @param marginLow if the margin was below 
+     *   {@link net.lbruun.dbleaderelect.LeaderElectorConfiguration#getLeaseMarginWarningFraction() leaseMarginWarningFraction}
+     */
+    public default void recordLeaseRenewal(long leaseAgeMillis, boolean marginLow) {
+    }
+}
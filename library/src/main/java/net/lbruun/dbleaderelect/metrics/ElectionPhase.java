@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+/**
+ * Timed phases of an election cycle, as reported to an
+ * {@link ElectionMetricsRecorder}.
+ * 
+ * <p>
+ * The database phases are only measured for a Leader Elector with a 
+ * single database. A phase which doesn't happen in a cycle (for example
+ * {@link #SELECT} when the lease is renewed by the fast path) is not 
+ * reported for that cycle.
+ */
+public enum ElectionPhase {
+
+    /**
+     * The complete election cycle, from start until the outcome is known.
+     */
+    CYCLE,
+
+    /**
+     * Obtaining a connection from the {@code DataSource}.
+     */
+    CONNECTION_ACQUIRE,
+
+    /**
+     * The {@code SELECT} which reads the row of the role. It usually
+     * locks the row, so this includes any wait for the lock.
+     */
+    SELECT,
+
+    /**
+     * The {@code UPDATE} which assumes, renews or relinquishes leadership.
+     */
+    UPDATE,
+
+    /**
+     * Commit of the transaction, which releases the lock.
+     */
+    COMMIT,
+
+    /**
+     * Time from the end of the cycle until the listener is invoked with
+     * the event. Only reported for events which the listener has 
+     * subscribed to. A large value means that the listener is slow to 
+     * process events.
+     */
+    LISTENER_DISPATCH_LAG
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+
+/**
+ * One election cycle, as kept in the {@link ElectionHistory}.
+ * 
+ * <p>
+ * Instances are immutable.
+ */
+public final class ElectionRecord {
+
+    // The phases which are kept, in the order they are kept
+    static final ElectionPhase[] DB_PHASES = {
+        ElectionPhase.CONNECTION_ACQUIRE, ElectionPhase.SELECT, ElectionPhase.UPDATE, ElectionPhase.COMMIT};
+
+    private final long sequence;
+    private final long startTimeMillis;
+    private final long durationNanos;
+    private final EventType outcome;
+    private final String leaderCandidateId;
+    private final long leaseCounter;
+    private final long leaseAgeMillis;
+    private final String errorClass;
+    private final long[] phaseNanos;
+
+    ElectionRecord(long sequence, long startTimeMillis, long durationNanos, EventType outcome, 
+            String leaderCandidateId, long leaseCounter, long leaseAgeMillis, String errorClass, long[] phaseNanos) {
+        this.sequence = sequence;
+        this.startTimeMillis = startTimeMillis;
+        this.durationNanos = durationNanos;
+        this.outcome = outcome;
+        this.leaderCandidateId = leaderCandidateId;
+        this.leaseCounter = leaseCounter;
+        this.leaseAgeMillis = leaseAgeMillis;
+        this.errorClass = errorClass;
+        this.phaseNanos = phaseNanos;
+    }
+
+    /**
+     * Gets the number of the cycle. The first cycle of the Leader Elector
+     * is number 1. A gap in the numbers between two records means that
+     * cycles in between have been overwritten.
+     * @return sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Instant getStartTime() {
+        return Instant.ofEpochMilli(startTimeMillis);
+    }
+
+    public Duration getDuration() {
+        return Duration.ofNanos(durationNanos);
+    }
+
+    public EventType getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the candidate which was leader according to the cycle.
+     * @return candidate id, or {@code null} if there was no leader or if 
+     *   the cycle failed
+     */
+    public String getLeaderCandidateId() {
+        return leaderCandidateId;
+    }
+
+    /**
+     * @return lease counter of the leader, or -1 if not known
+     */
+    public long getLeaseCounter() {
+        return leaseCounter;
+    }
+
+    /**
+     * Gets the age of the lease, whoever held it, as observed in the
+     * database: the time since it was last renewed.
+     * @return milliseconds, or -1 if the lease was not read
+     */
+    public long getLeaseAgeMillis() {
+        return leaseAgeMillis;
+    }
+
+    /**
+     * Gets the class of the error which ended the cycle. The class is that
+     * of the underlying cause, typically an exception from the JDBC driver.
+     * @return class name or {@code null} if the cycle ended without errors
+     */
+    public String getErrorClass() {
+        return errorClass;
+    }
+
+    /**
+     * Gets the time spent in a phase of the cycle. 
+     * @param phase one of the phases inside the database
+     * @return nanoseconds or -1 if the phase was not measured in this cycle
+     */
+    public long getPhaseNanos(ElectionPhase phase) {
+        for (int i = 0; i < DB_PHASES.length; i++) {
+            if (DB_PHASES[i] == phase) {
+                return phaseNanos[i];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('#').append(sequence)
+                .append(' ').append(getStartTime())
+                .append(' ').append(outcome)
+                .append(" leader=").append(leaderCandidateId)
+                .append(" counter=").append(leaseCounter)
+                .append(" leaseAge=").append((leaseAgeMillis < 0) ? "-" : (leaseAgeMillis + "ms"))
+                .append(" cycle=").append(millis(durationNanos));
+        for (int i = 0; i < DB_PHASES.length; i++) {
+            if (phaseNanos[i] >= 0) {
+                sb.append(' ').append(DB_PHASES[i].name().toLowerCase(Locale.ROOT)).append('=').append(millis(phaseNanos[i]));
+            }
+        }
+        if (errorClass != null) {
+            sb.append(" error=").append(errorClass);
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1e6);
+    }
+}
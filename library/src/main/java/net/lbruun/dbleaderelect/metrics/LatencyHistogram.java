@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, in the style of HdrHistogram but much smaller.
+ * Values are counted in buckets whose width grows with the value: each 
+ * power of two is split into {@value #SUB_BUCKETS} buckets, so that any
+ * value is known with a precision of 12.5%. The histogram covers 
+ * all positive {@code long} values in less than 500 buckets.
+ * 
+ * <p>
+ * Recording is lock-free and doesn't allocate. Reading is not atomic 
+ * with respect to recording: a percentile may be computed while a value 
+ * is being recorded, which is insignificant for the purpose.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param value value, typically nanoseconds
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(v));
+        sum.addAndGet(v);
+        count.incrementAndGet();
+        long currentMax;
+        while (v > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, v)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * @return count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the sum of all recorded values.
+     * @return sum
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     * @return max or 0 if nothing has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     * @return mean or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return (n == 0) ? 0 : ((double) sum.get()) / n;
+    }
+
+    /**
+     * Gets the value below which the given percentage of the recorded
+     * values fall. The result is the upper bound of the bucket in which
+     * the percentile falls, but never larger than {@link #getMax()}.
+     * 
+     * @param percentile percentile, between 0 and 100
+     * @return value at percentile, or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * n);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Gets a snapshot of the histogram, with durations converted from 
+     * nanoseconds to milliseconds.
+     * 
+     * @return snapshot
+     */
+    public LatencySnapshot snapshotMillis() {
+        return new LatencySnapshot(
+                getCount(),
+                getMean() / 1e6,
+                getValueAtPercentile(50) / 1e6,
+                getValueAtPercentile(90) / 1e6,
+                getValueAtPercentile(99) / 1e6,
+                getMax() / 1e6);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index / SUB_BUCKETS) + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int index) {
+        return (index == BUCKETS - 1) ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+    }
+}
@@ -15,33 +15,13 @@
  */
 package net.lbruun.dbleaderelect.spring;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import net.lbruun.dbleaderelect.LeaderElectorLogger;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import net.lbruun.dbleaderelect.Slf4jLeaderElectorLogger;
 
 /**
  * Logger for LeaderElector based on SL4J. Useful in Spring Boot applications.
+ * 
+ * <p>
+ * This is the same as {@link Slf4jLeaderElectorLogger}.
  */
-public class SpringLeaderElectorLogger implements LeaderElectorLogger {
-
-    // This caching is likely to be redundant if the underlying logging 
-    // implementation also does this. 
-    // TODO: Consider removing this caching.
-    private static final ConcurrentMap<Class, Logger> LOGGERS = new ConcurrentHashMap<>();
-
-    @Override
-    public void logInfo(Class originatingClass, String msg) {
-        getCachedLogger(originatingClass).info(msg);
-    }
-
-    @Override
-    public void logError(Class originatingClass, String msg, Throwable thrwbl) {
-        getCachedLogger(originatingClass).error(msg, thrwbl);
-    }
-    
-    private Logger getCachedLogger(Class klass) {
-        return LOGGERS.computeIfAbsent(klass, LoggerFactory::getLogger);
-    }
+public class SpringLeaderElectorLogger extends Slf4jLeaderElectorLogger {
 }
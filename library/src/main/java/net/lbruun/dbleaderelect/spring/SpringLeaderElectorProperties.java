@@ -20,6 +20,7 @@ import net.lbruun.dbleaderelect.DatabaseEngine;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
 import net.lbruun.dbleaderelect.LeaderElectorListener;
 import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.TableStorageProfile;
 import net.lbruun.dbleaderelect.exception.LeaderElectorConfigurationException;
 
 /**
@@ -37,6 +38,21 @@ public class SpringLeaderElectorProperties {
     private String listenerSubscription;
     private Integer queryTimeoutSecs;
     private Boolean createTable;
+    private Integer leaderExecutorPoolSize;
+    private String jobTableName;
+    private Long watchdogThresholdMs;
+    private Boolean renewalFastPath;
+    private Long dbClockSampleIntervalMs;
+    private Long replicaMaxLagMs;
+    private Boolean followerNoWait;
+    private TableStorageProfile tableStorageProfile;
+    private Long backoffMaxMs;
+    private Integer circuitBreakerThreshold;
+    private Long connectionAcquireTimeoutMs;
+    private String candidateEndpoint;
+    private Boolean jmxEnabled;
+    private Double leaseMarginWarningFraction;
+    private Integer historySize;
 
     /**
      * Get property {@code roleId}.
@@ -272,6 +288,336 @@ public class SpringLeaderElectorProperties {
     public void setCreateTable(Boolean createTable) {
         this.createTable = createTable;
     }
+
+    /**
+     * Get property {@code leaderExecutorPoolSize}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withLeaderExecutorPoolSize(int) this}
+     * for more information about this property.
+     */
+    public Integer getLeaderExecutorPoolSize() {
+        return leaderExecutorPoolSize;
+    }
+
+    /**
+     * Set property {@code leaderExecutorPoolSize}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withLeaderExecutorPoolSize(int) this}
+     * for more information about this property.
+     */
+    public void setLeaderExecutorPoolSize(Integer leaderExecutorPoolSize) {
+        this.leaderExecutorPoolSize = leaderExecutorPoolSize;
+    }
+
+    /**
+     * Get property {@code jobTableName}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withJobTableName(java.lang.String) this}
+     * for more information about this property.
+     */
+    public String getJobTableName() {
+        return jobTableName;
+    }
+
+    /**
+     * Set property {@code jobTableName}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withJobTableName(java.lang.String) this}
+     * for more information about this property.
+     */
+    public void setJobTableName(String jobTableName) {
+        this.jobTableName = jobTableName;
+    }
+
+    /**
+     * Get property {@code watchdogThresholdMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withWatchdogThresholdMs(long) this}
+     * for more information about this property.
+     */
+    public Long getWatchdogThresholdMs() {
+        return watchdogThresholdMs;
+    }
+
+    /**
+     * Set property {@code watchdogThresholdMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withWatchdogThresholdMs(long) this}
+     * for more information about this property.
+     */
+    public void setWatchdogThresholdMs(Long watchdogThresholdMs) {
+        this.watchdogThresholdMs = watchdogThresholdMs;
+    }
+
+    /**
+     * Get property {@code renewalFastPath}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withRenewalFastPath(boolean) this}
+     * for more information about this property.
+     */
+    public Boolean getRenewalFastPath() {
+        return renewalFastPath;
+    }
+
+    /**
+     * Set property {@code renewalFastPath}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withRenewalFastPath(boolean) this}
+     * for more information about this property.
+     */
+    public void setRenewalFastPath(Boolean renewalFastPath) {
+        this.renewalFastPath = renewalFastPath;
+    }
+
+    /**
+     * Get property {@code dbClockSampleIntervalMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withDbClockSampleIntervalMs(long) this}
+     * for more information about this property.
+     */
+    public Long getDbClockSampleIntervalMs() {
+        return dbClockSampleIntervalMs;
+    }
+
+    /**
+     * Set property {@code dbClockSampleIntervalMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withDbClockSampleIntervalMs(long) this}
+     * for more information about this property.
+     */
+    public void setDbClockSampleIntervalMs(Long dbClockSampleIntervalMs) {
+        this.dbClockSampleIntervalMs = dbClockSampleIntervalMs;
+    }
+
+    /**
+     * Get property {@code replicaMaxLagMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withReplicaMaxLagMs(long) this}
+     * for more information about this property.
+     */
+    public Long getReplicaMaxLagMs() {
+        return replicaMaxLagMs;
+    }
+
+    /**
+     * Set property {@code replicaMaxLagMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withReplicaMaxLagMs(long) this}
+     * for more information about this property.
+     */
+    public void setReplicaMaxLagMs(Long replicaMaxLagMs) {
+        this.replicaMaxLagMs = replicaMaxLagMs;
+    }
+
+    /**
+     * Get property {@code followerNoWait}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withFollowerNoWait(boolean) this}
+     * for more information about this property.
+     */
+    public Boolean getFollowerNoWait() {
+        return followerNoWait;
+    }
+
+    /**
+     * Set property {@code followerNoWait}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withFollowerNoWait(boolean) this}
+     * for more information about this property.
+     */
+    public void setFollowerNoWait(Boolean followerNoWait) {
+        this.followerNoWait = followerNoWait;
+    }
+
+    /**
+     * Get property {@code tableStorageProfile}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withTableStorageProfile(TableStorageProfile) this}
+     * for more information about this property.
+     */
+    public TableStorageProfile getTableStorageProfile() {
+        return tableStorageProfile;
+    }
+
+    /**
+     * Set property {@code tableStorageProfile}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withTableStorageProfile(TableStorageProfile) this}
+     * for more information about this property.
+     */
+    public void setTableStorageProfile(TableStorageProfile tableStorageProfile) {
+        this.tableStorageProfile = tableStorageProfile;
+    }
+
+    /**
+     * Get property {@code backoffMaxMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withBackoffMaxMs(long) this}
+     * for more information about this property.
+     */
+    public Long getBackoffMaxMs() {
+        return backoffMaxMs;
+    }
+
+    /**
+     * Set property {@code backoffMaxMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withBackoffMaxMs(long) this}
+     * for more information about this property.
+     */
+    public void setBackoffMaxMs(Long backoffMaxMs) {
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    /**
+     * Get property {@code circuitBreakerThreshold}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withCircuitBreakerThreshold(int) this}
+     * for more information about this property.
+     */
+    public Integer getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * Set property {@code circuitBreakerThreshold}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withCircuitBreakerThreshold(int) this}
+     * for more information about this property.
+     */
+    public void setCircuitBreakerThreshold(Integer circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    /**
+     * Get property {@code connectionAcquireTimeoutMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withConnectionAcquireTimeoutMs(long) this}
+     * for more information about this property.
+     */
+    public Long getConnectionAcquireTimeoutMs() {
+        return connectionAcquireTimeoutMs;
+    }
+
+    /**
+     * Set property {@code connectionAcquireTimeoutMs}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withConnectionAcquireTimeoutMs(long) this}
+     * for more information about this property.
+     */
+    public void setConnectionAcquireTimeoutMs(Long connectionAcquireTimeoutMs) {
+        this.connectionAcquireTimeoutMs = connectionAcquireTimeoutMs;
+    }
+
+    /**
+     * Get property {@code candidateEndpoint}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withCandidateEndpoint(String) this}
+     * for more information about this property.
+     */
+    public String getCandidateEndpoint() {
+        return candidateEndpoint;
+    }
+
+    /**
+     * Set property {@code candidateEndpoint}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withCandidateEndpoint(String) this}
+     * for more information about this property.
+     */
+    public void setCandidateEndpoint(String candidateEndpoint) {
+        this.candidateEndpoint = candidateEndpoint;
+    }
+
+    /**
+     * Get property {@code jmxEnabled}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withJmxEnabled(boolean) this}
+     * for more information about this property.
+     */
+    public Boolean getJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * Set property {@code jmxEnabled}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withJmxEnabled(boolean) this}
+     * for more information about this property.
+     */
+    public void setJmxEnabled(Boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * Get property {@code leaseMarginWarningFraction}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withLeaseMarginWarningFraction(double) this}
+     * for more information about this property.
+     */
+    public Double getLeaseMarginWarningFraction() {
+        return leaseMarginWarningFraction;
+    }
+
+    /**
+     * Set property {@code leaseMarginWarningFraction}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withLeaseMarginWarningFraction(double) this}
+     * for more information about this property.
+     */
+    public void setLeaseMarginWarningFraction(Double leaseMarginWarningFraction) {
+        this.leaseMarginWarningFraction = leaseMarginWarningFraction;
+    }
+
+    /**
+     * Get property {@code historySize}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withHistorySize(int) this}
+     * for more information about this property.
+     */
+    public Integer getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Set property {@code historySize}.
+     * 
+     * <p>
+     * See {@link LeaderElectorConfiguration.Builder#withHistorySize(int) this}
+     * for more information about this property.
+     */
+    public void setHistorySize(Integer historySize) {
+        this.historySize = historySize;
+    }
     
 
     /**
@@ -334,6 +680,66 @@ public class SpringLeaderElectorProperties {
             builder.withCreateTable(createTable);
         }
         
+        if (leaderExecutorPoolSize != null) {
+            builder.withLeaderExecutorPoolSize(leaderExecutorPoolSize);
+        }
+        
+        if (jobTableName != null) {
+            builder.withJobTableName(jobTableName);
+        }
+        
+        if (watchdogThresholdMs != null) {
+            builder.withWatchdogThresholdMs(watchdogThresholdMs);
+        }
+        
+        if (renewalFastPath != null) {
+            builder.withRenewalFastPath(renewalFastPath);
+        }
+        
+        if (dbClockSampleIntervalMs != null) {
+            builder.withDbClockSampleIntervalMs(dbClockSampleIntervalMs);
+        }
+        
+        if (replicaMaxLagMs != null) {
+            builder.withReplicaMaxLagMs(replicaMaxLagMs);
+        }
+        
+        if (followerNoWait != null) {
+            builder.withFollowerNoWait(followerNoWait);
+        }
+        
+        if (tableStorageProfile != null) {
+            builder.withTableStorageProfile(tableStorageProfile);
+        }
+        
+        if (backoffMaxMs != null) {
+            builder.withBackoffMaxMs(backoffMaxMs);
+        }
+        
+        if (circuitBreakerThreshold != null) {
+            builder.withCircuitBreakerThreshold(circuitBreakerThreshold);
+        }
+        
+        if (connectionAcquireTimeoutMs != null) {
+            builder.withConnectionAcquireTimeoutMs(connectionAcquireTimeoutMs);
+        }
+        
+        if (candidateEndpoint != null) {
+            builder.withCandidateEndpoint(candidateEndpoint);
+        }
+        
+        if (jmxEnabled != null) {
+            builder.withJmxEnabled(jmxEnabled);
+        }
+        
+        if (leaseMarginWarningFraction != null) {
+            builder.withLeaseMarginWarningFraction(leaseMarginWarningFraction);
+        }
+        
+        if (historySize != null) {
+            builder.withHistorySize(historySize);
+        }
+        
         return builder.build();
     }
     
@@ -25,9 +25,27 @@ CREATE TABLE db_leader_elect
      role_id               varchar(20)    NOT NULL,
      candidate_id          varchar(256)   NOT NULL,
      last_seen_timestamp   bigint         NOT NULL,
-     lease_counter         bigint         NOT NULL
+     lease_counter         bigint         NOT NULL,
+     candidate_endpoint    varchar(256)
   );
 
 ALTER TABLE db_leader_elect
     ADD CONSTRAINT pk_db_leader_elect PRIMARY KEY (role_id);
 
+--
+--  Optional: table which records the last run of leader jobs. Only
+--  needed if LeaderElector.jobScheduler() is used.
+--
+
+CREATE TABLE db_leader_elect_job
+ (
+     role_id               varchar(20)    NOT NULL,
+     job_id                varchar(100)   NOT NULL,
+     last_fire_time        bigint         NOT NULL,
+     last_run_timestamp    bigint         NOT NULL,
+     lease_counter         bigint         NOT NULL
+  );
+
+ALTER TABLE db_leader_elect_job
+    ADD CONSTRAINT pk_db_leader_elect_job PRIMARY KEY (role_id, job_id);
+
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LeaderElectorLoggerTest {
+
+    @Test
+    public void testDefaultLevels() {
+        RecordingLogger logger = new RecordingLogger();
+        AtomicInteger built = new AtomicInteger();
+
+        logger.logDebug(LeaderElectorLoggerTest.class, () -> "debug " + built.incrementAndGet());
+        logger.logTrace(LeaderElectorLoggerTest.class, () -> "trace " + built.incrementAndGet());
+        assertEquals(0, built.get(), "Disabled messages must not be built");
+
+        logger.logInfo(LeaderElectorLoggerTest.class, () -> "info " + built.incrementAndGet());
+        logger.logWarning(LeaderElectorLoggerTest.class, "warning", null);
+        assertEquals(1, built.get());
+        assertEquals(2, logger.messages.size());
+        assertEquals("INFO info 1", logger.messages.get(0));
+        assertEquals("ERROR warning", logger.messages.get(1));
+    }
+
+    @Test
+    public void testNullLoggerBuildsNothing() {
+        AtomicInteger built = new AtomicInteger();
+        LeaderElectorLogger.NULL_LOGGER.logInfo(LeaderElectorLoggerTest.class, () -> "info " + built.incrementAndGet());
+        LeaderElectorLogger.NULL_LOGGER.logDebug(LeaderElectorLoggerTest.class, () -> "debug " + built.incrementAndGet());
+        assertEquals(0, built.get());
+    }
+
+    @Test
+    public void testSlf4jLogger() {
+        // slf4j-simple logs at INFO by default
+        Slf4jLeaderElectorLogger logger = new Slf4jLeaderElectorLogger();
+        AtomicInteger built = new AtomicInteger();
+        logger.logDebug(LeaderElectorLoggerTest.class, () -> "debug " + built.incrementAndGet());
+        logger.logInfo(LeaderElectorLoggerTest.class, () -> "info " + built.incrementAndGet());
+        assertEquals(1, built.get());
+        assertFalse(logger.isDebugEnabled(LeaderElectorLoggerTest.class));
+        assertTrue(logger.isInfoEnabled(LeaderElectorLoggerTest.class));
+    }
+
+    private static class RecordingLogger implements LeaderElectorLogger {
+
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void logInfo(Class sourceKlazz, String message) {
+            messages.add("INFO " + message);
+        }
+
+        @Override
+        public void logError(Class sourceKlazz, String message, Throwable cause) {
+            messages.add("ERROR " + message);
+        }
+    }
+}
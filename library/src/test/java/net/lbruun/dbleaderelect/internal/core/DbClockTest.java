@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DbClockTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BASE_NANOS = 1_000_000 * MS;  // arbitrary
+    private static final long DB_MILLIS = 1_650_000_000_000L;
+
+    @Test
+    public void testNoSample() {
+        DbClock clock = new DbClock(60000);
+        assertFalse(clock.hasSample());
+        assertTrue(clock.needsSample(BASE_NANOS));
+        assertThrows(IllegalStateException.class, () -> clock.upperBoundMillis(BASE_NANOS));
+    }
+
+    @Test
+    public void testRoundTripCompensation() {
+        DbClock clock = new DbClock(60000);
+        // 10 ms round trip, database time is taken to be at the midpoint
+        assertTrue(clock.addSample(BASE_NANOS, DB_MILLIS, BASE_NANOS + 10 * MS));
+        long now = BASE_NANOS + 10 * MS;
+        // 5 ms since the midpoint, plus half the round trip plus the 
+        // resolution allowance plus (a tiny bit of) drift, rounded up
+        assertEquals(DB_MILLIS + 5 + 10, clock.upperBoundMillis(now));
+    }
+
+    @Test
+    public void testKeepsTightestSample() {
+        DbClock clock = new DbClock(60000);
+        assertTrue(clock.addSample(BASE_NANOS, DB_MILLIS, BASE_NANOS + 40 * MS));
+        // Shorter round trip wins
+        assertTrue(clock.addSample(BASE_NANOS + 50 * MS, DB_MILLIS + 51, BASE_NANOS + 52 * MS));
+        assertEquals(DB_MILLIS + 51 + 1 + 6, clock.upperBoundMillis(BASE_NANOS + 52 * MS));
+        // Longer round trip is discarded
+        assertFalse(clock.addSample(BASE_NANOS + 60 * MS, DB_MILLIS + 70, BASE_NANOS + 80 * MS));
+        assertEquals(DB_MILLIS + 51 + 29 + 6, clock.upperBoundMillis(BASE_NANOS + 80 * MS));
+    }
+
+    @Test
+    public void testErrorGrowsWithDrift() {
+        DbClock clock = new DbClock(600000);
+        clock.addSample(BASE_NANOS, DB_MILLIS, BASE_NANOS);
+        long now = BASE_NANOS + TimeUnit.SECONDS.toNanos(100);
+        // 1000 ppm of 100 seconds
+        assertEquals(DB_MILLIS + 100_000 + 104, clock.upperBoundMillis(now));
+    }
+
+    @Test
+    public void testStaleSampleIsReplaced() {
+        DbClock clock = new DbClock(1000);
+        clock.addSample(BASE_NANOS, DB_MILLIS, BASE_NANOS);
+        assertFalse(clock.needsSample(BASE_NANOS + 999 * MS));
+        assertTrue(clock.needsSample(BASE_NANOS + 1000 * MS));
+        // Even though the round trip is longer
+        assertTrue(clock.addSample(BASE_NANOS + 1000 * MS, DB_MILLIS + 2000, BASE_NANOS + 1020 * MS));
+        assertEquals(DB_MILLIS + 2010 + 15, clock.upperBoundMillis(BASE_NANOS + 1020 * MS));
+
+        clock.reset();
+        assertTrue(clock.needsSample(BASE_NANOS + 1020 * MS));
+    }
+}
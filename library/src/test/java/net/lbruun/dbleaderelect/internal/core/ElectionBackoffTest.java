@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.Random;
+import net.lbruun.dbleaderelect.internal.core.ElectionBackoff.State;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ElectionBackoffTest {
+
+    private static final long INTERVAL_MS = 1000;
+    private static final long MAX_DELAY_MS = 30000;
+
+    @Test
+    public void testOpensAfterThreshold() {
+        ElectionBackoff backoff = new ElectionBackoff(INTERVAL_MS, MAX_DELAY_MS, 3, new Random(1));
+        assertEquals(INTERVAL_MS, fail(backoff));
+        assertEquals(INTERVAL_MS, fail(backoff));
+        assertEquals(State.CLOSED, backoff.getState());
+        long delay = fail(backoff);
+        assertEquals(State.OPEN, backoff.getState());
+        assertTrue(delay >= INTERVAL_MS && delay <= 3 * INTERVAL_MS, "delay " + delay);
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() {
+        ElectionBackoff backoff = new ElectionBackoff(INTERVAL_MS, MAX_DELAY_MS, 3, new Random(1));
+        fail(backoff);
+        fail(backoff);
+        assertEquals(INTERVAL_MS, succeed(backoff));
+        fail(backoff);
+        fail(backoff);
+        assertEquals(State.CLOSED, backoff.getState());
+    }
+
+    @Test
+    public void testDecorrelatedJitterIsBounded() {
+        ElectionBackoff backoff = new ElectionBackoff(INTERVAL_MS, MAX_DELAY_MS, 1, new Random(42));
+        long previous = INTERVAL_MS;
+        long max = 0;
+        for (int i = 0; i < 200; i++) {
+            backoff.electionStarting();
+            if (i > 0) {
+                assertEquals(State.HALF_OPEN, backoff.getState());
+            }
+            long delay = backoff.electionCompleted(false);
+            assertEquals(State.OPEN, backoff.getState());
+            assertTrue(delay >= INTERVAL_MS, "delay " + delay);
+            assertTrue(delay <= Math.min(MAX_DELAY_MS, previous * 3), "delay " + delay);
+            previous = delay;
+            max = Math.max(max, delay);
+        }
+        // It does grow
+        assertTrue(max > MAX_DELAY_MS / 2, "max " + max);
+    }
+
+    @Test
+    public void testFastResume() {
+        ElectionBackoff backoff = new ElectionBackoff(INTERVAL_MS, MAX_DELAY_MS, 1, new Random(7));
+        for (int i = 0; i < 20; i++) {
+            fail(backoff);
+        }
+        backoff.electionStarting();
+        assertEquals(State.HALF_OPEN, backoff.getState());
+        assertEquals(INTERVAL_MS, backoff.electionCompleted(true));
+        assertEquals(State.CLOSED, backoff.getState());
+        // Back-off starts over from the beginning
+        long delay = fail(backoff);
+        assertTrue(delay <= 3 * INTERVAL_MS, "delay " + delay);
+    }
+
+    private static long fail(ElectionBackoff backoff) {
+        backoff.electionStarting();
+        return backoff.electionCompleted(false);
+    }
+
+    private static long succeed(ElectionBackoff backoff) {
+        backoff.electionStarting();
+        return backoff.electionCompleted(true);
+    }
+}
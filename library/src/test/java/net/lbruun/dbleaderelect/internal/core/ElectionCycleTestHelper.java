@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+import net.lbruun.dbleaderelect.internal.events.EventHelpers;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
+
+/**
+ * Creates {@link ElectionCycle} instances for tests outside of this package.
+ */
+public class ElectionCycleTestHelper {
+
+    private ElectionCycleTestHelper() {
+    }
+
+    public static ElectionCycle cycle(EventType eventType, String candidateId, long leaseCounter, long leaseAgeMillis) {
+        ElectionCycle cycle = new ElectionCycle("TEST");
+        cycle.begin(System.currentTimeMillis(), System.nanoTime());
+        cycle.set(eventType, candidateId, 0, leaseCounter, System.currentTimeMillis());
+        cycle.setLeaseAgeMillis(leaseAgeMillis);
+        cycle.addPhaseNanos(ElectionPhase.SELECT, 1_000_000);
+        return cycle;
+    }
+
+    public static ElectionCycle failedCycle(LeaderElectorException error) {
+        ElectionCycle cycle = new ElectionCycle("TEST");
+        cycle.begin(System.currentTimeMillis(), System.nanoTime());
+        EventHelpers.ErrorEventsBuilder errors = new EventHelpers.ErrorEventsBuilder();
+        errors.add(error);
+        cycle.setErrors(errors, false, System.currentTimeMillis());
+        return cycle;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.LeaderExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class LeaderScopedExecutorTest {
+
+    private LeaderScopedExecutor executor;
+
+    @AfterEach
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ElectionCycle cycle(EventType eventType, long leaseCounter) {
+        ElectionCycle cycle = new ElectionCycle("ROLE");
+        cycle.begin(System.currentTimeMillis(), System.nanoTime());
+        cycle.set(eventType, "me", 0, leaseCounter, System.currentTimeMillis());
+        return cycle;
+    }
+
+    @Test
+    public void testTaskWaitsForLeadership() throws Exception {
+        executor = new LeaderScopedExecutor(1, 10000, LeaderElectorLogger.NULL_LOGGER);
+        AtomicLong token = new AtomicLong(-99);
+        Future<?> f = executor.submit(() -> token.set(LeaderExecutorService.currentLeaseCounter()));
+
+        Thread.sleep(100);
+        assertFalse(f.isDone(), "Task must not execute while not leader");
+
+        executor.onElection(cycle(EventType.LEADERSHIP_ASSUMED, 7));
+        f.get(5, TimeUnit.SECONDS);
+        assertEquals(7, token.get());
+        assertEquals(LeaderExecutorService.NO_LEASE_COUNTER, LeaderExecutorService.currentLeaseCounter());
+    }
+
+    @Test
+    public void testTasksCancelledOnLoss() throws Exception {
+        executor = new LeaderScopedExecutor(1, 10000, LeaderElectorLogger.NULL_LOGGER);
+        executor.onElection(cycle(EventType.LEADERSHIP_ASSUMED, 1));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Future<?> running = executor.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+        });
+        AtomicInteger periodicRuns = new AtomicInteger();
+        ScheduledFuture<?> periodic = executor.scheduleWithFixedDelay(
+                periodicRuns::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.onElection(cycle(EventType.LEADERSHIP_LOST, -1));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Running task must be interrupted");
+        assertTrue(running.isCancelled());
+        assertTrue(periodic.isCancelled());
+        assertFalse(executor.isLeader());
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    @Test
+    public void testTasksCancelledOnLeaseDeadline() throws Exception {
+        executor = new LeaderScopedExecutor(1, 200, LeaderElectorLogger.NULL_LOGGER);
+        executor.onElection(cycle(EventType.LEADERSHIP_CONFIRMED, 3));
+        assertTrue(executor.isLeader());
+
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+        });
+
+        // No renewal, so the lease deadline will pass
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Running task must be interrupted");
+        assertFalse(executor.isLeader());
+
+        // A renewal re-opens the gate
+        executor.onElection(cycle(EventType.LEADERSHIP_CONFIRMED, 3));
+        assertTrue(executor.isLeader());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.sim.SimulatedDatabase;
+import net.lbruun.dbleaderelect.sim.VirtualClock;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QuorumLeaderElectTest {
+
+    private static final String ROLE_ID = "ROLE";
+
+    private final VirtualClock clock = new VirtualClock(1_600_000_000_000L);
+
+    @Test
+    public void testUsesElectionClock() {
+        LeaderElectorConfiguration configuration = LeaderElectorConfiguration.builder()
+                .withRoleId(ROLE_ID)
+                .withCandidateId("candidate")
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        List<SQLLeaderElect> elects = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SimulatedDatabase database = new SimulatedDatabase(clock);
+            database.createRole(ROLE_ID);
+            elects.add(new SQLLeaderElect(configuration, database, null, "test", clock));
+        }
+        QuorumLeaderElect elect = new QuorumLeaderElect(configuration, elects, clock);
+        try {
+            ElectionCycle cycle = elect.runElection(false);
+            assertEquals(EventType.LEADERSHIP_ASSUMED, cycle.getEventType());
+            assertEquals(clock.currentTimeMillis(), cycle.getStartTimeMillis());
+            assertEquals(clock.currentTimeMillis(), cycle.getEventTimeMillis());
+            assertEquals(clock.nanoTime(), cycle.getStartNanos());
+
+            clock.advance(configuration.getIntervalMs());
+            cycle = elect.runElection(false);
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, cycle.getEventType());
+            assertEquals(clock.currentTimeMillis(), cycle.getStartTimeMillis());
+            assertEquals(clock.currentTimeMillis(), cycle.getEventTimeMillis());
+        } finally {
+            elect.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionRecoverable;
+import net.lbruun.dbleaderelect.helpers.DelegatingDataSource;
+import net.lbruun.dbleaderelect.sim.SimulatedDatabase;
+import net.lbruun.dbleaderelect.sim.VirtualClock;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RenewalFastPathTest {
+
+    private static final String ROLE_ID = "ROLE";
+
+    private final VirtualClock clock = new VirtualClock(1_600_000_000_000L);
+    private final SimulatedDatabase database = new SimulatedDatabase(clock);
+
+    @Test
+    public void testUsedWithDefaultSettings() {
+        // Default intervalMs and assumeDeadMs
+        LeaderElectorConfiguration configuration = configuration().build();
+        SQLLeaderElect elect = leaderElect(configuration);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, elect.runElection(false).getEventType());
+
+        for (int i = 0; i < 10; i++) {
+            // A renewal on schedule, after a slow previous cycle
+            clock.advance(configuration.getIntervalMs() + 500);
+            long statementsBefore = database.getStatementsExecuted();
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, elect.runElection(false).getEventType());
+            assertEquals(1, database.getStatementsExecuted() - statementsBefore, "Only the UPDATE");
+        }
+    }
+
+    @Test
+    public void testNotUsedWhenLate() {
+        LeaderElectorConfiguration configuration = configuration()
+                .withIntervalMs(1000)
+                .withAssumeDeadMs(5000)
+                .build();
+        SQLLeaderElect elect = leaderElect(configuration);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, elect.runElection(false).getEventType());
+
+        // Beyond half-way between intervalMs and assumeDeadMs
+        clock.advance(3100);
+        long statementsBefore = database.getStatementsExecuted();
+        assertEquals(EventType.LEADERSHIP_CONFIRMED, elect.runElection(false).getEventType());
+        assertEquals(2, database.getStatementsExecuted() - statementsBefore, "SELECT and UPDATE");
+
+        clock.advance(2900);
+        statementsBefore = database.getStatementsExecuted();
+        assertEquals(EventType.LEADERSHIP_CONFIRMED, elect.runElection(false).getEventType());
+        assertEquals(1, database.getStatementsExecuted() - statementsBefore, "Only the UPDATE");
+    }
+
+    @Test
+    public void testLeaseAgeIncludesConnectionAcquisition() {
+        LeaderElectorConfiguration configuration = configuration()
+                .withIntervalMs(1000)
+                .withAssumeDeadMs(5000)
+                .build();
+        database.createRole(ROLE_ID);
+        // Obtaining a connection takes 700 ms
+        DelegatingDataSource slowDataSource = new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                clock.advance(700);
+                return super.getConnection();
+            }
+        };
+        SQLLeaderElect elect = new SQLLeaderElect(configuration, slowDataSource, null, "test", clock);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, elect.runElection(false).getEventType());
+
+        // From the start of the first election until the UPDATE returned
+        clock.advance(1000);
+        ElectionCycle cycle = elect.runElection(false);
+        assertEquals(EventType.LEADERSHIP_CONFIRMED, cycle.getEventType());
+        assertEquals(2400, cycle.getLeaseAgeMillis());
+
+        // From the start of the previous UPDATE until this one returned
+        clock.advance(1000);
+        cycle = elect.runElection(false);
+        assertEquals(EventType.LEADERSHIP_CONFIRMED, cycle.getEventType());
+        assertEquals(1700, cycle.getLeaseAgeMillis());
+    }
+
+    @Test
+    public void testErrorIsOutcome() {
+        LeaderElectorConfiguration configuration = configuration()
+                .withIntervalMs(1000)
+                .withAssumeDeadMs(5000)
+                .build();
+        database.createRole(ROLE_ID);
+        ConnectionCountingDataSource dataSource = new ConnectionCountingDataSource(database);
+        SQLLeaderElect elect = new SQLLeaderElect(configuration, dataSource, null, "test", clock);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, elect.runElection(false).getEventType());
+
+        // No connection can be obtained. The full election is not tried 
+        // as it would wait for a connection a second time.
+        dataSource.unavailable = true;
+        clock.advance(1000);
+        int connectionsBefore = dataSource.connections;
+        ElectionCycle cycle = elect.runElection(false);
+        assertEquals(EventType.LEADERSHIP_LOST, cycle.getEventType());
+        assertEquals(1, cycle.getErrorCount());
+        assertTrue(cycle.getError(0) instanceof LeaderElectorExceptionRecoverable);
+        assertEquals(1, dataSource.connections - connectionsBefore);
+    }
+
+    private static LeaderElectorConfiguration.Builder configuration() {
+        return LeaderElectorConfiguration.builder()
+                .withRoleId(ROLE_ID)
+                .withCandidateId("candidate")
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withRenewalFastPath(true)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER);
+    }
+
+    private SQLLeaderElect leaderElect(LeaderElectorConfiguration configuration) {
+        database.createRole(ROLE_ID);
+        return new SQLLeaderElect(configuration, database, null, "test", clock);
+    }
+
+    private static class ConnectionCountingDataSource extends DelegatingDataSource {
+
+        private int connections;
+        private boolean unavailable;
+
+        ConnectionCountingDataSource(SimulatedDatabase database) {
+            super(database);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections++;
+            if (unavailable) {
+                throw new SQLTransientConnectionException("Connection is not available");
+            }
+            return super.getConnection();
+        }
+    }
+}
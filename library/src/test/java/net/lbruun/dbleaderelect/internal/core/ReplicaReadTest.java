@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.helpers.DelegatingDataSource;
+import net.lbruun.dbleaderelect.sim.SimulatedDatabase;
+import net.lbruun.dbleaderelect.sim.VirtualClock;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ReplicaReadTest {
+
+    private static final String ROLE_ID = "ROLE";
+
+    private final VirtualClock clock = new VirtualClock(1_600_000_000_000L);
+    private final SimulatedDatabase primary = new SimulatedDatabase(clock);
+    private final SimulatedDatabase replica = new SimulatedDatabase(clock);
+
+    /**
+     * Tests that a replica read which is rejected doesn't become what the 
+     * follower reports when the row on the primary turns out to be locked.
+     */
+    @Test
+    public void testRejectedReplicaReadNotReported() {
+        LeaderElectorConfiguration configuration = LeaderElectorConfiguration.builder()
+                .withRoleId(ROLE_ID)
+                .withDatabaseEngine(DatabaseEngine.POSTGRESQL)
+                .withIntervalMs(1000)
+                .withAssumeDeadMs(5000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        primary.createRole(ROLE_ID);
+        replica.createRole(ROLE_ID);
+
+        // The replica has a lease which has long expired
+        SQLLeaderElect stale = leaderElect(configuration, "stale", replica);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, stale.runElection(false).getEventType());
+        clock.advance(10_000);
+        SQLLeaderElect leader = leaderElect(configuration, "leader", primary);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, leader.runElection(false).getEventType());
+
+        LockingDataSource lockingPrimary = new LockingDataSource(primary);
+        SQLLeaderElect follower = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(configuration)
+                        .withRoleId(ROLE_ID)
+                        .withCandidateId("follower")
+                        .withFollowerNoWait(true)
+                        .build(),
+                lockingPrimary, replica, "test", clock);
+        ElectionCycle cycle = follower.runElection(false);
+        assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+        assertEquals("leader", cycle.getCandidateId());
+
+        // The replica is rejected again, and the row is locked on the primary
+        lockingPrimary.locked = true;
+        cycle = follower.runElection(false);
+        assertFalse(cycle.hasErrors());
+        assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+        assertEquals("leader", cycle.getCandidateId());
+        assertEquals(1, cycle.getLeaseCounter());
+    }
+
+    private SQLLeaderElect leaderElect(LeaderElectorConfiguration configuration, String candidateId, SimulatedDatabase database) {
+        return new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(configuration)
+                        .withRoleId(ROLE_ID)
+                        .withCandidateId(candidateId)
+                        .build(), 
+                database, null, "test", clock);
+    }
+
+    /**
+     * Fails a {@code NOWAIT} query, as PostgreSQL does, while the row is 
+     * {@code locked}.
+     */
+    private static class LockingDataSource extends DelegatingDataSource {
+
+        private boolean locked;
+
+        LockingDataSource(SimulatedDatabase database) {
+            super(database);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (locked && method.getName().equals("prepareStatement") && ((String) args[0]).endsWith("NOWAIT")) {
+                            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                                    (stmtProxy, stmtMethod, stmtArgs) -> {
+                                        if (stmtMethod.getName().startsWith("execute")) {
+                                            throw new SQLException("Could not obtain lock on row", "55P03");
+                                        }
+                                        return null;
+                                    });
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+    }
+}
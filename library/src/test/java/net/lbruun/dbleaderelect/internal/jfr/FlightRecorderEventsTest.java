@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FlightRecorderEventsTest {
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        Path file = Files.createTempFile("dbleaderelect", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("net.lbruun.dbleaderelect.LeadershipTransition");
+                recording.enable("net.lbruun.dbleaderelect.ListenerDispatch");
+                recording.start();
+                FlightRecorderEvents.leadershipTransition("ROLE", "me", EventType.LEADERSHIP_ASSUMED, 42);
+                FlightRecorderEvents.listenerDispatch("ROLE", EventType.LEADERSHIP_ASSUMED, 1_000_000);
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(2, events.size());
+            RecordedEvent transition = events.get(0);
+            assertEquals("net.lbruun.dbleaderelect.LeadershipTransition", transition.getEventType().getName());
+            assertEquals("ROLE", transition.getString("roleId"));
+            assertEquals("me", transition.getString("candidateId"));
+            assertEquals("LEADERSHIP_ASSUMED", transition.getString("transition"));
+            assertEquals(42, transition.getLong("leaseCounter"));
+            RecordedEvent dispatch = events.get(1);
+            assertEquals("net.lbruun.dbleaderelect.ListenerDispatch", dispatch.getEventType().getName());
+            assertEquals(1, dispatch.getDuration("delay").toMillis());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCycleNotRecordedWhenDisabled() throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.disable("net.lbruun.dbleaderelect.ElectionCycle");
+            recording.start();
+            assertNull(FlightRecorderEvents.beginCycle());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.internal.jobs;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CronExpressionTest {
+
+    private static long utc(String isoDateTime) {
+        return Instant.parse(isoDateTime).toEpochMilli();
+    }
+
+    private static String nextUtc(String expression, String after) {
+        long next = CronExpression.parse(expression).next(utc(after), ZoneOffset.UTC);
+        return Instant.ofEpochMilli(next).toString();
+    }
+
+    @Test
+    public void testNext() {
+        assertEquals("2022-03-01T10:16:00Z", nextUtc("* * * * *", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-01T10:16:00Z", nextUtc("* * * * *", "2022-03-01T10:15:59.999Z"));
+        assertEquals("2022-03-01T10:30:00Z", nextUtc("*/15 * * * *", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-02T02:00:00Z", nextUtc("0 2 * * *", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-01T10:20:00Z", nextUtc("0-30/10 * * * *", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-01T11:05:00Z", nextUtc("5,35 11 * * *", "2022-03-01T10:15:00Z"));
+        assertEquals("2023-01-01T00:00:00Z", nextUtc("0 0 1 JAN *", "2022-03-01T10:15:00Z"));
+    }
+
+    @Test
+    public void testDayOfWeek() {
+        // 2022-03-01 is a Tuesday
+        assertEquals("2022-03-06T00:00:00Z", nextUtc("0 0 * * 0", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-06T00:00:00Z", nextUtc("0 0 * * 7", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-04T00:00:00Z", nextUtc("0 0 * * fri", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-02T00:00:00Z", nextUtc("0 0 * * MON-FRI", "2022-03-01T10:15:00Z"));
+        
+        // Both day-of-month and day-of-week restricted: either matches
+        assertEquals("2022-03-04T00:00:00Z", nextUtc("0 0 15 * 5", "2022-03-01T10:15:00Z"));
+        assertEquals("2022-03-15T00:00:00Z", nextUtc("0 0 15 * 5", "2022-03-11T10:15:00Z"));
+    }
+
+    @Test
+    public void testLeapDay() {
+        assertEquals("2024-02-29T00:00:00Z", nextUtc("0 0 29 2 *", "2022-03-01T10:15:00Z"));
+    }
+
+    @Test
+    public void testTimeZone() {
+        ZoneId zone = ZoneId.of("Europe/Copenhagen");
+        long next = CronExpression.parse("0 2 * * *").next(utc("2022-06-01T12:00:00Z"), zone);
+        assertEquals(ZonedDateTime.of(2022, 6, 2, 2, 0, 0, 0, zone).toInstant().toEpochMilli(), next);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("60 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* 24 * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* * 0 * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("5-1 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("x * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("0 0 30 2 *"));
+    }
+}
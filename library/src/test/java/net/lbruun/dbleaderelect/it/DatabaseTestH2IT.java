@@ -15,15 +15,33 @@
  */
 package net.lbruun.dbleaderelect.it;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import javax.sql.DataSource;
 import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.helpers.DelegatingDataSource;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.QuorumLeaderElect;
+import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
 import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.containers.JdbcDatabaseContainer;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 
 @DisplayName("H2 Integration Test") 
 @Testcontainers
@@ -62,4 +80,155 @@ public class DatabaseTestH2IT extends DatabaseWithTestContainers {
                 .withTableName(tableName)
                 .withSchemaName(schemaName).build();
     }
+    
+    /**
+     * Tests the quorum election across three (H2 in-memory) databases:
+     * leadership survives the loss of one database but not of two, and
+     * the combined lease counter increases from one leader to the next
+     * even if the databases' own lease counters differ.
+     */
+    @Test
+    public void testQuorum() throws Exception {
+        System.out.println("Test: Quorum");
+        List<SwitchableDataSource> dataSources = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            JdbcDataSource ds = new JdbcDataSource();
+            ds.setURL("jdbc:h2:mem:quorum" + i + ";DB_CLOSE_DELAY=-1");
+            ds.setUser("sa");
+            ds.setPassword("sa");
+            dataSources.add(new SwitchableDataSource(ds));
+        }
+        LeaderElectorConfiguration config = LeaderElectorConfiguration.builder()
+                .withRoleId("QUORUM")
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withTableName("quorum_test")
+                .withCreateTable(true)
+                .withIntervalMs(500)
+                .withAssumeDeadMs(4000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        QuorumLeaderElect candidateA = quorum(config, "A", dataSources);
+        QuorumLeaderElect candidateB = quorum(config, "B", dataSources);
+        try {
+            // Make the lease counters differ
+            try (Connection connection = dataSources.get(0).getConnection();
+                    PreparedStatement pstmt = connection.prepareStatement(
+                            "UPDATE quorum_test SET lease_counter = 10 WHERE role_id = 'QUORUM'")) {
+                assertEquals(1, pstmt.executeUpdate());
+            }
+
+            ElectionCycle cycle = candidateA.runElection(false);
+            assertEquals(EventType.LEADERSHIP_ASSUMED, cycle.getEventType());
+            // The outcome is decided by the first two databases to respond. 
+            // If the one with the higher lease counter was not among them
+            // then the lease counter is raised in a later election.
+            for (int i = 0; i < 20 && (cycle.getEventType() != EventType.LEADERSHIP_CONFIRMED || cycle.getLeaseCounter() != 11); i++) {
+                Thread.sleep(100);
+                cycle = candidateA.runElection(false);
+                assertTrue(candidateA.isLeader());
+            }
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, cycle.getEventType());
+            long leaseCounterA = cycle.getLeaseCounter();
+            assertEquals(11, leaseCounterA);
+            // A straggler may still be catching up in the background
+            int agreeing = 0;
+            for (DataSource ds : dataSources) {
+                if (leaseCounter(ds) == leaseCounterA) {
+                    agreeing++;
+                }
+            }
+            assertTrue(agreeing >= 2);
+            cycle = candidateB.runElection(false);
+            assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+            assertEquals("A", cycle.getCandidateId());
+
+            // One database lost
+            dataSources.get(2).down = true;
+            cycle = candidateA.runElection(false);
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, cycle.getEventType());
+            assertEquals(leaseCounterA, cycle.getLeaseCounter());
+            assertEquals(EventType.LEADERSHIP_NOOP, candidateB.runElection(false).getEventType());
+
+            // Two databases lost
+            dataSources.get(1).down = true;
+            cycle = candidateA.runElection(false);
+            assertEquals(EventType.LEADERSHIP_LOST, cycle.getEventType());
+            assertTrue(cycle.hasErrors());
+            assertFalse(candidateA.isLeader());
+            
+            dataSources.get(1).down = false;
+            dataSources.get(2).down = false;
+            cycle = candidateA.runElection(false);
+            assertEquals(EventType.LEADERSHIP_ASSUMED, cycle.getEventType());
+            assertTrue(cycle.getLeaseCounter() > leaseCounterA);
+            leaseCounterA = cycle.getLeaseCounter();
+            
+            // Failover
+            assertEquals(EventType.LEADERSHIP_LOST, candidateA.runElection(true).getEventType());
+            cycle = candidateB.runElection(false);
+            assertEquals(EventType.LEADERSHIP_ASSUMED, cycle.getEventType());
+            assertTrue(cycle.getLeaseCounter() > leaseCounterA);
+            assertEquals(EventType.LEADERSHIP_NOOP, candidateA.runElection(false).getEventType());
+            candidateB.runElection(true);
+        } finally {
+            candidateA.close();
+            candidateB.close();
+        }
+        
+        // Through LeaderElector
+        try (LeaderElector leaderElector = new LeaderElector(config, dataSources)) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!leaderElector.isLeader() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(leaderElector.isLeader());
+            // Only the lease in the first database would be checked
+            assertThrows(UnsupportedOperationException.class, () -> leaderElector.jobScheduler());
+            assertThrows(UnsupportedOperationException.class, () -> leaderElector.leaseFence());
+        }
+        assertThrows(IllegalArgumentException.class, 
+                () -> new LeaderElector(config, Arrays.asList(dataSources.get(0), dataSources.get(1))));
+    }
+    
+    private static QuorumLeaderElect quorum(LeaderElectorConfiguration config, String candidateId, 
+            List<? extends DataSource> dataSources) throws SQLException {
+        LeaderElectorConfiguration candidateConfig = LeaderElectorConfiguration.builder(config)
+                .withRoleId(config.getRoleId())
+                .withCandidateId(candidateId)
+                .build();
+        List<SQLLeaderElect> elects = new ArrayList<>();
+        for (DataSource ds : dataSources) {
+            SQLLeaderElect elect = new SQLLeaderElect(candidateConfig, ds, "quorum_test");
+            elect.ensureTable();
+            elect.ensureRoleRow();
+            elects.add(elect);
+        }
+        return new QuorumLeaderElect(candidateConfig, elects);
+    }
+    
+    private static long leaseCounter(DataSource ds) throws SQLException {
+        try (Connection connection = ds.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(
+                        "SELECT lease_counter FROM quorum_test WHERE role_id = 'QUORUM'");
+                ResultSet rs = pstmt.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+    
+    private static class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down = false;
+
+        SwitchableDataSource(DataSource delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLTransientConnectionException("Database is down");
+            }
+            return super.getConnection();
+        }
+    }
 }
@@ -17,21 +17,49 @@ package net.lbruun.dbleaderelect.it;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.LeaderElectorStatus;
+import net.lbruun.dbleaderelect.LeaderExecutorService;
+import net.lbruun.dbleaderelect.LeaderInfo;
+import net.lbruun.dbleaderelect.TableStorageProfile;
+import net.lbruun.dbleaderelect.exception.LeaderElectorLeaseLostException;
+import net.lbruun.dbleaderelect.fencing.LeaseFence;
+import net.lbruun.dbleaderelect.helpers.DelegatingDataSource;
 import net.lbruun.dbleaderelect.helpers.LiquibaseRunner;
 import net.lbruun.dbleaderelect.helpers.SQLUtilsTestHelper;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
 import net.lbruun.dbleaderelect.internal.core.RowInLeaderElectionTable;
+import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
 import net.lbruun.dbleaderelect.internal.sql.SQLCmds;
 import net.lbruun.dbleaderelect.internal.utils.SQLUtils;
+import net.lbruun.dbleaderelect.jobs.JobSchedule;
+import net.lbruun.dbleaderelect.metrics.ElectionMetrics;
+import net.lbruun.dbleaderelect.metrics.ElectionRecord;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,6 +67,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.containers.JdbcDatabaseContainer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.TestMethodOrder;
@@ -313,6 +342,35 @@ public abstract class DatabaseWithTestContainers {
         }
     }
 
+    /**
+     * Tests that the table can be created with the write-optimized
+     * storage profile and then used.
+     */
+    @Test
+    @Order(6)
+    public void testCreateTableWriteOptimized() throws SQLException   {
+        System.out.println("Test: CreateTableWriteOptimized");
+        LeaderElectorConfiguration config = LeaderElectorConfiguration.builder()
+                .withTableName("tab_create_test_wo")
+                .withDatabaseEngine(getDatabaseEngineType())
+                .withCreateTable(true)
+                .withTableStorageProfile(TableStorageProfile.WRITE_OPTIMIZED)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        System.out.println("    " + SQLCmds.getSQL(config).getCreateTableSQL());
+
+        SQLLeaderElect sqlLeaderElect = new SQLLeaderElect(config, getDataSource(), config.getTableName());
+        try {
+            sqlLeaderElect.ensureTable();
+            sqlLeaderElect.ensureRoleRow();
+            assertEquals(EventType.LEADERSHIP_ASSUMED, sqlLeaderElect.runElection(false).getEventType());
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, sqlLeaderElect.runElection(false).getEventType());
+        } finally {
+            try (Connection connection = getDataSource().getConnection()) {
+                SQLUtilsTestHelper.dropTable(connection, config.getSchemaName(), config.getTableName());
+            }
+        }
+    }
     
     @Test
     @Order(7)
@@ -346,6 +404,80 @@ public abstract class DatabaseWithTestContainers {
         }
     }
     
+    /**
+     * Tests that runs of leader jobs are only recorded under the current 
+     * lease.
+     */
+    @Test
+    @Order(8)
+    public void testJobRecordFencing() throws SQLException  {
+        System.out.println("Test: JobRecordFencing");
+        LeaderElectorConfiguration config = getLeaderElectorConfiguration(null, tmpTable);
+        SQLCmds sqlCmds = SQLCmds.getSQL(config);
+        String roleId = config.getRoleId();
+        String candidateId = config.getCandidateId();
+        try (Connection connection = getDataSource().getConnection()) {
+            try (PreparedStatement stmt = sqlCmds.getCreateJobTableStmt(connection)) {
+                stmt.execute();
+            }
+            try {
+                try (PreparedStatement pstmt = sqlCmds.getInsertRoleStmt(connection, roleId)) {
+                    pstmt.execute();
+                }
+                try (PreparedStatement pstmt = sqlCmds.getAssumeLeadershipStmt(connection, roleId, candidateId, 5, null)) {
+                    assertEquals(1, pstmt.executeUpdate());
+                }
+                
+                // First run is inserted, subsequent runs update
+                try (PreparedStatement pstmt = sqlCmds.getInsertJobStmt(connection, roleId, "job1", 1000, candidateId, 5)) {
+                    assertEquals(1, pstmt.executeUpdate());
+                }
+                try (PreparedStatement pstmt = sqlCmds.getInsertJobStmt(connection, roleId, "job1", 1000, candidateId, 5)) {
+                    pstmt.executeUpdate();
+                    fail("Expected duplicate key error");
+                } catch (SQLException ex) {
+                    assertTrue(sqlCmds.isDuplicateKeyException(ex));
+                }
+                try (PreparedStatement pstmt = sqlCmds.getUpdateJobStmt(connection, roleId, "job1", 2000, candidateId, 5)) {
+                    assertEquals(1, pstmt.executeUpdate());
+                }
+                
+                // Completion of the claimed run, but not of an earlier one
+                try (PreparedStatement pstmt = sqlCmds.getCompleteJobStmt(connection, roleId, "job1", 2000, 5)) {
+                    assertEquals(1, pstmt.executeUpdate());
+                }
+                try (PreparedStatement pstmt = sqlCmds.getCompleteJobStmt(connection, roleId, "job1", 1000, 5)) {
+                    assertEquals(0, pstmt.executeUpdate());
+                }
+                
+                // Stale lease
+                try (PreparedStatement pstmt = sqlCmds.getUpdateJobStmt(connection, roleId, "job1", 3000, candidateId, 4)) {
+                    assertEquals(0, pstmt.executeUpdate());
+                }
+                try (PreparedStatement pstmt = sqlCmds.getInsertJobStmt(connection, roleId, "job2", 3000, candidateId, 4)) {
+                    assertEquals(0, pstmt.executeUpdate());
+                }
+                
+                // Leadership moves to someone else
+                try (PreparedStatement pstmt = sqlCmds.getAssumeLeadershipStmt(connection, roleId, "other", 6, null)) {
+                    assertEquals(1, pstmt.executeUpdate());
+                }
+                try (PreparedStatement pstmt = sqlCmds.getUpdateJobStmt(connection, roleId, "job1", 3000, candidateId, 5)) {
+                    assertEquals(0, pstmt.executeUpdate());
+                }
+                
+                try (PreparedStatement pstmt = sqlCmds.getSelectJobStmt(connection, roleId, "job1");
+                        ResultSet rs = pstmt.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(2000, rs.getLong(1));
+                    assertEquals(5, rs.getLong(2));
+                }
+            } finally {
+                SQLUtilsTestHelper.dropTable(connection, config.getSchemaName(), config.getJobTableName());
+            }
+        }
+    }
+    
     /**
      * Tests if the "SELECT FOR UPDATE" (or similar) is truly only letting one database
      * session in at a time. This is meant to test if the locking mechanism in
@@ -396,6 +528,682 @@ public abstract class DatabaseWithTestContainers {
         });
     }
     
+    /**
+     * Tests that many Leader Electors can be closed down in parallel and
+     * that they all relinquish their leadership while doing so.
+     */
+    @Test
+    @Order(90)
+    public void testCloseAll() throws Exception  {
+        System.out.println("Test: CloseAll");
+        final int noOfElectors = 5;
+        final LeaderElectorConfiguration baseConfig = getLeaderElectorConfiguration(null, tmpTable);
+        final SQLCmds sqlCmds = SQLCmds.getSQL(baseConfig);
+        List<LeaderElector> leaderElectors = new ArrayList<>();
+        try {
+            for (int i = 0; i < noOfElectors; i++) {
+                LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(baseConfig)
+                        .withRoleId("ROLE" + i)
+                        .withIntervalMs(1000)
+                        .withAssumeDeadMs(5000)
+                        .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                        .build();
+                leaderElectors.add(new LeaderElector(config, getDataSource()));
+            }
+
+            // Wait for all of them to become leader of their role
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!allLeaders(leaderElectors) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(allLeaders(leaderElectors), "All electors should have become leader");
+        } finally {
+            long start = System.currentTimeMillis();
+            LeaderElector.closeAll(leaderElectors);
+            long durationMs = System.currentTimeMillis() - start;
+            assertTrue(durationMs < LeaderElector.CLOSE_TIMEOUT_MS / 2, "Close-down took " + durationMs + " ms");
+        }
+
+        for (LeaderElector leaderElector : leaderElectors) {
+            assertTrue(leaderElector.isClosed());
+            assertTrue(leaderElector.closeAsync().isDone());
+        }
+        try (Connection connection = getDataSource().getConnection()) {
+            for (int i = 0; i < noOfElectors; i++) {
+                try (PreparedStatement pstmt = sqlCmds.getSelectStmt(connection, "ROLE" + i);
+                        ResultSet rs = pstmt.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(LeaderElector.NO_LEADER_CANDIDATE_ID, rs.getString(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a leader job continues where it left off when leadership
+     * moves to another candidate, rather than being executed again. Also 
+     * not if the run on the previous leader is still executing.
+     */
+    @Test
+    @Order(91)
+    public void testJobResumesAfterFailover() throws Exception  {
+        System.out.println("Test: JobResumesAfterFailover");
+        final LeaderElectorConfiguration baseConfig = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("JOBROLE")
+                .withIntervalMs(1000)
+                .withAssumeDeadMs(5000)
+                .withCreateTable(true)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        final AtomicLong runs = new AtomicLong(0);
+        final JobSchedule hourly = JobSchedule.fixedRate(Duration.ofHours(1));
+        final CountDownLatch release = new CountDownLatch(1);
+        
+        try {
+            LeaderElector first = new LeaderElector(
+                    LeaderElectorConfiguration.builder(baseConfig).withCandidateId("first").build(), getDataSource());
+            try {
+                // A batch job which ignores interrupts
+                first.jobScheduler().schedule("hourly", hourly, ctx -> {
+                    runs.incrementAndGet();
+                    while (true) {
+                        try {
+                            release.await();
+                            return;
+                        } catch (InterruptedException ex) {
+                            // Keep running
+                        }
+                    }
+                });
+                waitFor(() -> runs.get() == 1, 5000);
+                assertEquals(1, runs.get(), "Job should run immediately on first leader");
+                // The run is claimed before the job executes
+                assertTrue(jobRecorded(first.getConfiguration(), "hourly"));
+            } finally {
+                first.close();
+            }
+
+            LeaderElector second = new LeaderElector(
+                    LeaderElectorConfiguration.builder(baseConfig).withCandidateId("second").build(), getDataSource());
+            try {
+                second.jobScheduler().schedule("hourly", hourly, ctx -> runs.incrementAndGet());
+                waitFor(() -> second.isLeader(), 5000);
+                assertTrue(second.isLeader());
+                Thread.sleep(1000);
+                assertEquals(1, runs.get(), "Job should not run again on new leader");
+            } finally {
+                second.close();
+            }
+        } finally {
+            release.countDown();
+            SQLUtilsTestHelper.dropTable(getDataSource(), baseConfig.getSchemaName(), baseConfig.getJobTableName());
+        }
+    }
+    
+    /**
+     * Tests that the watchdog gives up leadership when the election thread
+     * is stuck obtaining a connection, and that leadership is re-assumed
+     * with a new lease counter once the database is reachable again.
+     */
+    @Test
+    @Order(92)
+    public void testWatchdog() throws Exception  {
+        System.out.println("Test: Watchdog");
+        final CountDownLatch connectionsBlocked = new CountDownLatch(1);
+        final AtomicBoolean blockConnections = new AtomicBoolean(false);
+        final DataSource hangingDataSource = new DelegatingDataSource(getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (blockConnections.get()) {
+                    try {
+                        connectionsBlocked.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getConnection();
+            }
+        };
+        final List<LeaderElectorListener.Event> events = new CopyOnWriteArrayList<>();
+        final LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("WDROLE")
+                .withIntervalMs(500)
+                .withAssumeDeadMs(10000)
+                .withWatchdogThresholdMs(3000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener((event, leaderElector) -> events.add(event))
+                .build();
+
+        LeaderElector leaderElector = new LeaderElector(config, hangingDataSource);
+        try {
+            waitFor(() -> leaderElector.isLeader(), 5000);
+            assertTrue(leaderElector.isLeader());
+            waitFor(() -> !events.isEmpty(), 1000);
+            long firstLease = events.get(0).getLeaseCounter();
+            final CountDownLatch taskInterrupted = new CountDownLatch(1);
+            leaderElector.leaderExecutor().execute(() -> {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ex) {
+                    taskInterrupted.countDown();
+                }
+            });
+
+            blockConnections.set(true);
+            waitFor(() -> !leaderElector.isLeader(), 6000);
+            assertFalse(leaderElector.isLeader(), "Watchdog should have revoked leadership");
+            assertTrue(taskInterrupted.await(1, TimeUnit.SECONDS), "Leader task should have been interrupted");
+            waitFor(() -> events.size() >= 2, 1000);
+            assertEquals(EventType.LEADERSHIP_LOST, events.get(1).getEventType());
+
+            // Database becomes reachable again. We still hold the lease.
+            blockConnections.set(false);
+            connectionsBlocked.countDown();
+            waitFor(() -> leaderElector.isLeader(), 4000);
+            assertTrue(leaderElector.isLeader());
+            waitFor(() -> events.size() >= 3, 1000);
+            assertEquals(3, events.size(), "LEADERSHIP_LOST must only be delivered once: " + events);
+            assertEquals(EventType.LEADERSHIP_ASSUMED, events.get(2).getEventType());
+            assertTrue(events.get(2).getLeaseCounter() > firstLease, "Leadership should be re-assumed with a new lease");
+        } finally {
+            connectionsBlocked.countDown();
+            leaderElector.close();
+        }
+    }
+    
+    /**
+     * Tests that close-down stops leader tasks and unregisters the MXBean 
+     * right away, also if the election thread is stuck, and that the rest
+     * of the close-down is done without the election thread.
+     */
+    @Test
+    @Order(100)
+    public void testCloseWhileElectionStuck() throws Exception  {
+        System.out.println("Test: CloseWhileElectionStuck");
+        final CountDownLatch connectionsBlocked = new CountDownLatch(1);
+        final AtomicBoolean blockConnections = new AtomicBoolean(false);
+        final DataSource hangingDataSource = new DelegatingDataSource(getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (blockConnections.get()) {
+                    try {
+                        connectionsBlocked.await();
+                    } catch (InterruptedException ex) {
+                        throw new SQLException("Interrupted", ex);
+                    }
+                }
+                return super.getConnection();
+            }
+        };
+        final LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("STUCKROLE")
+                .withCandidateId("stuck")
+                .withIntervalMs(500)
+                .withAssumeDeadMs(10000)
+                .withWatchdogThresholdMs(0)
+                .withJmxEnabled(true)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        ObjectName name = new ObjectName("net.lbruun.dbleaderelect:type=LeaderElector,roleId=\"STUCKROLE\",candidateId=\"stuck\"");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        LeaderElector leaderElector = new LeaderElector(config, hangingDataSource);
+        try {
+            waitFor(() -> leaderElector.isLeader(), 5000);
+            assertTrue(leaderElector.isLeader());
+            final CountDownLatch taskInterrupted = new CountDownLatch(1);
+            leaderElector.leaderExecutor().execute(() -> {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ex) {
+                    taskInterrupted.countDown();
+                }
+            });
+
+            // Wait for the next election to get stuck
+            blockConnections.set(true);
+            Thread.sleep(1500);
+            long startTime = System.currentTimeMillis();
+            CompletableFuture<Void> closed = leaderElector.closeAsync();
+            assertTrue(taskInterrupted.await(1, TimeUnit.SECONDS), "Leader task should have been interrupted");
+            assertFalse(mBeanServer.isRegistered(name));
+            assertFalse(closed.isDone(), "Election thread should still be stuck");
+
+            closed.get(LeaderElector.CLOSE_TIMEOUT_MS + 5000, TimeUnit.MILLISECONDS);
+            assertTrue(System.currentTimeMillis() - startTime >= LeaderElector.CLOSE_TIMEOUT_MS);
+        } finally {
+            connectionsBlocked.countDown();
+            leaderElector.close();
+        }
+    }
+    
+    /**
+     * Tests that a follower which estimates the database clock skips
+     * querying the table while the observed lease has certainly not expired,
+     * and resumes querying when it may have expired.
+     */
+    @Test
+    @Order(93)
+    public void testFollowerSkipsWhileLeaseValid() throws Exception  {
+        System.out.println("Test: FollowerSkipsWhileLeaseValid");
+        final AtomicLong connectionsObtained = new AtomicLong();
+        final DataSource countingDataSource = new DelegatingDataSource(getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connectionsObtained.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        final LeaderElectorConfiguration baseConfig = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withIntervalMs(500)
+                .withAssumeDeadMs(4000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        SQLLeaderElect leader = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(baseConfig).withRoleId("CLKROLE").withCandidateId("leader").build(),
+                getDataSource(), tmpTable);
+        SQLLeaderElect follower = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(baseConfig).withRoleId("CLKROLE").withCandidateId("follower").withDbClockSampleIntervalMs(60000).build(),
+                countingDataSource, tmpTable);
+        leader.ensureRoleRow();
+        assertEquals(EventType.LEADERSHIP_ASSUMED, leader.runElection(false).getEventType());
+
+        // First election reads the table
+        assertEquals(EventType.LEADERSHIP_NOOP, follower.runElection(false).getEventType());
+        assertEquals(1, connectionsObtained.get());
+
+        // Second election only samples the database clock, the third
+        // doesn't touch the database at all.
+        ElectionCycle cycle = follower.runElection(false);
+        assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+        assertEquals("leader", cycle.getCandidateId());
+        assertEquals(2, connectionsObtained.get());
+        assertEquals(EventType.LEADERSHIP_NOOP, follower.runElection(false).getEventType());
+        assertEquals(2, connectionsObtained.get());
+
+        // The leader goes away. Once the observed lease may have expired
+        // the follower queries the table again and takes over.
+        leader.runElection(true);
+        waitFor(() -> follower.runElection(false).getEventType() == EventType.LEADERSHIP_ASSUMED, 5000);
+        assertTrue(follower.isLeader());
+        follower.runElection(true);
+    }
+    
+    /**
+     * Tests that a follower polls the replica while the lease is valid,
+     * and goes to the primary when the lease isn't, or when the replica
+     * cannot be read.
+     */
+    @Test
+    @Order(94)
+    public void testFollowerReadsFromReplica() throws Exception  {
+        System.out.println("Test: FollowerReadsFromReplica");
+        final AtomicLong primaryConnections = new AtomicLong();
+        final AtomicLong replicaConnections = new AtomicLong();
+        final AtomicBoolean replicaDown = new AtomicBoolean(false);
+        final DataSource primary = new DelegatingDataSource(getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                primaryConnections.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        // Same database, so a replica without lag
+        final DataSource replica = new DelegatingDataSource(getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                replicaConnections.incrementAndGet();
+                if (replicaDown.get()) {
+                    throw new SQLException("Replica is down");
+                }
+                return super.getConnection();
+            }
+        };
+        final LeaderElectorConfiguration baseConfig = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        SQLLeaderElect leader = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(baseConfig).withRoleId("REPLROLE").withCandidateId("leader").build(),
+                getDataSource(), tmpTable);
+        SQLLeaderElect follower = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(baseConfig).withRoleId("REPLROLE").withCandidateId("follower").build(),
+                primary, replica, tmpTable);
+        leader.ensureRoleRow();
+        assertEquals(EventType.LEADERSHIP_ASSUMED, leader.runElection(false).getEventType());
+
+        ElectionCycle cycle = follower.runElection(false);
+        assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+        assertEquals("leader", cycle.getCandidateId());
+        assertEquals(1, replicaConnections.get());
+        assertEquals(0, primaryConnections.get());
+
+        // Replica errors are not reported, the primary is used instead
+        replicaDown.set(true);
+        cycle = follower.runElection(false);
+        assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+        assertFalse(cycle.hasErrors());
+        assertEquals(1, primaryConnections.get());
+        replicaDown.set(false);
+
+        // Nobody is leader, so the election must be executed on the primary
+        leader.runElection(true);
+        assertEquals(EventType.LEADERSHIP_ASSUMED, follower.runElection(false).getEventType());
+        assertEquals(2, primaryConnections.get());
+
+        // The leader doesn't use the replica
+        long replicaConnectionsBefore = replicaConnections.get();
+        assertEquals(EventType.LEADERSHIP_CONFIRMED, follower.runElection(false).getEventType());
+        assertEquals(replicaConnectionsBefore, replicaConnections.get());
+        follower.runElection(true);
+    }
+    
+    /**
+     * Tests that a follower doesn't wait for the row lock when 
+     * {@code followerNoWait} is enabled.
+     */
+    @Test
+    @Order(95)
+    public void testFollowerNoWait() throws Exception  {
+        System.out.println("Test: FollowerNoWait");
+        assumeTrue(getDatabaseEngineType() != DatabaseEngine.H2, "H2 doesn't support not waiting for a lock");
+        final LeaderElectorConfiguration baseConfig = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withQueryTimeoutSecs(5)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        final SQLCmds sqlCmds = SQLCmds.getSQL(baseConfig);
+        SQLLeaderElect leader = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(baseConfig).withRoleId("NOWAITROLE").withCandidateId("leader").build(),
+                getDataSource(), tmpTable);
+        SQLLeaderElect follower = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(baseConfig).withRoleId("NOWAITROLE").withCandidateId("follower").withFollowerNoWait(true).build(),
+                getDataSource(), tmpTable);
+        leader.ensureRoleRow();
+        assertEquals(EventType.LEADERSHIP_ASSUMED, leader.runElection(false).getEventType());
+        assertEquals(EventType.LEADERSHIP_NOOP, follower.runElection(false).getEventType());
+
+        // Someone else holds the row lock
+        try (Connection connection = getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = sqlCmds.getSelectStmt(connection, "NOWAITROLE");
+                    ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                
+                long start = System.currentTimeMillis();
+                ElectionCycle cycle = follower.runElection(false);
+                long durationMs = System.currentTimeMillis() - start;
+                assertFalse(cycle.hasErrors(), () -> "Unexpected errors: " + cycle.toEvent());
+                assertEquals(EventType.LEADERSHIP_NOOP, cycle.getEventType());
+                assertEquals("leader", cycle.getCandidateId());
+                assertTrue(durationMs < 2000, "Follower waited for the lock for " + durationMs + " ms");
+            } finally {
+                connection.rollback();
+            }
+        }
+        assertEquals(EventType.LEADERSHIP_NOOP, follower.runElection(false).getEventType());
+        leader.runElection(true);
+    }
+    
+    /**
+     * Tests that an election gives up waiting for a connection after 
+     * {@code connectionAcquireTimeoutMs}, both for HikariCP and for 
+     * any other DataSource, without changing the pool's settings.
+     */
+    @Test
+    @Order(96)
+    public void testConnectionAcquireTimeout() throws Exception  {
+        System.out.println("Test: ConnectionAcquireTimeout");
+        final LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("ACQROLE")
+                .withIntervalMs(500)
+                .withAssumeDeadMs(4000)
+                .withConnectionAcquireTimeoutMs(500)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        SQLLeaderElect hikariElect = new SQLLeaderElect(config, dataSource, tmpTable);
+        SQLLeaderElect otherElect = new SQLLeaderElect(
+                LeaderElectorConfiguration.builder(config).withRoleId("ACQROLE").withCandidateId("other").build(),
+                new DelegatingDataSource(dataSource), tmpTable);
+        hikariElect.ensureRoleRow();
+        long poolConnectionTimeoutMs = dataSource.getConnectionTimeout();
+
+        // Exhaust the pool
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < dataSource.getMaximumPoolSize(); i++) {
+                connections.add(dataSource.getConnection());
+            }
+            for (SQLLeaderElect sqlLeaderElect : new SQLLeaderElect[]{hikariElect, otherElect}) {
+                long start = System.currentTimeMillis();
+                ElectionCycle cycle = sqlLeaderElect.runElection(false);
+                long durationMs = System.currentTimeMillis() - start;
+                assertTrue(cycle.hasErrors());
+                assertTrue(durationMs < 1500, "Waited " + durationMs + " ms for a connection");
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        assertEquals(poolConnectionTimeoutMs, dataSource.getConnectionTimeout());
+        
+        // Recovers once connections are available. The DataSource which
+        // is not HikariCP may still have an abandoned request outstanding.
+        assertEquals(EventType.LEADERSHIP_ASSUMED, hikariElect.runElection(false).getEventType());
+        waitFor(() -> !otherElect.runElection(false).hasErrors(), 5000);
+        assertFalse(otherElect.getLastElectionCycle().hasErrors());
+        // An abandoned connection is closed 
+        waitFor(() -> dataSource.getHikariPoolMXBean().getActiveConnections() == 0, 5000);
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+        hikariElect.runElection(true);
+    }
+
+    /**
+     * Tests that followers learn who the leader is, and where to reach it,
+     * from their regular elections.
+     */
+    @Test
+    @Order(97)
+    public void testCurrentLeader() throws Exception  {
+        System.out.println("Test: CurrentLeader");
+        final LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("DISCOVERY")
+                .withIntervalMs(500)
+                .withAssumeDeadMs(4000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        LeaderElector first = new LeaderElector(
+                LeaderElectorConfiguration.builder(config).withRoleId("DISCOVERY")
+                        .withCandidateId("first").withCandidateEndpoint("http://first:8080").build(),
+                getDataSource());
+        waitFor(first::isLeader, 5000);
+        assertTrue(first.isLeader());
+        LeaderElector second = new LeaderElector(
+                LeaderElectorConfiguration.builder(config).withRoleId("DISCOVERY")
+                        .withCandidateId("second").build(),
+                getDataSource());
+        try {
+            waitFor(() -> second.getCurrentLeader() != null, 5000);
+            LeaderInfo fromLeader = first.getCurrentLeader();
+            LeaderInfo fromFollower = second.getCurrentLeader();
+            assertNotNull(fromLeader);
+            assertNotNull(fromFollower);
+            assertTrue(fromLeader.isSelf());
+            assertEquals("http://first:8080", fromLeader.getEndpoint());
+            assertFalse(fromFollower.isSelf());
+            assertEquals("first", fromFollower.getCandidateId());
+            assertEquals("http://first:8080", fromFollower.getEndpoint());
+            assertEquals(fromLeader.getLeaseCounter(), fromFollower.getLeaseCounter());
+            assertTrue(fromFollower.getAge().toMillis() < 2000);
+
+            // Endpoint is cleared when leadership is relinquished
+            first.close();
+            waitFor(second::isLeader, 5000);
+            assertTrue(second.isLeader());
+            assertTrue(second.getCurrentLeader().isSelf());
+            assertNull(second.getCurrentLeader().getEndpoint());
+            assertNull(first.getCurrentLeader());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    /**
+     * Tests that fenced writes are only committed while the lease is held.
+     */
+    @Test
+    @Order(98)
+    public void testLeaseFence() throws Exception  {
+        System.out.println("Test: LeaseFence");
+        final LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("FENCE")
+                .withCandidateId("fenced")
+                .withIntervalMs(500)
+                .withAssumeDeadMs(4000)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        SQLCmds sqlCmds = SQLCmds.getSQL(config);
+        LeaderElector leaderElector = new LeaderElector(config, getDataSource());
+        try {
+            // Not leader yet
+            LeaseFence notLeaderFence = leaderElector.leaseFence(LeaderExecutorService.NO_LEASE_COUNTER);
+            assertThrows(LeaderElectorLeaseLostException.class, () -> notLeaderFence.execute(connection -> 1));
+
+            waitFor(leaderElector::isLeader, 5000);
+            assertTrue(leaderElector.isLeader());
+            LeaseFence fence = leaderElector.leaseFence();
+            assertEquals(leaderElector.getCurrentLeader().getLeaseCounter(), fence.getLeaseCounter());
+            assertEquals(Integer.valueOf(42), fence.execute(connection -> 42));
+            assertEquals(1, countWithPredicate(fence));
+            
+            // Error in the work is rethrown, connection is still usable
+            try (Connection connection = getDataSource().getConnection()) {
+                assertThrows(SQLException.class, () -> fence.execute(connection, c -> {
+                    throw new SQLException("Failing work");
+                }));
+                assertTrue(connection.getAutoCommit());
+                assertEquals("ok", fence.execute(connection, c -> "ok"));
+            }
+
+            // Leadership moves to someone else
+            try (Connection connection = getDataSource().getConnection();
+                    PreparedStatement pstmt = sqlCmds.getAssumeLeadershipStmt(connection, config.getRoleId(), "other", 
+                            fence.getLeaseCounter() + 1, null)) {
+                assertEquals(1, pstmt.executeUpdate());
+            }
+            AtomicBoolean executed = new AtomicBoolean(false);
+            assertThrows(LeaderElectorLeaseLostException.class, () -> fence.execute(connection -> {
+                executed.set(true);
+                return null;
+            }));
+            assertFalse(executed.get());
+            assertEquals(0, countWithPredicate(fence));
+        } finally {
+            leaderElector.close();
+        }
+    }
+
+    /**
+     * Tests that election cycles are measured and exposed over JMX.
+     */
+    @Test
+    @Order(99)
+    public void testMetrics() throws Exception  {
+        System.out.println("Test: Metrics");
+        final LeaderElectorConfiguration config = LeaderElectorConfiguration.builder(getLeaderElectorConfiguration(null, tmpTable))
+                .withRoleId("METRICS")
+                .withCandidateId("measured")
+                .withIntervalMs(500)
+                .withAssumeDeadMs(4000)
+                .withJmxEnabled(true)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .build();
+        ObjectName name = new ObjectName("net.lbruun.dbleaderelect:type=LeaderElector,roleId=\"METRICS\",candidateId=\"measured\"");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        LeaderElector leaderElector = new LeaderElector(config, getDataSource());
+        try {
+            waitFor(leaderElector::isLeader, 5000);
+            waitFor(() -> leaderElector.getMetrics().getElections() >= 3, 5000);
+            // A cycle is added to the history after its metrics
+            waitFor(() -> leaderElector.getHistory().getRecords().size() >= 3, 5000);
+            ElectionMetrics metrics = leaderElector.getMetrics();
+            assertEquals(1, metrics.getLeadershipAssumed());
+            assertEquals(0, metrics.getFailedElections());
+            assertTrue(metrics.getHistogram(ElectionPhase.CYCLE).getCount() >= 2);
+            assertTrue(metrics.getHistogram(ElectionPhase.CONNECTION_ACQUIRE).getCount() >= 2);
+            assertTrue(metrics.getHistogram(ElectionPhase.COMMIT).getCount() >= 1);
+            // Renewals every 500 ms, lease considered dead after 4000 ms
+            assertTrue(metrics.getLeaseAgeHistogram().getCount() >= 1);
+            assertTrue(metrics.getLeaseAgeHistogram().getMax() < TimeUnit.MILLISECONDS.toNanos(3000));
+            assertEquals(0, metrics.getLowLeaseMarginRenewals());
+
+            LeaderElectorStatus status = leaderElector.getStatus();
+            assertTrue(status.isLeader());
+            assertFalse(status.isClosed());
+            assertEquals("METRICS", status.getRoleId());
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, status.getLastOutcome());
+            assertTrue(status.getLeaseCounter() > 0);
+            assertNotNull(status.getLastElectionDuration());
+            assertNull(status.getLastError());
+
+            List<ElectionRecord> history = leaderElector.getHistory().getRecords();
+            assertTrue(history.size() >= 3);
+            assertEquals(EventType.LEADERSHIP_ASSUMED, history.get(0).getOutcome());
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, history.get(history.size() - 1).getOutcome());
+            assertEquals("measured", history.get(history.size() - 1).getLeaderCandidateId());
+            assertTrue(leaderElector.getHistory().dump().contains("LEADERSHIP_ASSUMED"));
+
+            assertTrue(mBeanServer.isRegistered(name));
+            assertTrue((Long) mBeanServer.getAttribute(name, "Elections") >= 2);
+        } finally {
+            leaderElector.close();
+        }
+        assertFalse(mBeanServer.isRegistered(name));
+        assertTrue(leaderElector.getStatus().isClosed());
+        assertFalse(leaderElector.getStatus().isLeader());
+    }
+
+    private boolean jobRecorded(LeaderElectorConfiguration config, String jobId) throws SQLException {
+        SQLCmds sqlCmds = SQLCmds.getSQL(config);
+        try (Connection connection = getDataSource().getConnection();
+                PreparedStatement pstmt = sqlCmds.getSelectJobStmt(connection, config.getRoleId(), jobId);
+                ResultSet rs = pstmt.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private int countWithPredicate(LeaseFence fence) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + tmpTable + " WHERE " + fence.getPredicateSQL();
+        try (Connection connection = getDataSource().getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            fence.setPredicateParameters(pstmt, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private interface Condition {
+        boolean test() throws Exception;
+    }
+    
+    private static void waitFor(Condition condition, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.test() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static boolean allLeaders(List<LeaderElector> leaderElectors) throws Exception {
+        for (LeaderElector leaderElector : leaderElectors) {
+            if (!leaderElector.isLeader()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     
     private Runnable runSelectForUpdateIter(
             int threadNo, 
@@ -413,7 +1221,7 @@ public abstract class DatabaseWithTestContainers {
                 connection.setAutoCommit(false);
                 try (
                          PreparedStatement selectStmt = sqlCmds.getSelectStmt(connection, config.getRoleId());  
-                         PreparedStatement updateStmt = sqlCmds.getAssumeLeadershipStmt(connection, config.getRoleId(), candidateId, 0);
+                         PreparedStatement updateStmt = sqlCmds.getAssumeLeadershipStmt(connection, config.getRoleId(), candidateId, 0, null);
                         ) {
                     for (int i = 0; i < iterations; i++) {
                         updateStmt.setLong(2, counter.incrementAndGet());
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.metrics;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorExceptionRecoverable;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycleTestHelper;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ElectionHistoryTest {
+
+    @Test
+    public void testKeepsMostRecent() {
+        ElectionHistory history = new ElectionHistory(4);
+        for (long i = 1; i <= 10; i++) {
+            history.record(ElectionCycleTestHelper.cycle(EventType.LEADERSHIP_CONFIRMED, "me", i, 100 + i), 2_000_000);
+        }
+        List<ElectionRecord> records = history.getRecords();
+        assertEquals(10, history.getRecordedCount());
+        assertEquals(4, records.size());
+        for (int i = 0; i < 4; i++) {
+            ElectionRecord record = records.get(i);
+            assertEquals(7 + i, record.getSequence());
+            assertEquals(7 + i, record.getLeaseCounter());
+            assertEquals(107 + i, record.getLeaseAgeMillis());
+            assertEquals(EventType.LEADERSHIP_CONFIRMED, record.getOutcome());
+            assertEquals("me", record.getLeaderCandidateId());
+            assertEquals(1_000_000, record.getPhaseNanos(ElectionPhase.SELECT));
+            assertEquals(-1, record.getPhaseNanos(ElectionPhase.UPDATE));
+            assertEquals(2, record.getDuration().toMillis());
+        }
+    }
+
+    @Test
+    public void testErrorAndDump() {
+        ElectionHistory history = new ElectionHistory(4);
+        history.record(ElectionCycleTestHelper.cycle(EventType.LEADERSHIP_ASSUMED, "me", 1, 5000), 1_000_000);
+        history.record(ElectionCycleTestHelper.failedCycle(
+                new LeaderElectorExceptionRecoverable(new SQLTransientConnectionException("timeout"))), 1_000_000);
+        List<ElectionRecord> records = history.getRecords();
+        assertEquals(2, records.size());
+        assertNull(records.get(0).getErrorClass());
+        assertEquals(SQLTransientConnectionException.class.getName(), records.get(1).getErrorClass());
+        assertNull(records.get(1).getLeaderCandidateId());
+
+        String[] lines = history.dump().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("#1 "), lines[0]);
+        assertTrue(lines[0].contains("LEADERSHIP_ASSUMED"), lines[0]);
+        assertTrue(lines[1].contains("error=java.sql.SQLTransientConnectionException"), lines[1]);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, new ElectionHistory(4).getRecords().size());
+        ElectionHistory disabled = new ElectionHistory(0);
+        disabled.record(ElectionCycleTestHelper.cycle(EventType.LEADERSHIP_NOOP, "other", 1, 0), 1);
+        assertEquals(0, disabled.getRecords().size());
+        assertEquals("", disabled.dump());
+    }
+
+    @Test
+    public void testReadersNeverSeeTornRecords() throws Exception {
+        ElectionHistory history = new ElectionHistory(8);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            started.countDown();
+            while (!done.get()) {
+                for (ElectionRecord record : history.getRecords()) {
+                    // Every field of a record is derived from the same number
+                    if (record.getLeaseCounter() != record.getSequence()
+                            || record.getLeaseAgeMillis() != record.getSequence() * 2) {
+                        failure.set("Torn record: " + record);
+                    }
+                }
+            }
+        });
+        reader.start();
+        started.await();
+        for (long i = 1; i <= 200_000; i++) {
+            ElectionCycle cycle = ElectionCycleTestHelper.cycle(EventType.LEADERSHIP_CONFIRMED, "me", i, i * 2);
+            history.record(cycle, i);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import net.lbruun.dbleaderelect.internal.core.ElectionCycle;
+import net.lbruun.dbleaderelect.internal.core.SQLLeaderElect;
+import net.lbruun.dbleaderelect.sim.FaultPlan.Fault;
+
+/**
+ * Deterministic simulation of a number of candidates electing a leader
+ * through a {@link SimulatedDatabase}, with time kept by a 
+ * {@link VirtualClock} and faults injected by 
+ * {@link FaultInjectingDataSource}. Everything random is drawn from a 
+ * single seeded {@code Random}, so a run is fully reproducible from its
+ * seed.
+ *
+ * <p>
+ * The candidates are {@link SQLLeaderElect} instances, without the 
+ * threads of a {@code LeaderElector}. Elections run one at a time: the
+ * candidate whose election is due first runs it, and the clock is moved to
+ * that point in time. Besides the injected database faults, a candidate 
+ * may pause (skip elections for a while, like in a long GC pause) or 
+ * relinquish its leadership.
+ *
+ * <p>
+ * After every election, the following safety properties are checked: 
+ * <ul>
+ *   <li>Every lease counter belongs to one candidate only.</li>
+ *   <li>A lease counter taken by {@code LEADERSHIP_ASSUMED} is larger 
+ *       than every lease counter before it.</li>
+ *   <li>When a candidate assumes leadership, no other candidate still
+ *       believes to be leader with a lease which is valid by its own
+ *       clock. (A lease is valid for {@code assumeDeadMs} from the start 
+ *       of the election which last renewed it.)</li>
+ * </ul>
+ * Violations are collected in the {@link Result}, not thrown.
+ */
+public class ElectionSimulation {
+
+    static final String ROLE_ID = "SIM";
+
+    private final Random random;
+    private final VirtualClock clock = new VirtualClock(1_600_000_000_000L);
+    private final SimulatedDatabase database = new SimulatedDatabase(clock);
+    private final List<Candidate> candidates = new ArrayList<>();
+    private double pauseProbability = 0;
+    private long maxPauseMs = 0;
+    private double relinquishProbability = 0;
+
+    /**
+     * @param seed seed for everything random in the simulation
+     * @param configurations one per candidate. Must all use the same
+     *     role id.
+     * @param faults faults to inject in the database access of every 
+     *     candidate
+     */
+    public ElectionSimulation(long seed, List<LeaderElectorConfiguration> configurations, FaultPlan faults) {
+        this.random = new Random(seed);
+        database.createRole(ROLE_ID);
+        for (LeaderElectorConfiguration configuration : configurations) {
+            FaultInjectingDataSource dataSource = new FaultInjectingDataSource(database, faults, random, clock);
+            SQLLeaderElect elect = new SQLLeaderElect(configuration, dataSource, null, "sim", clock);
+            Candidate candidate = new Candidate(configuration, elect, dataSource);
+            candidate.nextElectionMillis = clock.currentTimeMillis() + (long) (random.nextDouble() * configuration.getIntervalMs());
+            candidates.add(candidate);
+        }
+    }
+
+    /**
+     * Creates configurations for {@code count} candidates which are equal
+     * except for the candidate id.
+     */
+    public static List<LeaderElectorConfiguration> configurations(int count, long intervalMs, long assumeDeadMs) {
+        List<LeaderElectorConfiguration> configurations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            configurations.add(configuration("candidate-" + i, intervalMs, assumeDeadMs));
+        }
+        return configurations;
+    }
+
+    /**
+     * Creates the configuration of one candidate.
+     */
+    public static LeaderElectorConfiguration configuration(String candidateId, long intervalMs, long assumeDeadMs) {
+        return LeaderElectorConfiguration.builder()
+                .withRoleId(ROLE_ID)
+                .withCandidateId(candidateId)
+                .withDatabaseEngine(DatabaseEngine.H2)
+                .withIntervalMs(intervalMs)
+                .withAssumeDeadMs(assumeDeadMs)
+                .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                .withListener(new LeaderElectorListener.NoOpListener())
+                .build();
+    }
+
+    /**
+     * Lets candidates pause: before an election, with the given
+     * probability, the candidate instead skips elections for up to
+     * {@code maxPauseMs}.
+     * @return this
+     */
+    public ElectionSimulation withPauses(double probability, long maxPauseMs) {
+        this.pauseProbability = probability;
+        this.maxPauseMs = maxPauseMs;
+        return this;
+    }
+
+    /**
+     * Lets a leader relinquish its leadership, with the given probability 
+     * per election.
+     * @return this
+     */
+    public ElectionSimulation withRelinquish(double probability) {
+        this.relinquishProbability = probability;
+        return this;
+    }
+
+    /**
+     * Runs the given number of elections, spread over all candidates.
+     * @param elections
+     * @return outcome
+     */
+    public Result run(int elections) {
+        Result result = new Result();
+        long startMillis = clock.currentTimeMillis();
+        long leaderlessSinceMillis = startMillis;
+        int run = 0;
+        while (run < elections) {
+            Candidate candidate = nextCandidate();
+            clock.advanceTo(candidate.nextElectionMillis);
+            if (pauseProbability > 0 && random.nextDouble() < pauseProbability) {
+                candidate.nextElectionMillis = clock.currentTimeMillis() + 1 + (long) (random.nextDouble() * maxPauseMs);
+                result.pauses++;
+                continue;
+            }
+            boolean relinquish = candidate.elect.isLeader() 
+                    && relinquishProbability > 0 && random.nextDouble() < relinquishProbability;
+            long cycleStartMillis = clock.currentTimeMillis();
+            ElectionCycle cycle = candidate.elect.runElection(relinquish);
+            long cycleEndMillis = clock.currentTimeMillis();
+            run++;
+
+            check(candidate, cycle, cycleStartMillis, cycleEndMillis, result);
+            result.record(cycle, candidate.elect.isLeader() ? candidate.id : null);
+
+            // Time during which no candidate had a valid lease
+            boolean anyLeader = false;
+            for (Candidate c : candidates) {
+                anyLeader |= c.holdsValidLease(cycleEndMillis);
+            }
+            if (anyLeader) {
+                result.longestLeaderlessMillis = Math.max(result.longestLeaderlessMillis, cycleEndMillis - leaderlessSinceMillis);
+                leaderlessSinceMillis = Long.MAX_VALUE;
+            } else if (leaderlessSinceMillis == Long.MAX_VALUE) {
+                leaderlessSinceMillis = cycleEndMillis;
+            }
+            candidate.nextElectionMillis = cycleEndMillis + candidate.configuration.getIntervalMs();
+        }
+        result.simulatedMillis = clock.currentTimeMillis() - startMillis;
+        result.statements = database.getStatementsExecuted();
+        for (Candidate candidate : candidates) {
+            for (Fault fault : Fault.values()) {
+                result.injected.merge(fault, candidate.dataSource.getInjected(fault), Long::sum);
+            }
+        }
+        return result;
+    }
+
+    private Candidate nextCandidate() {
+        Candidate next = candidates.get(0);
+        for (Candidate candidate : candidates) {
+            if (candidate.nextElectionMillis < next.nextElectionMillis) {
+                next = candidate;
+            }
+        }
+        return next;
+    }
+
+    private void check(Candidate candidate, ElectionCycle cycle, long startMillis, long endMillis, Result result) {
+        boolean leader = candidate.elect.isLeader();
+        EventType eventType = cycle.getEventType();
+        if (!leader) {
+            candidate.validUntilMillis = Math.min(candidate.validUntilMillis, endMillis);
+            return;
+        }
+        if (eventType != EventType.LEADERSHIP_ASSUMED && eventType != EventType.LEADERSHIP_CONFIRMED) {
+            return;
+        }
+        long leaseCounter = cycle.getLeaseCounter();
+        String owner = result.leaseOwners.putIfAbsent(leaseCounter, candidate.id);
+        if (owner != null && !owner.equals(candidate.id)) {
+            result.violation(endMillis, candidate.id + " holds lease counter " + leaseCounter + " which belongs to " + owner);
+        }
+        if (eventType == EventType.LEADERSHIP_ASSUMED) {
+            if (owner == null && leaseCounter <= result.maxLeaseCounter) {
+                result.violation(endMillis, candidate.id + " assumed leadership with lease counter " + leaseCounter 
+                        + ", not larger than " + result.maxLeaseCounter);
+            }
+            for (Candidate other : candidates) {
+                if (other != candidate && other.holdsValidLease(endMillis)) {
+                    result.violation(endMillis, candidate.id + " assumed leadership (lease counter " + leaseCounter 
+                            + ") while " + other.id + " believes to be leader with a lease valid for another " 
+                            + (other.validUntilMillis - endMillis) + " ms");
+                }
+            }
+        }
+        result.maxLeaseCounter = Math.max(result.maxLeaseCounter, leaseCounter);
+        candidate.validUntilMillis = startMillis + candidate.configuration.getAssumeDeadMs();
+    }
+
+
+    private static final class Candidate {
+
+        private final String id;
+        private final LeaderElectorConfiguration configuration;
+        private final SQLLeaderElect elect;
+        private final FaultInjectingDataSource dataSource;
+        private long nextElectionMillis;
+        private long validUntilMillis = Long.MIN_VALUE;
+
+        Candidate(LeaderElectorConfiguration configuration, SQLLeaderElect elect, FaultInjectingDataSource dataSource) {
+            this.id = configuration.getCandidateId();
+            this.configuration = configuration;
+            this.elect = elect;
+            this.dataSource = dataSource;
+        }
+
+        boolean holdsValidLease(long nowMillis) {
+            return elect.isLeader() && validUntilMillis > nowMillis;
+        }
+    }
+
+
+    /**
+     * Outcome of a simulation.
+     */
+    public static final class Result {
+
+        private final Map<Long, String> leaseOwners = new HashMap<>();
+        private final Map<EventType, Long> outcomes = new EnumMap<>(EventType.class);
+        private final Map<Fault, Long> injected = new EnumMap<>(Fault.class);
+        private final List<String> violations = new ArrayList<>();
+        private long maxLeaseCounter = Long.MIN_VALUE;
+        private long elections;
+        private long errors;
+        private long pauses;
+        private long leaderChanges;
+        private String lastLeader;
+        private long longestLeaderlessMillis;
+        private long simulatedMillis;
+        private long statements;
+        private long traceHash = 17;
+
+        void record(ElectionCycle cycle, String leader) {
+            elections++;
+            if (cycle.hasErrors()) {
+                errors++;
+            }
+            if (cycle.getEventType() != null) {
+                outcomes.merge(cycle.getEventType(), 1L, Long::sum);
+            }
+            if (leader != null && !leader.equals(lastLeader)) {
+                leaderChanges++;
+                lastLeader = leader;
+            }
+            traceHash = 31 * traceHash + cycle.getStartTimeMillis();
+            traceHash = 31 * traceHash + String.valueOf(cycle.getEventType()).hashCode();
+            traceHash = 31 * traceHash + String.valueOf(leader).hashCode();
+            traceHash = 31 * traceHash + cycle.getLeaseCounter();
+        }
+
+        void violation(long atMillis, String description) {
+            violations.add("t=" + atMillis + ": " + description);
+        }
+
+        /**
+         * Gets the safety violations, in the order they happened.
+         */
+        public List<String> getViolations() {
+            return Collections.unmodifiableList(violations);
+        }
+
+        public long getElections() {
+            return elections;
+        }
+
+        public long getOutcomes(EventType eventType) {
+            return outcomes.getOrDefault(eventType, 0L);
+        }
+
+        /**
+         * Gets the number of elections which ended with errors.
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getPauses() {
+            return pauses;
+        }
+
+        public long getInjected(Fault fault) {
+            return injected.getOrDefault(fault, 0L);
+        }
+
+        /**
+         * Gets how many times leadership moved to another candidate,
+         * including the very first leader.
+         */
+        public long getLeaderChanges() {
+            return leaderChanges;
+        }
+
+        /**
+         * Gets the longest (simulated) time during which no candidate held
+         * a valid lease, as observed at the end of elections.
+         */
+        public long getLongestLeaderlessMillis() {
+            return longestLeaderlessMillis;
+        }
+
+        public long getSimulatedMillis() {
+            return simulatedMillis;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        /**
+         * Gets a hash of the sequence of outcomes. Two runs with the same
+         * seed and settings have the same hash.
+         */
+        public long getTraceHash() {
+            return traceHash;
+        }
+
+        @Override
+        public String toString() {
+            return "elections=" + elections
+                    + ", outcomes=" + outcomes
+                    + ", errors=" + errors
+                    + ", pauses=" + pauses
+                    + ", injected=" + injected
+                    + ", leaderChanges=" + leaderChanges
+                    + ", longestLeaderlessMs=" + longestLeaderlessMillis
+                    + ", simulatedMs=" + simulatedMillis
+                    + ", statements=" + statements
+                    + ", violations=" + violations.size();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.sim;
+
+import java.util.List;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.sim.ElectionSimulation.Result;
+import net.lbruun.dbleaderelect.sim.FaultPlan.Fault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ElectionSimulationTest {
+
+    private static final long INTERVAL_MS = 1000;
+    private static final long ASSUME_DEAD_MS = 5000;
+
+    @Test
+    public void testWithoutFaults() {
+        ElectionSimulation simulation = new ElectionSimulation(1, 
+                ElectionSimulation.configurations(5, INTERVAL_MS, ASSUME_DEAD_MS), FaultPlan.none());
+        Result result = simulation.run(10_000);
+
+        assertEquals(0, result.getViolations().size(), result.getViolations().toString());
+        assertEquals(0, result.getErrors());
+        assertEquals(1, result.getOutcomes(EventType.LEADERSHIP_ASSUMED), result.toString());
+        assertEquals(1, result.getLeaderChanges());
+        assertTrue(result.getLongestLeaderlessMillis() < INTERVAL_MS, result.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8})
+    public void testSafetyUnderFaults(long seed) {
+        ElectionSimulation simulation = new ElectionSimulation(seed, 
+                ElectionSimulation.configurations(5, INTERVAL_MS, ASSUME_DEAD_MS), 
+                FaultPlan.all(0.02).withMaxLatencyMs(2000))
+                .withPauses(0.01, 3 * ASSUME_DEAD_MS)
+                .withRelinquish(0.002);
+        Result result = simulation.run(20_000);
+
+        assertEquals(0, result.getViolations().size(), "seed " + seed + ": " + result.getViolations());
+        for (Fault fault : Fault.values()) {
+            assertTrue(result.getInjected(fault) > 0, "seed " + seed + ": no " + fault + " injected");
+        }
+        assertTrue(result.getLeaderChanges() > 1, result.toString());
+        assertTrue(result.getOutcomes(EventType.LEADERSHIP_CONFIRMED) > result.getElections() / 10, result.toString());
+    }
+
+    @Test
+    public void testDeterministic() {
+        Result first = new ElectionSimulation(42, ElectionSimulation.configurations(3, INTERVAL_MS, ASSUME_DEAD_MS), 
+                FaultPlan.all(0.05)).withPauses(0.01, 2 * ASSUME_DEAD_MS).run(5_000);
+        Result second = new ElectionSimulation(42, ElectionSimulation.configurations(3, INTERVAL_MS, ASSUME_DEAD_MS), 
+                FaultPlan.all(0.05)).withPauses(0.01, 2 * ASSUME_DEAD_MS).run(5_000);
+        Result other = new ElectionSimulation(43, ElectionSimulation.configurations(3, INTERVAL_MS, ASSUME_DEAD_MS), 
+                FaultPlan.all(0.05)).withPauses(0.01, 2 * ASSUME_DEAD_MS).run(5_000);
+
+        assertEquals(first.getTraceHash(), second.getTraceHash());
+        assertEquals(first.toString(), second.toString());
+        assertFalse(first.getTraceHash() == other.getTraceHash());
+    }
+
+    @Test
+    public void testDetectsSplitBrain() {
+        // A candidate with a shorter assumeDeadMs than the others takes
+        // over leases which the leader still considers valid. This can only
+        // happen when one of the patient candidates is leader, which depends
+        // on the seed, so a few seeds are tried.
+        List<LeaderElectorConfiguration> configurations = ElectionSimulation.configurations(2, INTERVAL_MS, 20_000);
+        configurations.add(ElectionSimulation.configuration("impatient", INTERVAL_MS, ASSUME_DEAD_MS));
+        int violations = 0;
+        for (long seed = 1; seed <= 5; seed++) {
+            ElectionSimulation simulation = new ElectionSimulation(seed, configurations, FaultPlan.none())
+                    .withPauses(0.05, 3 * ASSUME_DEAD_MS);
+            violations += simulation.run(5_000).getViolations().size();
+        }
+
+        assertTrue(violations > 0);
+    }
+}
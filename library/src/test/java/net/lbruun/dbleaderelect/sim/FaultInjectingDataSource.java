@@ -0,0 +1,206 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.sim;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import net.lbruun.dbleaderelect.sim.FaultPlan.Fault;
+
+/**
+ * Wraps a {@code DataSource} and injects faults according to a 
+ * {@link FaultPlan}. Whether a fault is injected is decided by a 
+ * {@code Random}, so a run is reproducible from its seed as long as the
+ * calls happen in the same order.
+ *
+ * <p>
+ * Latency is injected by advancing the {@link VirtualClock}, so that the
+ * time also passes for the database.
+ *
+ * <p>
+ * Not thread-safe.
+ */
+public class FaultInjectingDataSource implements DataSource {
+
+    private final DataSource delegate;
+    private final FaultPlan plan;
+    private final Random random;
+    private final VirtualClock clock;
+    private final Map<Fault, Long> injected = new EnumMap<>(Fault.class);
+
+    /**
+     * @param delegate the database
+     * @param plan faults to inject
+     * @param random decides when to inject, typically shared by the whole
+     *     simulation
+     * @param clock advanced when latency is injected
+     */
+    public FaultInjectingDataSource(DataSource delegate, FaultPlan plan, Random random, VirtualClock clock) {
+        this.delegate = delegate;
+        this.plan = plan;
+        this.random = random;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the number of faults injected so far.
+     * @param fault
+     */
+    public long getInjected(Fault fault) {
+        return injected.getOrDefault(fault, 0L);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (inject(Fault.DROPPED_CONNECTION)) {
+            throw new SQLTransientConnectionException("Connection is not available (injected)");
+        }
+        Connection connection = delegate.getConnection();
+        return SimulatedDatabase.proxy(Connection.class, new FaultyConnection(connection));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return delegate.isWrapperFor(iface);
+    }
+
+    private boolean inject(Fault fault) {
+        double probability = plan.getProbability(fault);
+        if (probability > 0 && random.nextDouble() < probability) {
+            injected.merge(fault, 1L, Long::sum);
+            return true;
+        }
+        return false;
+    }
+
+    private void maybeDelay() {
+        if (inject(Fault.LATENCY)) {
+            clock.advance(1 + (long) (random.nextDouble() * plan.getMaxLatencyMs()));
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+
+    private final class FaultyConnection implements InvocationHandler {
+
+        private final Connection target;
+
+        FaultyConnection(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    PreparedStatement stmt = (PreparedStatement) FaultInjectingDataSource.invoke(target, method, args);
+                    boolean locking = ((String) args[0]).contains("FOR UPDATE");
+                    return SimulatedDatabase.proxy(PreparedStatement.class, new FaultyStatement(stmt, locking));
+                case "commit":
+                    maybeDelay();
+                    if (inject(Fault.COMMIT_FAILURE)) {
+                        target.rollback();
+                        throw new SQLRecoverableException("Connection lost during commit (injected)");
+                    }
+                    return FaultInjectingDataSource.invoke(target, method, args);
+                default:
+                    return FaultInjectingDataSource.invoke(target, method, args);
+            }
+        }
+    }
+
+
+    private final class FaultyStatement implements InvocationHandler {
+
+        private final PreparedStatement target;
+        private final boolean locking;
+
+        FaultyStatement(PreparedStatement target, boolean locking) {
+            this.target = target;
+            this.locking = locking;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().startsWith("execute")) {
+                maybeDelay();
+                if (locking && inject(Fault.LOCK_TIMEOUT)) {
+                    throw new SQLTimeoutException("Timeout trying to lock table (injected)", "HYT00", 50200);
+                }
+                if (inject(Fault.TRANSIENT_ERROR)) {
+                    throw new SQLTransientException("Transient error (injected)");
+                }
+            }
+            return FaultInjectingDataSource.invoke(target, method, args);
+        }
+    }
+}
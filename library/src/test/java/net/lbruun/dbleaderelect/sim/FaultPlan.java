@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.sim;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Which faults {@link FaultInjectingDataSource} injects, and how often.
+ */
+public final class FaultPlan {
+
+    /**
+     * Kinds of faults.
+     */
+    public enum Fault {
+        /**
+         * A statement or commit takes time: the clock is advanced by up to
+         * {@link #withMaxLatencyMs(long) maxLatencyMs}.
+         */
+        LATENCY,
+        /**
+         * A connection cannot be obtained.
+         */
+        DROPPED_CONNECTION,
+        /**
+         * A statement fails with a {@code SQLTransientException}.
+         */
+        TRANSIENT_ERROR,
+        /**
+         * A locking {@code SELECT} times out waiting for the row lock.
+         */
+        LOCK_TIMEOUT,
+        /**
+         * A commit fails. The transaction is rolled back.
+         */
+        COMMIT_FAILURE
+    }
+
+    private final Map<Fault, Double> probabilities = new EnumMap<>(Fault.class);
+    private long maxLatencyMs = 100;
+
+    /**
+     * A plan with no faults.
+     */
+    public static FaultPlan none() {
+        return new FaultPlan();
+    }
+
+    /**
+     * A plan with every kind of fault, each with the same probability.
+     * @param probability probability per opportunity, 0 to 1
+     */
+    public static FaultPlan all(double probability) {
+        FaultPlan plan = new FaultPlan();
+        for (Fault fault : Fault.values()) {
+            plan.with(fault, probability);
+        }
+        return plan;
+    }
+
+    /**
+     * Sets the probability of a fault at every opportunity for it: for
+     * example every {@code getConnection()} for 
+     * {@link Fault#DROPPED_CONNECTION DROPPED_CONNECTION}.
+     * @param fault
+     * @param probability 0 to 1
+     * @return this
+     */
+    public FaultPlan with(Fault fault, double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("Probability must be between 0 and 1");
+        }
+        probabilities.put(fault, probability);
+        return this;
+    }
+
+    /**
+     * Sets the maximum latency injected by {@link Fault#LATENCY LATENCY}.
+     * @param maxLatencyMs
+     * @return this
+     */
+    public FaultPlan withMaxLatencyMs(long maxLatencyMs) {
+        this.maxLatencyMs = maxLatencyMs;
+        return this;
+    }
+
+    public double getProbability(Fault fault) {
+        return probabilities.getOrDefault(fault, 0.0);
+    }
+
+    public long getMaxLatencyMs() {
+        return maxLatencyMs;
+    }
+
+    @Override
+    public String toString() {
+        return "FaultPlan{" + probabilities + ", maxLatencyMs=" + maxLatencyMs + '}';
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.sim;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_CANDIDATE_ID;
+import static net.lbruun.dbleaderelect.LeaderElector.NO_LEADER_LASTSEENTIMESTAMP_MS;
+
+/**
+ * In-memory stand-in for the leader election table. The database time,
+ * which decides when a lease expires, is that of a {@link VirtualClock}.
+ *
+ * <p>
+ * Statements are recognized from their SQL text, which is the same for
+ * most database engines; the simulation uses 
+ * {@link net.lbruun.dbleaderelect.DatabaseEngine#H2 H2}. Changes made with
+ * autocommit off are private to the connection until it commits, and are
+ * discarded on rollback or close. Since the simulation runs one election
+ * at a time, row locks are never contended. Lock timeouts are instead
+ * injected by {@link FaultInjectingDataSource}.
+ *
+ * <p>
+ * Not thread-safe.
+ */
+public class SimulatedDatabase implements DataSource {
+
+    private enum Kind {
+        SELECT_ROW,
+        SELECT_DB_TIME,
+        AFFIRM,
+        RENEW,
+        ASSUME,
+        RELINQUISH
+    }
+
+    private final VirtualClock clock;
+    private final Map<String, Row> rows = new HashMap<>();
+    private long statementsExecuted;
+
+    public SimulatedDatabase(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Inserts the row for a role, with no leader.
+     * @param roleId
+     */
+    public void createRole(String roleId) {
+        rows.putIfAbsent(roleId, new Row());
+    }
+
+    /**
+     * Gets the candidate which holds the lease according to the (committed)
+     * content of the table.
+     */
+    public String getCandidateId(String roleId) {
+        return rows.get(roleId).candidateId;
+    }
+
+    public long getLeaseCounter(String roleId) {
+        return rows.get(roleId).leaseCounter;
+    }
+
+    public long getStatementsExecuted() {
+        return statementsExecuted;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return proxy(Connection.class, new SimulatedConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException("Not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+
+    private static Kind classify(String sql) throws SQLException {
+        String s = sql.trim();
+        if (s.regionMatches(true, 0, "SELECT", 0, 6)) {
+            return (s.contains("candidate_id")) ? Kind.SELECT_ROW : Kind.SELECT_DB_TIME;
+        }
+        if (s.regionMatches(true, 0, "UPDATE", 0, 6)) {
+            if (s.contains("'" + NO_LEADER_CANDIDATE_ID + "'")) {
+                return Kind.RELINQUISH;
+            }
+            if (s.contains("SET candidate_id")) {
+                return Kind.ASSUME;
+            }
+            return (s.contains("lease_counter")) ? Kind.RENEW : Kind.AFFIRM;
+        }
+        throw new SQLFeatureNotSupportedException("Simulated database does not understand SQL: " + sql);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, handler);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                return proxy.getClass().getName();
+        }
+    }
+
+
+    private static final class Row {
+
+        private String candidateId = NO_LEADER_CANDIDATE_ID;
+        private long lastSeenTimestamp = NO_LEADER_LASTSEENTIMESTAMP_MS;
+        private long leaseCounter = 0;
+        private String candidateEndpoint;
+
+        Row copy() {
+            Row copy = new Row();
+            copy.candidateId = candidateId;
+            copy.lastSeenTimestamp = lastSeenTimestamp;
+            copy.leaseCounter = leaseCounter;
+            copy.candidateEndpoint = candidateEndpoint;
+            return copy;
+        }
+    }
+
+
+    private final class SimulatedConnection implements InvocationHandler {
+
+        private final Map<String, Row> uncommitted = new HashMap<>();
+        private boolean autoCommit = true;
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "prepareStatement":
+                    checkOpen();
+                    return proxy(PreparedStatement.class, new SimulatedStatement(this, classify((String) args[0])));
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    checkOpen();
+                    if ((Boolean) args[0] && !autoCommit) {
+                        commit();
+                    }
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "commit":
+                    checkOpen();
+                    commit();
+                    return null;
+                case "rollback":
+                    checkOpen();
+                    uncommitted.clear();
+                    return null;
+                case "close":
+                    uncommitted.clear();
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    throw new SQLFeatureNotSupportedException("Connection." + method.getName());
+            }
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+        }
+
+        private void commit() {
+            rows.putAll(uncommitted);
+            uncommitted.clear();
+        }
+
+        // What this connection sees
+        Row read(String roleId) {
+            Row row = uncommitted.get(roleId);
+            return (row != null) ? row : rows.get(roleId);
+        }
+
+        void write(String roleId, Row row) {
+            if (autoCommit) {
+                rows.put(roleId, row);
+            } else {
+                uncommitted.put(roleId, row);
+            }
+        }
+    }
+
+
+    private final class SimulatedStatement implements InvocationHandler {
+
+        private final SimulatedConnection connection;
+        private final Kind kind;
+        private final Object[] params = new Object[6];
+
+        SimulatedStatement(SimulatedConnection connection, Kind kind) {
+            this.connection = connection;
+            this.kind = kind;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "setString":
+                case "setLong":
+                    params[(Integer) args[0]] = args[1];
+                    return null;
+                case "setNull":
+                    params[(Integer) args[0]] = null;
+                    return null;
+                case "setQueryTimeout":
+                case "close":
+                    return null;
+                case "executeQuery":
+                    return executeQuery();
+                case "executeUpdate":
+                    return executeUpdate();
+                case "execute":
+                    if (kind == Kind.SELECT_ROW || kind == Kind.SELECT_DB_TIME) {
+                        executeQuery();
+                        return true;
+                    }
+                    executeUpdate();
+                    return false;
+                default:
+                    throw new SQLFeatureNotSupportedException("PreparedStatement." + method.getName());
+            }
+        }
+
+        private ResultSet executeQuery() throws SQLException {
+            connection.checkOpen();
+            statementsExecuted++;
+            long now = clock.currentTimeMillis();
+            if (kind == Kind.SELECT_DB_TIME) {
+                return proxy(ResultSet.class, new SimulatedResultSet(new Object[]{now}));
+            }
+            if (kind != Kind.SELECT_ROW) {
+                throw new SQLException("Not a query: " + kind);
+            }
+            Row row = connection.read((String) params[1]);
+            Object[] values = (row == null) 
+                    ? null 
+                    : new Object[]{row.candidateId, row.lastSeenTimestamp, now, row.leaseCounter, row.candidateEndpoint};
+            return proxy(ResultSet.class, new SimulatedResultSet(values));
+        }
+
+        private int executeUpdate() throws SQLException {
+            connection.checkOpen();
+            statementsExecuted++;
+            long now = clock.currentTimeMillis();
+            // The role is the last parameter of ASSUME, the first of the others
+            String roleId = (kind == Kind.ASSUME) 
+                    ? (String) ((params[4] != null) ? params[4] : params[3]) 
+                    : (String) params[1];
+            Row current = connection.read(roleId);
+            if (current == null) {
+                return 0;
+            }
+            Row row = current.copy();
+            switch (kind) {
+                case AFFIRM:
+                    if (!row.candidateId.equals(params[2])) {
+                        return 0;
+                    }
+                    row.lastSeenTimestamp = now;
+                    break;
+                case RENEW:
+                    if (!row.candidateId.equals(params[2]) || row.leaseCounter != (Long) params[3]) {
+                        return 0;
+                    }
+                    row.lastSeenTimestamp = now;
+                    break;
+                case ASSUME:
+                    row.candidateId = (String) params[1];
+                    row.leaseCounter = (Long) params[2];
+                    row.candidateEndpoint = (params[4] != null) ? (String) params[3] : null;
+                    row.lastSeenTimestamp = now;
+                    break;
+                case RELINQUISH:
+                    if (!row.candidateId.equals(params[2])) {
+                        return 0;
+                    }
+                    row.candidateId = NO_LEADER_CANDIDATE_ID;
+                    row.lastSeenTimestamp = NO_LEADER_LASTSEENTIMESTAMP_MS;
+                    row.candidateEndpoint = null;
+                    break;
+                default:
+                    throw new SQLException("Not an update: " + kind);
+            }
+            connection.write(roleId, row);
+            return 1;
+        }
+    }
+
+
+    private static final class SimulatedResultSet implements InvocationHandler {
+
+        private final Object[] values;   // null if no row
+        private boolean beforeFirst = true;
+        private boolean wasNull;
+
+        SimulatedResultSet(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "next":
+                    boolean hasRow = beforeFirst && values != null;
+                    beforeFirst = false;
+                    return hasRow;
+                case "getString":
+                    return (String) column((Integer) args[0]);
+                case "getLong":
+                    Object value = column((Integer) args[0]);
+                    return (value == null) ? 0L : (Long) value;
+                case "wasNull":
+                    return wasNull;
+                case "close":
+                    return null;
+                default:
+                    throw new SQLFeatureNotSupportedException("ResultSet." + method.getName());
+            }
+        }
+
+        private Object column(int index) throws SQLException {
+            if (beforeFirst || values == null) {
+                throw new SQLException("No current row");
+            }
+            Object value = values[index - 1];
+            wasNull = (value == null);
+            return value;
+        }
+    }
+}
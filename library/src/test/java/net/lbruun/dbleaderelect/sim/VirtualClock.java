@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.sim;
+
+import java.util.concurrent.TimeUnit;
+import net.lbruun.dbleaderelect.internal.core.ElectionClock;
+
+/**
+ * Clock which only moves when told to. Used both as the local clock of
+ * the candidates and as the clock of the {@link SimulatedDatabase}.
+ *
+ * <p>
+ * Not thread-safe.
+ */
+public final class VirtualClock implements ElectionClock {
+
+    private final long originMillis;
+    private long elapsedNanos;
+
+    /**
+     * @param originMillis wall-clock time at which the clock starts
+     */
+    public VirtualClock(long originMillis) {
+        this.originMillis = originMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Moves the clock forward.
+     * @param millis must not be negative
+     */
+    public void advance(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time cannot go backwards");
+        }
+        elapsedNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Moves the clock forward to the given wall-clock time, unless it is
+     * already past it.
+     * @param millis milliseconds since the epoch
+     */
+    public void advanceTo(long millis) {
+        long now = currentTimeMillis();
+        if (millis > now) {
+            advance(millis - now);
+        }
+    }
+}
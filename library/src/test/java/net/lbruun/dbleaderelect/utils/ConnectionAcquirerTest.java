@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelect.utils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import net.lbruun.dbleaderelect.helpers.DelegatingDataSource;
+import net.lbruun.dbleaderelect.internal.utils.ConnectionAcquirer;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ConnectionAcquirerTest {
+
+    @Test
+    public void testBackgroundRequest() throws SQLException {
+        ThreadRecordingDataSource dataSource = new ThreadRecordingDataSource();
+        ConnectionAcquirer acquirer = new ConnectionAcquirer(dataSource, 1000, false);
+        try (Connection connection = acquirer.getConnection()) {
+            assertNotSame(Thread.currentThread(), dataSource.thread);
+        }
+    }
+
+    @Test
+    public void testHikariOnly() throws SQLException {
+        ThreadRecordingDataSource dataSource = new ThreadRecordingDataSource();
+        ConnectionAcquirer acquirer = new ConnectionAcquirer(dataSource, 1000, true);
+        try (Connection connection = acquirer.getConnection()) {
+            assertSame(Thread.currentThread(), dataSource.thread);
+        }
+    }
+
+    @Test
+    public void testHikari() throws SQLException {
+        try (CountingHikariDataSource dataSource = new CountingHikariDataSource()) {
+            dataSource.setDataSource(new ThreadRecordingDataSource());
+            ConnectionAcquirer acquirer = new ConnectionAcquirer(dataSource, 1000, true);
+            // The pool is started lazily, by HikariDataSource
+            try (Connection connection = acquirer.getConnection()) {
+                assertEquals(1, dataSource.calls);
+            }
+            // From then on directly from the pool, with the timeout
+            try (Connection connection = acquirer.getConnection()) {
+                assertEquals(1, dataSource.calls);
+            }
+        }
+    }
+
+    private static class CountingHikariDataSource extends HikariDataSource {
+
+        private int calls;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            calls++;
+            return super.getConnection();
+        }
+    }
+
+    private static class ThreadRecordingDataSource extends DelegatingDataSource {
+
+        private volatile Thread thread;
+
+        ThreadRecordingDataSource() {
+            super(h2());
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            thread = Thread.currentThread();
+            return super.getConnection();
+        }
+
+        private static DataSource h2() {
+            JdbcDataSource ds = new JdbcDataSource();
+            ds.setURL("jdbc:h2:mem:acquirer");
+            ds.setUser("sa");
+            ds.setPassword("");
+            return ds;
+        }
+    }
+}
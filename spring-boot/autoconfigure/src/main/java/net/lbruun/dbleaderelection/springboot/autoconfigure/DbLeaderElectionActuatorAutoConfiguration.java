@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.springboot.autoconfigure;
+
+import java.util.Map;
+import net.lbruun.dbleaderelect.LeaderElector;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto-configuration of the Actuator endpoint and health indicator for 
+ * DbLeaderElection. Only active if Spring Boot Actuator is on the 
+ * classpath.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnBean(LeaderElector.class)
+@AutoConfigureAfter(DbLeaderElectionAutoConfiguration.class)
+public class DbLeaderElectionActuatorAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public LeaderElectionEndpoint leaderElectionEndpoint(Map<String, LeaderElector> leaderElectors) {
+        return new LeaderElectionEndpoint(leaderElectors);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "leaderElectionHealthIndicator")
+    @ConditionalOnEnabledHealthIndicator("leaderelection")
+    public LeaderElectionHealthIndicator leaderElectionHealthIndicator(Map<String, LeaderElector> leaderElectors) {
+        return new LeaderElectionHealthIndicator(leaderElectors);
+    }
+}
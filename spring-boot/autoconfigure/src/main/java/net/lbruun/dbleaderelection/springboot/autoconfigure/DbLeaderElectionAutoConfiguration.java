@@ -15,14 +15,17 @@
  */
 package net.lbruun.dbleaderelection.springboot.autoconfigure;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import javax.sql.DataSource;
 import net.lbruun.dbleaderelect.LeaderElector;
 import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
 import net.lbruun.dbleaderelect.LeaderElectorListener;
+import net.lbruun.dbleaderelect.metrics.ElectionMetricsRecorder;
 import net.lbruun.dbleaderelect.spring.SpringLeaderElectorProperties;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
@@ -38,7 +41,9 @@ import org.springframework.context.annotation.Configuration;
 @Configuration(proxyBeanMethods = false)
 @ConditionalOnBean({LeaderElectorListener.class, DataSource.class})
 @ConditionalOnMissingBean({LeaderElector.class})
-@AutoConfigureAfter({DataSourceAutoConfiguration.class, LiquibaseAutoConfiguration.class})
+@AutoConfigureAfter(
+        value = {DataSourceAutoConfiguration.class, LiquibaseAutoConfiguration.class},
+        name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 public class DbLeaderElectionAutoConfiguration {
 
     @Bean
@@ -53,7 +58,8 @@ public class DbLeaderElectionAutoConfiguration {
             LeaderElectorListener LeaderElectorListener,
             DataSourceProperties dataSourceProperties,
             ObjectProvider<DataSource> dataSourceObjectProvider,
-            @LeaderElectorDataSource ObjectProvider<DataSource> leaderElectorDataSourceObjectProvider) {
+            @LeaderElectorDataSource ObjectProvider<DataSource> leaderElectorDataSourceObjectProvider,
+            ObjectProvider<ElectionMetricsRecorder> metricsRecorderObjectProvider) {
         
         DataSource ds = leaderElectorDataSourceObjectProvider.getIfAvailable();
         if (ds == null) {
@@ -65,8 +71,37 @@ public class DbLeaderElectionAutoConfiguration {
         }
 
         LeaderElectorConfiguration c = properties.configuration(LeaderElectorListener);
+        ElectionMetricsRecorder metricsRecorder = metricsRecorderObjectProvider.getIfUnique();
+        if (metricsRecorder != null) {
+            c = LeaderElectorConfiguration.builder(c)
+                    .withRoleId(c.getRoleId())
+                    .withMetricsRecorder(metricsRecorder)
+                    .build();
+        }
         return new LeaderElector(c, ds);
     }
 
+    /**
+     * Records the Leader Elector's measurements into Micrometer if
+     * Micrometer is on the classpath and a {@code MeterRegistry} exists,
+     * as is the case with Spring Boot Actuator.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class MicrometerConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnBean(MeterRegistry.class)
+        public ElectionMetricsRecorder leaderElectorMetricsRecorder(
+                SpringLeaderElectorProperties properties,
+                MeterRegistry meterRegistry) {
+            String roleId = (properties.getRoleId() != null) 
+                    ? properties.getRoleId() 
+                    : LeaderElectorConfiguration.DEFAULT_ROLEID;
+            return new MicrometerElectionMetricsRecorder(meterRegistry, roleId);
+        }
+    }
+
 }
 
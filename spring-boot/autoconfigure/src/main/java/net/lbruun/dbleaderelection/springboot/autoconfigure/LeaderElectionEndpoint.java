@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.springboot.autoconfigure;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorStatus;
+import net.lbruun.dbleaderelect.LeaderInfo;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint {@code leaderelection} which lists the Leader Electors
+ * in the application context, by bean name. Reading the endpoint never 
+ * connects to the database; see {@link LeaderElector#getStatus()}.
+ */
+@Endpoint(id = "leaderelection")
+public class LeaderElectionEndpoint {
+
+    private final Map<String, LeaderElector> leaderElectors;
+
+    public LeaderElectionEndpoint(Map<String, LeaderElector> leaderElectors) {
+        this.leaderElectors = leaderElectors;
+    }
+
+    @ReadOperation
+    public LeaderElectorsDescriptor leaderElectors() {
+        Map<String, LeaderElectorDescriptor> descriptors = new LinkedHashMap<>();
+        leaderElectors.forEach((name, leaderElector) -> descriptors.put(name, 
+                new LeaderElectorDescriptor(leaderElector.getStatus(), leaderElector.getCurrentLeader())));
+        return new LeaderElectorsDescriptor(descriptors);
+    }
+
+    /**
+     * All Leader Electors, by bean name.
+     */
+    public static final class LeaderElectorsDescriptor {
+
+        private final Map<String, LeaderElectorDescriptor> leaderElectors;
+
+        private LeaderElectorsDescriptor(Map<String, LeaderElectorDescriptor> leaderElectors) {
+            this.leaderElectors = Collections.unmodifiableMap(leaderElectors);
+        }
+
+        public Map<String, LeaderElectorDescriptor> getLeaderElectors() {
+            return leaderElectors;
+        }
+    }
+
+    /**
+     * A single Leader Elector.
+     */
+    public static final class LeaderElectorDescriptor {
+
+        private final LeaderElectorStatus status;
+        private final LeaderInfo currentLeader;
+
+        private LeaderElectorDescriptor(LeaderElectorStatus status, LeaderInfo currentLeader) {
+            this.status = status;
+            this.currentLeader = currentLeader;
+        }
+
+        public String getRoleId() {
+            return status.getRoleId();
+        }
+
+        public String getCandidateId() {
+            return status.getCandidateId();
+        }
+
+        public boolean isClosed() {
+            return status.isClosed();
+        }
+
+        public boolean isLeader() {
+            return status.isLeader();
+        }
+
+        public long getLeaseCounter() {
+            return status.getLeaseCounter();
+        }
+
+        /**
+         * @return candidate id of the current leader, as last observed, 
+         *   or {@code null} if not known
+         */
+        public String getCurrentLeader() {
+            return (currentLeader == null) ? null : currentLeader.getCandidateId();
+        }
+
+        public String getLastOutcome() {
+            return (status.getLastOutcome() == null) ? null : status.getLastOutcome().name();
+        }
+
+        public Instant getLastElectionAt() {
+            return status.getLastElectionAt();
+        }
+
+        /**
+         * @return duration of the most recent election in milliseconds, or
+         *   {@code null} if no election has completed yet
+         */
+        public Double getLastElectionDurationMs() {
+            return (status.getLastElectionDuration() == null) 
+                    ? null 
+                    : status.getLastElectionDuration().toNanos() / 1e6;
+        }
+
+        public int getFailureStreak() {
+            return status.getFailureStreak();
+        }
+
+        public String getLastError() {
+            return (status.getLastError() == null) ? null : status.getLastError().getMessage();
+        }
+    }
+}
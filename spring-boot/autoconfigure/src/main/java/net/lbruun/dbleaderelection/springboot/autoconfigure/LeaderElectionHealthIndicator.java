@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.springboot.autoconfigure;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorStatus;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Health of the Leader Electors in the application context. DOWN if any
+ * of them is closed or if its most recent election ended with a 
+ * {@link LeaderElectorStatus#hasNonRecoverableError() non-recoverable error}.
+ * Transient errors, and not being leader, don't count.
+ * 
+ * <p>
+ * The health is determined from {@link LeaderElector#getStatus()}, which 
+ * never connects to the database.
+ */
+public class LeaderElectionHealthIndicator implements HealthIndicator {
+
+    private final Map<String, LeaderElector> leaderElectors;
+
+    public LeaderElectionHealthIndicator(Map<String, LeaderElector> leaderElectors) {
+        this.leaderElectors = leaderElectors;
+    }
+
+    @Override
+    public Health health() {
+        boolean up = true;
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (Map.Entry<String, LeaderElector> entry : leaderElectors.entrySet()) {
+            LeaderElectorStatus status = entry.getValue().getStatus();
+            boolean healthy = !status.isClosed() && !status.hasNonRecoverableError();
+            up &= healthy;
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("status", healthy ? "UP" : "DOWN");
+            detail.put("roleId", status.getRoleId());
+            detail.put("candidateId", status.getCandidateId());
+            detail.put("leader", status.isLeader());
+            detail.put("failureStreak", status.getFailureStreak());
+            if (status.isClosed()) {
+                detail.put("closed", true);
+            }
+            if (status.getLastError() != null) {
+                detail.put("lastError", status.getLastError().getMessage());
+            }
+            details.put(entry.getKey(), detail);
+        }
+        return (up ? Health.up() : Health.down()).withDetails(details).build();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.springboot.autoconfigure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.lbruun.dbleaderelect.LeaderElectorListener.EventType;
+import net.lbruun.dbleaderelect.exception.LeaderElectorException;
+import net.lbruun.dbleaderelect.metrics.ElectionMetricsRecorder;
+import net.lbruun.dbleaderelect.metrics.ElectionPhase;
+
+/**
+ * Records the measurements of a Leader Elector into a Micrometer
+ * {@link MeterRegistry}. All meters are tagged with the role.
+ *
+ * <p>
+ * Meters:
+ * <ul>
+ *   <li>{@code dbleaderelection.phase} (timer), tagged with {@code phase}, 
+ *       with published percentiles 0.5, 0.9 and 0.99.</li>
+ *   <li>{@code dbleaderelection.elections} (counter), tagged with 
+ *       {@code outcome} and {@code failed}.</li>
+ *   <li>{@code dbleaderelection.errors} (counter), tagged with 
+ *       {@code exception}, the class name of the error's cause.</li>
+ *   <li>{@code dbleaderelection.failure.streak} (gauge), the number of 
+ *       consecutive elections which have ended with errors.</li>
+ *   <li>{@code dbleaderelection.lease.age} (timer), the age of the lease
+ *       when the leader renewed it, with published percentiles 0.5, 0.9 
+ *       and 0.99.</li>
+ *   <li>{@code dbleaderelection.lease.margin.low} (counter), the number of
+ *       renewals where the safety margin of the lease was low.</li>
+ * </ul>
+ */
+public class MicrometerElectionMetricsRecorder implements ElectionMetricsRecorder {
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final Timer[] timers = new Timer[ElectionPhase.values().length];
+    private final Counter[] outcomes = new Counter[EventType.values().length * 2];
+    private final AtomicInteger failureStreak = new AtomicInteger();
+    private final Timer leaseAge;
+    private final Counter leaseMarginLow;
+
+    public MicrometerElectionMetricsRecorder(MeterRegistry registry, String roleId) {
+        this.registry = registry;
+        this.tags = Tags.of("role", roleId);
+        for (ElectionPhase phase : ElectionPhase.values()) {
+            timers[phase.ordinal()] = Timer.builder("dbleaderelection.phase")
+                    .description("Duration of a phase of the leader election cycle")
+                    .tags(tags)
+                    .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                    .publishPercentiles(0.5, 0.9, 0.99)
+                    .register(registry);
+        }
+        for (EventType eventType : EventType.values()) {
+            for (boolean failed : new boolean[]{false, true}) {
+                outcomes[outcomeIndex(eventType, failed)] = Counter.builder("dbleaderelection.elections")
+                        .description("Number of leader elections by outcome")
+                        .tags(tags)
+                        .tag("outcome", eventType.name().toLowerCase(Locale.ROOT))
+                        .tag("failed", Boolean.toString(failed))
+                        .register(registry);
+            }
+        }
+        leaseAge = Timer.builder("dbleaderelection.lease.age")
+                .description("Age of the lease when the leader renewed it")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+        leaseMarginLow = Counter.builder("dbleaderelection.lease.margin.low")
+                .description("Number of lease renewals with a low safety margin")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("dbleaderelection.failure.streak", failureStreak, AtomicInteger::get)
+                .description("Number of consecutive leader elections which have ended with errors")
+                .tags(tags)
+                .register(registry);
+    }
+
+    private static int outcomeIndex(EventType eventType, boolean failed) {
+        return eventType.ordinal() * 2 + (failed ? 1 : 0);
+    }
+
+    @Override
+    public void recordTiming(ElectionPhase phase, long nanos) {
+        timers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordOutcome(EventType eventType, boolean failed) {
+        outcomes[outcomeIndex(eventType, failed)].increment();
+        if (failed) {
+            failureStreak.incrementAndGet();
+        } else {
+            failureStreak.set(0);
+        }
+    }
+
+    @Override
+    public void recordLeaseRenewal(long leaseAgeMillis, boolean marginLow) {
+        leaseAge.record(leaseAgeMillis, TimeUnit.MILLISECONDS);
+        if (marginLow) {
+            leaseMarginLow.increment();
+        }
+    }
+
+    @Override
+    public void recordError(LeaderElectorException error) {
+        Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+        // Errors are rare, so the lookup is cheap enough
+        Counter.builder("dbleaderelection.errors")
+                .description("Number of errors in leader elections by class")
+                .tags(tags)
+                .tag("exception", cause.getClass().getName())
+                .register(registry)
+                .increment();
+    }
+}
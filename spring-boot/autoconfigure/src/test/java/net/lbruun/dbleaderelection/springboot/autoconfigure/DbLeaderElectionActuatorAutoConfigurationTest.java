@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 lbruun.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.lbruun.dbleaderelection.springboot.autoconfigure;
+
+import java.util.Map;
+import javax.sql.DataSource;
+import net.lbruun.dbleaderelect.DatabaseEngine;
+import net.lbruun.dbleaderelect.LeaderElector;
+import net.lbruun.dbleaderelect.LeaderElectorConfiguration;
+import net.lbruun.dbleaderelect.LeaderElectorLogger;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DbLeaderElectionActuatorAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DbLeaderElectionActuatorAutoConfiguration.class))
+            .withPropertyValues("management.endpoints.web.exposure.include=leaderelection");
+
+    @Test
+    public void testActuatorPresent() {
+        contextRunner.withUserConfiguration(LeaderElectorConfig.class)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(LeaderElectionEndpoint.class);
+                    assertThat(context).hasSingleBean(LeaderElectionHealthIndicator.class);
+                    assertThat(context.getBean(LeaderElectionEndpoint.class).leaderElectors().getLeaderElectors())
+                            .containsOnlyKeys("leaderElector");
+                });
+    }
+
+    @Test
+    public void testActuatorAbsent() {
+        contextRunner.withUserConfiguration(LeaderElectorConfig.class)
+                .withClassLoader(new FilteredClassLoader(Endpoint.class))
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(LeaderElectionEndpoint.class);
+                    assertThat(context).doesNotHaveBean(LeaderElectionHealthIndicator.class);
+                });
+    }
+
+    @Test
+    public void testNoLeaderElector() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(LeaderElectionEndpoint.class);
+            assertThat(context).doesNotHaveBean(LeaderElectionHealthIndicator.class);
+        });
+    }
+
+    @Test
+    public void testHealthIndicatorDisabled() {
+        contextRunner.withUserConfiguration(LeaderElectorConfig.class)
+                .withPropertyValues("management.health.leaderelection.enabled=false")
+                .run(context -> assertThat(context).doesNotHaveBean(LeaderElectionHealthIndicator.class));
+    }
+
+    @Test
+    public void testHealthUpThenDownWhenClosed() {
+        contextRunner.withUserConfiguration(LeaderElectorConfig.class)
+                .run(context -> {
+                    LeaderElectionHealthIndicator healthIndicator = context.getBean(LeaderElectionHealthIndicator.class);
+                    Health health = healthIndicator.health();
+                    assertThat(health.getStatus()).isEqualTo(Status.UP);
+                    assertThat(health.getDetails()).containsOnlyKeys("leaderElector");
+                    assertThat(detail(health, "leaderElector"))
+                            .containsEntry("status", "UP")
+                            .containsEntry("roleId", "ACTUATOR");
+
+                    context.getBean(LeaderElector.class).close();
+
+                    health = healthIndicator.health();
+                    assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+                    assertThat(detail(health, "leaderElector"))
+                            .containsEntry("status", "DOWN")
+                            .containsEntry("closed", true);
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> detail(Health health, String beanName) {
+        return (Map<String, Object>) health.getDetails().get(beanName);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class LeaderElectorConfig {
+
+        @Bean(destroyMethod = "close")
+        public LeaderElector leaderElector() throws Exception {
+            LeaderElectorConfiguration configuration = LeaderElectorConfiguration.builder()
+                    .withRoleId("ACTUATOR")
+                    .withDatabaseEngine(DatabaseEngine.H2)
+                    .withCreateTable(true)
+                    .withLogger(LeaderElectorLogger.NULL_LOGGER)
+                    .build();
+            return new LeaderElector(configuration, dataSource());
+        }
+
+        private static DataSource dataSource() {
+            JdbcDataSource ds = new JdbcDataSource();
+            ds.setURL("jdbc:h2:mem:actuator;DB_CLOSE_DELAY=-1");
+            ds.setUser("sa");
+            ds.setPassword("");
+            return ds;
+        }
+    }
+}
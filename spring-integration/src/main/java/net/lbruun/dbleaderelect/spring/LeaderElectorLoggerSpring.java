@@ -43,6 +43,39 @@ public class LeaderElectorLoggerSpring implements LeaderElectorLogger {
         log.error(msg, throwable);
     }
     
+    @Override
+    public void logWarning(Class originatingClass, String msg, Throwable throwable) {
+        Log log = getNamedLogger(originatingClass);
+        log.warn(msg, throwable);
+    }
+
+    @Override
+    public void logDebug(Class originatingClass, String msg) {
+        Log log = getNamedLogger(originatingClass);
+        log.debug(msg);
+    }
+
+    @Override
+    public void logTrace(Class originatingClass, String msg) {
+        Log log = getNamedLogger(originatingClass);
+        log.trace(msg);
+    }
+
+    @Override
+    public boolean isInfoEnabled(Class originatingClass) {
+        return getNamedLogger(originatingClass).isInfoEnabled();
+    }
+
+    @Override
+    public boolean isDebugEnabled(Class originatingClass) {
+        return getNamedLogger(originatingClass).isDebugEnabled();
+    }
+
+    @Override
+    public boolean isTraceEnabled(Class originatingClass) {
+        return getNamedLogger(originatingClass).isTraceEnabled();
+    }
+    
     private Log getNamedLogger(Class klazz) {
         return LOGGERS.computeIfAbsent(klazz, LogFactory::getLog);
     }